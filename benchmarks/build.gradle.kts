@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2004-2024 The MZmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+/*
+ * JMH benchmarks of core algorithms on synthetic data.
+ *
+ * Run all benchmarks:            ./gradlew :benchmarks:jmh
+ * Run a subset (regex):          ./gradlew :benchmarks:jmh -PjmhIncludes=MassDetector
+ *
+ * Results are written as JSON to build/results/jmh/<git commit>.json to compare runs across
+ * commits, e.g., with https://jmh.morethan.io
+ */
+
+plugins {
+    id("io.github.mzmine.java-common-conv")
+    id("io.github.mzmine.javafx-conv")
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+    // local libraries
+    maven { url = uri("file://" + layout.projectDirectory.dir("../local-repo")) }
+    // runtime dependencies of mzmine-community
+    maven { url = uri("https://www.ebi.ac.uk/Tools/maven/repos/content/groups/ebi-repo/") }
+    maven { url = uri("https://bio.informatik.uni-jena.de/repository/libs-oss/") }
+    maven { url = uri("https://jitpack.io") }
+    maven { url = uri("https://www.xypron.de/repository/") }
+}
+
+dependencies {
+    jmh(project(":mzmine-community"))
+    jmh(project(":taskcontroller"))
+    jmh(project(":utils"))
+    jmh(libs.mzio.memory.management)
+    jmh(libs.bundles.msdk)
+    jmh(libs.guava)
+}
+
+val commit = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim() }.getOrElse("").ifBlank { "local" }
+
+jmh {
+    jmhVersion = libs.versions.jmh
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/$commit.json")
+    jvmArgsAppend.add("--enable-preview")
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
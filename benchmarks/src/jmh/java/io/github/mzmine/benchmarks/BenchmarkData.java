@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.synthetic.SyntheticDataConfig;
+import io.github.mzmine.util.synthetic.SyntheticDataGenerator;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Deterministic synthetic data for the benchmarks. The same seed always creates the same data.
+ */
+public final class BenchmarkData {
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * @return centroid data points sorted by m/z
+   */
+  @NotNull
+  public static DataPoint[] centroidDataPoints(@NotNull Random random, int numSignals) {
+    final DataPoint[] dps = new DataPoint[numSignals];
+    for (int i = 0; i < numSignals; i++) {
+      dps[i] = new SimpleDataPoint(50 + random.nextDouble() * 950,
+          Math.pow(10, 2 + random.nextDouble() * 4));
+    }
+    Arrays.sort(dps, (a, b) -> Double.compare(a.getMZ(), b.getMZ()));
+    return dps;
+  }
+
+  /**
+   * Copy of the spectrum with shifted m/z values and noisy intensities, to simulate a similar
+   * spectrum of the same compound
+   */
+  @NotNull
+  public static DataPoint[] similarDataPoints(@NotNull Random random, @NotNull DataPoint[] dps,
+      double maxMzShift) {
+    final DataPoint[] similar = new DataPoint[dps.length];
+    for (int i = 0; i < dps.length; i++) {
+      similar[i] = new SimpleDataPoint(dps[i].getMZ() + (random.nextDouble() * 2 - 1) * maxMzShift,
+          dps[i].getIntensity() * (0.8 + random.nextDouble() * 0.4));
+    }
+    return similar;
+  }
+
+  /**
+   * Profile spectrum of gaussian peaks on a regular m/z grid with a noise baseline
+   *
+   * @return [0] m/z values and [1] intensities
+   */
+  @NotNull
+  public static double[][] profileSpectrum(@NotNull Random random, int numPeaks,
+      int pointsPerPeak) {
+    final double step = 0.002;
+    final int numPoints = numPeaks * pointsPerPeak * 4;
+    final double[] mzs = new double[numPoints];
+    final double[] intensities = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      mzs[i] = 100 + i * step;
+      intensities[i] = random.nextDouble() * 50;
+    }
+    final double sigma = pointsPerPeak / 6d;
+    for (int p = 0; p < numPeaks; p++) {
+      final int center = random.nextInt(pointsPerPeak, numPoints - pointsPerPeak);
+      final double height = Math.pow(10, 3 + random.nextDouble() * 3);
+      for (int i = center - pointsPerPeak / 2; i <= center + pointsPerPeak / 2; i++) {
+        final double x = (i - center) / sigma;
+        intensities[i] += height * Math.exp(-0.5 * x * x);
+      }
+    }
+    return new double[][]{mzs, intensities};
+  }
+
+  /**
+   * Gaussian peaks with noise along a retention time axis
+   *
+   * @return [0] retention times and [1] intensities
+   */
+  @NotNull
+  public static double[][] chromatogram(@NotNull Random random, int numPoints, int numPeaks) {
+    final double[] rts = new double[numPoints];
+    final double[] intensities = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      rts[i] = i * 0.01;
+      intensities[i] = random.nextDouble() * 100;
+    }
+    for (int p = 0; p < numPeaks; p++) {
+      final double apex = random.nextDouble() * numPoints;
+      final double sigma = 3 + random.nextDouble() * 10;
+      final double height = Math.pow(10, 3 + random.nextDouble() * 3);
+      for (int i = 0; i < numPoints; i++) {
+        final double x = (i - apex) / sigma;
+        intensities[i] += height * Math.exp(-0.5 * x * x);
+      }
+    }
+    return new double[][]{rts, intensities};
+  }
+
+  /**
+   * LC-MS data file of centroided MS1 scans with mass lists, see {@link SyntheticDataGenerator}
+   *
+   * @param compounds number of compounds
+   * @param noise     number of random noise signals per scan
+   */
+  @NotNull
+  public static RawDataFile lcmsFile(@NotNull String name, long seed, int numScans, int compounds,
+      int noise, @Nullable MemoryMapStorage storage) throws IOException {
+    return lcmsGenerator(seed, numScans, compounds, noise).createLcmsFile(0, name, storage);
+  }
+
+  /**
+   * Generator for LC-MS files of multiple samples that share the same compounds
+   */
+  @NotNull
+  public static SyntheticDataGenerator lcmsGenerator(long seed, int numScans, int compounds,
+      int noise) {
+    final SyntheticDataConfig config = SyntheticDataConfig.builder().numScans(numScans)
+        .scanInterval(0.02f).peakSigma(0.08f).compounds(compounds).noiseSignals(noise).build();
+    return new SyntheticDataGenerator(config, seed);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ADAPChromatogramBuilderParameters;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderModule;
+import io.github.mzmine.modules.dataprocessing.featdet_adapchromatogrambuilder.ModularADAPChromatogramBuilderTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ADAP chromatogram building on a synthetic LC-MS file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChromatogramBuilderBenchmark {
+
+  @Param({"1000"})
+  public int scans;
+
+  @Param({"500", "5000"})
+  public int compounds;
+
+  @Param({"200"})
+  public int noise;
+
+  private RawDataFile file;
+  private ParameterSet parameters;
+
+  /**
+   * Runs the chromatogram builder on the MS1 scans of a file and adds the feature list to the
+   * project
+   */
+  public static void buildFeatureList(@NotNull MZmineProject project, @NotNull RawDataFile file,
+      @NotNull ParameterSet parameters, @Nullable MemoryMapStorage storage) {
+    ModularADAPChromatogramBuilderTask.forChromatography(project, file, parameters, storage,
+        Instant.now(), ModularADAPChromatogramBuilderModule.class).run();
+  }
+
+  /**
+   * @return chromatogram builder parameters matching the synthetic data in {@link BenchmarkData}
+   */
+  @NotNull
+  public static ParameterSet createParameters() {
+    final ParameterSet param = MZmineCore.getConfiguration()
+        .getModuleParameters(ModularADAPChromatogramBuilderModule.class).cloneParameterSet();
+    param.setParameter(ADAPChromatogramBuilderParameters.scanSelection, new ScanSelection(1));
+    param.setParameter(ADAPChromatogramBuilderParameters.minimumConsecutiveScans, 4);
+    param.setParameter(ADAPChromatogramBuilderParameters.mzTolerance,
+        new MZTolerance(0.002, 10));
+    param.setParameter(ADAPChromatogramBuilderParameters.minGroupIntensity, 1000d);
+    param.setParameter(ADAPChromatogramBuilderParameters.minHighestPoint, 5000d);
+    param.setParameter(ADAPChromatogramBuilderParameters.suffix, "chroms");
+    return param;
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    file = BenchmarkData.lcmsFile("benchmark", 42, scans, compounds, noise, null);
+    parameters = createParameters();
+  }
+
+  @Benchmark
+  public MZmineProject buildChromatograms() {
+    final MZmineProject project = new MZmineProjectImpl();
+    buildFeatureList(project, file, parameters, null);
+    return project;
+  }
+}
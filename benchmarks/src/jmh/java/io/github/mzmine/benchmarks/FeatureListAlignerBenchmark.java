@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerParameters;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.util.synthetic.SyntheticDataGenerator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Join alignment of feature lists from multiple synthetic LC-MS files with the
+ * BaseFeatureListAligner
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FeatureListAlignerBenchmark {
+
+  @Param({"5", "20"})
+  public int samples;
+
+  @Param({"2000"})
+  public int compounds;
+
+  private List<FeatureList> featureLists;
+  private ParameterSet parameters;
+
+  @Setup
+  public void setup() {
+    final MZmineProject project = new MZmineProjectImpl();
+    final ParameterSet builderParameters = ChromatogramBuilderBenchmark.createParameters();
+    // all samples share the same compounds with sample specific variation
+    final SyntheticDataGenerator generator = BenchmarkData.lcmsGenerator(42, 500, compounds, 50);
+    for (RawDataFile file : generator.createFiles(samples, "sample", false)) {
+      ChromatogramBuilderBenchmark.buildFeatureList(project, file, builderParameters, null);
+    }
+    featureLists = project.getCurrentFeatureLists();
+
+    parameters = JoinAlignerParameters.create(new MZTolerance(0.003, 10));
+    parameters.setParameter(JoinAlignerParameters.RTTolerance, new RTTolerance(0.1f, Unit.MINUTES));
+    parameters.setParameter(JoinAlignerParameters.RTWeight, 1d);
+  }
+
+  @Benchmark
+  public ModularFeatureList align() {
+    return JoinAlignerTask.createAligner(null, null, parameters, featureLists, "aligned")
+        .alignFeatureLists();
+  }
+}
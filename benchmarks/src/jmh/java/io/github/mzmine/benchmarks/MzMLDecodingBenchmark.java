@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.msdk.MSDKException;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBinaryDataInfo;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCompressionType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPeaksDecoder;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLPeaksEncoder;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Decoding of binary data arrays as done by the MzMLParser for every spectrum. The parser itself
+ * requires an mzML stream, so the decoding is measured on pre-encoded arrays.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MzMLDecodingBenchmark {
+
+  @Param({"NO_COMPRESSION", "ZLIB", "NUMPRESS_LINPRED", "NUMPRESS_LINPRED_ZLIB"})
+  public MzMLCompressionType compression;
+
+  @Param({"10000"})
+  public int values;
+
+  private String encoded;
+  private MzMLBinaryDataInfo info;
+  private byte[] numpressEncoded;
+  private int numpressLength;
+  private double[] buffer;
+
+  @Setup
+  public void setup() throws MSDKException {
+    final Random random = new Random(42);
+    final double[] mzs = BenchmarkData.profileSpectrum(random, values / 40, 10)[0];
+
+    encoded = new String(MzMLPeaksEncoder.encodeDouble(mzs, compression),
+        StandardCharsets.US_ASCII);
+    info = new MzMLBinaryDataInfo(encoded.length(), mzs.length);
+    info.setCompressionType(compression);
+    info.setBitLength(MzMLBitLength.SIXTY_FOUR_BIT_FLOAT);
+
+    numpressEncoded = new byte[8 + mzs.length * 5];
+    numpressLength = MSNumpress.encodeLinear(mzs, mzs.length, numpressEncoded,
+        MSNumpress.optimalLinearFixedPoint(mzs, mzs.length));
+    buffer = new double[mzs.length];
+  }
+
+  @Benchmark
+  public double[] decodeBinaryArray() {
+    return MzMLPeaksDecoder.decodeToDoubleAsArray(encoded, info, buffer);
+  }
+
+  @Benchmark
+  public double[] decodeNumpressLinear() {
+    MSNumpress.decodeLinear(numpressEncoded, numpressLength, buffer);
+    return buffer;
+  }
+}
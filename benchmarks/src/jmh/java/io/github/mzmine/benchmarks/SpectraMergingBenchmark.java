@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.util.scans.SpectraMerging;
+import io.github.mzmine.util.scans.SpectraMerging.IntensityMergingType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Merging of similar MS2 spectra of the same precursor
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpectraMergingBenchmark {
+
+  @Param({"5", "50"})
+  public int spectra;
+
+  @Param({"200"})
+  public int signals;
+
+  private List<MassSpectrum> source;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(42);
+    final DataPoint[] base = BenchmarkData.centroidDataPoints(random, signals);
+    source = new ArrayList<>(spectra);
+    for (int i = 0; i < spectra; i++) {
+      final DataPoint[] dps = BenchmarkData.similarDataPoints(random, base, 0.003);
+      Arrays.sort(dps, (a, b) -> Double.compare(a.getMZ(), b.getMZ()));
+      source.add(new SimpleMassSpectrum(Arrays.stream(dps).mapToDouble(DataPoint::getMZ).toArray(),
+          Arrays.stream(dps).mapToDouble(DataPoint::getIntensity).toArray(),
+          MassSpectrumType.CENTROIDED));
+    }
+  }
+
+  @Benchmark
+  public double[][] mergeSummed() {
+    return SpectraMerging.calculatedMergedMzsAndIntensities(source,
+        SpectraMerging.defaultMs2MergeTol, IntensityMergingType.SUMMED,
+        SpectraMerging.DEFAULT_CENTER_FUNCTION, null, null, null);
+  }
+}
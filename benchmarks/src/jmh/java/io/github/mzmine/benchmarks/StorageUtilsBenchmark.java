@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.benchmarks;
+
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Storing spectra and feature data in memory mapped files or in memory. Storing runs in batches
+ * with a new storage per iteration to limit the size of the temporary files.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageUtilsBenchmark {
+
+  @Param({"1000", "10000"})
+  public int values;
+
+  @Param({"true", "false"})
+  public boolean memoryMapped;
+
+  private MemoryMapStorage storage;
+  private double[] data;
+  private MemorySegment stored;
+
+  @Setup(Level.Trial)
+  public void setupData() {
+    final Random random = new Random(42);
+    data = random.doubles(values).toArray();
+  }
+
+  @Setup(Level.Iteration)
+  public void setupStorage() {
+    storage = memoryMapped ? MemoryMapStorage.create() : null;
+    stored = StorageUtils.storeValuesToDoubleBuffer(storage, data);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 3, batchSize = 1000)
+  @Measurement(iterations = 5, batchSize = 1000)
+  public MemorySegment store() {
+    return StorageUtils.storeValuesToDoubleBuffer(storage, data);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  public double[] read() {
+    return StorageUtils.copyOfRangeDouble(stored, 0, values);
+  }
+}
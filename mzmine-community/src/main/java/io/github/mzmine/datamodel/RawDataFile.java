@@ -29,6 +29,8 @@ import static java.util.Objects.requireNonNullElse;
 
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
+import io.github.mzmine.datamodel.impl.SharedMzAxisStorage;
 import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.collections.BinarySearch;
@@ -295,6 +297,22 @@ public interface RawDataFile {
 
   @Nullable MemoryMapStorage getMemoryMapStorage();
 
+  /**
+   * @return storage that shares recurring m/z axes of scans, e.g., of profile spectra. null if m/z
+   * values are stored per scan
+   */
+  default @Nullable SharedMzAxisStorage getSharedMzAxisStorage() {
+    return null;
+  }
+
+  /**
+   * @return columnar metadata of all scans in the order of {@link #getScans()} or null if not
+   * supported by this implementation
+   */
+  default @Nullable ScanMetadataIndex getScanMetadataIndex() {
+    return null;
+  }
+
   void addScan(Scan newScan) throws IOException;
 
   @NotNull ObservableList<Scan> getScans();
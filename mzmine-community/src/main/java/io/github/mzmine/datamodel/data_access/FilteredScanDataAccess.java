@@ -29,8 +29,6 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess.ScanDataType;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
-import java.util.ArrayList;
-import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -43,7 +41,7 @@ public class FilteredScanDataAccess extends ScanDataAccess {
 
   @NotNull
   protected final ScanSelection selection;
-  protected final List<Integer> filteredScanIndexesInFile;
+  protected final int[] filteredScanIndexesInFile;
   protected final int totalScans;
 
   /**
@@ -59,19 +57,13 @@ public class FilteredScanDataAccess extends ScanDataAccess {
     super(dataFile, type);
     this.selection = selection;
     // list of filtered indexes
-    filteredScanIndexesInFile = new ArrayList<>();
-    // count matching scans
-    for (int i = 0; i < dataFile.getNumOfScans(); i++) {
-      if (selection.matches(dataFile.getScan(i))) {
-        filteredScanIndexesInFile.add(i);
-      }
-    }
-    totalScans = filteredScanIndexesInFile.size();
+    filteredScanIndexesInFile = selection.getMatchingScanIndices(dataFile);
+    totalScans = filteredScanIndexesInFile.length;
   }
 
   public Scan getCurrentScan() {
     return scanIndex >= 0 && scanIndex < totalScans ?
-        dataFile.getScan(filteredScanIndexesInFile.get(scanIndex)) : null;
+        dataFile.getScan(filteredScanIndexesInFile[scanIndex]) : null;
   }
 
   @Override
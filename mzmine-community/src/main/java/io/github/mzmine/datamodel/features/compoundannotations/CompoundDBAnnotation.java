@@ -92,11 +92,7 @@ public interface CompoundDBAnnotation extends Cloneable, FeatureAnnotation,
   static List<CompoundDBAnnotation> buildCompoundsWithAdducts(
       CompoundDBAnnotation neutralAnnotation, IonNetworkLibrary library) {
     final List<CompoundDBAnnotation> annotations = new ArrayList<>();
-    for (IonType adduct : library.getAllAdducts()) {
-      if (adduct.isUndefinedAdduct() || adduct.isUndefinedAdductParent() || adduct.getName()
-          .contains("?")) {
-        continue;
-      }
+    for (IonType adduct : getIonizableAdducts(library)) {
       try {
         annotations.add(neutralAnnotation.ionize(adduct));
       } catch (IllegalStateException e) {
@@ -108,6 +104,16 @@ public interface CompoundDBAnnotation extends Cloneable, FeatureAnnotation,
     return annotations;
   }
 
+  /**
+   * @return all adducts of the library that can be used to ionize a compound. Undefined adducts are
+   * excluded.
+   */
+  static List<IonType> getIonizableAdducts(IonNetworkLibrary library) {
+    return library.getAllAdducts().stream().filter(
+        adduct -> !(adduct.isUndefinedAdduct() || adduct.isUndefinedAdductParent()
+                    || adduct.getName().contains("?"))).toList();
+  }
+
   /**
    * @param baseAnnotation The annotation to check.
    * @param useIonLibrary  true if an ion library shall be used later on to ionise the
@@ -35,6 +35,7 @@ import javafx.beans.value.ObservableValue;
 import javafx.scene.control.TreeTableColumn;
 import javafx.scene.control.TreeTableColumn.CellDataFeatures;
 import javafx.util.Callback;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Default data cell type factory
@@ -59,7 +60,17 @@ public class DataTypeCellValueFactory implements
 
   @Override
   public ObservableValue<Object> call(CellDataFeatures<ModularFeatureListRow, Object> param) {
-    ModularFeatureListRow row = param.getValue().getValue();
+    final Object value = getValue(param.getValue().getValue());
+    return value == null ? null : new SimpleObjectProperty<>(value);
+  }
+
+  /**
+   * The cell value read from the data model. Does not access the table and may be called from any
+   * thread, e.g., to sort rows.
+   *
+   * @return the value of the row or feature or null
+   */
+  public @Nullable Object getValue(ModularFeatureListRow row) {
     // feature or row type?
     final ModularDataModel model = getModel(row);
     if (model == null) {
@@ -70,11 +81,9 @@ public class DataTypeCellValueFactory implements
 
     if (parentType != null && parentType instanceof DataType parent) {
       Object value = model.get(parent);
-      Object subColValue = parentType.getSubColValue(subColIndex, value);
-      return subColValue == null ? null : new SimpleObjectProperty<>(subColValue);
+      return parentType.getSubColValue(subColIndex, value);
     } else {
-      Object value = model.get(type);
-      return value == null ? null : new SimpleObjectProperty<>(value);
+      return model.get(type);
     }
   }
 
@@ -26,6 +26,7 @@
 package io.github.mzmine.datamodel.features.types.numbers.abstr;
 
 import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.util.ThreadLocalNumberFormat;
 import java.text.NumberFormat;
 import org.jetbrains.annotations.NotNull;
 
@@ -40,7 +41,8 @@ public abstract class NumberFormatType<T> extends DataType<T> {
   protected final NumberFormat DEFAULT_FORMAT;
 
   protected NumberFormatType(NumberFormat defaultFormat) {
-    DEFAULT_FORMAT = defaultFormat;
+    // types are shared singletons and may be formatted in parallel
+    DEFAULT_FORMAT = ThreadLocalNumberFormat.of(defaultFormat);
   }
 
   public abstract NumberFormat getFormat();
@@ -26,13 +26,15 @@
 package io.github.mzmine.datamodel.features.types.otherdectectors;
 
 import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.util.ThreadLocalNumberFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import org.jetbrains.annotations.NotNull;
 
 public class WavelengthType extends DoubleType {
 
-  private static NumberFormat DEFAULT_FORMAT = new DecimalFormat("0.0");
+  private static final NumberFormat DEFAULT_FORMAT = ThreadLocalNumberFormat.of(
+      new DecimalFormat("0.0"));
 
   public WavelengthType() {
     super(DEFAULT_FORMAT);
@@ -62,7 +62,18 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
    */
   public AbstractStorableSpectrum(@Nullable MemoryMapStorage storage, @Nullable double[] mzValues,
       @Nullable double[] intensityValues) {
-    setDataPoints(storage, mzValues, intensityValues);
+    setDataPoints(storage, null, mzValues, intensityValues);
+  }
+
+  /**
+   * @param mzAxisStorage if not null, the m/z values are stored through this storage to share
+   *                      recurring m/z axes between scans
+   * @see #AbstractStorableSpectrum(MemoryMapStorage, double[], double[])
+   */
+  public AbstractStorableSpectrum(@Nullable MemoryMapStorage storage,
+      @Nullable SharedMzAxisStorage mzAxisStorage, @Nullable double[] mzValues,
+      @Nullable double[] intensityValues) {
+    setDataPoints(storage, mzAxisStorage, mzValues, intensityValues);
   }
 
   public AbstractStorableSpectrum(@Nullable MemorySegment mzValues,
@@ -80,8 +91,14 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     }
   }
 
-  protected synchronized void setDataPoints(@Nullable MemoryMapStorage storage,
+  protected void setDataPoints(@Nullable MemoryMapStorage storage,
       @Nullable double[] mzValues, @Nullable double[] intensityValues) {
+    setDataPoints(storage, null, mzValues, intensityValues);
+  }
+
+  protected synchronized void setDataPoints(@Nullable MemoryMapStorage storage,
+      @Nullable SharedMzAxisStorage mzAxisStorage, @Nullable double[] mzValues,
+      @Nullable double[] intensityValues) {
 
     if (mzValues == null && intensityValues == null) {
       return;
@@ -100,7 +117,8 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     SimpleSpectralArrays sorted = DataPointUtils.ensureSortingMzAscendingDefault(
         new SimpleSpectralArrays(mzValues, intensityValues));
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
+    this.mzValues = mzAxisStorage != null ? mzAxisStorage.storeMzValues(sorted.mzs())
+        : StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
     this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
     onDataChangedEvent();
   }
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar metadata of all scans in a raw data file. Values are copied from the scans when they are
+ * added, so that summary values and scan selections by MS level, retention time and precursor m/z
+ * do not touch the scan objects. Scan indices refer to the position in
+ * {@link io.github.mzmine.datamodel.RawDataFile#getScans()}.
+ * <p>
+ * Retention time queries use binary search if the scans of an MS level are sorted by retention
+ * time, which is the case for all chromatographic data.
+ */
+public class ScanMetadataIndex {
+
+  /**
+   * Key for the statistics of all MS levels
+   */
+  private static final int ALL_LEVELS = 0;
+  private static final PolarityType[] POLARITIES = PolarityType.values();
+
+  private final FloatArrayList retentionTimes = new FloatArrayList();
+  private final IntArrayList msLevels = new IntArrayList();
+  private final ByteArrayList polarities = new ByteArrayList();
+  // NaN if not available
+  private final DoubleArrayList precursorMzs = new DoubleArrayList();
+  private final DoubleArrayList tics = new DoubleArrayList();
+  private final DoubleArrayList basePeakIntensities = new DoubleArrayList();
+  private final FloatArrayList injectionTimes = new FloatArrayList();
+
+  // scan indices per MS level in ascending order
+  private final Int2ObjectSortedMap<IntArrayList> scansPerLevel = new Int2ObjectRBTreeMap<>();
+  private final Int2ObjectMap<LevelStatistics> statistics = new Int2ObjectOpenHashMap<>();
+  // scan indices sorted by precursor m/z, created on demand
+  private final Int2ObjectMap<int[]> precursorOrder = new Int2ObjectOpenHashMap<>();
+  private final Set<PolarityType> polarityTypes = EnumSet.noneOf(PolarityType.class);
+
+  public ScanMetadataIndex() {
+  }
+
+  public static ScanMetadataIndex of(@NotNull List<? extends Scan> scans) {
+    final ScanMetadataIndex index = new ScanMetadataIndex();
+    for (final Scan scan : scans) {
+      index.add(scan);
+    }
+    return index;
+  }
+
+  /**
+   * Appends the metadata of a scan. Scans need to be added in the order of the raw data file.
+   */
+  public synchronized void add(@NotNull Scan scan) {
+    final int index = retentionTimes.size();
+    final float rt = scan.getRetentionTime();
+    final int msLevel = scan.getMSLevel();
+    final Double precursorMz = scan.getPrecursorMz();
+    final Double tic = scan.getTIC();
+    final Double basePeak = scan.getBasePeakIntensity();
+    final Float injectionTime = scan.getInjectionTime();
+
+    retentionTimes.add(rt);
+    msLevels.add(msLevel);
+    polarities.add((byte) scan.getPolarity().ordinal());
+    precursorMzs.add(precursorMz != null ? precursorMz : Double.NaN);
+    tics.add(tic != null ? tic : Double.NaN);
+    basePeakIntensities.add(basePeak != null ? basePeak : Double.NaN);
+    injectionTimes.add(injectionTime != null ? injectionTime : Float.NaN);
+    polarityTypes.add(scan.getPolarity());
+
+    scansPerLevel.computeIfAbsent(msLevel, _ -> new IntArrayList()).add(index);
+    precursorOrder.remove(msLevel);
+
+    final Range<Double> mzRange = scan.getDataPointMZRange();
+    statistics.computeIfAbsent(msLevel, _ -> new LevelStatistics()).add(rt, mzRange, tic, basePeak);
+    statistics.computeIfAbsent(ALL_LEVELS, _ -> new LevelStatistics())
+        .add(rt, mzRange, tic, basePeak);
+  }
+
+  public synchronized int size() {
+    return retentionTimes.size();
+  }
+
+  public synchronized float getRetentionTime(int scanIndex) {
+    return retentionTimes.getFloat(scanIndex);
+  }
+
+  public synchronized int getMsLevel(int scanIndex) {
+    return msLevels.getInt(scanIndex);
+  }
+
+  public synchronized @NotNull PolarityType getPolarity(int scanIndex) {
+    return POLARITIES[polarities.getByte(scanIndex)];
+  }
+
+  /**
+   * @return the precursor m/z or NaN
+   */
+  public synchronized double getPrecursorMz(int scanIndex) {
+    return precursorMzs.getDouble(scanIndex);
+  }
+
+  /**
+   * @return the TIC or NaN
+   */
+  public synchronized double getTIC(int scanIndex) {
+    return tics.getDouble(scanIndex);
+  }
+
+  /**
+   * @return the base peak intensity or NaN
+   */
+  public synchronized double getBasePeakIntensity(int scanIndex) {
+    return basePeakIntensities.getDouble(scanIndex);
+  }
+
+  /**
+   * @return the injection time or NaN
+   */
+  public synchronized float getInjectionTime(int scanIndex) {
+    return injectionTimes.getFloat(scanIndex);
+  }
+
+  /**
+   * @return sorted array of all MS levels
+   */
+  public synchronized int[] getMsLevels() {
+    return scansPerLevel.keySet().toIntArray();
+  }
+
+  public synchronized @NotNull List<PolarityType> getPolarities() {
+    return List.copyOf(polarityTypes);
+  }
+
+  /**
+   * @return the scan indices of an MS level in ascending order
+   */
+  public synchronized int[] getScanIndices(int msLevel) {
+    final IntArrayList scans = scansPerLevel.get(msLevel);
+    return scans == null ? new int[0] : scans.toIntArray();
+  }
+
+  /**
+   * @param rtRange the retention time range or null for all
+   * @return the scan indices of an MS level within the retention time range in ascending order
+   */
+  public synchronized int[] getScanIndices(int msLevel, @Nullable Range<Float> rtRange) {
+    final IntArrayList scans = scansPerLevel.get(msLevel);
+    if (scans == null) {
+      return new int[0];
+    }
+    if (rtRange == null) {
+      return scans.toIntArray();
+    }
+    return filterRtRange(scans, msLevel, rtRange);
+  }
+
+  /**
+   * @param msLevelFilter accepts MS levels
+   * @param rtRange       the retention time range or null for all
+   * @return the scan indices of all accepted MS levels within the retention time range in
+   * ascending order
+   */
+  public synchronized int[] getScanIndices(@NotNull IntPredicate msLevelFilter,
+      @Nullable Range<Float> rtRange) {
+    final IntArrayList result = new IntArrayList();
+    int acceptedLevels = 0;
+    for (final Int2ObjectMap.Entry<IntArrayList> entry : scansPerLevel.int2ObjectEntrySet()) {
+      if (!msLevelFilter.test(entry.getIntKey())) {
+        continue;
+      }
+      acceptedLevels++;
+      if (rtRange == null) {
+        result.addAll(entry.getValue());
+      } else {
+        result.addElements(result.size(),
+            filterRtRange(entry.getValue(), entry.getIntKey(), rtRange));
+      }
+    }
+    final int[] indices = result.toIntArray();
+    if (acceptedLevels > 1) {
+      // restore the order of the file
+      IntArrays.quickSort(indices);
+    }
+    return indices;
+  }
+
+  /**
+   * @param precursorMzRange the precursor m/z range
+   * @param rtRange          the retention time range or null for all
+   * @return the scan indices of an MS level with a precursor m/z in range in ascending order
+   */
+  public synchronized int[] getScanIndicesByPrecursor(int msLevel,
+      @NotNull Range<Double> precursorMzRange, @Nullable Range<Float> rtRange) {
+    final IntArrayList scans = scansPerLevel.get(msLevel);
+    if (scans == null) {
+      return new int[0];
+    }
+
+    final IntArrayList result = new IntArrayList();
+    if (rtRange != null) {
+      // the retention time is usually more selective
+      for (final int scan : filterRtRange(scans, msLevel, rtRange)) {
+        if (precursorMzRange.contains(precursorMzs.getDouble(scan))) {
+          result.add(scan);
+        }
+      }
+      return result.toIntArray();
+    }
+
+    final int[] order = precursorOrder.computeIfAbsent(msLevel, _ -> {
+      final int[] sorted = scans.toIntArray();
+      IntArrays.quickSort(sorted,
+          (a, b) -> Double.compare(precursorMzs.getDouble(a), precursorMzs.getDouble(b)));
+      return sorted;
+    });
+    final double lower =
+        precursorMzRange.hasLowerBound() ? precursorMzRange.lowerEndpoint() : Double.NEGATIVE_INFINITY;
+    for (int i = lowerBound(order.length, i1 -> precursorMzs.getDouble(order[i1]) < lower);
+        i < order.length; i++) {
+      final double mz = precursorMzs.getDouble(order[i]);
+      if (precursorMzRange.hasUpperBound() && mz > precursorMzRange.upperEndpoint()) {
+        break;
+      }
+      if (precursorMzRange.contains(mz)) {
+        result.add(order[i]);
+      }
+    }
+    final int[] indices = result.toIntArray();
+    IntArrays.quickSort(indices);
+    return indices;
+  }
+
+  /**
+   * @param msLevel the MS level or 0 for all
+   * @return the retention time range or null if there are no scans
+   */
+  public synchronized @Nullable Range<Float> getRtRange(int msLevel) {
+    final LevelStatistics stats = statistics.get(msLevel);
+    return stats == null ? null : Range.closed(stats.minRt, stats.maxRt);
+  }
+
+  /**
+   * @param msLevel the MS level or 0 for all
+   * @return the data point m/z range or null if there are no data points
+   */
+  public synchronized @Nullable Range<Double> getMzRange(int msLevel) {
+    final LevelStatistics stats = statistics.get(msLevel);
+    return stats == null || stats.minMz > stats.maxMz ? null
+        : Range.closed(stats.minMz, stats.maxMz);
+  }
+
+  /**
+   * @param msLevel the MS level or 0 for all
+   * @return the maximum TIC or -1 if there are no scans
+   */
+  public synchronized double getMaxTIC(int msLevel) {
+    final LevelStatistics stats = statistics.get(msLevel);
+    return stats == null || stats.maxTic == Double.NEGATIVE_INFINITY ? -1 : stats.maxTic;
+  }
+
+  /**
+   * @param msLevel the MS level or 0 for all
+   * @return the maximum base peak intensity or -1 if there are no scans
+   */
+  public synchronized double getMaxBasePeakIntensity(int msLevel) {
+    final LevelStatistics stats = statistics.get(msLevel);
+    return stats == null || stats.maxBasePeak == Double.NEGATIVE_INFINITY ? -1
+        : stats.maxBasePeak;
+  }
+
+  private int[] filterRtRange(IntList scans, int msLevel, Range<Float> rtRange) {
+    final IntArrayList result = new IntArrayList();
+    final LevelStatistics stats = statistics.get(msLevel);
+    if (stats != null && stats.rtSorted) {
+      final float lower = rtRange.hasLowerBound() ? rtRange.lowerEndpoint() : Float.NEGATIVE_INFINITY;
+      for (int i = lowerBound(scans.size(), i1 -> retentionTimes.getFloat(scans.getInt(i1)) < lower);
+          i < scans.size(); i++) {
+        final int scan = scans.getInt(i);
+        final float rt = retentionTimes.getFloat(scan);
+        if (rtRange.hasUpperBound() && rt > rtRange.upperEndpoint()) {
+          break;
+        }
+        if (rtRange.contains(rt)) {
+          result.add(scan);
+        }
+      }
+    } else {
+      for (int i = 0; i < scans.size(); i++) {
+        final int scan = scans.getInt(i);
+        if (rtRange.contains(retentionTimes.getFloat(scan))) {
+          result.add(scan);
+        }
+      }
+    }
+    return result.toIntArray();
+  }
+
+  /**
+   * @param isBelow true if the value at an index is below the searched value. Needs to be
+   *                monotonic
+   * @return the first index that is not below
+   */
+  private static int lowerBound(int size, IntPredicate isBelow) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (isBelow.test(mid)) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Summary values of one MS level
+   */
+  private static class LevelStatistics {
+
+    private float minRt = Float.POSITIVE_INFINITY;
+    private float maxRt = Float.NEGATIVE_INFINITY;
+    private double minMz = Double.POSITIVE_INFINITY;
+    private double maxMz = Double.NEGATIVE_INFINITY;
+    private double maxTic = Double.NEGATIVE_INFINITY;
+    private double maxBasePeak = Double.NEGATIVE_INFINITY;
+    private boolean rtSorted = true;
+
+    private void add(float rt, @Nullable Range<Double> mzRange, @Nullable Double tic,
+        @Nullable Double basePeak) {
+      if (rt < maxRt) {
+        rtSorted = false;
+      }
+      minRt = Math.min(minRt, rt);
+      maxRt = Math.max(maxRt, rt);
+      if (mzRange != null) {
+        minMz = Math.min(minMz, mzRange.lowerEndpoint());
+        maxMz = Math.max(maxMz, mzRange.upperEndpoint());
+      }
+      if (tic != null) {
+        maxTic = Math.max(maxTic, tic);
+      }
+      if (basePeak != null) {
+        maxBasePeak = Math.max(maxBasePeak, basePeak);
+      }
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores m/z arrays of scans and detects recurring m/z axes. Profile spectra of TOF instruments and
+ * continuous imzML files repeat the same m/z grid in every scan. If the m/z values of a scan are
+ * equal to a contiguous range of a recently stored axis, the scan only receives a slice of that
+ * axis instead of a new copy in the {@link MemoryMapStorage}. Slices keep constant time access by
+ * index.
+ * <p>
+ * Only exactly equal values are shared, so this is transparent for all consumers of the data.
+ */
+public class SharedMzAxisStorage {
+
+  /**
+   * Shorter spectra are always stored directly. Mostly centroid spectra that do not share an axis.
+   */
+  public static final int MIN_AXIS_LENGTH = 64;
+
+  /**
+   * Recently stored axes that are checked for every new scan. Multiple axes cover alternating scan
+   * types, e.g., different scan ranges or MS levels.
+   */
+  private static final int MAX_AXES = 4;
+
+  private final @Nullable MemoryMapStorage storage;
+  // most recently used first
+  private final MemorySegment[] axes = new MemorySegment[MAX_AXES];
+  private int numAxes = 0;
+
+  private final AtomicLong sharedScans = new AtomicLong();
+  private final AtomicLong savedBytes = new AtomicLong();
+
+  public SharedMzAxisStorage(@Nullable MemoryMapStorage storage) {
+    this.storage = storage;
+  }
+
+  /**
+   * Stores sorted m/z values or returns a slice of an equal axis that was stored before.
+   *
+   * @param mzs sorted m/z values
+   * @return the stored values
+   */
+  public @NotNull MemorySegment storeMzValues(@NotNull double[] mzs) {
+    if (mzs.length < MIN_AXIS_LENGTH) {
+      return StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+    }
+
+    // compare outside of the lock, the parallel import threads share this storage
+    final MemorySegment[] checked = snapshotAxes();
+    MemorySegment shared = findShared(checked, null, mzs);
+    if (shared == null) {
+      // axes that were added by other threads in the meantime
+      shared = findShared(snapshotAxes(), checked, mzs);
+    }
+    if (shared != null) {
+      sharedScans.incrementAndGet();
+      savedBytes.addAndGet(mzs.length * JAVA_DOUBLE.byteSize());
+      return shared;
+    }
+
+    // store outside of the lock, writing to the storage is the expensive part
+    final MemorySegment stored = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+    synchronized (this) {
+      addFirst(stored);
+    }
+    return stored;
+  }
+
+  /**
+   * @param candidates axes to compare
+   * @param skip       axes that were already compared or null
+   * @return a slice of the first candidate that contains the mzs or null
+   */
+  private @Nullable MemorySegment findShared(@NotNull MemorySegment[] candidates,
+      @Nullable MemorySegment[] skip, @NotNull double[] mzs) {
+    for (final MemorySegment axis : candidates) {
+      if (skip != null && containsIdentical(skip, axis)) {
+        continue;
+      }
+      final long offset = findOffset(axis, mzs);
+      if (offset >= 0) {
+        synchronized (this) {
+          moveToFront(axis);
+        }
+        return StorageUtils.sliceDoubles(axis, offset, offset + mzs.length);
+      }
+    }
+    return null;
+  }
+
+  private static boolean containsIdentical(@NotNull MemorySegment[] axes,
+      @NotNull MemorySegment axis) {
+    for (final MemorySegment other : axes) {
+      if (other == axis) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return copy of the current axes, most recently used first
+   */
+  private synchronized @NotNull MemorySegment[] snapshotAxes() {
+    return Arrays.copyOf(axes, numAxes);
+  }
+
+  /**
+   * @return the index in the axis where the mzs start or -1 if the mzs are not a contiguous range
+   * of the axis
+   */
+  static long findOffset(@NotNull MemorySegment axis, @NotNull double[] mzs) {
+    final long axisLength = StorageUtils.numDoubles(axis);
+    final long offset = binarySearch(axis, axisLength, mzs[0]);
+    if (offset < 0 || offset + mzs.length > axisLength) {
+      return -1;
+    }
+    // last value first for a quick rejection
+    final int last = mzs.length - 1;
+    if (Double.compare(axis.getAtIndex(JAVA_DOUBLE, offset + last), mzs[last]) != 0) {
+      return -1;
+    }
+    for (int i = 1; i < last; i++) {
+      if (Double.compare(axis.getAtIndex(JAVA_DOUBLE, offset + i), mzs[i]) != 0) {
+        return -1;
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * @return the index of the exact value or -1
+   */
+  private static long binarySearch(MemorySegment axis, long length, double value) {
+    long low = 0;
+    long high = length - 1;
+    while (low <= high) {
+      final long mid = (low + high) >>> 1;
+      final double midValue = axis.getAtIndex(JAVA_DOUBLE, mid);
+      if (midValue < value) {
+        low = mid + 1;
+      } else if (midValue > value) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Moves the axis to the front if it was not evicted by other threads in the meantime. Only call
+   * while holding the lock.
+   */
+  private void moveToFront(@NotNull MemorySegment axis) {
+    for (int i = 0; i < numAxes; i++) {
+      if (axes[i] == axis) {
+        System.arraycopy(axes, 0, axes, 1, i);
+        axes[0] = axis;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Only call while holding the lock.
+   */
+  private void addFirst(MemorySegment axis) {
+    final int moved = Math.min(numAxes, MAX_AXES - 1);
+    System.arraycopy(axes, 0, axes, 1, moved);
+    axes[0] = axis;
+    numAxes = moved + 1;
+  }
+
+  /**
+   * @return number of scans that reference a previously stored axis
+   */
+  public long getNumSharedScans() {
+    return sharedScans.get();
+  }
+
+  /**
+   * @return the number of bytes that were not written to the storage
+   */
+  public long getSavedBytes() {
+    return savedBytes.get();
+  }
+}
@@ -84,7 +84,10 @@ public class SimpleFrame extends SimpleScan implements Frame {
   public void setDataPoints(double[] newMzValues, double[] newIntensityValues) {
     super.setDataPoints(getDataFile().getMemoryMapStorage(), newMzValues, newIntensityValues);
     // update afterwards, an assertion might be triggered.
-    ((IMSRawDataFileImpl) getDataFile()).updateMaxRawDataPoints(newIntensityValues.length);
+    final IMSRawDataFileImpl file = (IMSRawDataFileImpl) getDataFile();
+    file.updateMaxRawDataPoints(newIntensityValues.length);
+    // TIC, base peak and m/z range changed
+    file.invalidateScanMetadata();
   }
 
   /**
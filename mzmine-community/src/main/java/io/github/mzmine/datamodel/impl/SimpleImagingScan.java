@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.modules.io.import_rawdata_bruker_tdf.datamodel.sql.MaldiSpotInfo;
 import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
+import java.lang.foreign.MemorySegment;
 import org.jetbrains.annotations.Nullable;
 
 
@@ -55,6 +56,28 @@ public class SimpleImagingScan extends SimpleScan implements ImagingScan {
     this.setCoordinates(coordinates);
   }
 
+  /**
+   * Creates a scan on already stored data. Used to share a single m/z axis between all pixels of
+   * continuous imzML files.
+   *
+   * @param mzValues        sorted m/z values, may be shared with other scans
+   * @param intensityValues the intensity values of this scan
+   */
+  public SimpleImagingScan(RawDataFile dataFile, int scanNumber, int msLevel, float retentionTime,
+      double precursorMZ, int precursorCharge, MemorySegment mzValues,
+      MemorySegment intensityValues, MassSpectrumType spectrumType, PolarityType polarity,
+      String scanDefinition, Range<Double> scanMZRange, Coordinates coordinates) {
+    super(dataFile, scanNumber, msLevel, retentionTime, null, mzValues, intensityValues,
+        spectrumType, polarity, scanDefinition, scanMZRange, null);
+    if (Double.compare(precursorMZ, 0d) != 0) {
+      setMsMsInfo(
+          new DDAMsMsInfoImpl(precursorMZ, precursorCharge != 0 ? precursorCharge : null, null,
+              this, null, msLevel, null, null));
+    }
+
+    this.setCoordinates(coordinates);
+  }
+
   /**
    * @return the xyz coordinates. null if no coordinates were specified
    */
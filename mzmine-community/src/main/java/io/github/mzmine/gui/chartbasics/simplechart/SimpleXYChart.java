@@ -33,8 +33,11 @@ import io.github.mzmine.gui.chartbasics.gestures.ChartGesture.Event;
 import io.github.mzmine.gui.chartbasics.gestures.ChartGesture.GestureButton;
 import io.github.mzmine.gui.chartbasics.gestures.ChartGestureHandler;
 import io.github.mzmine.gui.chartbasics.gui.javafx.EChartViewer;
+import io.github.mzmine.gui.chartbasics.gui.wrapper.ChartViewWrapper;
+import io.github.mzmine.gui.chartbasics.listener.AxisRangeChangedListener;
 import io.github.mzmine.gui.chartbasics.listener.ZoomHistory;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.LevelOfDetailXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.generators.SimpleToolTipGenerator;
 import io.github.mzmine.gui.chartbasics.simplechart.generators.SimpleXYLabelGenerator;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.ExampleXYProvider;
@@ -62,6 +65,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.event.RendererChangeEvent;
 import org.jfree.chart.plot.DatasetRenderingOrder;
 import org.jfree.chart.plot.PlotOrientation;
@@ -153,6 +157,13 @@ public class SimpleXYChart<T extends PlotXYDataProvider> extends EChartViewer im
     final NumberAxis xAxis = (NumberAxis) plot.getDomainAxis();
     xAxis.setUpperMargin(AXIS_MARGINS);
     xAxis.setLowerMargin(AXIS_MARGINS);
+    xAxis.addChangeListener(new AxisRangeChangedListener(null) {
+      @Override
+      public void axisRangeChanged(@Nullable ChartViewWrapper chart, ValueAxis axis,
+          org.jfree.data.Range lastR, org.jfree.data.Range newR) {
+        updateLevelOfDetail(newR);
+      }
+    });
 
     initializeMouseListener();
     initLabelListeners();
@@ -209,6 +220,23 @@ public class SimpleXYChart<T extends PlotXYDataProvider> extends EChartViewer im
     });
   }
 
+  /**
+   * Selects the level of detail of all {@link LevelOfDetailXYDataset}s for the visible domain
+   * range.
+   */
+  private void updateLevelOfDetail(@Nullable org.jfree.data.Range visibleDomain) {
+    if (visibleDomain == null) {
+      return;
+    }
+    final int pixelWidth = (int) getWidth();
+    for (int i = 0; i < nextDataSetNum; i++) {
+      if (plot.getDataset(i) instanceof LevelOfDetailXYDataset lod) {
+        lod.updateVisibleDomain(visibleDomain.getLowerBound(), visibleDomain.getUpperBound(),
+            pixelWidth);
+      }
+    }
+  }
+
   public synchronized int addDataset(XYDataset dataset, XYItemRenderer renderer) {
     final boolean oldNotify = isNotifyChange();
     setNotifyChange(false);
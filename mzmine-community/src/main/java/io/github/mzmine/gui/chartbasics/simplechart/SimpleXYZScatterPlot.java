@@ -28,9 +28,12 @@ package io.github.mzmine.gui.chartbasics.simplechart;
 import io.github.mzmine.gui.chartbasics.JFreeChartUtils;
 import io.github.mzmine.gui.chartbasics.chartthemes.EStandardChartTheme;
 import io.github.mzmine.gui.chartbasics.gui.javafx.EChartViewer;
+import io.github.mzmine.gui.chartbasics.gui.wrapper.ChartViewWrapper;
+import io.github.mzmine.gui.chartbasics.listener.AxisRangeChangedListener;
 import io.github.mzmine.gui.chartbasics.listener.RegionSelectionListener;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZPieDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.DensityBinnedXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.PaintScaleProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYSmallBlockRenderer;
@@ -68,6 +71,7 @@ import org.jfree.chart.JFreeChart;
 import org.jfree.chart.annotations.XYShapeAnnotation;
 import org.jfree.chart.axis.AxisLocation;
 import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.axis.ValueAxis;
 import org.jfree.chart.fx.interaction.ChartMouseEventFX;
 import org.jfree.chart.fx.interaction.ChartMouseListenerFX;
 import org.jfree.chart.plot.DatasetRenderingOrder;
@@ -166,6 +170,7 @@ public class SimpleXYZScatterPlot<T extends PlotXYZDataProvider> extends EChartV
 
     plot.setRenderer(defaultRenderer.get());
     initializePlot();
+    initLevelOfDetailListeners();
     nextDataSetNum = 0;
 
     legendPaintScale.addListener(((observable, oldValue, newValue) -> updateLegend()));
@@ -516,6 +521,34 @@ public class SimpleXYZScatterPlot<T extends PlotXYZDataProvider> extends EChartV
     plot.setOutlinePaint(Color.black);
   }
 
+  private void initLevelOfDetailListeners() {
+    // one listener per axis, the listener keeps the last range
+    for (ValueAxis plotAxis : List.of(plot.getDomainAxis(), plot.getRangeAxis())) {
+      plotAxis.addChangeListener(new AxisRangeChangedListener(null) {
+        @Override
+        public void axisRangeChanged(@Nullable ChartViewWrapper chart, ValueAxis axis,
+            Range lastR, Range newR) {
+          updateLevelOfDetail();
+        }
+      });
+    }
+  }
+
+  /**
+   * Bins the visible range of all {@link DensityBinnedXYZDataset}s again.
+   */
+  private void updateLevelOfDetail() {
+    final Range domain = plot.getDomainAxis().getRange();
+    final Range range = plot.getRangeAxis().getRange();
+    final int numDatasets = JFreeChartUtils.getDatasetCountNullable(plot);
+    for (int i = 0; i < numDatasets; i++) {
+      if (plot.getDataset(i) instanceof DensityBinnedXYZDataset binned) {
+        binned.updateVisibleRange(domain.getLowerBound(), domain.getUpperBound(),
+            range.getLowerBound(), range.getUpperBound(), (int) getWidth(), (int) getHeight());
+      }
+    }
+  }
+
   /**
    * @param dataset
    * @return Paint scale based on the datasets min and max values.
@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.gui.chartbasics.simplechart.datasets;
+
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning.Aggregation;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning.BinnedXYZ;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Level-of-detail dataset for scatter data with many points (raw data overviews, frame heatmaps).
+ * The values of the provider are copied once on the calculation thread. Afterwards, the dataset
+ * only exposes the points in the visible range. If there are more visible points than
+ * {@link #getMinValuesForBinning()}, they are reduced to {@link DensityBinning density bins} that
+ * fit the size of the chart in pixels. Data sets with less values always show all points.
+ * {@link io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot} bins the visible range
+ * again when the axes change, so zooming in refines the bins down to the original data points.
+ * <p>
+ * Item indices of this dataset refer to the active view, use {@link #getSourceIndex(int)} to map
+ * them to the provider.
+ */
+public class DensityBinnedXYZDataset extends ColoredXYZDataset {
+
+  /**
+   * Number of horizontal and vertical screen pixels per bin
+   */
+  public static final int PIXELS_PER_BIN = 2;
+  private static final int DEFAULT_MIN_VALUES = 50_000;
+  private static final int DEFAULT_PIXELS = 1_000;
+
+  private final Aggregation aggregation;
+  private final int minValuesForBinning;
+  private final RunOption runOption;
+
+  // all values of the provider, set once on the calculation thread
+  private volatile double[] allX;
+  private double[] allY;
+  private double[] allZ;
+  private double dataBoxWidth;
+  private double dataBoxHeight;
+  private volatile View view;
+  // the last binned window, clamped to the data range
+  private @Nullable Window window;
+
+  public DensityBinnedXYZDataset(@NotNull PlotXYZDataProvider dataProvider,
+      @NotNull Aggregation aggregation) {
+    this(dataProvider, aggregation, DEFAULT_MIN_VALUES, RunOption.NEW_THREAD);
+  }
+
+  public DensityBinnedXYZDataset(@NotNull PlotXYZDataProvider dataProvider,
+      @NotNull Aggregation aggregation, int minValuesForBinning, @NotNull RunOption runOption) {
+    super(dataProvider, RunOption.DO_NOT_RUN);
+    this.aggregation = aggregation;
+    this.minValuesForBinning = minValuesForBinning;
+    this.runOption = checkRunOption(runOption);
+    handleRunOption(this.runOption);
+  }
+
+  @Override
+  protected void onCalculationsFinished() {
+    // still on the calculation thread, the provider values are final now
+    final int numValues = computedItemCount;
+    final double[] x = new double[numValues];
+    final double[] y = new double[numValues];
+    final double[] z = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      x[i] = xyValueProvider.getDomainValue(i);
+      y[i] = xyValueProvider.getRangeValue(i);
+      z[i] = getXyzValueProvider().getZValue(i);
+    }
+    allY = y;
+    allZ = z;
+    dataBoxWidth = boxWidth;
+    dataBoxHeight = boxHeight;
+    allX = x;
+
+    final Window full = new Window(domainRange.lowerEndpoint(), domainRange.upperEndpoint(),
+        rangeRange.lowerEndpoint(), rangeRange.upperEndpoint(), DEFAULT_PIXELS, DEFAULT_PIXELS);
+    setView(createView(full));
+    super.onCalculationsFinished();
+  }
+
+  /**
+   * Bins the points in the visible range for the size of the plot. Call on the FX thread.
+   *
+   * @param pixelWidth  width of the plot area in pixels
+   * @param pixelHeight height of the plot area in pixels
+   * @return true if the view changed and a dataset changed event was fired
+   */
+  public boolean updateVisibleRange(double lowerDomain, double upperDomain, double lowerRange,
+      double upperRange, int pixelWidth, int pixelHeight) {
+    final double[] x = allX;
+    if (x == null || !valuesComputed || x.length < minValuesForBinning) {
+      // small data sets always show all points
+      return false;
+    }
+    // clamp to the data, so that the bins do not change if the whole data range stays visible.
+    // Otherwise, the auto range of the axes would bin again after every change.
+    final Window newWindow = new Window(Math.max(lowerDomain, domainRange.lowerEndpoint()),
+        Math.min(upperDomain, domainRange.upperEndpoint()),
+        Math.max(lowerRange, rangeRange.lowerEndpoint()),
+        Math.min(upperRange, rangeRange.upperEndpoint()), Math.max(pixelWidth, 1),
+        Math.max(pixelHeight, 1));
+    if (newWindow.equals(window)) {
+      return false;
+    }
+    window = newWindow;
+    setView(createView(newWindow));
+    fireDatasetChanged();
+    return true;
+  }
+
+  /**
+   * @return all visible points or their density bins
+   */
+  private @NotNull View createView(@NotNull Window w) {
+    final double lowerDomain = w.lowerDomain();
+    final double upperDomain = w.upperDomain();
+    final double lowerRange = w.lowerRange();
+    final double upperRange = w.upperRange();
+    final double[] x = allX;
+    final double[] y = allY;
+    final double[] z = allZ;
+
+    final IntArrayList visible = new IntArrayList();
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] >= lowerDomain && x[i] <= upperDomain && y[i] >= lowerRange
+          && y[i] <= upperRange) {
+        visible.add(i);
+      }
+    }
+
+    if (visible.size() < minValuesForBinning) {
+      final int[] indices = visible.toIntArray();
+      final double[] vx = new double[indices.length];
+      final double[] vy = new double[indices.length];
+      final double[] vz = new double[indices.length];
+      for (int i = 0; i < indices.length; i++) {
+        vx[i] = x[indices[i]];
+        vy[i] = y[indices[i]];
+        vz[i] = z[indices[i]];
+      }
+      return new View(vx, vy, vz, indices, dataBoxWidth, dataBoxHeight);
+    }
+
+    // bins are not smaller than the data points, otherwise empty gaps are drawn between them
+    final int xBins = numBins(upperDomain - lowerDomain, dataBoxWidth, w.pixelWidth());
+    final int yBins = numBins(upperRange - lowerRange, dataBoxHeight, w.pixelHeight());
+    final int[] indices = visible.toIntArray();
+    final BinnedXYZ binned = DensityBinning.bin(indices.length, i -> x[indices[i]],
+        i -> y[indices[i]], i -> z[indices[i]], lowerDomain, upperDomain, lowerRange, upperRange,
+        xBins, yBins, aggregation);
+    return new View(binned.x(), binned.y(), binned.z(), null, binned.binWidth(),
+        binned.binHeight());
+  }
+
+  private static int numBins(double length, double dataBoxLength, int pixels) {
+    final int pixelBins = Math.max(pixels / PIXELS_PER_BIN, 1);
+    if (!(dataBoxLength > 0)) {
+      return pixelBins;
+    }
+    return (int) Math.max(1, Math.min(pixelBins, Math.ceil(length / dataBoxLength)));
+  }
+
+  private void setView(@NotNull View view) {
+    this.view = view;
+    computedItemCount = view.size();
+    boxWidth = view.boxWidth();
+    boxHeight = view.boxHeight();
+  }
+
+  /**
+   * @return true if the active view consists of density bins. Labels, tooltips and item indices do
+   * not refer to the original data points in this case.
+   */
+  public boolean isBinned() {
+    final View v = view;
+    return v != null && v.isBinned();
+  }
+
+  /**
+   * @param item item index in the active view
+   * @return the index of the same data point in the {@link #getXyzValueProvider()} or -1 if the
+   * view is binned
+   */
+  public int getSourceIndex(int item) {
+    final View v = view;
+    if (v == null) {
+      return item;
+    }
+    if (v.sourceIndices() == null || item < 0 || item >= v.size()) {
+      return -1;
+    }
+    return v.sourceIndices()[item];
+  }
+
+  public int getMinValuesForBinning() {
+    return minValuesForBinning;
+  }
+
+  @Override
+  public int getItemCount(int series) {
+    final View v = view;
+    return v != null ? v.size() : super.getItemCount(series);
+  }
+
+  @Override
+  public Number getX(int series, int item) {
+    return getXValue(series, item);
+  }
+
+  @Override
+  public double getXValue(int series, int item) {
+    final View v = view;
+    return v != null ? v.x()[item] : super.getXValue(series, item);
+  }
+
+  @Override
+  public Number getY(int series, int item) {
+    return getYValue(series, item);
+  }
+
+  @Override
+  public double getYValue(int series, int item) {
+    final View v = view;
+    return v != null ? v.y()[item] : super.getYValue(series, item);
+  }
+
+  @Override
+  public double getZValue(int series, int item) {
+    final View v = view;
+    return v != null ? v.z()[item] : super.getZValue(series, item);
+  }
+
+  @Override
+  public @Nullable String getLabel(int itemIndex) {
+    final int source = getSourceIndex(itemIndex);
+    if (source < 0) {
+      return null;
+    }
+    if (labelTextProvider != null) {
+      return labelTextProvider.getLabel(source);
+    }
+    return String.valueOf(getYValue(0, itemIndex));
+  }
+
+  @Override
+  public @Nullable String getToolTipText(int itemIndex) {
+    final int source = getSourceIndex(itemIndex);
+    if (source < 0 || toolTipTextProvider == null) {
+      return null;
+    }
+    return toolTipTextProvider.getToolTipText(source);
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Computing density bins for dataset " + seriesKeyProvider.getSeriesKey();
+  }
+
+  @Override
+  protected RunOption getRunOption() {
+    return runOption;
+  }
+
+  private record Window(double lowerDomain, double upperDomain, double lowerRange,
+                        double upperRange, int pixelWidth, int pixelHeight) {
+
+  }
+
+  /**
+   * The visible points or bins
+   *
+   * @param sourceIndices index of each point in the provider, null for bins
+   */
+  private record View(double[] x, double[] y, double[] z, @Nullable int[] sourceIndices,
+                      double boxWidth, double boxHeight) {
+
+    int size() {
+      return x.length;
+    }
+
+    boolean isBinned() {
+      return sourceIndices == null;
+    }
+  }
+}
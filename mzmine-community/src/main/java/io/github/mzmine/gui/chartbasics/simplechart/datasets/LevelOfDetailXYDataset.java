@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.gui.chartbasics.simplechart.SimpleChartUtility;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DownsamplingMode;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DownsamplingPyramid;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.XYLevel;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYDataProvider;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jfree.data.DomainOrder;
+
+/**
+ * Level-of-detail dataset for line data with many points (TICs, long chromatograms). The values of
+ * the provider are copied once and reduced to a {@link DownsamplingPyramid} on the calculation
+ * thread. Afterwards, the dataset only exposes the level that fits the visible domain range and the
+ * width of the chart in pixels. {@link io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart}
+ * refines the level automatically when the domain axis changes.
+ * <p>
+ * Domain values of the provider have to be sorted ascending. Item indices of this dataset refer to
+ * the active level, use {@link #getSourceIndex(int)} to map them to the provider.
+ * {@link #getValueIndex(double, double)} already returns the provider index.
+ *
+ * @see DownsamplingPyramid
+ */
+public class LevelOfDetailXYDataset extends ColoredXYDataset {
+
+  /**
+   * Number of points rendered per horizontal pixel. Two points per pixel are enough to draw the
+   * minimum and maximum of each pixel column.
+   */
+  public static final int POINTS_PER_PIXEL = 2;
+  private static final int DEFAULT_PIXEL_WIDTH = 2_000;
+
+  private final DownsamplingMode mode;
+  private final RunOption runOption;
+  private volatile DownsamplingPyramid pyramid;
+  private volatile XYLevel activeLevel;
+  private int activeLevelIndex = -1;
+
+  public LevelOfDetailXYDataset(@NotNull PlotXYDataProvider datasetProvider) {
+    this(datasetProvider, DownsamplingMode.MIN_MAX, RunOption.NEW_THREAD);
+  }
+
+  public LevelOfDetailXYDataset(@NotNull PlotXYDataProvider datasetProvider,
+      @NotNull DownsamplingMode mode, @NotNull RunOption runOption) {
+    super(datasetProvider, RunOption.DO_NOT_RUN);
+    this.mode = mode;
+    this.runOption = checkRunOption(runOption);
+    handleRunOption(this.runOption);
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+    xyValueProvider.computeValues(statusProperty());
+    if (getStatus() != TaskStatus.PROCESSING) {
+      return;
+    }
+
+    final int numValues = xyValueProvider.getValueCount();
+    final double[] x = new double[numValues];
+    final double[] y = new double[numValues];
+
+    double minRange = Double.POSITIVE_INFINITY;
+    double maxRange = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numValues; i++) {
+      x[i] = xyValueProvider.getDomainValue(i);
+      y[i] = xyValueProvider.getRangeValue(i);
+      minRange = Math.min(y[i], minRange);
+      maxRange = Math.max(y[i], maxRange);
+    }
+
+    pyramid = DownsamplingPyramid.build(x, y, mode, DownsamplingPyramid.DEFAULT_MIN_LEVEL_SIZE,
+        this::isCanceled);
+    if (pyramid == null) {
+      return;
+    }
+
+    domainRange = numValues > 0 ? Range.closed(x[0], x[numValues - 1]) : Range.closed(0d, 1d);
+    rangeRange = numValues > 0 ? Range.closed(minRange, maxRange) : Range.closed(0d, 1d);
+
+    setActiveLevel(pyramid.selectLevel(domainRange.lowerEndpoint(), domainRange.upperEndpoint(),
+        DEFAULT_PIXEL_WIDTH * POINTS_PER_PIXEL));
+    valuesComputed = true;
+
+    onCalculationsFinished();
+  }
+
+  /**
+   * Selects the level of detail for the currently visible domain range. Call on the FX thread.
+   *
+   * @param lowerDomain lower bound of the visible domain
+   * @param upperDomain upper bound of the visible domain
+   * @param pixelWidth  width of the plot area in pixels
+   * @return true if the level changed and a dataset changed event was fired
+   */
+  public boolean updateVisibleDomain(double lowerDomain, double upperDomain, int pixelWidth) {
+    if (pyramid == null || !valuesComputed) {
+      return false;
+    }
+    final int level = pyramid.selectLevel(lowerDomain, upperDomain,
+        Math.max(pixelWidth, 1) * POINTS_PER_PIXEL);
+    if (level == activeLevelIndex) {
+      return false;
+    }
+    setActiveLevel(level);
+    fireDatasetChanged();
+    return true;
+  }
+
+  private void setActiveLevel(int level) {
+    activeLevelIndex = level;
+    activeLevel = pyramid.getLevel(level);
+    computedItemCount = activeLevel.size();
+  }
+
+  /**
+   * @return the index of the active level. 0 is the full resolution, -1 if not computed yet.
+   */
+  public int getActiveLevelIndex() {
+    return activeLevelIndex;
+  }
+
+  /**
+   * @param item item index in the active level
+   * @return the index of the same data point in the {@link #getValueProvider()}
+   */
+  public int getSourceIndex(int item) {
+    final XYLevel level = activeLevel;
+    return level == null ? item : level.sourceIndex(item);
+  }
+
+  /**
+   * @return the index of the data point in the {@link #getValueProvider()}, so that cursor positions
+   * refer to the same items as for a regular {@link ColoredXYDataset}. -1 if there is no such point.
+   */
+  @Override
+  public int getValueIndex(double domainValue, double rangeValue) {
+    final XYLevel level = activeLevel;
+    if (level == null) {
+      return -1;
+    }
+    final int index = Arrays.binarySearch(level.x(), domainValue);
+    if (index < 0) {
+      return -1;
+    }
+    // equal domain values may occur multiple times
+    int start = index;
+    while (start > 0 && Double.compare(level.x()[start - 1], domainValue) == 0) {
+      start--;
+    }
+    for (int i = start; i < level.size() && Double.compare(level.x()[i], domainValue) == 0; i++) {
+      if (Double.compare(level.y()[i], rangeValue) == 0) {
+        return level.sourceIndex(i);
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public DomainOrder getDomainOrder() {
+    // allows the renderer to only iterate the visible items
+    return DomainOrder.ASCENDING;
+  }
+
+  @Override
+  public Number getX(int series, int item) {
+    return getXValue(series, item);
+  }
+
+  @Override
+  public Number getY(int series, int item) {
+    return getYValue(series, item);
+  }
+
+  @Override
+  public double getXValue(int series, int item) {
+    final XYLevel level = activeLevel;
+    return level == null ? 0d : level.x()[item];
+  }
+
+  @Override
+  public double getYValue(int series, int item) {
+    final XYLevel level = activeLevel;
+    return level == null ? 0d : level.y()[item];
+  }
+
+  @Override
+  public boolean isLocalMaximum(int item) {
+    // computed on demand, the active level changes on zoom
+    return SimpleChartUtility.isLocalMaximum(this, 0, item);
+  }
+
+  @Override
+  public @Nullable String getLabel(int itemIndex) {
+    if (itemIndex >= getItemCount(0)) {
+      return null;
+    }
+    if (labelTextProvider != null) {
+      return labelTextProvider.getLabel(getSourceIndex(itemIndex));
+    }
+    return String.valueOf(getYValue(0, itemIndex));
+  }
+
+  @Override
+  public @Nullable String getToolTipText(int itemIndex) {
+    if (itemIndex >= getItemCount(0) || toolTipTextProvider == null) {
+      return null;
+    }
+    return toolTipTextProvider.getToolTipText(getSourceIndex(itemIndex));
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Computing level of detail for dataset " + seriesKeyProvider.getSeriesKey();
+  }
+
+  @Override
+  protected RunOption getRunOption() {
+    return runOption;
+  }
+}
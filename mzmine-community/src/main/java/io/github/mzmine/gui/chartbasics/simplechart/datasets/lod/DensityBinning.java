@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reduces scatter data to a regular grid of bins, so that the number of rendered items is bound by
+ * the number of bins instead of the number of data points.
+ */
+public class DensityBinning {
+
+  private DensityBinning() {
+  }
+
+  /**
+   * @param numValues number of data points
+   * @param x         x value of each point
+   * @param y         y value of each point
+   * @param z         z value of each point, only used for {@link Aggregation#MAX} and
+   *                  {@link Aggregation#SUM}
+   * @param xBins     number of bins in x direction
+   * @param yBins     number of bins in y direction
+   * @return the occupied bins with their center coordinates
+   */
+  public static @NotNull BinnedXYZ bin(int numValues, @NotNull IntToDoubleFunction x,
+      @NotNull IntToDoubleFunction y, @NotNull IntToDoubleFunction z, int xBins, int yBins,
+      @NotNull Aggregation aggregation) {
+    if (numValues == 0) {
+      return new BinnedXYZ(new double[0], new double[0], new double[0], 0d, 0d);
+    }
+
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numValues; i++) {
+      final double xv = x.applyAsDouble(i);
+      final double yv = y.applyAsDouble(i);
+      minX = Math.min(minX, xv);
+      maxX = Math.max(maxX, xv);
+      minY = Math.min(minY, yv);
+      maxY = Math.max(maxY, yv);
+    }
+
+    return bin(numValues, x, y, z, minX, maxX, minY, maxY, xBins, yBins, aggregation);
+  }
+
+  /**
+   * Bins the points within a window, e.g., the visible range of a plot. Points outside the window
+   * are skipped.
+   *
+   * @param numValues number of data points
+   * @param x         x value of each point
+   * @param y         y value of each point
+   * @param z         z value of each point, only used for {@link Aggregation#MAX} and
+   *                  {@link Aggregation#SUM}
+   * @param minX      lower x bound of the window
+   * @param maxX      upper x bound of the window
+   * @param minY      lower y bound of the window
+   * @param maxY      upper y bound of the window
+   * @param xBins     number of bins in x direction
+   * @param yBins     number of bins in y direction
+   * @return the occupied bins with their center coordinates
+   */
+  public static @NotNull BinnedXYZ bin(int numValues, @NotNull IntToDoubleFunction x,
+      @NotNull IntToDoubleFunction y, @NotNull IntToDoubleFunction z, double minX, double maxX,
+      double minY, double maxY, int xBins, int yBins, @NotNull Aggregation aggregation) {
+    final double binWidth = Math.max((maxX - minX) / xBins, Double.MIN_NORMAL);
+    final double binHeight = Math.max((maxY - minY) / yBins, Double.MIN_NORMAL);
+
+    final double[] values = new double[xBins * yBins];
+    final boolean[] occupied = new boolean[values.length];
+    if (aggregation == Aggregation.MAX) {
+      Arrays.fill(values, Double.NEGATIVE_INFINITY);
+    }
+
+    int numOccupied = 0;
+    for (int i = 0; i < numValues; i++) {
+      final double xv = x.applyAsDouble(i);
+      final double yv = y.applyAsDouble(i);
+      if (xv < minX || xv > maxX || yv < minY || yv > maxY) {
+        continue;
+      }
+      final int xi = Math.min((int) ((xv - minX) / binWidth), xBins - 1);
+      final int yi = Math.min((int) ((yv - minY) / binHeight), yBins - 1);
+      final int bin = yi * xBins + xi;
+      if (!occupied[bin]) {
+        occupied[bin] = true;
+        numOccupied++;
+      }
+      values[bin] = switch (aggregation) {
+        case COUNT -> values[bin] + 1;
+        case SUM -> values[bin] + z.applyAsDouble(i);
+        case MAX -> Math.max(values[bin], z.applyAsDouble(i));
+      };
+    }
+
+    final double[] binX = new double[numOccupied];
+    final double[] binY = new double[numOccupied];
+    final double[] binZ = new double[numOccupied];
+    int n = 0;
+    for (int bin = 0; bin < values.length; bin++) {
+      if (!occupied[bin]) {
+        continue;
+      }
+      binX[n] = minX + (bin % xBins + 0.5) * binWidth;
+      binY[n] = minY + (bin / xBins + 0.5) * binHeight;
+      binZ[n] = values[bin];
+      n++;
+    }
+    return new BinnedXYZ(binX, binY, binZ, binWidth, binHeight);
+  }
+
+  public enum Aggregation {
+    /**
+     * Number of points in a bin
+     */
+    COUNT,
+    /**
+     * Sum of the z values in a bin
+     */
+    SUM,
+    /**
+     * Maximum z value in a bin
+     */
+    MAX
+  }
+
+  /**
+   * Occupied bins, empty bins are not contained.
+   *
+   * @param x         bin centers in x
+   * @param y         bin centers in y
+   * @param z         aggregated value of each bin
+   * @param binWidth  width of a bin
+   * @param binHeight height of a bin
+   */
+  public record BinnedXYZ(double[] x, double[] y, double[] z, double binWidth, double binHeight) {
+
+    public int size() {
+      return x.length;
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+/**
+ * Reduction strategy used to build the levels of a {@link DownsamplingPyramid}.
+ */
+public enum DownsamplingMode {
+  /**
+   * Keeps the minimum and the maximum point of every bucket. Preserves all peaks and valleys of a
+   * line, therefore the preferred option for chromatograms and feature shapes.
+   */
+  MIN_MAX,
+  /**
+   * Largest-Triangle-Three-Buckets. Keeps one point per bucket that spans the largest triangle with
+   * its neighbouring buckets. Visually closer to the original line for noisy data.
+   */
+  LTTB;
+
+  @Override
+  public String toString() {
+    return switch (this) {
+      case MIN_MAX -> "Min/max per bucket";
+      case LTTB -> "Largest triangle three buckets";
+    };
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import io.github.mzmine.util.collections.BinarySearch;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Precomputed reductions of line data. Level 0 is the full resolution, every following level holds
+ * about half of the points of the previous one. Charts select the finest level that does not exceed
+ * a point budget within the visible domain range, so the rendering cost depends on the number of
+ * screen pixels instead of the number of data points.
+ * <p>
+ * The pyramid should be built off the FX thread, e.g., during the dataset calculation.
+ */
+public class DownsamplingPyramid {
+
+  /**
+   * Levels are not reduced further once they reach this size.
+   */
+  public static final int DEFAULT_MIN_LEVEL_SIZE = 1_000;
+
+  private final List<XYLevel> levels;
+
+  private DownsamplingPyramid(List<XYLevel> levels) {
+    this.levels = levels;
+  }
+
+  /**
+   * @param x            domain values sorted ascending. The array is not copied.
+   * @param y            range values. The array is not copied.
+   * @param mode         the reduction strategy
+   * @param minLevelSize stop the reduction once a level is smaller than twice this size
+   * @param isCanceled   checked between levels. may be null
+   * @return the pyramid or null if canceled
+   */
+  public static @Nullable DownsamplingPyramid build(double[] x, double[] y,
+      @NotNull DownsamplingMode mode, int minLevelSize, @Nullable BooleanSupplier isCanceled) {
+    if (x.length != y.length) {
+      throw new IllegalArgumentException("x and y arrays need to be of the same length");
+    }
+
+    final List<XYLevel> levels = new ArrayList<>();
+    XYLevel level = new XYLevel(x, y, null);
+    levels.add(level);
+
+    while (level.size() >= minLevelSize * 2) {
+      if (isCanceled != null && isCanceled.getAsBoolean()) {
+        return null;
+      }
+      final XYLevel next = LineDownsampling.downsample(level, level.size() / 2, mode);
+      if (next.size() >= level.size()) {
+        break;
+      }
+      levels.add(next);
+      level = next;
+    }
+
+    return new DownsamplingPyramid(List.copyOf(levels));
+  }
+
+  public int getNumberOfLevels() {
+    return levels.size();
+  }
+
+  public @NotNull XYLevel getLevel(int level) {
+    return levels.get(level);
+  }
+
+  /**
+   * @return the full resolution data
+   */
+  public @NotNull XYLevel getFullResolution() {
+    return levels.getFirst();
+  }
+
+  /**
+   * @return the index of the finest level that contains at most maxVisiblePoints within the domain
+   * range. Returns the coarsest level if no level satisfies the budget.
+   */
+  public int selectLevel(double lowerDomain, double upperDomain, int maxVisiblePoints) {
+    for (int i = 0; i < levels.size(); i++) {
+      if (countVisible(levels.get(i), lowerDomain, upperDomain) <= maxVisiblePoints) {
+        return i;
+      }
+    }
+    return levels.size() - 1;
+  }
+
+  private static int countVisible(XYLevel level, double lower, double upper) {
+    if (level.size() == 0) {
+      return 0;
+    }
+    return BinarySearch.indexRange(level.x(), lower, upper).size();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Downsampling of line data (x sorted ascending) for plotting. All methods keep the first and the
+ * last point and return the points in their original order.
+ */
+public class LineDownsampling {
+
+  private LineDownsampling() {
+  }
+
+  /**
+   * @param level     the level to reduce
+   * @param numPoints the maximum number of points in the result
+   * @param mode      the reduction strategy
+   * @return the reduced level or the input level if it already contains less points than requested
+   */
+  public static @NotNull XYLevel downsample(@NotNull XYLevel level, int numPoints,
+      @NotNull DownsamplingMode mode) {
+    return switch (mode) {
+      case MIN_MAX -> minMaxPerBucket(level, numPoints);
+      case LTTB -> lttb(level, numPoints);
+    };
+  }
+
+  /**
+   * Splits the data into numPoints / 2 buckets of equal size and keeps the minimum and maximum y
+   * value of each bucket. Local extrema are therefore always retained.
+   *
+   * @param level     the level to reduce
+   * @param numPoints the maximum number of points in the result, at least 4
+   * @return the reduced level or the input level if it already contains less points than requested
+   */
+  public static @NotNull XYLevel minMaxPerBucket(@NotNull XYLevel level, int numPoints) {
+    final int size = level.size();
+    if (size <= numPoints || numPoints < 4) {
+      return level;
+    }
+
+    final double[] x = level.x();
+    final double[] y = level.y();
+    // first and last point are kept separately
+    final int numBuckets = (numPoints - 2) / 2;
+    final double bucketSize = (double) (size - 2) / numBuckets;
+
+    final double[] newX = new double[numBuckets * 2 + 2];
+    final double[] newY = new double[newX.length];
+    final int[] newIndices = new int[newX.length];
+    int n = 0;
+    n = add(level, 0, newX, newY, newIndices, n);
+
+    for (int b = 0; b < numBuckets; b++) {
+      final int start = 1 + (int) (b * bucketSize);
+      final int end = Math.min(1 + (int) ((b + 1) * bucketSize), size - 1);
+      if (start >= end) {
+        continue;
+      }
+
+      int minIndex = start;
+      int maxIndex = start;
+      for (int i = start + 1; i < end; i++) {
+        if (y[i] < y[minIndex]) {
+          minIndex = i;
+        }
+        if (y[i] > y[maxIndex]) {
+          maxIndex = i;
+        }
+      }
+
+      // keep the original order of the points
+      final int first = Math.min(minIndex, maxIndex);
+      final int second = Math.max(minIndex, maxIndex);
+      n = add(level, first, newX, newY, newIndices, n);
+      if (first != second) {
+        n = add(level, second, newX, newY, newIndices, n);
+      }
+    }
+    n = add(level, size - 1, newX, newY, newIndices, n);
+
+    return new XYLevel(Arrays.copyOf(newX, n), Arrays.copyOf(newY, n),
+        Arrays.copyOf(newIndices, n));
+  }
+
+  /**
+   * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013). Selects one point per bucket,
+   * the one that forms the largest triangle with the point selected in the previous bucket and the
+   * average of the next bucket.
+   *
+   * @param level     the level to reduce
+   * @param numPoints the number of points in the result, at least 3
+   * @return the reduced level or the input level if it already contains less points than requested
+   */
+  public static @NotNull XYLevel lttb(@NotNull XYLevel level, int numPoints) {
+    final int size = level.size();
+    if (size <= numPoints || numPoints < 3) {
+      return level;
+    }
+
+    final double[] x = level.x();
+    final double[] y = level.y();
+    final double[] newX = new double[numPoints];
+    final double[] newY = new double[numPoints];
+    final int[] newIndices = new int[numPoints];
+
+    // first and last point are fixed, the others are split into buckets
+    final double bucketSize = (double) (size - 2) / (numPoints - 2);
+    int n = 0;
+    n = add(level, 0, newX, newY, newIndices, n);
+    int a = 0;
+
+    for (int b = 0; b < numPoints - 2; b++) {
+      // average of the next bucket
+      final int nextStart = (int) ((b + 1) * bucketSize) + 1;
+      final int nextEnd = Math.min((int) ((b + 2) * bucketSize) + 1, size);
+      double avgX = 0;
+      double avgY = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        avgX += x[i];
+        avgY += y[i];
+      }
+      final int nextLength = Math.max(nextEnd - nextStart, 1);
+      avgX /= nextLength;
+      avgY /= nextLength;
+
+      // current bucket
+      final int start = (int) (b * bucketSize) + 1;
+      final int end = (int) ((b + 1) * bucketSize) + 1;
+
+      final double ax = x[a];
+      final double ay = y[a];
+      double maxArea = -1;
+      int selected = start;
+      for (int i = start; i < end; i++) {
+        final double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+        if (area > maxArea) {
+          maxArea = area;
+          selected = i;
+        }
+      }
+
+      n = add(level, selected, newX, newY, newIndices, n);
+      a = selected;
+    }
+    n = add(level, size - 1, newX, newY, newIndices, n);
+
+    return new XYLevel(Arrays.copyOf(newX, n), Arrays.copyOf(newY, n),
+        Arrays.copyOf(newIndices, n));
+  }
+
+  private static int add(XYLevel level, int index, double[] newX, double[] newY, int[] newIndices,
+      int n) {
+    newX[n] = level.x()[index];
+    newY[n] = level.y()[index];
+    newIndices[n] = level.sourceIndex(index);
+    return n + 1;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One level of a {@link DownsamplingPyramid}. Values are sorted by x.
+ *
+ * @param x             the domain values
+ * @param y             the range values
+ * @param sourceIndices the index of each point in the original data. null for the full resolution
+ *                      level, where each index maps to itself.
+ */
+public record XYLevel(double[] x, double[] y, @Nullable int[] sourceIndices) {
+
+  public int size() {
+    return x.length;
+  }
+
+  /**
+   * @param index index in this level
+   * @return the index of the same point in the original (full resolution) data
+   */
+  public int sourceIndex(int index) {
+    return sourceIndices == null ? index : sourceIndices[index];
+  }
+}
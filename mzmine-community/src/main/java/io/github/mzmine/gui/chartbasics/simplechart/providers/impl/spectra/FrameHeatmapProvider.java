@@ -29,6 +29,8 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.DensityBinnedXYZDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning.Aggregation;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
 import io.github.mzmine.gui.preferences.UnitFormat;
 import io.github.mzmine.main.MZmineCore;
@@ -83,6 +85,32 @@ public class FrameHeatmapProvider implements PlotXYZDataProvider {
     finishedPercentage = 0d;
   }
 
+  /**
+   * @return a dataset that reduces the visible data points of frames with many data points to
+   * density bins of the maximum intensity. The bins are refined when zooming in. Map cursor
+   * positions with {@link #getMobilityScan(DensityBinnedXYZDataset, int, double)}.
+   */
+  public static DensityBinnedXYZDataset createBinned(Frame frame) {
+    return new DensityBinnedXYZDataset(new FrameHeatmapProvider(frame), Aggregation.MAX);
+  }
+
+  /**
+   * @param dataset    a dataset created by {@link #createBinned(Frame)}
+   * @param valueIndex the value index of the cursor position
+   * @param mobility   the range value of the cursor position
+   * @return the mobility scan of the cursor position
+   */
+  public static MobilityScan getMobilityScan(DensityBinnedXYZDataset dataset, int valueIndex,
+      double mobility) {
+    final FrameHeatmapProvider frameProvider = (FrameHeatmapProvider) dataset.getXyzValueProvider();
+    final int sourceIndex = dataset.getSourceIndex(valueIndex);
+    if (sourceIndex < 0) {
+      // bins do not refer to a single data point
+      return frameProvider.getMobilityScanClosestTo(mobility);
+    }
+    return frameProvider.getMobilityScanAtValueIndex(sourceIndex);
+  }
+
   @Override
   public Color getAWTColor() {
     return frame.getDataFile().getColorAWT();
@@ -141,6 +169,23 @@ public class FrameHeatmapProvider implements PlotXYZDataProvider {
     return mobilityScanAtValueIndex.get(index);
   }
 
+  /**
+   * @param mobility the mobility, e.g. of a cursor position in a binned heatmap.
+   * @return the mobility scan closest to the given mobility.
+   */
+  public MobilityScan getMobilityScanClosestTo(double mobility) {
+    MobilityScan closest = null;
+    double minDelta = Double.POSITIVE_INFINITY;
+    for (MobilityScan mobilityScan : frame.getSortedMobilityScans()) {
+      final double delta = Math.abs(mobilityScan.getMobility() - mobility);
+      if (delta < minDelta) {
+        minDelta = delta;
+        closest = mobilityScan;
+      }
+    }
+    return closest;
+  }
+
   @Override
   public double getDomainValue(int index) {
     return domainValues.get(index);
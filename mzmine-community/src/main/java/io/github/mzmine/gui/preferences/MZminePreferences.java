@@ -33,6 +33,7 @@ import io.github.mzmine.javafx.dialogs.DialogLoggerUtil;
 import io.github.mzmine.main.ConfigService;
 import io.github.mzmine.main.KeepInMemory;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.batchmode.cache.BatchStepCacheParameters;
 import io.github.mzmine.modules.io.download.AssetGroup;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.dialogs.GroupedParameterSetupDialog;
@@ -54,6 +55,7 @@ import io.github.mzmine.parameters.parametertypes.submodules.OptionalModuleParam
 import io.github.mzmine.parameters.parametertypes.submodules.ParameterSetParameter;
 import io.github.mzmine.util.ExitCode;
 import io.github.mzmine.util.StringUtils;
+import io.github.mzmine.util.ThreadLocalNumberFormat;
 import io.github.mzmine.util.color.ColorUtils;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.web.Proxy;
@@ -120,6 +122,13 @@ public class MZminePreferences extends SimpleParameterSet {
       Typically the Java Virtual Machine will hold on to RAM and manage it to achieve the highest throughput.
       The recommendation is to keep this setting turned off.""", false);
 
+  public static final OptionalModuleParameter<BatchStepCacheParameters> batchStepCache = new OptionalModuleParameter<>(
+      "Cache batch step results", """
+      Caches the results of the per file steps at the start of a batch (import, mass detection, \
+      chromatogram building, resolving, ...). Running a batch again on the same data files skips \
+      all leading steps with unchanged parameters and loads their results from the cache.""",
+      new BatchStepCacheParameters(), false);
+
   public static final OptionalModuleParameter<ProxyParameters> proxySettings = new OptionalModuleParameter<>(
       "Use proxy", "Use proxy for internet connection?", new ProxyParameters(), false);
 
@@ -171,8 +180,10 @@ public class MZminePreferences extends SimpleParameterSet {
           + " memory mapping is a fast and memory efficient way to handle data, therefore, the "
           + "default is to memory map all spectral data and feature data with the option %s. On "
           + "systems where memory (RAM) is no concern, viable options are %s and %s, to keep all in memory "
-          + "or to keep mass lists and feauture data in memory, respectively.", KeepInMemory.NONE,
-      KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
+          + "or to keep mass lists and feauture data in memory, respectively. %s starts with all "
+          + "data in memory and memory maps new data when the memory usage gets high.",
+      KeepInMemory.NONE, KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES, KeepInMemory.AUTO),
+      KeepInMemory.values(),
       KeepInMemory.NONE);
 
   /*public static final BooleanParameter applyTimsPressureCompensation = new BooleanParameter(
@@ -200,10 +211,16 @@ public class MZminePreferences extends SimpleParameterSet {
       "Image paint scale transformation", "Transforms the paint scale for images.",
       PaintScaleTransform.values(), PaintScaleTransform.LINEAR);
 
-  private static final NumberFormats exportFormat = new NumberFormats(new DecimalFormat("0.#####"),
-      new DecimalFormat("0.####"), new DecimalFormat("0.####"), new DecimalFormat("0.##"),
-      new DecimalFormat("0.###E0"), new DecimalFormat("0.##"), new DecimalFormat("0.####"),
-      new DecimalFormat("0.###"), UnitFormat.DIVIDE);
+  // export formats are shared between threads during parallel exports
+  private static final NumberFormats exportFormat = new NumberFormats(
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.#####")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.####")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.####")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.##")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.###E0")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.##")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.####")),
+      ThreadLocalNumberFormat.of(new DecimalFormat("0.###")), UnitFormat.DIVIDE);
   private final BooleanProperty darkModeProperty = new SimpleBooleanProperty(false);
   private NumberFormats guiFormat = exportFormat; // default value
 
@@ -247,8 +264,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
   public MZminePreferences() {
     super(// start with performance
-        numOfThreads, memoryOption, tempDirectory, runGCafterBatchStep, proxySettings,
-        /*applyTimsPressureCompensation,*/
+        numOfThreads, memoryOption, tempDirectory, runGCafterBatchStep, batchStepCache,
+        proxySettings, /*applyTimsPressureCompensation,*/
         // visuals
         // number formats
         mzFormat, rtFormat, mobilityFormat, ccsFormat, intensityFormat, ppmFormat, scoreFormat,
@@ -288,7 +305,7 @@ public class MZminePreferences extends SimpleParameterSet {
 
     // add groups
     dialog.addParameterGroup("General", numOfThreads, memoryOption, tempDirectory,
-        runGCafterBatchStep, proxySettings
+        runGCafterBatchStep, batchStepCache, proxySettings
         /*, applyTimsPressureCompensation*/);
     dialog.addParameterGroup("Formats", mzFormat, rtFormat, mobilityFormat, ccsFormat,
         intensityFormat, ppmFormat, scoreFormat, unitFormat);
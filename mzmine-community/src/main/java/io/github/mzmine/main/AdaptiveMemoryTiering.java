@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.main;
+
+import com.sun.management.OperatingSystemMXBean;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Used by {@link KeepInMemory#AUTO}. Starts with all new data in RAM and watches the heap after
+ * garbage collection and the resident set size of the process. Under pressure, new raw scans, then
+ * mass lists, and then feature data are memory mapped into temp files. When the pressure drops for
+ * a while, the tiers are relaxed again and new data is kept in RAM. Data that was already stored
+ * stays where it is, the switch only applies to storages created afterwards, like the static
+ * {@link KeepInMemory} options.
+ */
+public final class AdaptiveMemoryTiering {
+
+  private static final Logger logger = Logger.getLogger(AdaptiveMemoryTiering.class.getName());
+
+  /**
+   * Escalate to the next tier above this fraction of the available memory
+   */
+  static final double HIGH_WATERMARK = 0.75;
+  /**
+   * Relax to the previous tier below this fraction of the available memory
+   */
+  static final double LOW_WATERMARK = 0.45;
+  /**
+   * Number of consecutive checks below {@link #LOW_WATERMARK} before a tier is relaxed
+   */
+  static final int RELAX_AFTER_CHECKS = 10;
+  private static final long CHECK_INTERVAL_MS = 2000;
+
+  private static AdaptiveMemoryTiering instance;
+
+  private final ScheduledExecutorService executor;
+  private final List<MemoryPoolMXBean> heapPools;
+  private final long physicalMemory;
+  private volatile Tier tier = Tier.ALL_IN_RAM;
+  private int checksBelowLowWatermark = 0;
+
+  private AdaptiveMemoryTiering() {
+    heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .filter(MemoryPoolMXBean::isCollectionUsageThresholdSupported).toList();
+    physicalMemory = getPhysicalMemory();
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "adaptive-memory-tiering");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Start monitoring. Applies {@link Tier#ALL_IN_RAM} first.
+   */
+  public static synchronized void start() {
+    if (instance != null) {
+      return;
+    }
+    instance = new AdaptiveMemoryTiering();
+    instance.tier.apply();
+    instance.executor.scheduleWithFixedDelay(instance::check, CHECK_INTERVAL_MS, CHECK_INTERVAL_MS,
+        TimeUnit.MILLISECONDS);
+    logger.info("Started adaptive memory tiering");
+  }
+
+  /**
+   * Stop monitoring. The memory mapping flags are not reset, this is done by the
+   * {@link KeepInMemory} option that is applied next.
+   */
+  public static synchronized void stop() {
+    if (instance == null) {
+      return;
+    }
+    instance.executor.shutdownNow();
+    instance = null;
+  }
+
+  /**
+   * @return the current tier or null if adaptive tiering is not active
+   */
+  public static synchronized @Nullable Tier getCurrentTier() {
+    return instance == null ? null : instance.tier;
+  }
+
+  private void check() {
+    try {
+      final double pressure = Math.max(getHeapPressure(), getResidentSetPressure());
+      final Tier next = nextTier(tier, pressure, checksBelowLowWatermark);
+      checksBelowLowWatermark = pressure < LOW_WATERMARK ? checksBelowLowWatermark + 1 : 0;
+      if (next != tier) {
+        logger.info("Memory pressure %.2f, switching storage tier from %s to %s".formatted(pressure,
+            tier, next));
+        tier = next;
+        checksBelowLowWatermark = 0;
+        next.apply();
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error in adaptive memory tiering " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @param current                 the current tier
+   * @param pressure                the used fraction of the available memory
+   * @param checksBelowLowWatermark number of previous consecutive checks below the low watermark
+   * @return the next tier
+   */
+  static @NotNull Tier nextTier(@NotNull Tier current, double pressure,
+      int checksBelowLowWatermark) {
+    if (pressure > HIGH_WATERMARK) {
+      return current.escalate();
+    }
+    if (pressure < LOW_WATERMARK && checksBelowLowWatermark + 1 >= RELAX_AFTER_CHECKS) {
+      return current.relax();
+    }
+    return current;
+  }
+
+  /**
+   * Uses the heap usage after the last garbage collection, which is the live data that cannot be
+   * freed. Falls back to the current usage.
+   *
+   * @return used fraction of the max heap
+   */
+  private double getHeapPressure() {
+    final long max = Runtime.getRuntime().maxMemory();
+    if (max <= 0 || max == Long.MAX_VALUE) {
+      return 0;
+    }
+    long used = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      final MemoryUsage usage = pool.getCollectionUsage();
+      if (usage != null) {
+        used += usage.getUsed();
+      }
+    }
+    if (used == 0) {
+      used = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+    return used / (double) max;
+  }
+
+  /**
+   * The resident set also contains memory mapped pages and native memory. Only available on Linux.
+   *
+   * @return used fraction of the physical memory or 0 if unknown
+   */
+  private double getResidentSetPressure() {
+    if (physicalMemory <= 0) {
+      return 0;
+    }
+    final Path status = Path.of("/proc/self/status");
+    if (!Files.isReadable(status)) {
+      return 0;
+    }
+    try (var lines = Files.lines(status)) {
+      return lines.filter(line -> line.startsWith("VmRSS:")).findFirst().map(line -> {
+        // VmRSS:    123456 kB
+        final String[] split = line.trim().split("\\s+");
+        return Long.parseLong(split[1]) * 1024d / physicalMemory;
+      }).orElse(0d);
+    } catch (IOException | RuntimeException e) {
+      return 0;
+    }
+  }
+
+  private static long getPhysicalMemory() {
+    if (ManagementFactory.getOperatingSystemMXBean() instanceof OperatingSystemMXBean os) {
+      return os.getTotalMemorySize();
+    }
+    return 0;
+  }
+
+  /**
+   * Storage tiers from all data in RAM to all data memory mapped. Raw scans are memory mapped first
+   * as they are usually the largest and least frequently accessed data after mass detection.
+   */
+  public enum Tier {
+    ALL_IN_RAM(true, true, true), MAP_RAW_SCANS(false, true, true), MAP_RAW_SCANS_AND_MASS_LISTS(
+        false, false, true), MAP_ALL(false, false, false);
+
+    private final boolean rawFilesInRam;
+    private final boolean massListsInRam;
+    private final boolean featuresInRam;
+
+    Tier(boolean rawFilesInRam, boolean massListsInRam, boolean featuresInRam) {
+      this.rawFilesInRam = rawFilesInRam;
+      this.massListsInRam = massListsInRam;
+      this.featuresInRam = featuresInRam;
+    }
+
+    public Tier escalate() {
+      return values()[Math.min(ordinal() + 1, values().length - 1)];
+    }
+
+    public Tier relax() {
+      return values()[Math.max(ordinal() - 1, 0)];
+    }
+
+    /**
+     * Applies to all storages that are created afterwards
+     */
+    void apply() {
+      MemoryMapStorage.setStoreRawFilesInRam(rawFilesInRam);
+      MemoryMapStorage.setStoreMassListsInRam(massListsInRam);
+      MemoryMapStorage.setStoreFeaturesInRam(featuresInRam);
+    }
+  }
+}
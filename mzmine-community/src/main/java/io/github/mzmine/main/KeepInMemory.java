@@ -32,7 +32,12 @@ import io.github.mzmine.util.MemoryMapStorage;
  */
 public enum KeepInMemory {
 
-  NONE, ALL, FEATURES, MASS_LISTS, RAW_SCANS, MASSES_AND_FEATURES;
+  NONE, ALL, FEATURES, MASS_LISTS, RAW_SCANS, MASSES_AND_FEATURES,
+  /**
+   * Start in RAM and memory map new data under memory pressure, see
+   * {@link AdaptiveMemoryTiering}
+   */
+  AUTO;
 
   public static KeepInMemory parse(String s) {
     s = s.toLowerCase();
@@ -43,6 +48,7 @@ public enum KeepInMemory {
       case "centroids" -> MASS_LISTS;
       case "raw" -> RAW_SCANS;
       case "masses_features" -> MASSES_AND_FEATURES;
+      case "auto" -> AUTO;
       default -> throw new IllegalStateException("Unexpected value: " + s);
     };
   }
@@ -52,6 +58,7 @@ public enum KeepInMemory {
    */
   public void enforceToMemoryMapping() {
     // reset
+    AdaptiveMemoryTiering.stop();
     MemoryMapStorage.setStoreAllInRam(false);
     // keep all in memory? (features, scans, ... in RAM instead of MemoryMapStorage
     switch (this) {
@@ -66,6 +73,7 @@ public enum KeepInMemory {
         MemoryMapStorage.setStoreMassListsInRam(true);
         MemoryMapStorage.setStoreFeaturesInRam(true);
       }
+      case AUTO -> AdaptiveMemoryTiering.start();
     }
   }
 }
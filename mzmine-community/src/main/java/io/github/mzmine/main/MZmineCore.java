@@ -40,6 +40,8 @@ import io.github.mzmine.javafx.concurrent.threading.FxThread;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineRunnableModule;
 import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.batchmode.distributed.DistributedBatchCoordinator;
+import io.github.mzmine.modules.batchmode.server.BatchJobServer;
 import io.github.mzmine.modules.visualization.projectmetadata.table.MetadataTable;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.ProjectService;
@@ -75,6 +77,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.application.Application;
@@ -104,7 +108,24 @@ public final class MZmineCore {
    * Main method
    */
   public static void main(final String[] args) {
+    final long startTime = System.nanoTime();
     try {
+      // Remove old temporary files on a new thread
+      Thread cleanupThread = new Thread(new TmpFileCleanup()); // check regular temp dir
+      cleanupThread.setPriority(Thread.MIN_PRIORITY);
+      cleanupThread.start();
+
+      MZmineCoreArgumentParser argsParser = new MZmineCoreArgumentParser(args);
+      getInstance().tdfPseudoProfile = argsParser.isLoadTdfPseudoProfile();
+      getInstance().tsfProfile = argsParser.isLoadTsfProfile();
+
+      // override preferences file by command line argument pref
+      final File prefFile = Objects.requireNonNullElse(argsParser.getPreferencesFile(),
+          MZmineConfiguration.CONFIG_FILE);
+      // parse the configuration while the version and environment are read
+      final CompletableFuture<Boolean> configLoaded = CompletableFuture.supplyAsync(
+          () -> loadConfiguration(prefFile));
+
       Semver version = SemverVersionReader.getMZmineVersion();
       logger.info("Starting mzmine " + version);
       /*
@@ -125,31 +146,7 @@ public final class MZmineCore {
       logger.finest("Working directory is " + cwd);
       logger.finest("Default temporary directory is " + System.getProperty("java.io.tmpdir"));
 
-      // Remove old temporary files on a new thread
-      Thread cleanupThread = new Thread(new TmpFileCleanup()); // check regular temp dir
-      cleanupThread.setPriority(Thread.MIN_PRIORITY);
-      cleanupThread.start();
-      MZmineCoreArgumentParser argsParser = new MZmineCoreArgumentParser(args);
-      getInstance().tdfPseudoProfile = argsParser.isLoadTdfPseudoProfile();
-      getInstance().tsfProfile = argsParser.isLoadTsfProfile();
-
-      // override preferences file by command line argument pref
-      final File prefFile = Objects.requireNonNullElse(argsParser.getPreferencesFile(),
-          MZmineConfiguration.CONFIG_FILE);
-
-      boolean updateTempDir = false;
-      // Load configuration
-      if (prefFile.exists() && prefFile.canRead()) {
-        try {
-          ConfigService.getConfiguration().loadConfiguration(prefFile, true);
-          updateTempDir = true;
-        } catch (Exception e) {
-          logger.log(Level.WARNING,
-              "Error while reading configuration " + prefFile.getAbsolutePath(), e);
-        }
-      } else {
-        logger.log(Level.WARNING, "Cannot read configuration " + prefFile.getAbsolutePath());
-      }
+      boolean updateTempDir = configLoaded.join();
 
       MZminePreferences preferences = ConfigService.getPreferences();
       // override temp directory
@@ -272,7 +269,10 @@ public final class MZmineCore {
       File[] overrideSpectralLibraryFiles = argsParser.getOverrideSpectralLibrariesFiles();
       boolean keepRunningInHeadless = argsParser.isKeepRunningAfterBatch();
 
-      boolean headLessMode = (isCliBatchProcessing || keepRunningInHeadless);
+      // headless job server defined by system property
+      boolean runServer = BatchJobServer.isEnabled();
+
+      boolean headLessMode = (isCliBatchProcessing || keepRunningInHeadless || runServer);
       // If we have no arguments, run in GUI mode, otherwise run in batch mode
       if (!headLessMode) {
         try {
@@ -308,6 +308,9 @@ public final class MZmineCore {
           }
         }
 
+        logger.info("Headless start up took %d ms".formatted(
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)));
+
         Task batchTask = null;
         if (batchFile != null) {
           // load batch
@@ -317,13 +320,23 @@ public final class MZmineCore {
           }
 
           // run batch file
-          batchTask = BatchModeModule.runBatch(ProjectService.getProject(), batchFile,
-              overrideDataFiles, overrideSpectralLibraryFiles, outBaseFile, Instant.now());
+          if (DistributedBatchCoordinator.isEnabled()) {
+            // run the per file steps on worker processes and the rest in this process
+            batchTask = DistributedBatchCoordinator.fromSystemProperties(argsParser)
+                .runBatch(ProjectService.getProject(), batchFile, overrideDataFiles,
+                    overrideSpectralLibraryFiles, outBaseFile);
+          } else {
+            batchTask = BatchModeModule.runBatch(ProjectService.getProject(), batchFile,
+                overrideDataFiles, overrideSpectralLibraryFiles, outBaseFile, Instant.now());
+          }
         }
 
         // option to keep MZmine running after the batch is finished
         // currently used to test - maybe useful to provide an API to access more data or to run other modules on demand
-        if (!keepRunningInHeadless) {
+        if (runServer) {
+          // accept batch jobs until the process is stopped
+          BatchJobServer.fromSystemProperties().start();
+        } else if (!keepRunningInHeadless) {
           exit(batchTask);
         }
       }
@@ -334,6 +347,27 @@ public final class MZmineCore {
   }
 
 
+  /**
+   * Load the configuration and preferences. Module parameters are only applied when the module is
+   * first used.
+   *
+   * @return true if the configuration was loaded
+   */
+  private static boolean loadConfiguration(@NotNull File prefFile) {
+    if (!prefFile.exists() || !prefFile.canRead()) {
+      logger.log(Level.WARNING, "Cannot read configuration " + prefFile.getAbsolutePath());
+      return false;
+    }
+    try {
+      ConfigService.getConfiguration().loadConfiguration(prefFile, true);
+      return true;
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error while reading configuration " + prefFile.getAbsolutePath(),
+          e);
+      return false;
+    }
+  }
+
   /**
    * @param isCliBatchProcessing
    * @param option
@@ -477,8 +511,29 @@ public final class MZmineCore {
     return module;
   }
 
-  public static Collection<MZmineModule> getAllModules() {
-    return getInstance().initializedModules.values();
+  /**
+   * Returns the instance of a module by its class name. The module is created on first use.
+   *
+   * @param moduleClassName the full class name of the module
+   * @return the module or null if the class is not a module or cannot be created
+   * @throws ClassNotFoundException if the class does not exist in this version
+   */
+  @SuppressWarnings("unchecked")
+  public static @Nullable MZmineModule getModuleInstance(@NotNull String moduleClassName)
+      throws ClassNotFoundException {
+    final Class<?> moduleClass = Class.forName(moduleClassName);
+    if (!MZmineModule.class.isAssignableFrom(moduleClass)) {
+      logger.warning("Class " + moduleClassName + " is not an mzmine module");
+      return null;
+    }
+    return getModuleInstance((Class<? extends MZmineModule>) moduleClass);
+  }
+
+  /**
+   * @return all modules that were created so far. Modules are created on first use
+   */
+  public synchronized static Collection<MZmineModule> getAllModules() {
+    return List.copyOf(getInstance().initializedModules.values());
   }
 
   /**
@@ -55,6 +55,7 @@ import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilder;
@@ -88,6 +89,12 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
    */
   private final Map<String, ParameterSet> moduleParameters;
 
+  /**
+   * Module parameters from the configuration file of modules that were not used yet. The module
+   * and its parameter set are only created on first use in {@link #getModuleParameters(Class)}
+   */
+  private final Map<String, Element> pendingModuleParameters = new ConcurrentHashMap<>();
+
   private final EStandardChartTheme standardChartTheme;
 
   public MZmineConfigurationImpl() {
@@ -116,7 +123,18 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
     }
 
     ParameterSet parameters = moduleParameters.get(moduleClass.getName());
-    if (parameters == null) {
+    if (parameters != null) {
+      return parameters;
+    }
+
+    // concurrent first calls would create duplicate sets and read the pending XML element, which
+    // is not thread safe. Create each parameter set once under the lock
+    synchronized (moduleParameters) {
+      parameters = moduleParameters.get(moduleClass.getName());
+      if (parameters != null) {
+        return parameters;
+      }
+
       // Create an instance of parameter set
       try {
         MZmineModule moduleInstance = MZmineCore.getModuleInstance(moduleClass);
@@ -125,7 +143,8 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
           return null;
         }
 
-        final Class<? extends ParameterSet> parameterSetClass = moduleInstance.getParameterSetClass();
+        final Class<? extends ParameterSet> parameterSetClass =
+            moduleInstance.getParameterSetClass();
         if (parameterSetClass == null) {
           logger.log(Level.WARNING,
               "Module " + moduleClass + " does not provide any ParameterSet class");
@@ -149,8 +168,12 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
       // Add the parameter set to the configuration
       parameters.setModuleNameAttribute(MZmineCore.getModuleInstance(moduleClass).getName());
+      // apply the values from the configuration file that were kept until first use
+      final Element pending = pendingModuleParameters.remove(moduleClass.getName());
+      if (pending != null) {
+        loadModuleParameters(moduleClass.getName(), parameters, pending);
+      }
       moduleParameters.put(moduleClass.getName(), parameters);
-
     }
     return parameters;
   }
@@ -238,8 +261,6 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
 
   @Override
   public void loadConfiguration(File file, boolean loadPreferences) throws IOException {
-    List<String> exculdeWarningsFor = List.of("jmzml", "adap");
-
     try {
       DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 
@@ -284,31 +305,20 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
       for (int i = 0; i < nodes.getLength(); i++) {
         Element moduleElement = (Element) nodes.item(i);
         String moduleClassName = moduleElement.getAttribute("class");
+        var parameterElement = (Element) moduleElement.getElementsByTagName("parameters").item(0);
+        if (parameterElement == null) {
+          continue;
+        }
 
-        try {
-          Class<? extends MZmineModule> moduleClass = (Class<? extends MZmineModule>) Class.forName(
-              moduleClassName);
-
-          ParameterSet moduleParameters = getModuleParameters(moduleClass);
-          if (moduleParameters == null) {
-            logger.info(
-                "Module %s was in the config file but was not found in the current version of MZmine".formatted(
-                    moduleClass.getName()));
-          }
-
-          MZmineModule moduleInstance = MZmineCore.getModuleInstance(moduleClass);
-          if (moduleInstance != null && moduleInstance.getParameterSetClass() == null) {
-            // some modules do not have a parameterset class
-            continue;
-          }
-          var parameterElement = (Element) moduleElement.getElementsByTagName("parameters").item(0);
-          moduleParameters.loadValuesFromXML(parameterElement);
-        } catch (Exception | NoClassDefFoundError e) {
-          boolean exclude = exculdeWarningsFor.stream()
-              .anyMatch(ex -> moduleClassName.toLowerCase().contains(ex));
-          if (!exclude) {
-            logger.log(Level.WARNING, "Failed to load configuration for module " + moduleClassName,
-                e);
+        synchronized (this.moduleParameters) {
+          final ParameterSet moduleParameters = this.moduleParameters.get(moduleClassName);
+          if (moduleParameters != null) {
+            // module is already in use
+            loadModuleParameters(moduleClassName, moduleParameters, parameterElement);
+          } else {
+            // creating hundreds of modules and parameter sets slows down the start up, create on
+            // first use instead
+            pendingModuleParameters.put(moduleClassName, parameterElement);
           }
         }
       }
@@ -344,6 +354,11 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
       Element modulesElement = configuration.createElement("modules");
       configRoot.appendChild(modulesElement);
 
+      if (skipSensitive) {
+        // the unused module parameters still contain sensitive values
+        resolvePendingModuleParameters();
+      }
+
       // traverse modules
       List<MZmineModule> allModules = new ArrayList<>(MZmineCore.getAllModules());
       for (MZmineModule module : allModules) {
@@ -368,6 +383,17 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
         }
       }
 
+      // modules that were not used keep the values that were read from the configuration file
+      for (var pending : pendingModuleParameters.entrySet()) {
+        if (moduleParameters.containsKey(pending.getKey()) || !classExists(pending.getKey())) {
+          continue;
+        }
+        Element moduleElement = configuration.createElement("module");
+        moduleElement.setAttribute("class", pending.getKey());
+        moduleElement.appendChild(configuration.importNode(pending.getValue(), true));
+        modulesElement.appendChild(moduleElement);
+      }
+
       // save encryption key to local config only
       // ATTENTION: this should to be written after all other configs
       final SimpleParameterSet encSet = new SimpleParameterSet(globalEncrypter);
@@ -402,6 +428,43 @@ public class MZmineConfigurationImpl implements MZmineConfiguration {
     }
   }
 
+  private void loadModuleParameters(@NotNull String moduleClassName,
+      @NotNull ParameterSet parameters, @NotNull Element parameterElement) {
+    try {
+      parameters.loadValuesFromXML(parameterElement);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Failed to load configuration for module " + moduleClassName, e);
+    }
+  }
+
+  /**
+   * Create the modules and parameter sets of all module parameters that were loaded from a
+   * configuration file but not used yet. Modules that are not found in the current version are
+   * dropped.
+   */
+  @SuppressWarnings("unchecked")
+  private void resolvePendingModuleParameters() {
+    for (String moduleClassName : List.copyOf(pendingModuleParameters.keySet())) {
+      try {
+        getModuleParameters((Class<? extends MZmineModule>) Class.forName(moduleClassName));
+      } catch (Exception | NoClassDefFoundError e) {
+        logger.fine("Module %s was in the config file but was not found in the current version"
+            .formatted(moduleClassName));
+      }
+      pendingModuleParameters.remove(moduleClassName);
+    }
+  }
+
+  private static boolean classExists(@NotNull String className) {
+    try {
+      // do not initialize the class
+      Class.forName(className, false, MZmineConfigurationImpl.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
   @Override
   public MZminePreferences getPreferences() {
     return preferences;
@@ -34,6 +34,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.util.ExitCode;
 import java.io.File;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -44,9 +45,11 @@ import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
 
 /**
  * Batch mode module
@@ -92,48 +95,13 @@ public class BatchModeModule implements MZmineProcessingModule {
     logger.info("Running batch from file " + batchFile);
 
     try {
-      DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-      Document parsedBatchXML = docBuilder.parse(batchFile);
-
-      List<String> errorMessages = new ArrayList<>();
-      // fail on missing modules - here its usually run from the command line - fail it
-      BatchQueue newQueue = BatchQueue.loadFromXml(parsedBatchXML.getDocumentElement(),
-          errorMessages, false);
-
-      // versions might have changed
-      if (!errorMessages.isEmpty()) {
-        logger.log(Level.WARNING, "Warnings during batch file import:");
-        for (final String errorMessage : errorMessages) {
-          logger.log(Level.WARNING, errorMessage);
-        }
+      final BatchQueue newQueue = loadQueue(batchFile, overrideDataFiles,
+          overrideSpectralLibraryFiles, overrideOutBaseFile);
+      if (newQueue == null) {
+        return null;
       }
 
-      // change input files and spectral libraries, e.g., by command line arguments
-      if (overrideDataFiles != null || overrideSpectralLibraryFiles != null) {
-        if (!newQueue.setImportFiles(overrideDataFiles, overrideSpectralLibraryFiles)) {
-          if (overrideDataFiles != null) {
-            logger.log(Level.SEVERE,
-                "Could not change the input files to " + Arrays.stream(overrideDataFiles)
-                    .map(file -> file != null ? file.getAbsolutePath() : "null")
-                    .collect(Collectors.joining("\n")));
-          }
-          if (overrideSpectralLibraryFiles != null) {
-            logger.log(Level.SEVERE,
-                "Could not change the import spectral library files to " + Arrays.stream(
-                        overrideSpectralLibraryFiles)
-                    .map(file -> file != null ? file.getAbsolutePath() : "null")
-                    .collect(Collectors.joining("\n")));
-          }
-          return null;
-        }
-      }
-      if (overrideOutBaseFile != null) {
-        newQueue.setOutputBaseFile(overrideOutBaseFile);
-      }
-
-      ParameterSet parameters = new BatchModeParameters();
-      parameters.getParameter(BatchModeParameters.batchQueue).setValue(newQueue);
-      BatchTask batchTask = new BatchTask(project, parameters, moduleCallDate);
+      BatchTask batchTask = createBatchTask(project, newQueue, moduleCallDate);
       batchTask.run();
       return batchTask;
     } catch (Throwable e) {
@@ -142,6 +110,72 @@ public class BatchModeModule implements MZmineProcessingModule {
     }
   }
 
+  /**
+   * @return a batch task that runs the queue on the project
+   */
+  @NotNull
+  public static BatchTask createBatchTask(@NotNull MZmineProject project, @NotNull BatchQueue queue,
+      @NotNull Instant moduleCallDate) {
+    ParameterSet parameters = new BatchModeParameters();
+    parameters.getParameter(BatchModeParameters.batchQueue).setValue(queue);
+    return new BatchTask(project, parameters, moduleCallDate);
+  }
+
+  /**
+   * Load a batch queue from file and apply the overrides, usually from command line arguments.
+   *
+   * @param batchFile                    local file
+   * @param overrideDataFiles            change the data import to those files if not null
+   * @param overrideSpectralLibraryFiles change the spectral libraries imported
+   * @param overrideOutBaseFile          change all output files with this out path and base
+   *                                     filename
+   * @return the batch queue or null if the overrides could not be applied
+   */
+  @Nullable
+  public static BatchQueue loadQueue(File batchFile, @Nullable File[] overrideDataFiles,
+      final File[] overrideSpectralLibraryFiles, @Nullable final String overrideOutBaseFile)
+      throws ParserConfigurationException, IOException, SAXException {
+    DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    Document parsedBatchXML = docBuilder.parse(batchFile);
+
+    List<String> errorMessages = new ArrayList<>();
+    // fail on missing modules - here its usually run from the command line - fail it
+    BatchQueue newQueue = BatchQueue.loadFromXml(parsedBatchXML.getDocumentElement(),
+        errorMessages, false);
+
+    // versions might have changed
+    if (!errorMessages.isEmpty()) {
+      logger.log(Level.WARNING, "Warnings during batch file import:");
+      for (final String errorMessage : errorMessages) {
+        logger.log(Level.WARNING, errorMessage);
+      }
+    }
+
+    // change input files and spectral libraries, e.g., by command line arguments
+    if (overrideDataFiles != null || overrideSpectralLibraryFiles != null) {
+      if (!newQueue.setImportFiles(overrideDataFiles, overrideSpectralLibraryFiles)) {
+        if (overrideDataFiles != null) {
+          logger.log(Level.SEVERE,
+              "Could not change the input files to " + Arrays.stream(overrideDataFiles)
+                  .map(file -> file != null ? file.getAbsolutePath() : "null")
+                  .collect(Collectors.joining("\n")));
+        }
+        if (overrideSpectralLibraryFiles != null) {
+          logger.log(Level.SEVERE,
+              "Could not change the import spectral library files to " + Arrays.stream(
+                      overrideSpectralLibraryFiles)
+                  .map(file -> file != null ? file.getAbsolutePath() : "null")
+                  .collect(Collectors.joining("\n")));
+        }
+        return null;
+      }
+    }
+    if (overrideOutBaseFile != null) {
+      newQueue.setOutputBaseFile(overrideOutBaseFile);
+    }
+    return newQueue;
+  }
+
   @Override
   public @NotNull String getName() {
     return MODULE_NAME;
@@ -42,7 +42,6 @@ import io.github.mzmine.util.collections.CollectionUtils;
 import io.github.mzmine.util.io.SemverVersionReader;
 import io.github.mzmine.util.javafx.ArrayObservableList;
 import java.io.File;
-import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -117,9 +116,6 @@ public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineP
     // Create an empty queue.
     final BatchQueue queue = new BatchQueue();
 
-    // Get the loaded modules.
-    final Collection<MZmineModule> allModules = MZmineCore.getAllModules();
-
     // prior to versioning of batch steps
     boolean noModuleVersion = false;
 
@@ -132,34 +128,23 @@ public class BatchQueue extends ArrayObservableList<MZmineProcessingStep<MZmineP
       final String methodName = stepElement.getAttribute(METHOD_ELEMENT);
 
       logger.fine("Loading batch step: " + methodName);
-      // Find a matching module.
+      // Find a matching module, modules are created on first use
       MZmineModule moduleFound = null;
-      for (MZmineModule module : allModules) {
-        if (module instanceof MZmineProcessingModule && module.getClass().getName()
-            .equals(methodName)) {
-          moduleFound = module;
-          break;
-        }
-      }
+      try {
+        moduleFound = MZmineCore.getModuleInstance(methodName);
+      } catch (ClassNotFoundException e) {
+        String batchVersionStr =
+            batchMzmineVersion == null ? "of unspecified version" : batchMzmineVersion.toString();
 
-      if (moduleFound == null) {
-        try {
-          moduleFound = MZmineCore.getModuleInstance(
-              (Class<MZmineModule>) Class.forName(methodName));
-        } catch (ClassNotFoundException e) {
-          String batchVersionStr =
-              batchMzmineVersion == null ? "of unspecified version" : batchMzmineVersion.toString();
+        String warning = """
+            Module not found for class %s (maybe recreate the batch file).
+            Current MZmine version: %s (batch was created with MZmine %s)""".formatted(methodName,
+            mzmineVersion, batchVersionStr);
 
-          String warning = """
-              Module not found for class %s (maybe recreate the batch file).
-              Current MZmine version: %s (batch was created with MZmine %s)""".formatted(methodName,
-              mzmineVersion, batchVersionStr);
-
-          errorMessages.add(warning);
-          logger.warning(warning);
-          if (!skipUnkownModules) {
-            throw new UnknownModuleNameException(methodName, e);
-          }
+        errorMessages.add(warning);
+        logger.warning(warning);
+        if (!skipUnkownModules) {
+          throw new UnknownModuleNameException(methodName, e);
         }
       }
       if (moduleFound != null) {
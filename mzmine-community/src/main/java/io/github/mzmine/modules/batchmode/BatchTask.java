@@ -38,7 +38,9 @@ import io.github.mzmine.javafx.dialogs.DialogLoggerUtil;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineProcessingModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.batchmode.cache.BatchStepCache;
 import io.github.mzmine.modules.batchmode.change_outfiles.ChangeOutputFilesUtils;
+import io.github.mzmine.modules.batchmode.timing.BatchStepEvent;
 import io.github.mzmine.modules.batchmode.timing.StepTimeMeasurement;
 import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
 import io.github.mzmine.parameters.Parameter;
@@ -56,6 +58,7 @@ import io.github.mzmine.taskcontrol.TaskPriority;
 import io.github.mzmine.taskcontrol.TaskService;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.taskcontrol.impl.WrappedTask;
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRegistry;
 import io.github.mzmine.taskcontrol.threadpools.ThreadPoolTask;
 import io.github.mzmine.taskcontrol.utils.TaskUtils;
 import io.github.mzmine.util.ExitCode;
@@ -72,8 +75,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Batch mode task
@@ -100,6 +105,9 @@ public class BatchTask extends AbstractTask {
   private File parentDir;
   private int currentDataset;
   private final List<StepTimeMeasurement> stepTimes = new ArrayList<>();
+  @Nullable
+  private BatchStepCache stepCache;
+  private List<String> stepCacheKeys = List.of();
 
   BatchTask(MZmineProject project, ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(project, parameters, moduleCallDate,
@@ -137,6 +145,17 @@ public class BatchTask extends AbstractTask {
     previousCreatedFeatureLists = new ArrayList<>();
   }
 
+  /**
+   * Set the data files and feature lists that the first steps use as batch last selection. Used
+   * when a batch continues on results that were loaded into the project, e.g., the merged results
+   * of distributed batch workers.
+   */
+  public void setInitialBatchLastResults(@NotNull List<RawDataFile> dataFiles,
+      @NotNull List<FeatureList> featureLists) {
+    previousCreatedDataFiles = new ArrayList<>(dataFiles);
+    previousCreatedFeatureLists = new ArrayList<>(featureLists);
+  }
+
   /**
    * Runs all tasks in a single {@link ThreadPoolTask} on the {@link TaskController#getExecutor()}
    * default executor
@@ -176,7 +195,15 @@ public class BatchTask extends AbstractTask {
 
   @Override
   public void run() {
+    try {
+      runSteps();
+    } finally {
+      // only writes if the task metrics file is defined by system property
+      TaskMetricsRegistry.getInstance().writeToFile();
+    }
+  }
 
+  private void runSteps() {
     Instant batchStart = Instant.now();
     setStatus(TaskStatus.PROCESSING);
     logger.info("Starting a batch of " + totalSteps + " steps");
@@ -184,8 +211,10 @@ public class BatchTask extends AbstractTask {
     int errorDataset = 0;
     currentDataset = -1;
     String datasetName = "";
+    // continue after the steps that were restored from the cache
+    processedSteps = useAdvanced ? 0 : restoreCachedSteps();
     // Process individual batch steps
-    for (int i = 0; i < totalSteps; i++) {
+    for (int i = processedSteps; i < totalSteps; i++) {
       // at the end of one dataset, clear the project and start over again
       if (useAdvanced && currentStep() == 0) {
         // clear the old project
@@ -241,6 +270,7 @@ public class BatchTask extends AbstractTask {
       }
 
       // run step
+      final List<FeatureList> beforeFeatureLists = project.getCurrentFeatureLists();
       processQueueStep(i % stepsPerDataset);
       processedSteps++;
       if (requireNonNullElse(getPreference(runGCafterBatchStep), false)) {
@@ -261,6 +291,7 @@ public class BatchTask extends AbstractTask {
           return;
         }
       }
+      cacheStepResults(i % stepsPerDataset, beforeFeatureLists);
     }
 
     logger.info("Finished a batch of " + totalSteps + " steps");
@@ -270,6 +301,69 @@ public class BatchTask extends AbstractTask {
     printBatchTimes();
   }
 
+  /**
+   * Restores the results of the longest prefix of steps from the {@link BatchStepCache}, if the
+   * cache is turned on in the preferences.
+   *
+   * @return the number of restored steps
+   */
+  private int restoreCachedSteps() {
+    stepCache = BatchStepCache.fromPreferences();
+    if (stepCache == null) {
+      return 0;
+    }
+    // cached results are loaded into the project
+    if (project.getNumberOfDataFiles() > 0 || !project.getCurrentFeatureLists().isEmpty()) {
+      logger.info("Batch step cache is only used for batches that start on an empty project");
+      stepCache = null;
+      return 0;
+    }
+    try {
+      stepCacheKeys = BatchStepCache.createKeys(queue, BatchStepCache.countCacheableSteps(queue));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Cannot create the batch step cache keys. " + e.getMessage(), e);
+      stepCache = null;
+      return 0;
+    }
+
+    final Instant start = Instant.now();
+    for (int steps = stepCacheKeys.size(); steps > 0; steps--) {
+      final File entry = stepCache.find(stepCacheKeys.get(steps - 1));
+      if (entry == null) {
+        continue;
+      }
+      if (!stepCache.restore(entry)) {
+        // remove partially loaded results and try fewer steps
+        project.removeFeatureLists(project.getCurrentFeatureLists());
+        project.removeFile(project.getDataFiles());
+        continue;
+      }
+      setInitialBatchLastResults(project.getCurrentRawDataFiles(),
+          BatchUtils.findLastFeatureLists(project, queue.subList(0, steps)));
+      logger.info("Restored the results of %d batch steps from the cache".formatted(steps));
+      stepTimes.add(new StepTimeMeasurement(steps, "Restored cached steps",
+          Duration.between(start, Instant.now())));
+      return steps;
+    }
+    return 0;
+  }
+
+  /**
+   * Stores the project in the {@link BatchStepCache} if the step is one of the leading per file
+   * steps and created feature lists. Data files are imported again when a cached project is
+   * loaded, therefore steps that only change data files are not cached.
+   */
+  private void cacheStepResults(int stepNumber, @NotNull List<FeatureList> beforeFeatureLists) {
+    if (stepCache == null || stepNumber >= stepCacheKeys.size()) {
+      return;
+    }
+    final boolean createdFeatureLists = project.getCurrentFeatureLists().stream()
+        .anyMatch(flist -> !beforeFeatureLists.contains(flist));
+    if (createdFeatureLists) {
+      stepCache.store(project, stepCacheKeys.get(stepNumber));
+    }
+  }
+
   private void printBatchTimes() {
     String csv = CsvWriter.writeToString(stepTimes, StepTimeMeasurement.class, '\t', true);
     logger.info("""
@@ -324,6 +418,17 @@ public class BatchTask extends AbstractTask {
     // Run next step of the batch
     MZmineProcessingStep<?> currentStep = queue.get(stepNumber);
     MZmineProcessingModule method = (MZmineProcessingModule) currentStep.getModule();
+    final BatchStepEvent stepEvent = new BatchStepEvent();
+    stepEvent.begin();
+    try {
+      runQueueStep(stepNumber, currentStep, method, start);
+    } finally {
+      stepEvent.commit(stepNumber, method, getStatus());
+    }
+  }
+
+  private void runQueueStep(int stepNumber, MZmineProcessingStep<?> currentStep,
+      MZmineProcessingModule method, Instant start) {
     ParameterSet batchStepParameters = currentStep.getParameterSet();
 
     final List<FeatureList> beforeFeatureLists = project.getCurrentFeatureLists();
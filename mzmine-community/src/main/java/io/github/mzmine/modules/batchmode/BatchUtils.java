@@ -25,6 +25,9 @@
 
 package io.github.mzmine.modules.batchmode;
 
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
@@ -34,6 +37,7 @@ import io.github.mzmine.modules.dataprocessing.filter_rowsfilter.RowsFilterParam
 import io.github.mzmine.parameters.parametertypes.absoluterelative.AbsoluteAndRelativeInt;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
 import io.github.mzmine.project.ProjectService;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
@@ -106,6 +110,31 @@ public class BatchUtils {
         .filter(step -> step.getModule().getModuleCategory() == MZmineModuleCategory.RAWDATAIMPORT);
   }
 
+  /**
+   * The feature lists created by the last of the steps that created feature lists. Loaded projects
+   * may also contain intermediate feature lists of earlier steps.
+   *
+   * @param project the project with the results of the steps
+   * @param steps   the steps that were applied to the feature lists in the project
+   * @return the last created feature lists or all feature lists if none matches the steps
+   */
+  @NotNull
+  public static List<FeatureList> findLastFeatureLists(@NotNull MZmineProject project,
+      @NotNull List<MZmineProcessingStep<MZmineProcessingModule>> steps) {
+    final List<FeatureList> featureLists = project.getCurrentFeatureLists();
+    for (int i = steps.size() - 1; i >= 0; i--) {
+      final Class<?> moduleClass = steps.get(i).getModule().getClass();
+      final List<FeatureList> created = featureLists.stream().filter(flist -> {
+        final List<FeatureListAppliedMethod> methods = flist.getAppliedMethods();
+        return !methods.isEmpty() && methods.getLast().getModule().getClass().equals(moduleClass);
+      }).toList();
+      if (!created.isEmpty()) {
+        return created;
+      }
+    }
+    return featureLists;
+  }
+
   /**
    * @param batch       the batch
    * @param moduleClass filters for all steps of this module
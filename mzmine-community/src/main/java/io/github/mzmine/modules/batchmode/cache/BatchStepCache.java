@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.cache;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.batchmode.BatchQueue;
+import io.github.mzmine.modules.batchmode.distributed.DistributedBatchCoordinator;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.projectload.ProjectOpeningTask;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsModule;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.modules.io.projectsave.ProjectSavingTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNameListSilentParameter;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.XMLUtils;
+import io.github.mzmine.util.io.SemverVersionReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Content addressed cache of the results of the leading per file batch steps. Each result is
+ * keyed by the fingerprints of the imported data files and the parameters of the step and all
+ * earlier steps. A result is stored as a referencing project after every per file step that
+ * created feature lists. Re-running a batch restores the longest cached prefix of steps and
+ * continues with the first step whose key changed.
+ * <p>
+ * Referencing projects import the raw data files again on load, the feature lists are restored
+ * from the cache. The cache size is limited by removing the least recently used entries.
+ */
+public class BatchStepCache {
+
+  private static final Logger logger = Logger.getLogger(BatchStepCache.class.getName());
+  private static final String ENTRY_EXTENSION = ".mzmine";
+  /**
+   * Increase if the content of cache entries changes, so that old entries are not restored
+   */
+  private static final int CACHE_FORMAT_VERSION = 1;
+
+  private final File directory;
+  private final long maxBytes;
+
+  public BatchStepCache(@NotNull File directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the cache defined in the preferences or null if the cache is turned off
+   */
+  @Nullable
+  public static BatchStepCache fromPreferences() {
+    final BatchStepCacheParameters parameters = ConfigService.getPreferences()
+        .getEmbeddedParametersIfSelectedOrElse(MZminePreferences.batchStepCache, null);
+    if (parameters == null) {
+      return null;
+    }
+    final File directory = parameters.getValue(BatchStepCacheParameters.directory);
+    final Integer maxSizeGB = parameters.getValue(BatchStepCacheParameters.maxSizeGB);
+    if (directory == null || maxSizeGB == null) {
+      return null;
+    }
+    return new BatchStepCache(directory, maxSizeGB * 1024L * 1024L * 1024L);
+  }
+
+  /**
+   * Only the leading per file steps of batches that start with the MS data import are cached.
+   *
+   * @return the number of leading steps that may be cached
+   */
+  public static int countCacheableSteps(@NotNull BatchQueue queue) {
+    if (queue.isEmpty() || !(queue.getFirst().getModule() instanceof AllSpectralDataImportModule)) {
+      return 0;
+    }
+    return DistributedBatchCoordinator.countLeadingPerFileSteps(
+        queue.stream().map(step -> step.getModule().getModuleCategory()).toList());
+  }
+
+  /**
+   * Creates the keys of all cacheable steps. Needs to be called before the batch runs as the batch
+   * changes the selections of the step parameters.
+   *
+   * @return one key for each of the leading steps, key i covers the steps 0 to i
+   */
+  @NotNull
+  public static List<String> createKeys(@NotNull BatchQueue queue, int steps)
+      throws ParserConfigurationException {
+    final List<String> dataFiles = new ArrayList<>();
+    final File[] files = queue.getFirst().getParameterSet()
+        .getValue(AllSpectralDataImportParameters.fileNames);
+    for (final File file : files == null ? new File[0] : files) {
+      dataFiles.add(fingerprint(file));
+    }
+
+    final List<String> stepParameters = new ArrayList<>(steps);
+    for (int i = 0; i < steps; i++) {
+      stepParameters.add(serializeStep(queue.get(i)));
+    }
+    // results of other mzmine versions may differ, even with the same parameters
+    final String version =
+        CACHE_FORMAT_VERSION + "|" + SemverVersionReader.getMZmineVersion().toString();
+    return createKeys(version, dataFiles, stepParameters);
+  }
+
+  /**
+   * @param version        the cache format and mzmine version
+   * @param dataFiles      the fingerprints of all data files
+   * @param stepParameters the serialized parameters of each step
+   * @return the SHA-256 hash of the version, the data files and all steps up to each step
+   */
+  @NotNull
+  static List<String> createKeys(@NotNull String version, @NotNull List<String> dataFiles,
+      @NotNull List<String> stepParameters) {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    update(digest, version);
+    // the order of files does not change the import result
+    dataFiles.stream().sorted().forEach(file -> update(digest, file));
+
+    final List<String> keys = new ArrayList<>(stepParameters.size());
+    for (final String step : stepParameters) {
+      update(digest, step);
+      try {
+        // continue the running digest for the next step
+        final MessageDigest prefix = (MessageDigest) digest.clone();
+        keys.add(HexFormat.of().formatHex(prefix.digest()));
+      } catch (CloneNotSupportedException e) {
+        throw new IllegalStateException("Cannot copy the SHA-256 digest", e);
+      }
+    }
+    return keys;
+  }
+
+  private static void update(@NotNull MessageDigest digest, @NotNull String value) {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    // length prefix so that different splits of the same text result in different keys
+    digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) ':');
+    digest.update(bytes);
+  }
+
+  /**
+   * Hashing the content of large raw data files would take longer than most steps, therefore the
+   * path, size and last modification time identify a file.
+   */
+  @NotNull
+  static String fingerprint(@NotNull File file) {
+    return "%s|%d|%d".formatted(file.getAbsolutePath(), file.length(), file.lastModified());
+  }
+
+  @NotNull
+  private static String serializeStep(
+      @NotNull MZmineProcessingStep<MZmineProcessingModule> step)
+      throws ParserConfigurationException {
+    final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .newDocument();
+    final Element element = document.createElement("step");
+    element.setAttribute("module", step.getModule().getClass().getName());
+    document.appendChild(element);
+    step.getParameterSet().saveValuesToXML(element);
+    return XMLUtils.nodeToString(element);
+  }
+
+  /**
+   * @return the cached project of this key or null if not cached
+   */
+  @Nullable
+  public File find(@NotNull String key) {
+    final File entry = getEntryFile(key);
+    if (!entry.isFile()) {
+      return null;
+    }
+    // mark as recently used
+    if (!entry.setLastModified(System.currentTimeMillis())) {
+      logger.fine("Could not update the last access time of " + entry.getAbsolutePath());
+    }
+    return entry;
+  }
+
+  /**
+   * Loads the cached results into the current project
+   *
+   * @return true if the project was loaded
+   */
+  public boolean restore(@NotNull File entry) {
+    logger.info("Restoring cached batch steps from " + entry.getAbsolutePath());
+    final ProjectOpeningTask openTask = new ProjectOpeningTask(entry, Instant.now(), true);
+    openTask.run();
+    if (openTask.getStatus() != TaskStatus.FINISHED) {
+      logger.warning("Could not load cached batch steps from %s: %s".formatted(
+          entry.getAbsolutePath(), openTask.getErrorMessage()));
+      if (!entry.delete()) {
+        logger.warning("Could not delete the cache entry " + entry.getAbsolutePath());
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Saves the project as the result of the steps of this key and removes the least recently used
+   * entries if the cache is too large. The project file and recent projects remain unchanged.
+   */
+  public void store(@NotNull MZmineProject project, @NotNull String key) {
+    try {
+      Files.createDirectories(directory.toPath());
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Could not create the batch step cache directory " + directory.getAbsolutePath(), e);
+      return;
+    }
+    final File entry = getEntryFile(key);
+    final ParameterSet saveParameters = MZmineCore.getConfiguration()
+        .getModuleParameters(ProjectSaveAsModule.class).cloneParameterSet();
+    saveParameters.setParameter(ProjectSaveAsParameters.projectFile, entry);
+    saveParameters.setParameter(ProjectSaveAsParameters.option, ProjectSaveOption.REFERENCING);
+
+    final File projectFile = project.getProjectFile();
+    final Boolean standalone = project.isStandalone();
+    final FileNameListSilentParameter lastProjects = MZmineCore.getConfiguration()
+        .getLastProjectsParameter();
+    final List<File> lastProjectFiles = new ArrayList<>(lastProjects.getValue());
+    try {
+      final ProjectSavingTask saveTask = new ProjectSavingTask(project, saveParameters,
+          Instant.now());
+      saveTask.run();
+      if (saveTask.getStatus() != TaskStatus.FINISHED) {
+        logger.warning("Could not cache batch steps: " + saveTask.getErrorMessage());
+        return;
+      }
+      logger.info("Cached batch steps in " + entry.getAbsolutePath());
+    } finally {
+      ((MZmineProjectImpl) project).setProjectFile(projectFile);
+      project.setStandalone(standalone);
+      lastProjects.setValue(lastProjectFiles);
+    }
+    evict();
+  }
+
+  /**
+   * Removes the least recently used entries until the cache fits into the maximum size
+   */
+  void evict() {
+    final File[] entries = directory.listFiles((_, name) -> name.endsWith(ENTRY_EXTENSION));
+    if (entries == null) {
+      return;
+    }
+    long totalBytes = Arrays.stream(entries).mapToLong(File::length).sum();
+    Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+    for (final File entry : entries) {
+      if (totalBytes <= maxBytes) {
+        return;
+      }
+      final long length = entry.length();
+      if (entry.delete()) {
+        totalBytes -= length;
+        logger.fine("Removed cached batch steps " + entry.getName());
+      }
+    }
+  }
+
+  @NotNull
+  private File getEntryFile(@NotNull String key) {
+    return new File(directory, key + ENTRY_EXTENSION);
+  }
+}
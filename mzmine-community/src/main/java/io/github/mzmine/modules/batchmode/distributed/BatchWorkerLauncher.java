@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Starts the worker processes of a distributed batch. Implementations decide where a worker runs,
+ * e.g., as a local process or on a remote host. All workers need access to the raw data files and
+ * the shared project directory under the same paths.
+ */
+public interface BatchWorkerLauncher {
+
+  /**
+   * @param workerIndex the index of the worker, starting at 0
+   * @param command     the full java command line to start the worker
+   * @param logFile     the file that should receive the output of the worker
+   * @return the started process
+   */
+  @NotNull Process launch(int workerIndex, @NotNull List<String> command, @NotNull File logFile)
+      throws IOException;
+
+  /**
+   * @param numWorkers the total number of workers
+   * @return the number of threads for each worker or null to use the worker preferences
+   */
+  default @Nullable Integer getThreadsPerWorker(int numWorkers) {
+    return null;
+  }
+}
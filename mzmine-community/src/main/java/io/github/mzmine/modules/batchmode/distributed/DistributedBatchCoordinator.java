@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.distributed;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.MZmineModuleCategory;
+import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.MZmineProcessingStep;
+import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.batchmode.BatchModeParameters;
+import io.github.mzmine.modules.batchmode.BatchQueue;
+import io.github.mzmine.modules.batchmode.BatchTask;
+import io.github.mzmine.modules.batchmode.BatchUtils;
+import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportModule;
+import io.github.mzmine.modules.io.import_rawdata_all.AllSpectralDataImportParameters;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportModule;
+import io.github.mzmine.modules.io.import_spectral_library.SpectralLibraryImportParameters;
+import io.github.mzmine.modules.io.projectload.ProjectOpeningTask;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsModule;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveAsParameters;
+import io.github.mzmine.modules.io.projectsave.ProjectSaveOption;
+import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportModule;
+import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportParameters;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.XMLUtils;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.mzio.mzmine.startup.MZmineCoreArgumentParser;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Runs a batch on multiple worker processes. The leading batch steps that process each data file
+ * independently (import, mass detection, chromatogram building, resolving, ...) are run by worker
+ * processes on shards of the data files. Each worker is a regular headless mzmine batch run that
+ * saves a referencing project into the shared project directory. The coordinator then loads all
+ * worker projects into the current project and runs the remaining cross-file steps (alignment, gap
+ * filling, annotation, ...) itself.
+ * <p>
+ * Limitation: feature lists reference the scans of their raw data files, so the coordinator has to
+ * load the raw data as well. Opening a worker project replays the import batch of each raw data
+ * file, i.e., the import and the raw data steps (e.g., mass detection) run again in the
+ * coordinator, with the heap to hold all files. Only the feature detection steps (chromatogram
+ * building, resolving, ...) are saved by distributing the batch.
+ * <p>
+ * The command line parser is defined outside of this repository, therefore the coordinator is
+ * configured by system properties, e.g., {@code -Dmzmine.distributed.workers=4}.
+ */
+public class DistributedBatchCoordinator {
+
+  /**
+   * Number of worker processes. The coordinator is active for values > 1
+   */
+  public static final String WORKERS_PROPERTY = "mzmine.distributed.workers";
+  /**
+   * Shared project directory that is accessible by the coordinator and all workers
+   */
+  public static final String DIRECTORY_PROPERTY = "mzmine.distributed.dir";
+  /**
+   * Comma separated list of hosts. Workers are started locally if not set
+   */
+  public static final String HOSTS_PROPERTY = "mzmine.distributed.hosts";
+  /**
+   * Remote shell command used to start workers on the hosts, default is ssh
+   */
+  public static final String REMOTE_SHELL_PROPERTY = "mzmine.distributed.remoteShell";
+  /**
+   * Maximum heap of the worker processes, e.g., 16g. Workers use the JVM arguments of the
+   * coordinator if not set
+   */
+  public static final String WORKER_HEAP_PROPERTY = "mzmine.distributed.workerHeap";
+
+  private static final Logger logger = Logger.getLogger(
+      DistributedBatchCoordinator.class.getName());
+
+  /**
+   * Steps of these categories process each data file or feature list on its own and are run by
+   * the workers if they are at the start of the batch.
+   */
+  private static final Set<MZmineModuleCategory> PER_FILE_CATEGORIES = EnumSet.of(
+      MZmineModuleCategory.RAWDATAIMPORT, MZmineModuleCategory.RAWDATA,
+      MZmineModuleCategory.RAWDATAFILTERING, MZmineModuleCategory.EIC_DETECTION,
+      MZmineModuleCategory.FEATURE_RESOLVING, MZmineModuleCategory.ISOTOPES,
+      MZmineModuleCategory.SPECTRALDECONVOLUTION, MZmineModuleCategory.FEATURELISTFILTERING);
+
+  private final int numWorkers;
+  private final File sharedDirectory;
+  private final BatchWorkerLauncher launcher;
+  private final MZmineCoreArgumentParser argsParser;
+  @Nullable
+  private final String workerHeap;
+
+  public DistributedBatchCoordinator(int numWorkers, @NotNull File sharedDirectory,
+      @NotNull BatchWorkerLauncher launcher, @NotNull MZmineCoreArgumentParser argsParser,
+      @Nullable String workerHeap) {
+    this.numWorkers = numWorkers;
+    this.sharedDirectory = sharedDirectory;
+    this.launcher = launcher;
+    this.argsParser = argsParser;
+    this.workerHeap = workerHeap;
+  }
+
+  /**
+   * @return true if more than one worker was requested by system property
+   */
+  public static boolean isEnabled() {
+    return Integer.getInteger(WORKERS_PROPERTY, 1) > 1;
+  }
+
+  /**
+   * Create a coordinator from the system properties
+   */
+  public static DistributedBatchCoordinator fromSystemProperties(
+      @NotNull MZmineCoreArgumentParser argsParser) {
+    final int workers = Integer.getInteger(WORKERS_PROPERTY, 1);
+
+    final String dir = System.getProperty(DIRECTORY_PROPERTY);
+    final String defaultDir = "mzmine_distributed_" + Instant.now().toEpochMilli();
+    final File sharedDirectory =
+        dir != null ? new File(dir) : new File(FileAndPathUtil.getTempDir(), defaultDir);
+
+    final String hosts = System.getProperty(HOSTS_PROPERTY);
+    final BatchWorkerLauncher launcher;
+    if (hosts == null || hosts.isBlank()) {
+      launcher = new LocalProcessWorkerLauncher();
+    } else {
+      final String shell = System.getProperty(REMOTE_SHELL_PROPERTY, "ssh");
+      launcher = new RemoteShellWorkerLauncher(Arrays.asList(shell.trim().split("\\s+")),
+          Arrays.stream(hosts.split(",")).map(String::trim).filter(h -> !h.isEmpty()).toList());
+    }
+    return new DistributedBatchCoordinator(workers, sharedDirectory, launcher, argsParser,
+        System.getProperty(WORKER_HEAP_PROPERTY));
+  }
+
+  /**
+   * Distribute the data files on shards with similar total file size. Largest files are assigned
+   * first, each to the shard with the lowest total size.
+   *
+   * @return the non-empty shards, at most numShards
+   */
+  static List<List<File>> shardFiles(@NotNull File[] files, int numShards) {
+    final int shards = Math.max(1, Math.min(numShards, files.length));
+    final List<List<File>> result = new ArrayList<>(shards);
+    final long[] shardSizes = new long[shards];
+    for (int i = 0; i < shards; i++) {
+      result.add(new ArrayList<>());
+    }
+
+    final File[] sorted = files.clone();
+    Arrays.sort(sorted, Comparator.comparingLong(File::length).reversed()
+        .thenComparing(File::getAbsolutePath));
+    for (final File file : sorted) {
+      int smallest = 0;
+      for (int s = 1; s < shards; s++) {
+        if (shardSizes[s] < shardSizes[smallest]) {
+          smallest = s;
+        }
+      }
+      result.get(smallest).add(file);
+      shardSizes[smallest] += file.length();
+    }
+    result.removeIf(List::isEmpty);
+    return result;
+  }
+
+  /**
+   * @return the number of leading steps that process each file independently
+   */
+  public static int countLeadingPerFileSteps(@NotNull List<MZmineModuleCategory> stepCategories) {
+    int steps = 0;
+    while (steps < stepCategories.size() && PER_FILE_CATEGORIES.contains(
+        stepCategories.get(steps))) {
+      steps++;
+    }
+    return steps;
+  }
+
+  /**
+   * Run the batch distributed on the workers. Falls back to a local batch if the batch cannot be
+   * split.
+   *
+   * @return the batch task of the cross-file steps or null on error
+   */
+  @Nullable
+  public BatchTask runBatch(@NotNull MZmineProject project, @NotNull File batchFile,
+      @Nullable File[] overrideDataFiles, @Nullable File[] overrideSpectralLibraryFiles,
+      @Nullable String overrideOutBaseFile) {
+    try {
+      final BatchQueue queue = BatchModeModule.loadQueue(batchFile, overrideDataFiles,
+          overrideSpectralLibraryFiles, overrideOutBaseFile);
+      if (queue == null) {
+        return null;
+      }
+
+      final int perFileSteps = countLeadingPerFileSteps(
+          queue.stream().map(step -> step.getModule().getModuleCategory()).toList());
+      if (perFileSteps == 0 || !(queue.getFirst()
+          .getModule() instanceof AllSpectralDataImportModule)) {
+        logger.warning("""
+            Cannot distribute the batch because it does not start with the MS data import \
+            followed by per file steps. Running the batch in this process.""");
+        return runLocally(project, queue, List.of(), List.of());
+      }
+
+      final ParameterSet importParameters = queue.getFirst().getParameterSet();
+      final File[] dataFiles = importParameters.getValue(AllSpectralDataImportParameters.fileNames);
+      final List<List<File>> shards = shardFiles(dataFiles, numWorkers);
+      if (shards.size() < 2) {
+        logger.info("Only one shard of data files. Running the batch in this process.");
+        return runLocally(project, queue, List.of(), List.of());
+      }
+
+      Files.createDirectories(sharedDirectory.toPath());
+      logger.info("Distributing %d data files on %d workers with shared directory %s".formatted(
+          dataFiles.length, shards.size(), sharedDirectory.getAbsolutePath()));
+      logger.warning("""
+          Loading the worker projects imports all raw data files again in this process and \
+          repeats the raw data steps (e.g., mass detection) of their import batches. Only the \
+          feature detection steps are distributed. This process needs the heap for all files.""");
+
+      final List<File> workerProjects = runWorkers(queue, perFileSteps, shards);
+      if (workerProjects == null) {
+        return null;
+      }
+
+      // merge the results of all workers into the current project
+      for (final File workerProject : workerProjects) {
+        logger.info("Loading worker project " + workerProject.getAbsolutePath());
+        final ProjectOpeningTask openTask = new ProjectOpeningTask(workerProject, Instant.now(),
+            true);
+        openTask.run();
+        if (openTask.getStatus() != TaskStatus.FINISHED) {
+          logger.severe("Could not load worker project %s: %s".formatted(
+              workerProject.getAbsolutePath(), openTask.getErrorMessage()));
+          return null;
+        }
+      }
+
+      final BatchQueue crossFileQueue = createCrossFileQueue(queue, perFileSteps,
+          importParameters);
+      final List<FeatureList> lastFeatureLists = BatchUtils.findLastFeatureLists(project,
+          queue.subList(0, perFileSteps));
+      return runLocally(project, crossFileQueue, project.getCurrentRawDataFiles(),
+          lastFeatureLists);
+    } catch (Throwable e) {
+      logger.log(Level.SEVERE, "Error while running distributed batch. " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Write the worker batches, start all workers and wait for them to finish.
+   *
+   * @return the project files of all workers or null on error
+   */
+  @Nullable
+  private List<File> runWorkers(@NotNull BatchQueue queue, int perFileSteps,
+      @NotNull List<List<File>> shards) throws Exception {
+    final List<Process> processes = new ArrayList<>();
+    final List<File> projectFiles = new ArrayList<>();
+    try {
+      for (int i = 0; i < shards.size(); i++) {
+        final File inputList = new File(sharedDirectory, "worker_%d_files.txt".formatted(i));
+        Files.write(inputList.toPath(),
+            shards.get(i).stream().map(File::getAbsolutePath).toList());
+
+        final File projectFile = new File(sharedDirectory, "worker_%d.mzmine".formatted(i));
+        // the project is saved by the last worker step - an existing file would hide failures
+        Files.deleteIfExists(projectFile.toPath());
+        projectFiles.add(projectFile);
+
+        final File workerBatch = new File(sharedDirectory, "worker_%d.mzbatch".formatted(i));
+        writeWorkerBatch(queue, perFileSteps, projectFile, workerBatch);
+
+        final List<String> command = createWorkerCommand(workerBatch, inputList,
+            launcher.getThreadsPerWorker(shards.size()));
+        final File logFile = new File(sharedDirectory, "worker_%d.log".formatted(i));
+        logger.info("Starting worker %d on %d data files, log: %s".formatted(i,
+            shards.get(i).size(), logFile.getAbsolutePath()));
+        processes.add(launcher.launch(i, command, logFile));
+      }
+
+      boolean success = true;
+      for (int i = 0; i < processes.size(); i++) {
+        final int exitCode = processes.get(i).waitFor();
+        if (exitCode != 0 || !projectFiles.get(i).isFile()) {
+          logger.severe("Worker %d failed with exit code %d. See log in %s".formatted(i, exitCode,
+              sharedDirectory.getAbsolutePath()));
+          success = false;
+        }
+      }
+      return success ? projectFiles : null;
+    } finally {
+      // only alive on errors or interrupts
+      processes.stream().filter(Process::isAlive).forEach(Process::destroy);
+    }
+  }
+
+  /**
+   * The worker batch consists of the leading per file steps and saves a referencing project.
+   * Spectral libraries and metadata are only imported by the coordinator.
+   */
+  private void writeWorkerBatch(@NotNull BatchQueue queue, int perFileSteps,
+      @NotNull File projectFile, @NotNull File batchFile) throws Exception {
+    final BatchQueue workerQueue = new BatchQueue();
+    workerQueue.addAll(queue.clone().subList(0, perFileSteps));
+
+    final ParameterSet importParameters = workerQueue.getFirst().getParameterSet();
+    importParameters.setParameter(SpectralLibraryImportParameters.dataBaseFiles, new File[0]);
+    importParameters.setParameter(AllSpectralDataImportParameters.metadataFile, false);
+
+    final ParameterSet saveParameters = MZmineCore.getConfiguration()
+        .getModuleParameters(ProjectSaveAsModule.class).cloneParameterSet();
+    saveParameters.setParameter(ProjectSaveAsParameters.projectFile, projectFile);
+    saveParameters.setParameter(ProjectSaveAsParameters.option, ProjectSaveOption.REFERENCING);
+    workerQueue.add(createStep(ProjectSaveAsModule.class, saveParameters));
+
+    final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .newDocument();
+    final Element element = document.createElement("batch");
+    document.appendChild(element);
+    workerQueue.saveToXml(element);
+    XMLUtils.saveToFile(batchFile, document);
+  }
+
+  /**
+   * The workers run the same java installation and class path with the command line arguments of
+   * this process that are not related to the batch.
+   */
+  @NotNull
+  private List<String> createWorkerCommand(@NotNull File workerBatch, @NotNull File inputList,
+      @Nullable Integer threads) {
+    final List<String> command = new ArrayList<>();
+    // the command of this process may be the native launcher of an installed mzmine, which does
+    // not accept JVM arguments. The java binary of the runtime is part of every installation
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    for (final String jvmArg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+      // workers run a regular batch, do not start a debugger on the same port
+      if (jvmArg.startsWith("-Dmzmine.distributed.") || jvmArg.startsWith("-agentlib:jdwp") || (
+          workerHeap != null && jvmArg.startsWith("-Xmx"))) {
+        continue;
+      }
+      command.add(jvmArg);
+    }
+    if (workerHeap != null) {
+      command.add("-Xmx" + workerHeap);
+    }
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(MZmineCore.class.getName());
+
+    command.addAll(List.of("-batch", workerBatch.getAbsolutePath()));
+    command.addAll(List.of("-input", inputList.getAbsolutePath()));
+    if (threads != null) {
+      command.addAll(List.of("-threads", String.valueOf(threads)));
+    }
+    if (argsParser.getPreferencesFile() != null) {
+      command.addAll(List.of("-pref", argsParser.getPreferencesFile().getAbsolutePath()));
+    }
+    if (argsParser.getTempDirectory() != null) {
+      command.addAll(List.of("-temp", argsParser.getTempDirectory().getAbsolutePath()));
+    }
+    if (argsParser.getUserFile() != null) {
+      command.addAll(List.of("-user", argsParser.getUserFile().getAbsolutePath()));
+    }
+    if (argsParser.isKeepInMemory() != null) {
+      command.addAll(List.of("-memory", argsParser.isKeepInMemory()));
+    }
+    if (argsParser.isLoadTdfPseudoProfile()) {
+      command.add("-tdfpseudoprofile");
+    }
+    if (argsParser.isLoadTsfProfile()) {
+      command.add("-tsfprofile");
+    }
+    return command;
+  }
+
+  /**
+   * The remaining steps after the per file steps. Spectral libraries and metadata of the import
+   * step are imported first, as the workers skip them.
+   */
+  @NotNull
+  private BatchQueue createCrossFileQueue(@NotNull BatchQueue queue, int perFileSteps,
+      @NotNull ParameterSet importParameters) {
+    final BatchQueue crossFileQueue = new BatchQueue();
+
+    final File metadataFile = importParameters.getEmbeddedParameterValueIfSelectedOrElse(
+        AllSpectralDataImportParameters.metadataFile, null);
+    if (metadataFile != null) {
+      crossFileQueue.add(createStep(ProjectMetadataImportModule.class,
+          ProjectMetadataImportParameters.create(metadataFile, false)));
+    }
+
+    final File[] libraries = importParameters.getValue(
+        SpectralLibraryImportParameters.dataBaseFiles);
+    if (libraries != null && libraries.length > 0) {
+      final ParameterSet libraryParameters = MZmineCore.getConfiguration()
+          .getModuleParameters(SpectralLibraryImportModule.class).cloneParameterSet();
+      libraryParameters.setParameter(SpectralLibraryImportParameters.dataBaseFiles, libraries);
+      crossFileQueue.add(createStep(SpectralLibraryImportModule.class, libraryParameters));
+    }
+
+    crossFileQueue.addAll(queue.subList(perFileSteps, queue.size()));
+    return crossFileQueue;
+  }
+
+  @NotNull
+  private static MZmineProcessingStep<MZmineProcessingModule> createStep(
+      @NotNull Class<? extends MZmineProcessingModule> moduleClass,
+      @NotNull ParameterSet parameters) {
+    final MZmineProcessingModule module = MZmineCore.getModuleInstance(moduleClass);
+    return new MZmineProcessingStepImpl<>(module, parameters);
+  }
+
+  @NotNull
+  private static BatchTask runLocally(@NotNull MZmineProject project, @NotNull BatchQueue queue,
+      @NotNull List<RawDataFile> lastDataFiles, @NotNull List<FeatureList> lastFeatureLists) {
+    final ParameterSet parameters = new BatchModeParameters();
+    parameters.getParameter(BatchModeParameters.batchQueue).setValue(queue);
+    final BatchTask batchTask = new BatchTask(project, parameters, Instant.now(), null);
+    batchTask.setInitialBatchLastResults(lastDataFiles, lastFeatureLists);
+    batchTask.run();
+    return batchTask;
+  }
+}
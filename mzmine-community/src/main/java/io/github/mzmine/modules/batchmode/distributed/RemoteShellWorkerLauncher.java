@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Starts workers on remote hosts through a remote shell command like ssh. Workers are assigned to
+ * the hosts round-robin. The hosts need the same mzmine installation path and access to the raw
+ * data files and the shared project directory under the same paths.
+ */
+public class RemoteShellWorkerLauncher implements BatchWorkerLauncher {
+
+  private final List<String> shellCommand;
+  private final List<String> hosts;
+
+  /**
+   * @param shellCommand the remote shell command, e.g., ssh
+   * @param hosts        the hosts to distribute workers to
+   */
+  public RemoteShellWorkerLauncher(@NotNull List<String> shellCommand,
+      @NotNull List<String> hosts) {
+    if (hosts.isEmpty()) {
+      throw new IllegalArgumentException("At least one host is required for remote workers");
+    }
+    this.shellCommand = List.copyOf(shellCommand);
+    this.hosts = List.copyOf(hosts);
+  }
+
+  /**
+   * Quote an argument for a POSIX shell on the remote host
+   */
+  static String shellQuote(String arg) {
+    return "'" + arg.replace("'", "'\"'\"'") + "'";
+  }
+
+  @Override
+  public @NotNull Process launch(final int workerIndex, final @NotNull List<String> command,
+      final @NotNull File logFile) throws IOException {
+    final List<String> remoteCommand = new ArrayList<>(shellCommand);
+    remoteCommand.add(hosts.get(workerIndex % hosts.size()));
+    remoteCommand.add(command.stream().map(RemoteShellWorkerLauncher::shellQuote)
+        .collect(Collectors.joining(" ")));
+    return new ProcessBuilder(remoteCommand).redirectErrorStream(true).redirectOutput(logFile)
+        .start();
+  }
+}
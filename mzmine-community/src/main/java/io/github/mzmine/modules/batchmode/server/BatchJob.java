@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.server;
+
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.modules.batchmode.BatchModeModule;
+import io.github.mzmine.modules.batchmode.BatchQueue;
+import io.github.mzmine.modules.batchmode.BatchTask;
+import io.github.mzmine.project.ProjectManager;
+import io.github.mzmine.project.ProjectService;
+import io.github.mzmine.project.impl.MZmineProjectImpl;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.MemoryMapStorages;
+import java.io.File;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * One batch run of the {@link BatchJobServer}. Each job runs the batch on its own new project with
+ * the same {@link BatchTask} as a command line batch run. The data of the project is released
+ * after the job.
+ */
+public class BatchJob implements Runnable {
+
+  private static final Logger logger = Logger.getLogger(BatchJob.class.getName());
+
+  private final long id;
+  private final File batchFile;
+  private final @Nullable File[] dataFiles;
+  private final @Nullable File[] libraryFiles;
+  private final @Nullable String outBaseFile;
+  private final Instant submitted = Instant.now();
+
+  private volatile BatchJobStatus status = BatchJobStatus.QUEUED;
+  private volatile @Nullable Instant started;
+  private volatile @Nullable Instant finished;
+  private volatile @Nullable String message;
+  private volatile @Nullable BatchTask batchTask;
+  private volatile @Nullable Future<?> future;
+
+  /**
+   * @param dataFiles    replaces the data files of the batch import if not null
+   * @param libraryFiles replaces the spectral libraries of the batch import if not null
+   * @param outBaseFile  replaces the output base file of all export steps if not null
+   */
+  public BatchJob(long id, @NotNull File batchFile, @Nullable File[] dataFiles,
+      @Nullable File[] libraryFiles, @Nullable String outBaseFile) {
+    this.id = id;
+    this.batchFile = batchFile;
+    this.dataFiles = dataFiles;
+    this.libraryFiles = libraryFiles;
+    this.outBaseFile = outBaseFile;
+  }
+
+  @Override
+  public void run() {
+    if (status != BatchJobStatus.QUEUED) {
+      return;
+    }
+    status = BatchJobStatus.RUNNING;
+    started = Instant.now();
+    logger.info(() -> "Starting batch job " + id + " from " + batchFile);
+
+    // storages of this job are registered globally, release them with the project
+    final Set<MemoryMapStorage> previousStorages = Collections.newSetFromMap(
+        new IdentityHashMap<>());
+    previousStorages.addAll(MemoryMapStorages.getStorageList());
+    MZmineProject project = null;
+    try {
+      final BatchQueue queue = BatchModeModule.loadQueue(batchFile, dataFiles, libraryFiles,
+          outBaseFile);
+      if (queue == null) {
+        finish(BatchJobStatus.ERROR, "Cannot apply the data file or library overrides");
+        return;
+      }
+      project = new MZmineProjectImpl();
+      // modules that use the current project see the project of the running job
+      ProjectService.getProjectManager().setCurrentProject(project);
+
+      final BatchTask task = BatchModeModule.createBatchTask(project, queue, Instant.now());
+      batchTask = task;
+      if (status == BatchJobStatus.CANCELED) {
+        return;
+      }
+      task.run();
+
+      final TaskStatus taskStatus = task.getStatus();
+      switch (taskStatus) {
+        case FINISHED -> finish(BatchJobStatus.FINISHED, null);
+        case CANCELED -> finish(BatchJobStatus.CANCELED, null);
+        default -> finish(BatchJobStatus.ERROR,
+            task.getErrorMessage() != null ? task.getErrorMessage() : "Batch ended " + taskStatus);
+      }
+    } catch (Throwable e) {
+      logger.log(Level.SEVERE, "Error in batch job " + id, e);
+      finish(BatchJobStatus.ERROR, e.getMessage());
+    } finally {
+      batchTask = null;
+      releaseProject(project, previousStorages);
+    }
+  }
+
+  /**
+   * Closes the raw data files and feature lists of the job, resets the current project and
+   * unregisters the storages that were created during the job. Storages are freed once they are
+   * unreachable, shared resources like cached libraries keep their own storages alive.
+   *
+   * @param project          the project of the job or null if it was not created
+   * @param previousStorages the storages that existed before the job
+   */
+  private void releaseProject(@Nullable MZmineProject project,
+      @NotNull Set<MemoryMapStorage> previousStorages) {
+    try {
+      if (project != null) {
+        project.removeFeatureLists(project.getCurrentFeatureLists());
+        project.removeFile(project.getDataFiles());
+        final ProjectManager projectManager = ProjectService.getProjectManager();
+        if (projectManager.getCurrentProject() == project) {
+          projectManager.setCurrentProject(new MZmineProjectImpl());
+        }
+      }
+      MemoryMapStorages.getStorageList().removeIf(storage -> !previousStorages.contains(storage));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error while releasing the data of batch job " + id, e);
+    }
+  }
+
+  private void finish(@NotNull BatchJobStatus status, @Nullable String message) {
+    if (this.status == BatchJobStatus.CANCELED) {
+      return;
+    }
+    this.status = status;
+    this.message = message;
+    finished = Instant.now();
+    logger.info(() -> "Batch job " + id + " " + status + (message != null ? ": " + message : ""));
+  }
+
+  /**
+   * Removes a queued job from the queue or cancels the running batch
+   */
+  public void cancel() {
+    if (status.isDone()) {
+      return;
+    }
+    final BatchJobStatus old = status;
+    status = BatchJobStatus.CANCELED;
+    message = old == BatchJobStatus.QUEUED ? "Canceled before start" : "Canceled while running";
+    finished = Instant.now();
+    final Future<?> f = future;
+    if (old == BatchJobStatus.QUEUED && f != null) {
+      f.cancel(false);
+    }
+    final BatchTask task = batchTask;
+    if (task != null) {
+      task.cancel();
+    }
+  }
+
+  void setFuture(@NotNull Future<?> future) {
+    this.future = future;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public BatchJobStatus getStatus() {
+    return status;
+  }
+
+  public Instant getSubmitted() {
+    return submitted;
+  }
+
+  public @Nullable Instant getStarted() {
+    return started;
+  }
+
+  public @Nullable Instant getFinished() {
+    return finished;
+  }
+
+  public @Nullable String getMessage() {
+    return message;
+  }
+
+  public File getBatchFile() {
+    return batchFile;
+  }
+}
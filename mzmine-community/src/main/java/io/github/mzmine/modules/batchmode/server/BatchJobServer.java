@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.FileResourceCache;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Long running headless server that accepts batch jobs over HTTP on the loopback interface. The
+ * JVM, modules, and the spectral libraries and models in the {@link FileResourceCache} stay loaded
+ * between jobs, which removes the start up cost of many short command line runs. Each job runs
+ * on its own project with the same {@link io.github.mzmine.modules.batchmode.BatchTask} as a
+ * command line batch, so the results are identical. Jobs run one at a time, because they share the
+ * current project and the registered storages. Further jobs wait in a bounded queue.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>POST /jobs?file=a.mzML&file=b.mzML&library=lib.json&out=path/base - the body is the batch
+ *   xml. All parameters are optional and override the batch like the command line arguments.
+ *   Returns the job id</li>
+ *   <li>GET /jobs - list of all jobs</li>
+ *   <li>GET /jobs/{id} - status of one job</li>
+ *   <li>DELETE /jobs/{id} - cancel a queued or running job</li>
+ * </ul>
+ * A batch can write files anywhere the user can, so all requests need authentication. On start,
+ * the server writes a random token to {@link #TOKEN_FILE} in its directory, which only the owner
+ * can read. Every request has to send this token in the {@link #TOKEN_HEADER} header. Requests
+ * with an {@code Origin} header are rejected, because they come from a web browser.
+ * <p>
+ * The server is configured by system properties, because the command line arguments are parsed
+ * by an external library.
+ */
+public class BatchJobServer {
+
+  /**
+   * Port of the server. The server is started if this property is set
+   */
+  public static final String PORT_PROPERTY = "mzmine.server.port";
+  /**
+   * Maximum number of waiting jobs, default 100. Further jobs are rejected
+   */
+  public static final String MAX_QUEUED_PROPERTY = "mzmine.server.maxQueued";
+  /**
+   * Directory for the submitted batch files, default is a new directory in the temp dir
+   */
+  public static final String DIRECTORY_PROPERTY = "mzmine.server.dir";
+  /**
+   * Number of spectral libraries and models that are kept loaded between jobs, default 8
+   */
+  public static final String CACHED_RESOURCES_PROPERTY = "mzmine.server.cachedResources";
+
+  /**
+   * Name of the file in the server directory that contains the access token
+   */
+  public static final String TOKEN_FILE = "server.token";
+  /**
+   * Request header with the access token
+   */
+  public static final String TOKEN_HEADER = "X-MZmine-Token";
+
+  /**
+   * Finished jobs that are kept to report their status. Older finished jobs are removed
+   */
+  static final int MAX_FINISHED_JOBS = 1000;
+
+  private static final Logger logger = Logger.getLogger(BatchJobServer.class.getName());
+
+  private final int port;
+  private final int maxQueued;
+  private final File directory;
+  private final int cachedResources;
+
+  private final AtomicLong nextId = new AtomicLong(1);
+  private final Map<Long, BatchJob> jobs = new ConcurrentHashMap<>();
+  private @Nullable HttpServer server;
+  private volatile byte @Nullable [] token;
+  private @Nullable ThreadPoolExecutor executor;
+
+  public BatchJobServer(int port, int maxQueued, @NotNull File directory, int cachedResources) {
+    this.port = port;
+    this.maxQueued = Math.max(1, maxQueued);
+    this.directory = directory;
+    this.cachedResources = cachedResources;
+  }
+
+  /**
+   * @return true if a server port was set by system property
+   */
+  public static boolean isEnabled() {
+    return Integer.getInteger(PORT_PROPERTY) != null;
+  }
+
+  /**
+   * Create a server from the system properties
+   */
+  public static BatchJobServer fromSystemProperties() {
+    final String dir = System.getProperty(DIRECTORY_PROPERTY);
+    final String defaultDir = "mzmine_server_" + Instant.now().toEpochMilli();
+    final File directory =
+        dir != null ? new File(dir) : new File(FileAndPathUtil.getTempDir(), defaultDir);
+    return new BatchJobServer(Integer.getInteger(PORT_PROPERTY, 0),
+        Integer.getInteger(MAX_QUEUED_PROPERTY, 100), directory,
+        Integer.getInteger(CACHED_RESOURCES_PROPERTY, 8));
+  }
+
+  /**
+   * Start accepting jobs. The server threads keep the JVM alive until {@link #stop()}
+   */
+  public synchronized void start() throws IOException {
+    if (server != null) {
+      return;
+    }
+    Files.createDirectories(directory.toPath());
+    token = writeToken(getTokenFile().toPath());
+    FileResourceCache.setMaxEntries(cachedResources);
+
+    // a single job thread, jobs are not isolated from each other
+    executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(maxQueued), Thread.ofPlatform().name("batch-job-", 1).factory());
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext("/jobs", this::handle);
+    // requests are short and handled on the dispatcher thread, the jobs run on the executor
+    server.setExecutor(null);
+    server.start();
+    logger.info(() -> "Batch job server listening on " + server.getAddress() + ", max "
+        + maxQueued + " queued jobs, batch files in " + directory + ", access token in "
+        + getTokenFile());
+  }
+
+  /**
+   * Writes a new random token to a file that only the owner can read
+   *
+   * @return the token as UTF-8 bytes
+   */
+  private static byte @NotNull [] writeToken(@NotNull Path file) throws IOException {
+    final byte[] random = new byte[32];
+    new SecureRandom().nextBytes(random);
+    final String token = HexFormat.of().formatHex(random);
+
+    Files.deleteIfExists(file);
+    if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(file,
+          PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      final File f = Files.createFile(file).toFile();
+      // remove access for others, then grant the owner
+      f.setReadable(false, false);
+      f.setWritable(false, false);
+      f.setReadable(true, true);
+      f.setWritable(true, true);
+    }
+    Files.writeString(file, token, StandardCharsets.UTF_8);
+    return token.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the file with the access token, written on {@link #start()}
+   */
+  public @NotNull File getTokenFile() {
+    return new File(directory, TOKEN_FILE);
+  }
+
+  /**
+   * Stop accepting jobs, cancel all jobs and release the cached resources
+   */
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      server = null;
+    }
+    if (executor != null) {
+      jobs.values().forEach(BatchJob::cancel);
+      executor.shutdownNow();
+      executor = null;
+    }
+    token = null;
+    getTokenFile().delete();
+    FileResourceCache.clear();
+  }
+
+  /**
+   * @return the port the server listens on or -1 if not started
+   */
+  public synchronized int getPort() {
+    return server != null ? server.getAddress().getPort() : -1;
+  }
+
+  private void handle(@NotNull HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (exchange.getRequestHeaders().containsKey("Origin")) {
+        // browsers send an origin, web pages must not reach the server
+        respond(exchange, 403, "Requests from web browsers are not allowed\n");
+        return;
+      }
+      if (!isAuthorized(exchange)) {
+        respond(exchange, 401, "Missing or wrong " + TOKEN_HEADER + " header\n");
+        return;
+      }
+
+      final String method = exchange.getRequestMethod();
+      final String path = exchange.getRequestURI().getPath();
+      final String idPart = path.replaceFirst("^/jobs/?", "");
+
+      if (idPart.isEmpty()) {
+        switch (method) {
+          case "POST" -> submit(exchange);
+          case "GET" -> respond(exchange, 200, jobs.values().stream()
+              .sorted(Comparator.comparingLong(BatchJob::getId)).map(BatchJobServer::describe)
+              .reduce("", String::concat));
+          default -> respond(exchange, 405, "Unsupported method " + method + "\n");
+        }
+        return;
+      }
+
+      final BatchJob job = parseId(idPart) instanceof Long id ? jobs.get(id) : null;
+      if (job == null) {
+        respond(exchange, 404, "Unknown job " + idPart + "\n");
+        return;
+      }
+      switch (method) {
+        case "GET" -> respond(exchange, 200, describe(job));
+        case "DELETE" -> {
+          job.cancel();
+          respond(exchange, 200, describe(job));
+        }
+        default -> respond(exchange, 405, "Unsupported method " + method + "\n");
+      }
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Error while handling batch server request", e);
+    }
+  }
+
+  private boolean isAuthorized(@NotNull HttpExchange exchange) {
+    final byte[] expected = token;
+    final String actual = exchange.getRequestHeaders().getFirst(TOKEN_HEADER);
+    return expected != null && actual != null && MessageDigest.isEqual(expected,
+        actual.trim().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void submit(@NotNull HttpExchange exchange) throws IOException {
+    final ThreadPoolExecutor exec = executor;
+    if (exec == null) {
+      respond(exchange, 503, "Server is stopped\n");
+      return;
+    }
+    final Map<String, List<String>> query = parseQuery(exchange.getRequestURI().getRawQuery());
+    final long id = nextId.getAndIncrement();
+    final File batchFile = new File(directory, "job-" + id + ".xml");
+    try (InputStream in = exchange.getRequestBody()) {
+      Files.copy(in, batchFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    removeOldJobs();
+    final List<String> out = query.get("out");
+    final BatchJob job = new BatchJob(id, batchFile, toFiles(query.get("file")),
+        toFiles(query.get("library")), out != null ? out.getFirst() : null);
+    try {
+      jobs.put(id, job);
+      job.setFuture(exec.submit(job));
+    } catch (RejectedExecutionException e) {
+      jobs.remove(id);
+      batchFile.delete();
+      respond(exchange, 503, "Job queue is full\n");
+      return;
+    }
+    logger.info(() -> "Queued batch job " + id);
+    respond(exchange, 202, id + "\n");
+  }
+
+  /**
+   * Removes the oldest finished jobs and their batch files if more than
+   * {@link #MAX_FINISHED_JOBS} are kept
+   */
+  private void removeOldJobs() {
+    final List<BatchJob> finished = jobs.values().stream().filter(job -> job.getStatus().isDone())
+        .sorted(Comparator.comparingLong(BatchJob::getId)).toList();
+    for (int i = 0; i < finished.size() - MAX_FINISHED_JOBS; i++) {
+      final BatchJob job = finished.get(i);
+      jobs.remove(job.getId());
+      job.getBatchFile().delete();
+    }
+  }
+
+  /**
+   * @return tab separated line: id, status, submitted, started, finished, message
+   */
+  private static String describe(@NotNull BatchJob job) {
+    return String.join("\t", String.valueOf(job.getId()), job.getStatus().name(),
+        String.valueOf(job.getSubmitted()), Objects.toString(job.getStarted(), ""),
+        Objects.toString(job.getFinished(), ""), Objects.toString(job.getMessage(), "")
+            .replaceAll("\\s+", " ")) + "\n";
+  }
+
+  private static void respond(@NotNull HttpExchange exchange, int code, @NotNull String text)
+      throws IOException {
+    final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(code, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length > 0) {
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  @Nullable
+  private static Long parseId(@NotNull String id) {
+    try {
+      return Long.parseLong(id);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private static File[] toFiles(@Nullable List<String> paths) {
+    return paths == null ? null : paths.stream().map(File::new).toArray(File[]::new);
+  }
+
+  /**
+   * Parse a URL query with repeated keys
+   *
+   * @param rawQuery the encoded query or null
+   * @return all values of each key in their original order
+   */
+  @NotNull
+  static Map<String, List<String>> parseQuery(@Nullable String rawQuery) {
+    final Map<String, List<String>> params = new HashMap<>();
+    if (rawQuery == null || rawQuery.isBlank()) {
+      return params;
+    }
+    for (String pair : rawQuery.split("&")) {
+      if (pair.isEmpty()) {
+        continue;
+      }
+      final int eq = pair.indexOf('=');
+      final String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq),
+          StandardCharsets.UTF_8);
+      final String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1),
+          StandardCharsets.UTF_8);
+      params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+    }
+    return params;
+  }
+}
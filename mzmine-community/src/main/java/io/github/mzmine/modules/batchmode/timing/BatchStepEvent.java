@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.timing;
+
+import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * JFR event of one batch step. The tasks of the step are recorded as
+ * {@link io.github.mzmine.taskcontrol.metrics.TaskExecutionEvent}.
+ */
+@Name("io.github.mzmine.BatchStep")
+@Label("Batch Step")
+@Category({"mzmine", "Batch"})
+@Description("Execution of one batch step")
+public class BatchStepEvent extends jdk.jfr.Event {
+
+  @Label("Step")
+  int step;
+
+  @Label("Module")
+  String module;
+
+  @Label("Module Class")
+  String moduleClass;
+
+  @Label("Status")
+  String status;
+
+  /**
+   * Ends the event and commits it if the event is enabled
+   *
+   * @param stepNumber the index of the step in the batch
+   */
+  public void commit(int stepNumber, @NotNull MZmineModule method, @NotNull TaskStatus status) {
+    end();
+    if (shouldCommit()) {
+      this.step = stepNumber + 1;
+      this.module = method.getName();
+      this.moduleClass = method.getClass().getName();
+      this.status = status.name();
+      commit();
+    }
+  }
+}
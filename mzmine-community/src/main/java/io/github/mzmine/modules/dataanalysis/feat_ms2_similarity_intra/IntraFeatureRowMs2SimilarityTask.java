@@ -41,13 +41,14 @@ import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.files.FileAndPathUtil;
-import io.github.mzmine.util.io.ParallelTextWriterTask;
+import io.github.mzmine.util.io.ParallelChunkWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.similarity.Weights;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.doubles.DoubleCollection;
 import it.unimi.dsi.fastutil.doubles.DoubleList;
 import java.io.File;
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.Arrays;
@@ -56,9 +57,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -77,13 +78,14 @@ public class IntraFeatureRowMs2SimilarityTask extends AbstractTask {
   private final int minMatchedSignals;
   private final SpectralSignalFilter signalFilters;
   private final Boolean exportToFile;
+  // export formats are thread safe
   private final NumberFormat scoreFormat = MZmineCore.getConfiguration().getFormats(true)
       .scoreFormat();
 
   private final AtomicInteger processedRows = new AtomicInteger(0);
   private final ParameterSet parameters;
   private int totalRows = 0;
-  private @Nullable ParallelTextWriterTask writerTask;
+  private @Nullable ParallelChunkWriter writer;
 
   public IntraFeatureRowMs2SimilarityTask(ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
@@ -126,32 +128,37 @@ public class IntraFeatureRowMs2SimilarityTask extends AbstractTask {
       totalRows += featureList.getNumberOfRows();
     }
 
-    if (exportToFile) {
-      writerTask = new ParallelTextWriterTask(this, fileName, true);
-      String header = String.join(fieldSeparator, new String[]{"row_id", "cosine_similarity"});
-      writerTask.appendLine(header);
-    }
-
-    // Process feature lists
-    for (FeatureList featureList : featureLists) {
-      // Cancel?
-      if (isCanceled()) {
-        return;
+    try {
+      if (exportToFile) {
+        writer = new ParallelChunkWriter(fileName);
+        String header = String.join(fieldSeparator, new String[]{"row_id", "cosine_similarity"});
+        writer.writeLine(header);
       }
 
-      try {
-        processFeatureList(featureList);
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Error during intra feature MS2 similarity export " + fileName);
-        logger.log(Level.WARNING,
-            "Error during compound annotations csv export of feature list: " + featureList.getName()
-            + ": " + e.getMessage(), e);
-        if (writerTask != null) {
-          writerTask.setWriteFinished();
+      // Process feature lists
+      for (FeatureList featureList : featureLists) {
+        // Cancel?
+        if (isCanceled()) {
+          return;
+        }
+
+        try {
+          processFeatureList(featureList);
+        } catch (Exception e) {
+          setStatus(TaskStatus.ERROR);
+          setErrorMessage("Error during intra feature MS2 similarity export " + fileName);
+          logger.log(Level.WARNING,
+              "Error during compound annotations csv export of feature list: "
+              + featureList.getName() + ": " + e.getMessage(), e);
+          return;
         }
-        return;
       }
+    } catch (IOException e) {
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage("Cannot open file " + fileName + "  " + e.getMessage());
+      return;
+    } finally {
+      closeWriter();
     }
 
     if (getStatus() == TaskStatus.PROCESSING) {
@@ -159,13 +166,40 @@ public class IntraFeatureRowMs2SimilarityTask extends AbstractTask {
     }
   }
 
-  private void processFeatureList(FeatureList featureList) {
-    long totalMatches = featureList.getRows().stream().filter(FeatureListRow::hasMs2Fragmentation)
-        .parallel().mapToLong(row -> {
-          int sim = processeRow(row);
-          processedRows.incrementAndGet();
-          return sim;
-        }).sum();
+  private void closeWriter() {
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot close file " + fileName, e);
+    }
+    writer = null;
+  }
+
+  private void processFeatureList(FeatureList featureList) throws IOException {
+    final List<FeatureListRow> rows = featureList.getRows().stream()
+        .filter(FeatureListRow::hasMs2Fragmentation).toList();
+    final long totalMatches;
+    if (writer != null) {
+      // process chunks of rows in parallel and write results in the order of rows
+      final AtomicLong matches = new AtomicLong(0);
+      writer.writeChunks(rows, ParallelChunkWriter.DEFAULT_CHUNK_SIZE, this::isCanceled,
+          (chunk, out) -> {
+            for (FeatureListRow row : chunk) {
+              matches.addAndGet(processeRow(row, out));
+              processedRows.incrementAndGet();
+            }
+          });
+      totalMatches = matches.get();
+    } else {
+      totalMatches = rows.stream().parallel().mapToLong(row -> {
+        int sim = processeRow(row, null);
+        processedRows.incrementAndGet();
+        return sim;
+      }).sum();
+    }
     logger.info("Compared a total of %d MS2 pairs within features".formatted(totalMatches));
     featureList.getAppliedMethods().add(
         new SimpleFeatureListAppliedMethod(IntraFeatureRowMs2SimilarityModule.class, parameters,
@@ -175,9 +209,10 @@ public class IntraFeatureRowMs2SimilarityTask extends AbstractTask {
   /**
    * Runs in parallel on rows and writes data to file if requested
    *
+   * @param exportData appends the export lines if not null
    * @return number of resulting similarity pairs
    */
-  public int processeRow(final FeatureListRow row) {
+  public int processeRow(final FeatureListRow row, @Nullable final StringBuilder exportData) {
     List<Scan> scans = row.getAllFragmentScans();
     if (scans.isEmpty()) {
       return 0;
@@ -197,11 +232,11 @@ public class IntraFeatureRowMs2SimilarityTask extends AbstractTask {
     String group = getGroup(stats.getAverage());
     row.set(IntraFeatureMs2SimilarityType.class, new SimpleStatistics(stats, group));
 
-    String exportData = Arrays.stream(similarities)
-        .mapToObj(sim -> row.getID() + fieldSeparator + scoreFormat.format(sim))
-        .collect(Collectors.joining("\n"));
-    if (writerTask != null) {
-      writerTask.appendLine(exportData);
+    if (exportData != null) {
+      for (double sim : similarities) {
+        exportData.append(row.getID()).append(fieldSeparator).append(scoreFormat.format(sim))
+            .append(System.lineSeparator());
+      }
     }
     return similarities.length;
   }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The base rows of one alignment iteration with their average m/z, RT, and mobility in primitive
+ * arrays. Candidates are found by a binary search for the lower bound of a tolerance window and a
+ * sweep to its upper bound, without unboxing row values for every comparison. Missing values are
+ * stored as NaN.
+ */
+public class AlignmentBaseRows {
+
+  private final List<FeatureListRow> rows;
+  private final double[] mzs;
+  private final float[] rts;
+  private final float[] mobilities;
+
+  /**
+   * @param sortedRows the base rows, sorted by m/z for {@link #indexOfMz(double)} or by RT for
+   *                   {@link #indexOfRt(float)}
+   */
+  public AlignmentBaseRows(@NotNull List<FeatureListRow> sortedRows) {
+    this.rows = sortedRows;
+    final int size = sortedRows.size();
+    mzs = new double[size];
+    rts = new float[size];
+    mobilities = new float[size];
+    for (int i = 0; i < size; i++) {
+      final FeatureListRow row = sortedRows.get(i);
+      final Double mz = row.getAverageMZ();
+      final Float rt = row.getAverageRT();
+      final Float mobility = row.getAverageMobility();
+      mzs[i] = mz != null ? mz : Double.NaN;
+      rts[i] = rt != null ? rt : Float.NaN;
+      mobilities[i] = mobility != null ? mobility : Float.NaN;
+    }
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  public FeatureListRow getRow(int index) {
+    return rows.get(index);
+  }
+
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  /**
+   * @return the RT or NaN if not available
+   */
+  public float getRt(int index) {
+    return rts[index];
+  }
+
+  /**
+   * @return the mobility or NaN if not available
+   */
+  public float getMobility(int index) {
+    return mobilities[index];
+  }
+
+  /**
+   * Only works if the rows are sorted by m/z
+   *
+   * @return the first index with an m/z >= mz or {@link #size()}
+   */
+  public int indexOfMz(double mz) {
+    int low = 0;
+    int high = mzs.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (mzs[mid] < mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Only works if the rows are sorted by RT
+   *
+   * @return the first index with an RT >= rt or {@link #size()}
+   */
+  public int indexOfRt(float rt) {
+    int low = 0;
+    int high = rts.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (rts[mid] < rt) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
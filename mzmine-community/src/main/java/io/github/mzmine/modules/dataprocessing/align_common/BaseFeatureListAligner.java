@@ -34,21 +34,19 @@ import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
-import io.github.mzmine.modules.dataprocessing.align_join.RowVsRowScore;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.progress.TotalFinishedItemsProgress;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
-import it.unimi.dsi.fastutil.objects.Object2BooleanOpenHashMap;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
-import org.jetbrains.annotations.NotNull;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -58,6 +56,10 @@ import org.jetbrains.annotations.Nullable;
 public class BaseFeatureListAligner {
 
   private static final Logger logger = Logger.getLogger(BaseFeatureListAligner.class.getName());
+  /**
+   * Number of rows scored by one thread
+   */
+  private static final int SCORING_CHUNK_SIZE = 512;
   private final Task parentTask;
   private final List<FeatureList> featureLists;
   private final String featureListName;
@@ -108,69 +110,6 @@ public class BaseFeatureListAligner {
     return alignedFeatureList;
   }
 
-  @NotNull
-  public static Object2BooleanOpenHashMap<FeatureListRow> addFeaturesBasedOnScores(
-      Collection<RowVsRowScore> scoresList, final ModularFeatureList alignedFeatureList,
-      final FeatureCloner featureCloner, final AtomicLong alignedRows) {
-    // natural order is reversed so best highest score is first element
-    final RowVsRowScore[] scores = scoresList.stream().sorted().toArray(RowVsRowScore[]::new);
-
-    // track if row was aligned
-    final Object2BooleanOpenHashMap<FeatureListRow> alignedRowsMap = new Object2BooleanOpenHashMap<>(
-        scores.length);
-
-    for (RowVsRowScore score : scores) {
-      final FeatureListRow alignedRow = score.getAlignedBaseRow();
-      final FeatureListRow row = score.getRowToAdd();
-      if (!alignedRowsMap.getOrDefault(row, false)) {
-        // no row was aligned
-        // put all features of the row into the aligned row
-        for (Feature feature : row.getFeatures()) {
-          final RawDataFile dataFile = feature.getRawDataFile();
-          if (!alignedRow.hasFeature(dataFile)) {
-            var newFeature = featureCloner.cloneFeature(feature, alignedFeatureList, alignedRow);
-            alignedRow.addFeature(dataFile, newFeature, false);
-            alignedRowsMap.put(row, true);
-            alignedRows.getAndIncrement();
-          }
-        }
-      }
-    }
-
-    return alignedRowsMap;
-  }
-
-  /**
-   * Remove all rows that were algined in this step. Modifies the argument list
-   *
-   * @param allRows        FeatureList<List<Rows>>
-   * @param alignedRowsMap marks all aligned rows
-   * @return number of aligned and remaining rows
-   */
-  public static AlignedRemainingRows removeAlignedRows(List<List<FeatureListRow>> allRows,
-      Object2BooleanOpenHashMap<FeatureListRow> alignedRowsMap) {
-    AtomicInteger alignedCounter = new AtomicInteger(0);
-    AtomicInteger remainingCounter = new AtomicInteger(0);
-    final ListIterator<List<FeatureListRow>> iterator = allRows.listIterator();
-    while (iterator.hasNext()) {
-      // remove aligned rows
-      final List<FeatureListRow> featureList = iterator.next();
-      featureList.removeIf(row -> {
-        if (alignedRowsMap.getOrDefault(row, false)) {
-          alignedCounter.incrementAndGet();
-          return true;
-        }
-        remainingCounter.incrementAndGet();
-        return false;
-      });
-      // remove empty lists
-      if (featureList.isEmpty()) {
-        iterator.remove();
-      }
-    }
-    return new AlignedRemainingRows(alignedCounter.get(), remainingCounter.get());
-  }
-
   public ModularFeatureList alignFeatureLists() {
     // Remember how many rows we need to process. Each row will be processed
     // twice, first for score calculation, second for actual alignment.
@@ -182,20 +121,115 @@ public class BaseFeatureListAligner {
     }
 
     final AtomicInteger newRowID = new AtomicInteger(1);
+    final List<List<FeatureListRow>> allRows = listRowsSortedByName();
+    if (!alignRemainingRows(allRows, alignedFeatureList, newRowID)) {
+      return null;
+    }
 
-    // list all rows for each feature list
-    final List<List<FeatureListRow>> allRows = new ArrayList<>(featureLists.size());
+    // sort by RT and reset IDs
+    FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
+
+    // update row bindings
+    alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
+        .forEach(FeatureListRow::applyRowBindings);
+
+    // score alignment by the number of features that fall within the mz, RT, mobility range
+    // do not apply all the advanced filters to keep it simple
+    rowAligner.calculateAlignmentScores(alignedFeatureList, featureLists);
+
+    return alignedFeatureList;
+  }
+
+  /**
+   * Incremental alignment of new samples onto a previous alignment result. The rows of the
+   * existing aligned list are copied with their current average m/z, RT, and mobility and used as
+   * the base rows. Only the rows of the new feature lists are scored against them; rows without a
+   * match are aligned among each other and spawn new rows. Row IDs of the existing list are kept
+   * and only rows that changed are updated, so the work scales with the new data. Only the
+   * alignment rates of all rows are updated to the new number of samples.
+   *
+   * @param existingAlignedList the previous alignment result. Must not contain any of the raw data
+   *                            files of the new feature lists
+   * @return the new aligned feature list or null on cancel
+   */
+  public ModularFeatureList alignFeatureListsOnto(final ModularFeatureList existingAlignedList) {
+    progress.setTotal(featureLists.stream().mapToLong(FeatureList::getNumberOfRows).sum());
+
+    // throws IllegalArgumentException if samples are already part of the aligned list
+    final List<FeatureList> allLists = new ArrayList<>(featureLists.size() + 1);
+    allLists.add(existingAlignedList);
+    allLists.addAll(featureLists);
+    final List<RawDataFile> allDataFiles = FeatureListUtils.getAllDataFiles(allLists);
+
+    // only copies the rows, no scoring of the existing alignment
+    final ModularFeatureList alignedFeatureList = existingAlignedList.createCopy(featureListName,
+        storage, allDataFiles, false);
+    FeatureListUtils.transferRowTypes(alignedFeatureList, featureLists);
+    FeatureListUtils.transferSelectedScans(alignedFeatureList, featureLists);
+
+    final int existingRows = alignedFeatureList.getNumberOfRows();
+    final int maxID = alignedFeatureList.stream().mapToInt(FeatureListRow::getID).max().orElse(0);
+    final AtomicInteger newRowID = new AtomicInteger(maxID + 1);
+
+    final List<List<FeatureListRow>> allRows = listRowsSortedByName();
+    final Set<FeatureListRow> changedRows = new HashSet<>();
+
+    // score new rows against the centroids of the existing rows
+    final List<FeatureListRow> baseRows = new ArrayList<>(alignedFeatureList.getRows());
+    baseRows.sort(baseRowSorter);
+    final AlignedRemainingRows result = alignOnBaseRows(allRows, baseRows, alignedFeatureList,
+        changedRows);
+    if (result == null) {
+      return null;
+    }
+    logger.fine(() -> String.format(
+        "Incremental alignment: %d new rows matched existing rows (%d), %d remaining",
+        result.aligned(), existingRows, result.remaining()));
+
+    // remaining rows do not match any existing row and form new rows
+    if (!alignRemainingRows(allRows, alignedFeatureList, newRowID)) {
+      return null;
+    }
+    final List<FeatureListRow> rows = alignedFeatureList.getRows();
+    changedRows.addAll(rows.subList(existingRows, rows.size()));
+
+    // keep IDs of existing rows
+    FeatureListUtils.sortByDefaultRT(alignedFeatureList, false);
+
+    // update centroids and scores of changed rows only
+    changedRows.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
+        .forEach(FeatureListRow::applyRowBindings);
+    rowAligner.mergeAlignmentScores(alignedFeatureList, changedRows, featureLists);
+    // rates of unchanged and merged rows still refer to the previous or new samples only
+    FeatureListUtils.updateAlignmentRates(alignedFeatureList, allDataFiles.size());
+
+    return alignedFeatureList;
+  }
 
-    // sort feature lists by name to make reproducible
-    // this is needed if 2 feature lists have the same number of rows, which will lead to different results
+  /**
+   * @return all rows for each feature list. Sorted by feature list name to make the result
+   * reproducible, which is needed if 2 feature lists have the same number of rows
+   */
+  private List<List<FeatureListRow>> listRowsSortedByName() {
+    final List<List<FeatureListRow>> allRows = new ArrayList<>(featureLists.size());
     featureLists.stream().sorted(comparing(FeatureList::getName)).forEach(flist -> {
       allRows.add(new ArrayList<>(flist.getRows()));
     });
+    return allRows;
+  }
 
+  /**
+   * Aligns the rows iteratively, each iteration the feature list with the most remaining rows
+   * creates the new base rows.
+   *
+   * @return false if canceled
+   */
+  private boolean alignRemainingRows(final List<List<FeatureListRow>> allRows,
+      final ModularFeatureList alignedFeatureList, final AtomicInteger newRowID) {
     // still contains rows from unaligned feature lists
     while (!allRows.isEmpty()) {
       if (parentTask.isCanceled()) {
-        return null;
+        return false;
       }
       var finishedAll = nextAlignmentIteration(allRows, alignedFeatureList, newRowID);
       if (finishedAll) {
@@ -203,19 +237,7 @@ public class BaseFeatureListAligner {
       }
       iteration++;
     }
-
-    // sort by RT and reset IDs
-    FeatureListUtils.sortByDefaultRT(alignedFeatureList, true);
-
-    // update row bindings
-    alignedFeatureList.parallelStream().filter(row -> row.getNumberOfFeatures() > 1)
-        .forEach(FeatureListRow::applyRowBindings);
-
-    // score alignment by the number of features that fall within the mz, RT, mobility range
-    // do not apply all the advanced filters to keep it simple
-    rowAligner.calculateAlignmentScores(alignedFeatureList, featureLists);
-
-    return alignedFeatureList;
+    return !parentTask.isCanceled();
   }
 
   private boolean nextAlignmentIteration(final List<List<FeatureListRow>> allRows,
@@ -245,17 +267,11 @@ public class BaseFeatureListAligner {
 
     // align all remaining feature lists onto the feature list with max(row number) = nextBaseRows
     if (!allRows.isEmpty()) {
-      Collection<RowVsRowScore> scoresList = rowAligner.alignRowsOnBaseRows(parentTask, allRows,
-          nextBaseRows);
-
-      // after an iteration, rows of all other featureLists have been given a mapping
-      // now we have to find the best match
-      // track all aligned rows - only align to highest scoring row
-      final var alignedRowsMap = addFeaturesBasedOnScores(scoresList, alignedFeatureList,
-          featureCloner, progress.getFinished());
-
-      // keep track of unaligned rows for the next interation.
-      AlignedRemainingRows result = removeAlignedRows(allRows, alignedRowsMap);
+      AlignedRemainingRows result = alignOnBaseRows(allRows, nextBaseRows, alignedFeatureList,
+          null);
+      if (result == null) {
+        return true; // canceled
+      }
       result.logStatus(iteration, featureLists.size());
     }
 
@@ -266,8 +282,107 @@ public class BaseFeatureListAligner {
     return false;
   }
 
+  /**
+   * Scores all unaligned rows against the base rows and adds the features of the best matches to
+   * the base rows. Scoring runs in parallel chunks of rows, each chunk writes into its own
+   * primitive score buffer. The best matches are then assigned for each feature list
+   * independently, as different feature lists never compete for the same raw data file in a base
+   * row. Aligned rows are removed from allRows and empty lists are dropped.
+   *
+   * @param allRows         the unaligned rows of each feature list, modified
+   * @param baseRows        the base rows sorted by {@link #baseRowSorter}
+   * @param changedBaseRows collects all base rows that received new features. May be null
+   * @return number of aligned and remaining rows or null if canceled
+   */
+  private @Nullable AlignedRemainingRows alignOnBaseRows(final List<List<FeatureListRow>> allRows,
+      final List<FeatureListRow> baseRows, final ModularFeatureList alignedFeatureList,
+      final @Nullable Set<FeatureListRow> changedBaseRows) {
+    final AlignmentBaseRows base = new AlignmentBaseRows(baseRows);
+
+    // split rows of all lists into chunks to also parallelize few large lists
+    final List<RowChunk> chunks = new ArrayList<>();
+    final int[] firstChunkOfList = new int[allRows.size() + 1];
+    for (int list = 0; list < allRows.size(); list++) {
+      firstChunkOfList[list] = chunks.size();
+      final int numRows = allRows.get(list).size();
+      for (int from = 0; from < numRows; from += SCORING_CHUNK_SIZE) {
+        chunks.add(new RowChunk(list, from, Math.min(numRows, from + SCORING_CHUNK_SIZE),
+            new RowScoreBuffer()));
+      }
+    }
+    firstChunkOfList[allRows.size()] = chunks.size();
+
+    chunks.parallelStream().forEach(chunk -> {
+      final List<FeatureListRow> rows = allRows.get(chunk.list());
+      for (int i = chunk.from(); i < chunk.to() && !parentTask.isCanceled(); i++) {
+        rowAligner.scoreRowAgainstBaseRows(base, i, rows.get(i), chunk.scores());
+      }
+    });
+    if (parentTask.isCanceled()) {
+      return null;
+    }
+
+    // best match per row - independent for each feature list
+    final int[][] assignedBaseRows = new int[allRows.size()][];
+    IntStream.range(0, allRows.size()).parallel().forEach(list -> {
+      final RowScoreBuffer scores = new RowScoreBuffer();
+      for (int c = firstChunkOfList[list]; c < firstChunkOfList[list + 1]; c++) {
+        scores.addAll(chunks.get(c).scores());
+      }
+      assignedBaseRows[list] = scores.assignBestMatches(allRows.get(list).size(), base.size());
+    });
+
+    // add features sequentially as the feature cloning modifies the aligned feature list
+    int alignedCounter = 0;
+    int remainingCounter = 0;
+    for (int list = 0; list < allRows.size(); list++) {
+      final List<FeatureListRow> rows = allRows.get(list);
+      final int[] assigned = assignedBaseRows[list];
+      final BitSet alignedRows = new BitSet(rows.size());
+      for (int i = 0; i < rows.size(); i++) {
+        if (assigned[i] == -1) {
+          continue;
+        }
+        final FeatureListRow alignedRow = base.getRow(assigned[i]);
+        // put all features of the row into the aligned row
+        for (Feature feature : rows.get(i).getFeatures()) {
+          final RawDataFile dataFile = feature.getRawDataFile();
+          if (!alignedRow.hasFeature(dataFile)) {
+            var newFeature = featureCloner.cloneFeature(feature, alignedFeatureList, alignedRow);
+            alignedRow.addFeature(dataFile, newFeature, false);
+            alignedRows.set(i);
+            progress.getFinished().getAndIncrement();
+            if (changedBaseRows != null) {
+              changedBaseRows.add(alignedRow);
+            }
+          }
+        }
+      }
+
+      // keep track of unaligned rows for the next interation
+      final int numAligned = alignedRows.cardinality();
+      final List<FeatureListRow> unaligned = new ArrayList<>(rows.size() - numAligned);
+      for (int i = alignedRows.nextClearBit(0); i < rows.size();
+          i = alignedRows.nextClearBit(i + 1)) {
+        unaligned.add(rows.get(i));
+      }
+      allRows.set(list, unaligned);
+      alignedCounter += numAligned;
+      remainingCounter += unaligned.size();
+    }
+    allRows.removeIf(List::isEmpty);
+    return new AlignedRemainingRows(alignedCounter, remainingCounter);
+  }
+
   public double getFinishedPercentage() {
     return progress.progress();
   }
 
+  /**
+   * Rows from..to of one feature list that are scored by one thread
+   */
+  private record RowChunk(int list, int from, int to, RowScoreBuffer scores) {
+
+  }
+
 }
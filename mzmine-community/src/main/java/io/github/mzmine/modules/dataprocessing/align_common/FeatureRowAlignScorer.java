@@ -30,48 +30,35 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.modules.dataprocessing.align_gc.GCAlignerTask;
 import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerTask;
-import io.github.mzmine.modules.dataprocessing.align_join.RowVsRowScore;
-import io.github.mzmine.taskcontrol.Task;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 public interface FeatureRowAlignScorer {
 
   /**
-   * Align rows on base rows
+   * Score a row against all matching base rows. Called in parallel for chunks of rows, each chunk
+   * with its own score buffer.
    *
-   * @param unalignedRows  score and align these rows against base
-   * @param baseRowsSorted the base rows that alignments will be added. Sorted by RT for
-   *                       {@link GCAlignerTask} and by mz for {@link JoinAlignerTask}
-   * @return all RowVsRowScores
+   * @param baseRows the base rows to be scored against. Sorted by RT for {@link GCAlignerTask} and
+   *                 by mz for {@link JoinAlignerTask}
+   * @param rowIndex the index of rowToAdd in its feature list, used in the scores
+   * @param rowToAdd row to score
+   * @param scores   scores are added here
    */
-  default Collection<RowVsRowScore> alignRowsOnBaseRows(final Task parentTask,
-      List<List<FeatureListRow>> unalignedRows, List<FeatureListRow> baseRowsSorted) {
+  void scoreRowAgainstBaseRows(AlignmentBaseRows baseRows, int rowIndex, FeatureListRow rowToAdd,
+      RowScoreBuffer scores);
 
-    // key = a row to be aligned, value = all possible matches in the aligned fl and it's scores
-    final ConcurrentLinkedDeque<RowVsRowScore> scoresList = new ConcurrentLinkedDeque<>();
-
-    // stream all rows in all feature lists
-    unalignedRows.stream().flatMap(Collection::stream).parallel().forEach(rowToAdd -> {
-      if (parentTask.isCanceled()) {
-        return;
-      }
-
-      scoreRowAgainstBaseRows(baseRowsSorted, rowToAdd, scoresList);
-    });
-    return scoresList;
-  }
+  void calculateAlignmentScores(ModularFeatureList alignedFeatureList,
+      List<FeatureList> originalFeatureLists);
 
   /**
-   * @param baseRowsSorted the base rows to be scored against. sorting may differ between
-   *                       implementations
-   * @param rowToAdd       row to score
-   * @param scoresList     scores are added here
+   * Used by incremental alignment to score only the changed rows against the newly aligned feature
+   * lists. The result is merged with the scores of the previous alignment.
+   *
+   * @param alignedFeatureList the list to be scored
+   * @param changedRows        only these rows are scored
+   * @param newFeatureLists    the feature lists that were added to the aligned list
    */
-  void scoreRowAgainstBaseRows(List<FeatureListRow> baseRowsSorted, FeatureListRow rowToAdd,
-      ConcurrentLinkedDeque<RowVsRowScore> scoresList);
-
-  void calculateAlignmentScores(ModularFeatureList alignedFeatureList,
-      List<FeatureList> originalFeatureLists);
+  void mergeAlignmentScores(ModularFeatureList alignedFeatureList,
+      Collection<FeatureListRow> changedRows, List<FeatureList> newFeatureLists);
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact score buffer for one alignment iteration. Stores the index of the row to add, the index
+ * of the base row, and the score in growing primitive arrays instead of score objects. Not thread
+ * safe, each thread writes into its own buffer.
+ */
+public class RowScoreBuffer {
+
+  private int[] rows;
+  private int[] baseRows;
+  private double[] scores;
+  private int size;
+
+  public RowScoreBuffer() {
+    this(64);
+  }
+
+  public RowScoreBuffer(int initialCapacity) {
+    initialCapacity = Math.max(initialCapacity, 1);
+    rows = new int[initialCapacity];
+    baseRows = new int[initialCapacity];
+    scores = new double[initialCapacity];
+  }
+
+  /**
+   * @param row     index of the row to add in its feature list
+   * @param baseRow index in {@link AlignmentBaseRows}
+   * @param score   the higher the better
+   */
+  public void add(int row, int baseRow, double score) {
+    ensureCapacity(size + 1);
+    rows[size] = row;
+    baseRows[size] = baseRow;
+    scores[size] = score;
+    size++;
+  }
+
+  public void addAll(RowScoreBuffer other) {
+    ensureCapacity(size + other.size);
+    System.arraycopy(other.rows, 0, rows, size, other.size);
+    System.arraycopy(other.baseRows, 0, baseRows, size, other.size);
+    System.arraycopy(other.scores, 0, scores, size, other.size);
+    size += other.size;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= rows.length) {
+      return;
+    }
+    final int newCapacity = Math.max(capacity, rows.length + (rows.length >> 1));
+    rows = Arrays.copyOf(rows, newCapacity);
+    baseRows = Arrays.copyOf(baseRows, newCapacity);
+    scores = Arrays.copyOf(scores, newCapacity);
+  }
+
+  /**
+   * Greedy assignment of the best matches of one feature list: scores are processed from best to
+   * worst and each row and base row is only assigned once. Ties are resolved by row and then base
+   * row index to make the result reproducible.
+   *
+   * @param numRows     number of rows in the feature list
+   * @param numBaseRows number of base rows
+   * @return the assigned base row index for each row or -1 if the row was not aligned
+   */
+  public int[] assignBestMatches(int numRows, int numBaseRows) {
+    final int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    IntArrays.quickSort(order, (a, b) -> {
+      final int compare = Double.compare(scores[b], scores[a]);
+      if (compare != 0) {
+        return compare;
+      }
+      return rows[a] != rows[b] ? Integer.compare(rows[a], rows[b])
+          : Integer.compare(baseRows[a], baseRows[b]);
+    });
+
+    final int[] assigned = new int[numRows];
+    Arrays.fill(assigned, -1);
+    final BitSet usedBaseRows = new BitSet(numBaseRows);
+    for (final int i : order) {
+      final int row = rows[i];
+      final int baseRow = baseRows[i];
+      if (assigned[row] == -1 && !usedBaseRows.get(baseRow)) {
+        assigned[row] = baseRow;
+        usedBaseRows.set(baseRow);
+      }
+    }
+    return assigned;
+  }
+}
@@ -31,9 +31,10 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.align_common.AlignmentBaseRows;
 import io.github.mzmine.modules.dataprocessing.align_common.FeatureRowAlignScorer;
+import io.github.mzmine.modules.dataprocessing.align_common.RowScoreBuffer;
 import io.github.mzmine.modules.dataprocessing.align_join.RowAlignmentScoreCalculator;
-import io.github.mzmine.modules.dataprocessing.align_join.RowVsRowScore;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
@@ -42,8 +43,8 @@ import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunctions;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -66,25 +67,23 @@ public class GcRowAlignScorer implements FeatureRowAlignScorer {
   }
 
   @Override
-  public void scoreRowAgainstBaseRows(final List<FeatureListRow> baseRowsByRt,
-      final FeatureListRow rowToAdd, final ConcurrentLinkedDeque<RowVsRowScore> scoresList) {
+  public void scoreRowAgainstBaseRows(final AlignmentBaseRows baseRowsByRt, final int rowIndex,
+      final FeatureListRow rowToAdd, final RowScoreBuffer scores) {
 
     final Range<Float> rtRange = rtTolerance.getToleranceRange(rowToAdd.getAverageRT());
-    // find all rows in the aligned rows that might match
-    final List<FeatureListRow> candidatesInAligned = FeatureListUtils.getCandidatesWithinRtRange(
-        rtRange, baseRowsByRt, true);
-    if (candidatesInAligned.isEmpty()) {
-      return;
-    }
-
-    // calculate score for unaligned row against all candidates
-    for (FeatureListRow candidateInAligned : candidatesInAligned) {
+    // sweep the RT window of the base rows
+    final float maxRt = rtRange.upperEndpoint();
+    for (int i = baseRowsByRt.indexOfRt(rtRange.lowerEndpoint()); i < baseRowsByRt.size(); i++) {
+      if (baseRowsByRt.getRt(i) > maxRt) {
+        break;
+      }
+      final FeatureListRow candidateInAligned = baseRowsByRt.getRow(i);
       // retention time is already checked for candidates
       SpectralSimilarity similarity = checkSpectralSimilarity(rowToAdd, candidateInAligned);
       if (similarity != null) {
-        final RowVsRowScore score = new RowVsRowScore(rowToAdd, candidateInAligned, rtRange,
-            rtWeight, similarity.getScore(), 1);
-        scoresList.add(score);
+        final double score = FeatureListUtils.getAlignmentScore(candidateInAligned, rtRange,
+            similarity.getScore(), rtWeight, 1);
+        scores.add(rowIndex, i, score);
       }
     }
   }
@@ -122,10 +121,21 @@ public class GcRowAlignScorer implements FeatureRowAlignScorer {
   @Override
   public void calculateAlignmentScores(final ModularFeatureList alignedFeatureList,
       final List<FeatureList> originalFeatureLists) {
+    FeatureListUtils.addAlignmentScores(alignedFeatureList,
+        createScoreCalculator(originalFeatureLists), false);
+  }
 
+  @Override
+  public void mergeAlignmentScores(final ModularFeatureList alignedFeatureList,
+      final Collection<FeatureListRow> changedRows, final List<FeatureList> newFeatureLists) {
+    FeatureListUtils.addAlignmentScores(alignedFeatureList, changedRows,
+        createScoreCalculator(newFeatureLists), true);
+  }
+
+  private RowAlignmentScoreCalculator createScoreCalculator(
+      final List<FeatureList> originalFeatureLists) {
     // TODO think about best way to calculate an alignment score that also includes spectral similarity
-    RowAlignmentScoreCalculator calculator = new RowAlignmentScoreCalculator(originalFeatureLists,
-        mzTolerance, rtTolerance, null, 0, rtWeight, 0);
-    FeatureListUtils.addAlignmentScores(alignedFeatureList, calculator, false);
+    return new RowAlignmentScoreCalculator(originalFeatureLists, mzTolerance, rtTolerance, null, 0,
+        rtWeight, 0);
   }
 }
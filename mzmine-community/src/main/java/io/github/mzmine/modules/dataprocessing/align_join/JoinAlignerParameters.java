@@ -100,6 +100,13 @@ public class JoinAlignerParameters extends SimpleParameterSet {
       new JoinAlignerSpectraSimilarityScoreParameters(), false);
 
 
+  public static final OptionalParameter<FeatureListsParameter> alignOnExisting = new OptionalParameter<>(
+      new FeatureListsParameter("Add to aligned feature list",
+          "If checked, the feature lists are aligned onto this existing aligned feature list. "
+              + "\nOnly the new rows are scored against the aligned rows, "
+              + "rows without a match create new rows.",
+          1, 1), false);
+
   public static final OriginalFeatureListHandlingParameter handleOriginal = new OriginalFeatureListHandlingParameter(
       "Original feature list",
       "Defines the processing.\nKEEP is to keep the original feature list and create a new"
@@ -108,7 +115,7 @@ public class JoinAlignerParameters extends SimpleParameterSet {
   public JoinAlignerParameters() {
     super(new Parameter[]{peakLists, peakListName, MZTolerance, MZWeight, RTTolerance, RTWeight,
             mobilityTolerance, mobilityWeight, SameChargeRequired, SameIDRequired,
-            compareIsotopePattern, compareSpectraSimilarity, handleOriginal},
+            compareIsotopePattern, compareSpectraSimilarity, alignOnExisting, handleOriginal},
         "https://mzmine.github.io/mzmine_documentation/module_docs/align_join_aligner/join_aligner.html");
   }
 
@@ -166,6 +173,7 @@ public class JoinAlignerParameters extends SimpleParameterSet {
     param.setParameter(JoinAlignerParameters.SameIDRequired, false);
     param.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
     param.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+    param.setParameter(JoinAlignerParameters.alignOnExisting, false);
     param.setParameter(JoinAlignerParameters.handleOriginal, OriginalFeatureListOption.KEEP);
     return param;
   }
@@ -36,6 +36,7 @@ import io.github.mzmine.modules.dataprocessing.align_common.FeatureCloner;
 import io.github.mzmine.modules.dataprocessing.align_common.FeatureCloner.SimpleFeatureCloner;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.OriginalFeatureListHandlingParameter.OriginalFeatureListOption;
+import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsSelection;
 import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
 import io.github.mzmine.taskcontrol.Task;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -57,6 +58,10 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
    * All feature lists except the base list
    */
   private final List<FeatureList> featureLists;
+  /**
+   * Incremental alignment onto this list if set
+   */
+  private final @Nullable ModularFeatureList existingAlignedList;
   private final MZmineProject project;
   private final String featureListName;
   private final ParameterSet parameters;
@@ -72,9 +77,17 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
     handleOriginal = parameters.getValue(JoinAlignerParameters.handleOriginal);
     featureListName = parameters.getValue(JoinAlignerParameters.peakListName);
 
+    final FeatureListsSelection existingSelection = parameters.getEmbeddedParameterValueIfSelectedOrElse(
+        JoinAlignerParameters.alignOnExisting, null);
+    final ModularFeatureList[] existing =
+        existingSelection != null ? existingSelection.getMatchingFeatureLists()
+            : new ModularFeatureList[0];
+    existingAlignedList = existing.length > 0 ? existing[0] : null;
+
+    // the existing aligned list might also match the selection of feature lists
     featureLists = Arrays.stream(
             parameters.getValue(JoinAlignerParameters.peakLists).getMatchingFeatureLists())
-        .map(flist -> (FeatureList) flist).toList();
+        .filter(flist -> flist != existingAlignedList).map(flist -> (FeatureList) flist).toList();
 
     this.parameters = parameters;
   }
@@ -96,18 +109,33 @@ public class JoinAlignerTask extends AbstractFeatureListTask {
       return;
     }
 
+    if (parameters.getValue(JoinAlignerParameters.alignOnExisting)
+        && existingAlignedList == null) {
+      error("The aligned feature list to add to was not found");
+      return;
+    }
+
     logger.info(
         () -> "Running parallel join aligner on " + featureLists.size() + " feature lists.");
 
     listAligner = createAligner(this, getMemoryMapStorage(), parameters, featureLists,
         featureListName);
-    alignedFeatureList = listAligner.alignFeatureLists();
+    final List<FeatureList> originalLists;
+    if (existingAlignedList != null) {
+      logger.info(() -> "Incremental alignment onto " + existingAlignedList.getName());
+      alignedFeatureList = listAligner.alignFeatureListsOnto(existingAlignedList);
+      originalLists = new ArrayList<>(featureLists);
+      originalLists.add(existingAlignedList);
+    } else {
+      alignedFeatureList = listAligner.alignFeatureLists();
+      originalLists = featureLists;
+    }
 
     if (alignedFeatureList == null || isCanceled()) {
       return;
     }
 
-    handleOriginal.reflectNewFeatureListToProject(project, alignedFeatureList, featureLists);
+    handleOriginal.reflectNewFeatureListToProject(project, alignedFeatureList, originalLists);
 
     logger.info("Finished join aligner");
   }
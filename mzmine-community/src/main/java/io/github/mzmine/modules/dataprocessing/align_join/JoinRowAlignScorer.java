@@ -32,7 +32,9 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.modules.dataprocessing.align_common.AlignmentBaseRows;
 import io.github.mzmine.modules.dataprocessing.align_common.FeatureRowAlignScorer;
+import io.github.mzmine.modules.dataprocessing.align_common.RowScoreBuffer;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreCalculator;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -45,8 +47,8 @@ import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarity;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
 import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunctions;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 
 /**
  * the row aligner used by {@link JoinAlignerTask}. Based on weighted mz, rt, mobility difference
@@ -122,8 +124,8 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
   }
 
   @Override
-  public void scoreRowAgainstBaseRows(final List<FeatureListRow> baseRowsByMz,
-      final FeatureListRow rowToAdd, final ConcurrentLinkedDeque<RowVsRowScore> scoresList) {
+  public void scoreRowAgainstBaseRows(final AlignmentBaseRows baseRowsByMz, final int rowIndex,
+      final FeatureListRow rowToAdd, final RowScoreBuffer scores) {
     // ranges are build with prechecks - so if there is no mobility use Range.all() to deactivate the filter
     final Range<Double> mzRange =
         mzWeight > 0 ? mzTolerance.getToleranceRange(rowToAdd.getAverageMZ()) : Range.all();
@@ -133,21 +135,28 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
         compareMobility && mobilityWeight > 0 && rowToAdd.getAverageMobility() != null
             ? mobilityTolerance.getToleranceRange(rowToAdd.getAverageMobility()) : Range.all();
 
-    // find all rows in the aligned rows that might match
-    final List<FeatureListRow> candidatesInAligned = FeatureListUtils.getCandidatesWithinRanges(
-        mzRange, rtRange, mobilityRange, baseRowsByMz, true);
-
-    if (candidatesInAligned.isEmpty()) {
-      return;
-    }
+    // sweep the m/z window of the base rows
+    final int first = mzRange.hasLowerBound() ? baseRowsByMz.indexOfMz(mzRange.lowerEndpoint()) : 0;
+    final double maxMz =
+        mzRange.hasUpperBound() ? mzRange.upperEndpoint() : Double.POSITIVE_INFINITY;
+    for (int i = first; i < baseRowsByMz.size(); i++) {
+      final double mz = baseRowsByMz.getMz(i);
+      if (mz > maxMz) {
+        break;
+      }
+      final float rt = baseRowsByMz.getRt(i);
+      final float mobility = baseRowsByMz.getMobility(i);
+      if ((!Float.isNaN(rt) && !rtRange.contains(rt)) //
+          || (!Float.isNaN(mobility) && !mobilityRange.contains(mobility))) {
+        continue;
+      }
 
-    // calculate score for unaligned row against all candidates
-    for (FeatureListRow candidateInAligned : candidatesInAligned) {
+      final FeatureListRow candidateInAligned = baseRowsByMz.getRow(i);
       // retention time and m/z is already checked for candidates
       if (additionalChecks(rowToAdd, candidateInAligned)) {
-        final RowVsRowScore score = new RowVsRowScore(rowToAdd, candidateInAligned, mzRange,
+        final double score = FeatureListUtils.getAlignmentScore(candidateInAligned, mzRange,
             rtRange, mobilityRange, null, mzWeight, rtWeight, mobilityWeight, 0);
-        scoresList.add(score);
+        scores.add(rowIndex, i, score);
       }
     }
   }
@@ -239,10 +248,21 @@ public class JoinRowAlignScorer implements FeatureRowAlignScorer {
   @Override
   public void calculateAlignmentScores(final ModularFeatureList alignedFeatureList,
       final List<FeatureList> originalFeatureLists) {
+    FeatureListUtils.addAlignmentScores(alignedFeatureList,
+        createScoreCalculator(originalFeatureLists), false);
+  }
 
+  @Override
+  public void mergeAlignmentScores(final ModularFeatureList alignedFeatureList,
+      final Collection<FeatureListRow> changedRows, final List<FeatureList> newFeatureLists) {
+    FeatureListUtils.addAlignmentScores(alignedFeatureList, changedRows,
+        createScoreCalculator(newFeatureLists), true);
+  }
+
+  private RowAlignmentScoreCalculator createScoreCalculator(
+      final List<FeatureList> originalFeatureLists) {
     MobilityTolerance mobTol = compareMobility ? mobilityTolerance : null;
-    RowAlignmentScoreCalculator calculator = new RowAlignmentScoreCalculator(originalFeatureLists,
-        mzTolerance, rtTolerance, mobTol, mzWeight, rtWeight, mobilityWeight);
-    FeatureListUtils.addAlignmentScores(alignedFeatureList, calculator, false);
+    return new RowAlignmentScoreCalculator(originalFeatureLists, mzTolerance, rtTolerance, mobTol,
+        mzWeight, rtWeight, mobilityWeight);
   }
 }
@@ -22,22 +22,20 @@
  * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
  * OTHER DEALINGS IN THE SOFTWARE.
  */
+
 package io.github.mzmine.modules.dataprocessing.align_ransac;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import io.github.mzmine.parameters.ParameterSet;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
 import org.apache.commons.math.optimization.fitting.PolynomialFitter;
 import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
 
-import com.google.common.collect.Range;
-
-import io.github.mzmine.parameters.ParameterSet;
-
 public class RANSAC {
 
   /**
@@ -45,15 +43,16 @@ public class RANSAC {
    * fit the model k - the maximum number of iterations allowed in the algorithm t - a threshold
    * value for determining when a data point fits a model d - the number of close data values
    * required to assert that a model fits well to data
-   *
+   * <p>
    * output: model which best fit the data
+   * <p>
+   * The iterations are independent and run in parallel. Each thread works on its own reusable
+   * primitive buffers and keeps its best model, the best model of all threads is selected at the
+   * end.
    */
-  private int n;
-  private double d = 1;
-  private int k = 0;
-  private int AlsoNumber;
-  private double numRatePoints, t;
-  private boolean Linear;
+  private final double numRatePoints, t;
+  private final int iterations;
+  private final boolean linear;
 
   public RANSAC(ParameterSet parameters) {
 
@@ -61,52 +60,59 @@ public class RANSAC {
 
     this.t = parameters.getParameter(RansacAlignerParameters.Margin).getValue();
 
-    this.k = parameters.getParameter(RansacAlignerParameters.Iterations).getValue();
+    this.iterations = parameters.getParameter(RansacAlignerParameters.Iterations).getValue();
 
-    this.Linear = parameters.getParameter(RansacAlignerParameters.Linear).getValue();
+    this.linear = parameters.getParameter(RansacAlignerParameters.Linear).getValue();
 
   }
 
   /**
-   * Set all parameters and start ransac.
-   * 
+   * Set all parameters and start ransac. Sets {@link AlignStructMol#Aligned} for all points of the
+   * best model.
+   *
    * @param data vector with the points which represent all possible alignments.
    */
   public void alignment(List<AlignStructMol> data) {
-    try {
-      // If the model is non linear 4 points are taken to build the model,
-      // if it is linear only 2 points are taken.
-      if (!Linear) {
-        n = 4;
-      } else {
-        n = 2;
-      }
+    final double[] rt = new double[data.size()];
+    final double[] rt2 = new double[data.size()];
+    for (int i = 0; i < rt.length; i++) {
+      rt[i] = data.get(i).RT;
+      rt2[i] = data.get(i).RT2;
+    }
+    final boolean[] aligned = alignment(rt, rt2);
+    for (int i = 0; i < aligned.length; i++) {
+      data.get(i).Aligned = aligned[i];
+    }
+  }
 
-      // Minimun number of points required to assert that a model fits
-      // well to data
-      if (data.size() < 10) {
-        d = 3;
-      } else {
-        d = data.size() * numRatePoints;
-      }
+  /**
+   * Set all parameters and start ransac.
+   *
+   * @param rt  retention times of all possible alignments in the first list
+   * @param rt2 retention times of all possible alignments in the second list
+   * @return true for all points that are part of the best model
+   */
+  public boolean[] alignment(double[] rt, double[] rt2) {
+    // If the model is non linear 4 points are taken to build the model,
+    // if it is linear only 2 points are taken.
+    final int n = linear ? 2 : 4;
 
-      // Calculate the number of trials if the user has not define them
-      if (k == 0) {
-        k = (int) getK();
-      }
+    // Minimun number of points required to assert that a model fits
+    // well to data
+    final double d = rt.length < 10 ? 3 : rt.length * numRatePoints;
 
-      ransac(data);
-    } catch (Exception exception) {
-      exception.printStackTrace();
-    }
+    // Calculate the number of trials if the user has not define them
+    final int k = iterations == 0 ? (int) getK(n) : iterations;
+
+    return ransac(rt, rt2, n, d, k);
   }
 
   /**
    * Calculate k (number of trials)
-   * 
+   *
    * @return number of trials "k" required to select a subset of n good data points.
    */
-  private double getK() {
+  private double getK(int n) {
     double w = numRatePoints;
     double b = Math.pow(w, n);
     return Math.log10(1 - 0.99) / Math.log10(1 - b) + (Math.sqrt(1 - b) / b);
@@ -114,173 +120,176 @@ public class RANSAC {
 
   /**
    * RANSAC algorithm
-   * 
-   * @param data vector with the points which represent all possible alignments.
+   *
+   * @return true for all points that are part of the best model
+   */
+  private boolean[] ransac(double[] rt, double[] rt2, int n, double d, int k) {
+    final int size = rt.length;
+    // sort once by RT, the initial points are selected from both halves of the RT range
+    final int[] order = IntStream.range(0, size).toArray();
+    IntArrays.quickSort(order, (a, b) -> Double.compare(rt[a], rt[b]));
+    final double[] x = new double[size];
+    final double[] y = new double[size];
+    for (int i = 0; i < size; i++) {
+      x[i] = rt[order[i]];
+      y[i] = rt2[order[i]];
+    }
+
+    final int threads = Math.max(1, Math.min(k, ForkJoinPool.getCommonPoolParallelism()));
+    final IterationBuffer best = IntStream.range(0, threads).parallel().mapToObj(thread -> {
+      // distribute the iterations over the threads
+      final int threadIterations = k / threads + (thread < k % threads ? 1 : 0);
+      final IterationBuffer buffer = new IterationBuffer(size);
+      for (int i = 0; i < threadIterations; i++) {
+        buffer.iterate(x, y, n, d);
+      }
+      return buffer;
+    }).reduce((a, b) -> b.bestInliers > a.bestInliers ? b : a).orElse(null);
+
+    final boolean[] aligned = new boolean[size];
+    if (best != null && best.bestInliers > 0) {
+      for (int i = 0; i < size; i++) {
+        aligned[order[i]] = best.bestModel[i];
+      }
+    }
+    return aligned;
+  }
+
+  /**
+   * Reusable primitive buffers of one thread. Tracks the best model of all iterations of this
+   * thread.
    */
-  public void ransac(List<AlignStructMol> data) {
-    double besterr = 9.9E99;
+  private class IterationBuffer {
+
+    private final boolean[] maybeInLiers;
+    private final boolean[] alsoInLiers;
+    private final boolean[] bestModel;
+    // number of points in the best model, the error is 1 / (bestInliers + 1)
+    private int bestInliers = 0;
+
+    private IterationBuffer(int size) {
+      maybeInLiers = new boolean[size];
+      alsoInLiers = new boolean[size];
+      bestModel = new boolean[size];
+    }
 
-    for (int iterations = 0; iterations < k; iterations++) {
-      AlsoNumber = n;
+    private void iterate(double[] x, double[] y, int n, double d) {
+      Arrays.fill(maybeInLiers, false);
+      Arrays.fill(alsoInLiers, false);
       // Get the initial points
-      boolean initN = getInitN(data);
-      if (!initN) {
-        continue;
+      if (!getInitN(x, n)) {
+        return;
       }
 
       // Calculate the model
-      fittPolinomialFunction(data, Linear);
+      final int alsoNumber = n + fittPolinomialFunction(x, y);
 
       // If the model has the minimun number of points
-      if (AlsoNumber >= d) {
+      if (alsoNumber >= d) {
         // Get the error of the model based on the number of points
-        double error = 9.9E99;
-        try {
-          error = newError(data);
-        } catch (Exception ex) {
-          Logger.getLogger(RANSAC.class.getName()).log(Level.SEVERE, null, ex);
+        int inliers = 0;
+        for (int i = 0; i < x.length; i++) {
+          if (alsoInLiers[i] || maybeInLiers[i]) {
+            inliers++;
+          }
         }
-
         // If the error is less than the error of the last model
-        if (error < besterr) {
-          besterr = error;
-          for (int i = 0; i < data.size(); i++) {
-            AlignStructMol alignStruct = data.get(i);
-            if (alignStruct.ransacAlsoInLiers || alignStruct.ransacMaybeInLiers) {
-              alignStruct.Aligned = true;
-            } else {
-              alignStruct.Aligned = false;
-            }
-
-            alignStruct.ransacAlsoInLiers = false;
-            alignStruct.ransacMaybeInLiers = false;
-
+        if (inliers > bestInliers) {
+          bestInliers = inliers;
+          for (int i = 0; i < x.length; i++) {
+            bestModel[i] = alsoInLiers[i] || maybeInLiers[i];
           }
         }
       }
-      // remove the model
-      for (int i = 0; i < data.size(); i++) {
-        AlignStructMol alignStruct = data.get(i);
-        alignStruct.ransacAlsoInLiers = false;
-        alignStruct.ransacMaybeInLiers = false;
-      }
-
     }
-  }
-
-  /**
-   * Take the initial points ramdoly. The points are divided by the initial number of points. If the
-   * fractions contain enough number of points took one point from each part.
-   * 
-   * @param data vector with the points which represent all possible alignments.
-   * @return false if there is any problem.
-   */
-  private boolean getInitN(List<AlignStructMol> data) {
-    if (data.size() > n) {
-      Collections.sort(data, new AlignStructMol());
-      double min = data.get(0).RT;
-      double max = data.get(data.size() - 1).RT;
 
-      Range<Double> rtRange = Range.closed(min, ((max - min) / 2) + min);
+    /**
+     * Take the initial points ramdoly. The points are divided by the initial number of points. If
+     * the fractions contain enough number of points took one point from each part.
+     *
+     * @param x sorted retention times
+     * @return false if there is any problem.
+     */
+    private boolean getInitN(double[] x, int n) {
+      if (x.length <= n) {
+        return false;
+      }
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final double min = x[0];
+      final double max = x[x.length - 1];
+      final double center = ((max - min) / 2) + min;
 
       int cont = 0, bucle = 0;
       while (cont < n / 2 && bucle < 1000) {
-        int index = (int) (data.size() * Math.random());
-        if (!data.get(index).ransacMaybeInLiers && rtRange.contains(data.get(index).RT)) {
-          data.get(index).ransacMaybeInLiers = true;
+        int index = random.nextInt(x.length);
+        if (!maybeInLiers[index] && x[index] >= min && x[index] <= center) {
+          maybeInLiers[index] = true;
           cont++;
-
         }
-
         bucle++;
       }
       if (bucle >= 1000) {
-        getN(data, (n / 2) - cont);
+        cont += getN((n / 2) - cont, random);
       }
 
       bucle = 0;
-      rtRange = Range.closed(((max - min) / 2) + min, max);
-
       while (cont < n && bucle < 1000) {
-
-        int index = (int) (data.size() * Math.random());
-        if (!data.get(index).ransacMaybeInLiers && rtRange.contains(data.get(index).RT)) {
-          data.get(index).ransacMaybeInLiers = true;
+        int index = random.nextInt(x.length);
+        if (!maybeInLiers[index] && x[index] >= center && x[index] <= max) {
+          maybeInLiers[index] = true;
           cont++;
         }
         bucle++;
       }
       if (bucle >= 1000) {
-        getN(data, n - cont);
+        getN(n - cont, random);
       }
       return true;
-    } else {
-      return false;
     }
-  }
 
-  private void getN(List<AlignStructMol> data, int newN) {
-    if (newN < 1) {
-      return;
-    }
-    int cont = 0;
-    while (cont < newN) {
-      int index = (int) (data.size() * Math.random());
-      if (!data.get(index).ransacMaybeInLiers) {
-        data.get(index).ransacMaybeInLiers = true;
-        cont++;
+    /**
+     * @return the number of selected points
+     */
+    private int getN(int newN, ThreadLocalRandom random) {
+      if (newN < 1) {
+        return 0;
       }
-    }
-  }
-
-  private void fittPolinomialFunction(List<AlignStructMol> data, boolean linear) {
-    List<AlignStructMol> points = new ArrayList<AlignStructMol>();
-
-    int degree = 3;
-    if (linear) {
-      degree = 1;
-    }
-
-    PolynomialFitter fitter = new PolynomialFitter(degree, new GaussNewtonOptimizer(true));
-    for (int i = 0; i < data.size(); i++) {
-      AlignStructMol point = data.get(i);
-      if (point.ransacMaybeInLiers) {
-        points.add(point);
-        fitter.addObservedPoint(1, point.RT, point.RT2);
-      }
-    }
-    try {
-      PolynomialFunction function = fitter.fit();
-      for (AlignStructMol point : data) {
-        double y = point.RT2;
-        double bestY = function.value(point.RT);
-        if (Math.abs(y - bestY) < t) {
-          point.ransacAlsoInLiers = true;
-          AlsoNumber++;
-        } else {
-          point.ransacAlsoInLiers = false;
+      int cont = 0;
+      while (cont < newN) {
+        int index = random.nextInt(maybeInLiers.length);
+        if (!maybeInLiers[index]) {
+          maybeInLiers[index] = true;
+          cont++;
         }
       }
-    } catch (Exception ex) {
+      return cont;
     }
-  }
 
-  /**
-   * calculate the error in the model
-   * 
-   * @param data vector with the points which represent all possible alignments.
-   * @param regression regression of the alignment points
-   * @return the error in the model
-   */
-  private double newError(List<AlignStructMol> data) throws Exception {
+    /**
+     * @return the number of points that also fit the model
+     */
+    private int fittPolinomialFunction(double[] x, double[] y) {
+      int degree = linear ? 1 : 3;
 
-    double numT = 1;
-    for (int i = 0; i < data.size(); i++) {
-      if (data.get(i).ransacAlsoInLiers || data.get(i).ransacMaybeInLiers) {
-        numT++;
+      PolynomialFitter fitter = new PolynomialFitter(degree, new GaussNewtonOptimizer(true));
+      for (int i = 0; i < x.length; i++) {
+        if (maybeInLiers[i]) {
+          fitter.addObservedPoint(1, x[i], y[i]);
+        }
       }
+      int alsoNumber = 0;
+      try {
+        PolynomialFunction function = fitter.fit();
+        for (int i = 0; i < x.length; i++) {
+          if (Math.abs(y[i] - function.value(x[i])) < t) {
+            alsoInLiers[i] = true;
+            alsoNumber++;
+          }
+        }
+      } catch (Exception ex) {
+        // no model for these points
+      }
+      return alsoNumber;
     }
-    return 1 / numT;
-
   }
 }
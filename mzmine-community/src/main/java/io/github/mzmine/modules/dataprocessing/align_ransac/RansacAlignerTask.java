@@ -25,6 +25,8 @@
 
 package io.github.mzmine.modules.dataprocessing.align_ransac;
 
+import static io.github.mzmine.util.FeatureListRowSorter.MZ_ASCENDING;
+
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MZmineProject;
@@ -36,6 +38,8 @@ import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.modules.dataprocessing.align_common.AlignmentBaseRows;
+import io.github.mzmine.modules.dataprocessing.align_common.RowScoreBuffer;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
@@ -44,17 +48,17 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.RangeUtils;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.apache.commons.math.analysis.polynomials.PolynomialFunction;
 import org.apache.commons.math.optimization.fitting.PolynomialFitter;
 import org.apache.commons.math.optimization.general.GaussNewtonOptimizer;
@@ -66,11 +70,20 @@ class RansacAlignerTask extends AbstractTask {
 
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
+  /**
+   * Number of rows processed by one thread
+   */
+  private static final int CHUNK_SIZE = 512;
+
   private final MZmineProject project;
   private ModularFeatureList[] featureLists;
   private ModularFeatureList alignedFeatureList;
   // Processed rows counter
-  private int processedRows, totalRows;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private int totalRows;
+  // reusable point buffers for the RANSAC model of each feature list
+  private final DoubleArrayList rtBuffer = new DoubleArrayList();
+  private final DoubleArrayList rt2Buffer = new DoubleArrayList();
   // Parameters
   private String featureListName;
   private MZTolerance mzTolerance;
@@ -120,7 +133,7 @@ class RansacAlignerTask extends AbstractTask {
     if (totalRows == 0) {
       return 0f;
     }
-    return (double) processedRows / (double) totalRows;
+    return (double) processedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -165,14 +178,27 @@ class RansacAlignerTask extends AbstractTask {
 
     // Iterate source feature lists
     for (FeatureList featureList : featureLists) {
+      if (isCanceled()) {
+        return;
+      }
 
-      HashMap<FeatureListRow, FeatureListRow> alignmentMapping = this.getAlignmentMap(featureList);
+      // base rows of the current alignment and the index of the matching base row for each row
+      // copy the rows as new rows are added to the aligned list
+      final List<FeatureListRow> alignedRows = new ArrayList<>(alignedFeatureList.getRows());
+      alignedRows.sort(MZ_ASCENDING);
+      final AlignmentBaseRows baseRows = new AlignmentBaseRows(alignedRows);
+      final int[] alignmentMapping = this.getAlignmentMap(featureList, baseRows);
+      if (alignmentMapping == null) {
+        return;
+      }
 
       List<FeatureListRow> allRows = featureList.getRows();
 
       // Align all rows using mapping
-      for (FeatureListRow row : allRows) {
-        FeatureListRow targetRow = alignmentMapping.get(row);
+      for (int i = 0; i < allRows.size(); i++) {
+        FeatureListRow row = allRows.get(i);
+        FeatureListRow targetRow =
+            alignmentMapping[i] == -1 ? null : baseRows.getRow(alignmentMapping[i]);
 
         // If we have no mapping for this row, add a new one
         if (targetRow == null) {
@@ -188,7 +214,7 @@ class RansacAlignerTask extends AbstractTask {
           targetRow.addFeature(file, new ModularFeature(alignedFeatureList, row.getFeature(file)));
         }
 
-        processedRows++;
+        processedRows.incrementAndGet();
       }
 
     } // Next feature list
@@ -228,104 +254,100 @@ class RansacAlignerTask extends AbstractTask {
   }
 
   /**
-   * @param peakList
-   * @return
+   * Scores all rows of the feature list against the aligned rows in parallel chunks and assigns
+   * the best matches.
+   *
+   * @param peakList the feature list to align
+   * @param baseRows the rows of the aligned feature list sorted by m/z
+   * @return the index of the matching base row for each row or -1 if there is no match. null if
+   * canceled
    */
-  private HashMap<FeatureListRow, FeatureListRow> getAlignmentMap(FeatureList peakList) {
-
-    // Create a table of mappings for best scores
-    HashMap<FeatureListRow, FeatureListRow> alignmentMapping = new HashMap<>();
-
-    if (alignedFeatureList.getNumberOfRows() < 1) {
-      return alignmentMapping;
+  private @Nullable int[] getAlignmentMap(FeatureList peakList, AlignmentBaseRows baseRows) {
+    final List<FeatureListRow> allRows = peakList.getRows();
+    final int[] noMatches = new int[allRows.size()];
+    Arrays.fill(noMatches, -1);
+    if (baseRows.size() < 1) {
+      return noMatches;
     }
 
-    // Create a sorted set of scores matching
-    TreeSet<RowVsRowScore> scoreSet = new TreeSet<RowVsRowScore>();
-
     // RANSAC algorithm
-    List<AlignStructMol> list = ransacPeakLists(alignedFeatureList, peakList);
-    PolynomialFunction function = this.getPolynomialFunction(list);
-
-    List<FeatureListRow> allRows = peakList.getRows();
-
-    for (FeatureListRow row : allRows) {
-      // Calculate limits for a row with which the row can be aligned
-      Range<Double> mzRange = mzTolerance.getToleranceRange(row.getAverageMZ());
+    final PolynomialFunction function = ransacPeakLists(baseRows, peakList);
+    if (isCanceled()) {
+      return null;
+    }
 
-      float rt;
-      try {
-        rt = (float) function.value(row.getAverageRT());
-      } catch (NullPointerException e) {
-        rt = row.getAverageRT();
-      }
-      if (Double.isNaN(rt) || rt == -1) {
-        rt = row.getAverageRT();
+    final int numChunks = (allRows.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    final RowScoreBuffer scores = IntStream.range(0, numChunks).parallel().mapToObj(chunk -> {
+      final RowScoreBuffer chunkScores = new RowScoreBuffer();
+      final int end = Math.min(allRows.size(), (chunk + 1) * CHUNK_SIZE);
+      for (int i = chunk * CHUNK_SIZE; i < end && !isCanceled(); i++) {
+        scoreRow(allRows.get(i), i, baseRows, function, chunkScores);
+        processedRows.incrementAndGet();
       }
+      return chunkScores;
+    }).collect(RowScoreBuffer::new, RowScoreBuffer::addAll, RowScoreBuffer::addAll);
 
-      Range<Float> rtRange = rtToleranceAfter.getToleranceRange(rt);
-
-      // Get all rows of the aligned peaklist within parameter limits
-      List<FeatureListRow> candidateRows = alignedFeatureList.getRowsInsideScanAndMZRange(rtRange,
-          mzRange);
-
-      for (FeatureListRow candidate : candidateRows) {
-        RowVsRowScore score;
-        if (sameChargeRequired && (!FeatureUtils.compareChargeState(row, candidate))) {
-          continue;
-        }
-
-        try {
-          score = new RowVsRowScore(row, candidate, RangeUtils.rangeLength(mzRange) / 2.0,
-              RangeUtils.rangeLength(rtRange) / 2.0, rt);
+    if (isCanceled()) {
+      return null;
+    }
+    // Iterate scores by descending order, each row and aligned row is only mapped once
+    return scores.assignBestMatches(allRows.size(), baseRows.size());
+  }
 
-          scoreSet.add(score);
-          setErrorMessage(score.getErrorMessage());
+  private void scoreRow(FeatureListRow row, int rowIndex, AlignmentBaseRows baseRows,
+      @Nullable PolynomialFunction function, RowScoreBuffer scores) {
+    // Calculate limits for a row with which the row can be aligned
+    Range<Double> mzRange = mzTolerance.getToleranceRange(row.getAverageMZ());
 
-        } catch (Exception e) {
-          e.printStackTrace();
-          setStatus(TaskStatus.ERROR);
-          return null;
-        }
-      }
-      processedRows++;
+    float rt;
+    try {
+      rt = (float) function.value(row.getAverageRT());
+    } catch (NullPointerException e) {
+      rt = row.getAverageRT();
+    }
+    if (Double.isNaN(rt) || rt == -1) {
+      rt = row.getAverageRT();
     }
 
-    // Iterate scores by descending order
-    Iterator<RowVsRowScore> scoreIterator = scoreSet.iterator();
-    while (scoreIterator.hasNext()) {
-
-      RowVsRowScore score = scoreIterator.next();
+    Range<Float> rtRange = rtToleranceAfter.getToleranceRange(rt);
+    final double mzMaxDiff = RangeUtils.rangeLength(mzRange) / 2.0;
+    final double rtMaxDiff = RangeUtils.rangeLength(rtRange) / 2.0;
 
-      // Check if the row is already mapped
-      if (alignmentMapping.containsKey(score.getPeakListRow())) {
+    // Get all rows of the aligned peaklist within parameter limits
+    for (int i = baseRows.indexOfMz(mzRange.lowerEndpoint()); i < baseRows.size(); i++) {
+      final double mz = baseRows.getMz(i);
+      if (mz > mzRange.upperEndpoint()) {
+        break;
+      }
+      final float candidateRt = baseRows.getRt(i);
+      if (!Float.isNaN(candidateRt) && !rtRange.contains(candidateRt)) {
         continue;
       }
-
-      // Check if the aligned row is already filled
-      if (alignmentMapping.containsValue(score.getAlignedRow())) {
+      final FeatureListRow candidate = baseRows.getRow(i);
+      if (sameChargeRequired && (!FeatureUtils.compareChargeState(row, candidate))) {
         continue;
       }
-
-      alignmentMapping.put(score.getPeakListRow(), score.getAlignedRow());
-
+      // Calculate differences between m/z and RT values
+      double mzDiff = Math.abs(row.getAverageMZ() - mz);
+      double rtDiff = Math.abs(rt - candidateRt);
+      scores.add(rowIndex, i, (1 - mzDiff / mzMaxDiff) + (1 - rtDiff / rtMaxDiff));
     }
-
-    return alignmentMapping;
   }
 
   /**
    * RANSAC
    *
-   * @param alignedPeakList
-   * @param peakList
-   * @return
+   * @param alignedRows the rows of the aligned feature list sorted by m/z
+   * @param peakList    the feature list to align
+   * @return the RT model or null if it could not be fitted
    */
-  private List<AlignStructMol> ransacPeakLists(FeatureList alignedPeakList, FeatureList peakList) {
-    List<AlignStructMol> list = this.getVectorAlignment(alignedPeakList, peakList);
+  private @Nullable PolynomialFunction ransacPeakLists(AlignmentBaseRows alignedRows,
+      FeatureList peakList) {
+    this.getVectorAlignment(alignedRows, peakList);
     RANSAC ransac = new RANSAC(parameters);
-    ransac.alignment(list);
-    return list;
+    final boolean[] aligned = ransac.alignment(rtBuffer.toDoubleArray(),
+        rt2Buffer.toDoubleArray());
+    return this.getPolynomialFunction(aligned);
   }
 
   /**
@@ -334,11 +356,11 @@ class RansacAlignerTask extends AbstractTask {
    * @param list
    * @return
    */
-  private PolynomialFunction getPolynomialFunction(List<AlignStructMol> list) {
+  private PolynomialFunction getPolynomialFunction(boolean[] aligned) {
     List<RTs> data = new ArrayList<RTs>();
-    for (AlignStructMol m : list) {
-      if (m.Aligned) {
-        data.add(new RTs(m.RT2, m.RT));
+    for (int i = 0; i < aligned.length; i++) {
+      if (aligned[i]) {
+        data.add(new RTs(rt2Buffer.getDouble(i), rtBuffer.getDouble(i)));
       }
     }
 
@@ -392,32 +414,49 @@ class RansacAlignerTask extends AbstractTask {
   }
 
   /**
-   * Create the vector which contains all the possible aligned peaks.
+   * Fill the point buffers with all the possible aligned peaks. The aligned rows are searched in
+   * parallel chunks, each chunk collects its points in primitive lists.
    *
-   * @param peakListX
-   * @param peakListY
-   * @return vector which contains all the possible aligned peaks.
+   * @param alignedRows the rows of the aligned feature list sorted by m/z
+   * @param peakListY   the feature list to align
    */
-  private List<AlignStructMol> getVectorAlignment(FeatureList peakListX, FeatureList peakListY) {
-
-    List<AlignStructMol> alignMol = new ArrayList<AlignStructMol>();
-    for (FeatureListRow row : peakListX.getRows()) {
-
-      if (isCanceled()) {
-        return null;
-      }
-      // Calculate limits for a row with which the row can be aligned
-      Range<Double> mzRange = mzTolerance.getToleranceRange(row.getAverageMZ());
-      Range<Float> rtRange = rtToleranceBefore.getToleranceRange(row.getAverageRT());
-
-      // Get all rows of the aligned peaklist within parameter limits
-      List<FeatureListRow> candidateRows = peakListY.getRowsInsideScanAndMZRange(rtRange, mzRange);
-
-      for (FeatureListRow candidateRow : candidateRows) {
-        alignMol.add(new AlignStructMol(row, candidateRow));
-      }
+  private void getVectorAlignment(AlignmentBaseRows alignedRows, FeatureList peakListY) {
+    rtBuffer.clear();
+    rt2Buffer.clear();
+
+    final AlignmentBaseRows candidates = new AlignmentBaseRows(
+        peakListY.getRows().sorted(MZ_ASCENDING));
+    final int numChunks = (alignedRows.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    final List<DoubleArrayList[]> chunkPoints = IntStream.range(0, numChunks).parallel()
+        .mapToObj(chunk -> {
+          final DoubleArrayList rts = new DoubleArrayList();
+          final DoubleArrayList rts2 = new DoubleArrayList();
+          final int end = Math.min(alignedRows.size(), (chunk + 1) * CHUNK_SIZE);
+          for (int r = chunk * CHUNK_SIZE; r < end && !isCanceled(); r++) {
+            final float rt = alignedRows.getRt(r);
+            // Calculate limits for a row with which the row can be aligned
+            Range<Double> mzRange = mzTolerance.getToleranceRange(alignedRows.getMz(r));
+            Range<Float> rtRange = rtToleranceBefore.getToleranceRange(rt);
+
+            // Get all rows of the feature list within parameter limits
+            for (int i = candidates.indexOfMz(mzRange.lowerEndpoint()); i < candidates.size();
+                i++) {
+              if (candidates.getMz(i) > mzRange.upperEndpoint()) {
+                break;
+              }
+              final float rt2 = candidates.getRt(i);
+              if (rtRange.contains(rt2)) {
+                rts.add(rt);
+                rts2.add(rt2);
+              }
+            }
+          }
+          return new DoubleArrayList[]{rts, rts2};
+        }).toList();
+
+    for (DoubleArrayList[] points : chunkPoints) {
+      rtBuffer.addAll(points[0]);
+      rt2Buffer.addAll(points[1]);
     }
-
-    return alignMol;
   }
 }
@@ -34,6 +34,7 @@ import io.github.mzmine.datamodel.featuredata.FeatureDataUtils;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -45,14 +46,21 @@ import io.github.mzmine.taskcontrol.AbstractSimpleTask;
 import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class BaselineCorrectionTask extends AbstractSimpleTask {
 
+  private static final int CHUNK_SIZE = 512;
   private final FeatureList originalFlist;
-  private final BaselineCorrector corrector;
+  /**
+   * Correctors keep their data buffers and resolver state between features, therefore each worker
+   * thread uses its own instance.
+   */
+  private final ThreadLocal<BaselineCorrector> corrector;
   private final String suffix;
   private final MZmineProject project;
   private OriginalFeatureListOption handleOriginal;
@@ -77,8 +85,8 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
     this.project = project;
     final BaselineCorrectors value = parameters.getValue(
         BaselineCorrectionParameters.correctionAlgorithm);
-    corrector = value.getModuleInstance().newInstance(
-        parameters, getMemoryMapStorage(), flist);
+    corrector = ThreadLocal.withInitial(
+        () -> value.getModuleInstance().newInstance(parameters, getMemoryMapStorage(), flist));
     suffix = parameters.getValue(BaselineCorrectionParameters.suffix);
     totalItems = flist.getNumberOfRows();
   }
@@ -92,27 +100,51 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
     newFlist = FeatureListUtils.createCopy(originalFlist, suffix, getMemoryMapStorage());
 
     final RawDataFile rawDataFile = originalFlist.getRawDataFile(0);
-    final FeatureDataAccess access = EfficientDataAccess.of(originalFlist,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, rawDataFile);
+    final List<FeatureListRow> rows = originalFlist.getRows();
+    final int numChunks = (rows.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
 
-    while (access.hasNextFeature()) {
-      final Feature feature = access.nextFeature();
+    // correct chunks of rows in parallel, each chunk has its own data access buffers
+    final List<CorrectedChunk> correctedChunks = IntStream.range(0, numChunks).parallel()
+        .mapToObj(chunk -> correctChunk(rows.subList(chunk * CHUNK_SIZE,
+            Math.min(rows.size(), (chunk + 1) * CHUNK_SIZE)), rawDataFile)).toList();
 
-      final IonTimeSeries<? extends Scan> its = corrector.correctBaseline(access);
+    if (isCanceled()) {
+      return;
+    }
 
-      final ModularFeatureListRow newRow = new ModularFeatureListRow(newFlist,
-          (ModularFeatureListRow) feature.getRow(), false);
-      final ModularFeature newFeature = new ModularFeature(newFlist, feature);
-      newFeature.set(FeatureDataType.class, its);
-      FeatureDataUtils.recalculateIonSeriesDependingTypes(newFeature);
-      newRow.addFeature(rawDataFile, newFeature);
-      newFlist.addRow(newRow);
-      finishedItems.getAndIncrement();
+    // create the new rows sequentially in the original row order
+    for (final CorrectedChunk chunk : correctedChunks) {
+      for (int i = 0; i < chunk.series().size(); i++) {
+        final Feature feature = chunk.features()[i];
+        final ModularFeatureListRow newRow = new ModularFeatureListRow(newFlist,
+            (ModularFeatureListRow) feature.getRow(), false);
+        final ModularFeature newFeature = new ModularFeature(newFlist, feature);
+        newFeature.set(FeatureDataType.class, chunk.series().get(i));
+        FeatureDataUtils.recalculateIonSeriesDependingTypes(newFeature);
+        newRow.addFeature(rawDataFile, newFeature);
+        newFlist.addRow(newRow);
+      }
     }
 
     handleOriginal.reflectNewFeatureListToProject(suffix, project, newFlist, originalFlist);
   }
 
+  private CorrectedChunk correctChunk(final List<FeatureListRow> chunkRows,
+      final RawDataFile rawDataFile) {
+    final BaselineCorrector threadCorrector = corrector.get();
+    final FeatureDataAccess access = EfficientDataAccess.of(originalFlist,
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, rawDataFile, chunkRows);
+
+    final Feature[] features = new Feature[access.getNumOfFeatures()];
+    final List<IonTimeSeries<? extends Scan>> series = new ArrayList<>(features.length);
+    for (int i = 0; access.hasNextFeature() && !isCanceled(); i++) {
+      features[i] = access.nextFeature();
+      series.add(threadCorrector.correctBaseline(access));
+      finishedItems.getAndIncrement();
+    }
+    return new CorrectedChunk(features, series);
+  }
+
   @Override
   protected @NotNull List<FeatureList> getProcessedFeatureLists() {
     return List.of(newFlist);
@@ -127,4 +159,11 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
   public String getTaskDescription() {
     return "Correcting baseline for feature list " + originalFlist.getName();
   }
+
+  /**
+   * The corrected series of a chunk of rows, in the order of the features
+   */
+  private record CorrectedChunk(Feature[] features, List<IonTimeSeries<? extends Scan>> series) {
+
+  }
 }
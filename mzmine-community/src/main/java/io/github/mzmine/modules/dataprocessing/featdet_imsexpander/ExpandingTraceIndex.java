@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.featdet_imsexpander;
+
+import com.google.common.collect.Range;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link ExpandingTrace}s in m/z order with their m/z and RT ranges in primitive arrays. The traces
+ * that may contain a signal are found by binary search, so each signal is routed to its trace
+ * without walking the trace list. Overlapping m/z ranges are supported.
+ */
+class ExpandingTraceIndex {
+
+  private final ExpandingTrace[] traces;
+  private final double[] lowerMz;
+  private final double[] upperMz;
+  private final float[] lowerRt;
+  private final float[] upperRt;
+  /**
+   * running maximum of the upper m/z bounds, monotonic to find the first candidate
+   */
+  private final double[] maxUpperMz;
+  /**
+   * running minimum of the lower m/z bounds from the end, monotonic to find the last candidate
+   */
+  private final double[] minLowerMz;
+
+  /**
+   * @param traces the traces in the order that they are offered signals, usually sorted by m/z
+   */
+  ExpandingTraceIndex(@NotNull List<ExpandingTrace> traces) {
+    this.traces = traces.toArray(ExpandingTrace[]::new);
+    final int n = this.traces.length;
+    lowerMz = new double[n];
+    upperMz = new double[n];
+    lowerRt = new float[n];
+    upperRt = new float[n];
+    maxUpperMz = new double[n];
+    minLowerMz = new double[n];
+
+    for (int i = 0; i < n; i++) {
+      final Range<Double> mzRange = this.traces[i].getMzRange();
+      final Range<Float> rtRange = this.traces[i].getRtRange();
+      lowerMz[i] = mzRange.hasLowerBound() ? mzRange.lowerEndpoint() : Double.NEGATIVE_INFINITY;
+      upperMz[i] = mzRange.hasUpperBound() ? mzRange.upperEndpoint() : Double.POSITIVE_INFINITY;
+      lowerRt[i] = rtRange.hasLowerBound() ? rtRange.lowerEndpoint() : Float.NEGATIVE_INFINITY;
+      upperRt[i] = rtRange.hasUpperBound() ? rtRange.upperEndpoint() : Float.POSITIVE_INFINITY;
+      maxUpperMz[i] = i == 0 ? upperMz[i] : Math.max(maxUpperMz[i - 1], upperMz[i]);
+    }
+    for (int i = n - 1; i >= 0; i--) {
+      minLowerMz[i] = i == n - 1 ? lowerMz[i] : Math.min(minLowerMz[i + 1], lowerMz[i]);
+    }
+  }
+
+  int size() {
+    return traces.length;
+  }
+
+  @NotNull
+  ExpandingTrace get(int index) {
+    return traces[index];
+  }
+
+  /**
+   * @return the index of the first trace that may contain the m/z or {@link #size()}
+   */
+  int firstCandidate(double mz) {
+    int low = 0;
+    int high = traces.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (maxUpperMz[mid] < mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the index after the last trace that may contain the m/z
+   */
+  int endCandidate(double mz) {
+    int low = 0;
+    int high = traces.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (minLowerMz[mid] <= mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Ranges are treated as closed, like the tolerance and data point ranges of the traces.
+   *
+   * @return true if the m/z and rt are within the ranges of the trace
+   */
+  boolean contains(int index, double mz, float rt) {
+    return lowerMz[index] <= mz && mz <= upperMz[index] && lowerRt[index] <= rt
+           && rt <= upperRt[index];
+  }
+
+  /**
+   * @return the lowest retention time of all traces
+   */
+  float getMinRt() {
+    float min = Float.POSITIVE_INFINITY;
+    for (float rt : lowerRt) {
+      min = Math.min(min, rt);
+    }
+    return min;
+  }
+
+  /**
+   * @return the highest retention time of all traces
+   */
+  float getMaxRt() {
+    float max = Float.NEGATIVE_INFINITY;
+    for (float rt : upperRt) {
+      max = Math.max(max, rt);
+    }
+    return max;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.featdet_imsexpander;
+
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
+import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.exceptions.MissingMassListException;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the mobility scans of a consecutive range of frames once and routes each signal to the
+ * {@link ExpandingTrace}s of a shared {@link ExpandingTraceIndex}. The signals are collected in
+ * one {@link MobilogramBuffer} per trace, which are merged with the buffers of the other frame
+ * ranges by the {@link ImsExpanderTask}.
+ */
+class ImsExpanderFrameTask extends AbstractTask {
+
+  private static final Logger logger = Logger.getLogger(ImsExpanderFrameTask.class.getName());
+
+  private final IMSRawDataFile imsFile;
+  private final List<Frame> frames;
+  private final ExpandingTraceIndex index;
+  private final boolean useRawData;
+  private final double noiseLevel;
+  private @Nullable MobilogramBuffer[] buffers;
+  private volatile int processedFrames = 0;
+
+  /**
+   * @param noiseLevel minimum intensity of raw data signals, only used for raw data
+   */
+  ImsExpanderFrameTask(@NotNull IMSRawDataFile imsFile, @NotNull List<Frame> frames,
+      @NotNull ExpandingTraceIndex index, boolean useRawData, double noiseLevel) {
+    super(null, Instant.now()); // just a subtask, date irrelevant
+    this.imsFile = imsFile;
+    this.frames = frames;
+    this.index = index;
+    this.useRawData = useRawData;
+    this.noiseLevel = noiseLevel;
+    buffers = new MobilogramBuffer[index.size()];
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return imsFile.getName() + ": expanding traces in frame " + processedFrames + "/"
+           + frames.size();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return frames.isEmpty() ? 1d : processedFrames / (double) frames.size();
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+    final MobilityScanDataAccess access = new MobilityScanDataAccess(imsFile,
+        useRawData ? MobilityScanDataType.RAW : MobilityScanDataType.MASS_LIST, frames);
+    final MobilogramBuffer[] buffers = this.buffers;
+
+    try {
+      for (int i = 0; i < access.getNumberOfScans(); i++) {
+        if (isCanceled() || buffers == null) {
+          return;
+        }
+
+        final Frame frame = access.nextFrame();
+        final float rt = frame.getRetentionTime();
+
+        while (access.hasNextMobilityScan()) {
+          final MobilityScan mobilityScan = access.nextMobilityScan();
+
+          for (int dpIndex = 0; dpIndex < access.getNumberOfDataPoints(); dpIndex++) {
+            final double mz = access.getMzValue(dpIndex);
+            final double intensity = access.getIntensityValue(dpIndex);
+            if (useRawData && intensity < noiseLevel) {
+              continue;
+            }
+
+            // offer to the traces in m/z order until one accepts the signal
+            final int end = index.endCandidate(mz);
+            for (int t = index.firstCandidate(mz); t < end; t++) {
+              if (!index.contains(t, mz, rt)) {
+                continue;
+              }
+              MobilogramBuffer buffer = buffers[t];
+              if (buffer == null) {
+                buffer = new MobilogramBuffer();
+                buffers[t] = buffer;
+              }
+              if (buffer.offer(mobilityScan, mz, intensity)) {
+                break;
+              }
+            }
+          }
+        }
+        processedFrames++;
+      }
+    } catch (MissingMassListException e) {
+      this.buffers = null;
+      logger.log(Level.WARNING, e.getMessage(), e);
+      setErrorMessage(e.getMessage());
+      setStatus(TaskStatus.ERROR);
+      return;
+    }
+
+    setStatus(TaskStatus.FINISHED);
+  }
+
+  int getProcessedFrames() {
+    return processedFrames;
+  }
+
+  /**
+   * @return the signals of a trace in the frames of this task or null if there are none
+   */
+  @Nullable
+  MobilogramBuffer getBuffer(int traceIndex) {
+    final MobilogramBuffer[] buffers = this.buffers;
+    return buffers != null ? buffers[traceIndex] : null;
+  }
+
+  /**
+   * Allow the buffers to be released after they were merged
+   */
+  void clearBuffers() {
+    buffers = null;
+  }
+}
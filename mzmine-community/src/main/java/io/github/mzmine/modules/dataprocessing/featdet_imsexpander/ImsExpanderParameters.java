@@ -72,10 +72,10 @@ public class ImsExpanderParameters extends SimpleParameterSet {
 
   public static final OptionalParameter<IntegerParameter> maxNumTraces = new OptionalParameter<>(
       new IntegerParameter("Maximum features per thread", """
-          Sets the maximum number of features to be processed per thread.
+          Sets the maximum number of features that are expanded in one pass over the data.
           For LC-IMS-MS measurements, this is typically not required (deactivate).
           However, it can be beneficial for imaging experiments to reduce the memory consumption during this step.""",
-          2_000), false);
+          2_000, 1, null), false);
 
   public ImsExpanderParameters() {
     super(new Parameter[]{featureLists, mzTolerance, useRawData, mobilogramBinWidth, maxNumTraces,
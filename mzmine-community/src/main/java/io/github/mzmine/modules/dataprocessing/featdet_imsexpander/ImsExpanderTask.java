@@ -29,11 +29,10 @@ import com.google.common.collect.Lists;
 import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
-import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
 import io.github.mzmine.datamodel.featuredata.FeatureDataUtils;
-import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
@@ -58,6 +57,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -70,7 +70,7 @@ public class ImsExpanderTask extends AbstractTask {
   private static final String SUFFIX = " expanded";
   protected final ParameterSet parameters;
   protected final ModularFeatureList flist;
-  final List<AbstractTask> tasks = new ArrayList<>();
+  final List<ImsExpanderFrameTask> tasks = new ArrayList<>();
   private final MZmineProject project;
   private final MZTolerance mzTolerance;
   private final boolean useMzToleranceRange;
@@ -78,8 +78,11 @@ public class ImsExpanderTask extends AbstractTask {
   private final int binWidth;
   private final int maxNumTraces;
   private final OriginalFeatureListOption handleOriginal;
+  private final boolean useRawData;
+  private final double customNoiseLevel;
   private String desc = "Mobility expanding.";
   private long totalRows = 1;
+  private long totalFrames = 0;
   private long createdRows = 0;
 
   public ImsExpanderTask(@Nullable final MemoryMapStorage storage,
@@ -92,15 +95,20 @@ public class ImsExpanderTask extends AbstractTask {
     useMzToleranceRange = parameters.getParameter(ImsExpanderParameters.mzTolerance).getValue();
     mzTolerance = parameters.getParameter(ImsExpanderParameters.mzTolerance).getEmbeddedParameter()
         .getValue();
+    // partitions need at least one trace, batch files may contain values below the minimum
     maxNumTraces =
-        parameters.getValue(ImsExpanderParameters.maxNumTraces) ? parameters.getParameter(
-            ImsExpanderParameters.maxNumTraces).getEmbeddedParameter().getValue()
-            : Integer.MAX_VALUE;
+        parameters.getValue(ImsExpanderParameters.maxNumTraces) ? Math.max(1,
+            parameters.getParameter(ImsExpanderParameters.maxNumTraces).getEmbeddedParameter()
+                .getValue()) : Integer.MAX_VALUE;
     binWidth = parameters.getParameter(ImsExpanderParameters.mobilogramBinWidth).getValue()
         ? parameters.getParameter(ImsExpanderParameters.mobilogramBinWidth).getEmbeddedParameter()
         .getValue() : BinningMobilogramDataAccess.getRecommendedBinWidth(
         (IMSRawDataFile) flist.getRawDataFile(0));
     handleOriginal = this.parameters.getParameter(ImsExpanderParameters.handleOriginal).getValue();
+    useRawData = parameters.getParameter(ImsExpanderParameters.useRawData).getValue();
+    final Double noiseLevel = parameters.getParameter(ImsExpanderParameters.useRawData)
+        .getEmbeddedParameter().getValue();
+    customNoiseLevel = noiseLevel != null ? noiseLevel : 0d;
   }
 
   @Override
@@ -111,13 +119,12 @@ public class ImsExpanderTask extends AbstractTask {
   @Override
   public double getFinishedPercentage() {
     // stream / iterator for loop may lead to concurrend mod exception, use classic for loop here
-    double sum = 0.0;
+    double processedFrames = 0.0;
     for (int i = 0; i < tasks.size(); i++) {
-      AbstractTask task = tasks.get(i);
-      double finishedPercentage = task.getFinishedPercentage();
-      sum += finishedPercentage;
+      processedFrames += tasks.get(i).getProcessedFrames();
     }
-    return 0.4 * sum / tasks.size() + 0.4 * (processedRows.get() / (double) totalRows)
+    return 0.6 * (totalFrames == 0 ? 0d : processedFrames / totalFrames)
+           + 0.2 * (processedRows.get() / (double) totalRows)
            + 0.2 * createdRows / (double) totalRows;
   }
 
@@ -164,63 +171,43 @@ public class ImsExpanderTask extends AbstractTask {
     final List<Frame> frames = (List<Frame>) flist.getSeletedScans(flist.getRawDataFile(0));
     assert frames != null;
 
-    // we partition the traces (sorted by rt) so we can start and end at specific frames. By splitting
-    // the traces and not frames, we can also directly store the raw data on the SSD/HDD as soon as
-    // a thread finishes. Thereby we can reduce the memory consumption, especially in images.
-    final int tracesPerList = Math.max(1,
-        Math.min(expandingTraces.size() / NUM_THREADS, maxNumTraces));
+    // all traces are expanded in a single pass over the frames. The maximum number of traces splits
+    // the traces (sorted by rt) into groups that are expanded one after another. Each group only
+    // reads the frames in its rt range and this reduces the memory consumption, e.g., in images.
     expandingTraces.sort(
         (a, b) -> Float.compare(a.getRtRange().lowerEndpoint(), b.getRtRange().lowerEndpoint()));
-    final List<List<ExpandingTrace>> subLists = Lists.partition(expandingTraces, tracesPerList);
-
-    for (final List<ExpandingTrace> subList : subLists) {
-      final Frame firstFrame = (Frame) subList.get(0).getRow().getBestFeature().getFeatureData()
-          .getSpectrum(0);
-      final ExpandingTrace lastFrameTrace = subList.stream().max(
-              (a, b) -> Float.compare(a.getRtRange().upperEndpoint(), b.getRtRange().upperEndpoint()))
-          .orElseThrow(() -> new IllegalStateException("Cannot determine last frame."));
-      final IonTimeSeries<? extends Scan> lastTraceData = lastFrameTrace.getRow().getBestFeature()
-          .getFeatureData();
-      final Frame lastFrame = (Frame) lastTraceData.getSpectrum(
-          lastTraceData.getNumberOfValues() - 1);
-      final List<Frame> framesSubList = frames.subList(frames.indexOf(firstFrame),
-          frames.indexOf(lastFrame) + 1);
-
-      final ArrayList<ExpandingTrace> traces = new ArrayList<>(subList);
+    final List<ExpandingTraceIndex> indices = new ArrayList<>();
+    final List<List<Frame>> indexFrames = new ArrayList<>();
+    for (final List<ExpandingTrace> group : Lists.partition(expandingTraces, maxNumTraces)) {
+      final ArrayList<ExpandingTrace> traces = new ArrayList<>(group);
       traces.sort(Comparator.comparingDouble(a -> a.getRow().getAverageMZ()));
-
-      final BinningMobilogramDataAccess mobilogramDataAccess = EfficientDataAccess.of(imsFile,
-          binWidth);
-      tasks.add(
-          new ImsExpanderSubTask(getMemoryMapStorage(), parameters, framesSubList, flist, traces,
-              mobilogramDataAccess, imsFile));
+      final ExpandingTraceIndex index = new ExpandingTraceIndex(traces);
+      final float minRt = index.getMinRt();
+      final float maxRt = index.getMaxRt();
+      final List<Frame> groupFrames = frames.stream()
+          .filter(f -> f.getRetentionTime() >= minRt && f.getRetentionTime() <= maxRt).toList();
+      indices.add(index);
+      indexFrames.add(groupFrames);
+      totalFrames += groupFrames.size();
     }
 
-    // might need a copy of task list -  we usually clear the tasks list to not hold on to memory
-    ThreadPoolTask poolTask = ThreadPoolTask.createDefaultTaskManagerPool(getTaskDescription(),
-        new ArrayList<>(tasks));
-    var wrappedTask = MZmineCore.getTaskController().runTaskOnThisThreadBlocking(poolTask);
-
-    if (wrappedTask == null || poolTask.getStatus() == TaskStatus.CANCELED) {
-      setStatus(TaskStatus.CANCELED);
-      return;
+    final List<ExpandedTrace> expandedTraces = new ArrayList<>();
+    for (int i = 0; i < indices.size(); i++) {
+      if (!expandTraces(imsFile, indices.get(i), indexFrames.get(i), expandedTraces)) {
+        return;
+      }
     }
 
     desc = "Creating new features for feature list " + flist.getName();
-    for (AbstractTask task : tasks) {
-      final ImsExpanderSubTask t = (ImsExpanderSubTask) task;
-      final List<ExpandedTrace> expandedTraces = t.getExpandedTraces();
-
-      for (ExpandedTrace expandedTrace : expandedTraces) {
-        final ModularFeatureListRow row = new ModularFeatureListRow(newFlist,
-            expandedTrace.oldRow(), false);
-        final ModularFeature f = new ModularFeature(newFlist, expandedTrace.oldFeature());
-        f.set(FeatureDataType.class, expandedTrace.series());
-        FeatureDataUtils.recalculateIonSeriesDependingTypes(f);
-        row.addFeature(imsFile, f);
-        newFlist.addRow(row);
-        createdRows++;
-      }
+    for (ExpandedTrace expandedTrace : expandedTraces) {
+      final ModularFeatureListRow row = new ModularFeatureListRow(newFlist, expandedTrace.oldRow(),
+          false);
+      final ModularFeature f = new ModularFeature(newFlist, expandedTrace.oldFeature());
+      f.set(FeatureDataType.class, expandedTrace.series());
+      FeatureDataUtils.recalculateIonSeriesDependingTypes(f);
+      row.addFeature(imsFile, f);
+      newFlist.addRow(row);
+      createdRows++;
     }
 
     // explicitly don't renumber, IDs are kept from the old flist.
@@ -233,6 +220,78 @@ public class ImsExpanderTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * Reads the frames once, split into consecutive frame ranges on all threads. Each signal is
+   * routed to its trace by the m/z index. The partial mobilograms of each trace are merged
+   * afterwards.
+   *
+   * @param expandedTraces the expanded traces are added to this list
+   * @return false if the expansion was canceled or failed, the status is set accordingly
+   */
+  private boolean expandTraces(@NotNull IMSRawDataFile imsFile, @NotNull ExpandingTraceIndex index,
+      @NotNull List<Frame> frames, @NotNull List<ExpandedTrace> expandedTraces) {
+    final int numRanges = Math.max(1, Math.min(NUM_THREADS, frames.size()));
+    final List<ImsExpanderFrameTask> frameTasks = new ArrayList<>(numRanges);
+    for (int i = 0; i < numRanges; i++) {
+      final List<Frame> frameRange = frames.subList(frames.size() * i / numRanges,
+          frames.size() * (i + 1) / numRanges);
+      frameTasks.add(
+          new ImsExpanderFrameTask(imsFile, frameRange, index, useRawData, customNoiseLevel));
+    }
+    tasks.addAll(frameTasks);
+
+    final ThreadPoolTask poolTask = ThreadPoolTask.createDefaultTaskManagerPool(
+        getTaskDescription(), new ArrayList<>(frameTasks));
+    final var wrappedTask = MZmineCore.getTaskController().runTaskOnThisThreadBlocking(poolTask);
+    if (wrappedTask == null || poolTask.getStatus() == TaskStatus.CANCELED) {
+      setStatus(TaskStatus.CANCELED);
+      return false;
+    }
+    for (ImsExpanderFrameTask frameTask : frameTasks) {
+      if (frameTask.getStatus() == TaskStatus.ERROR) {
+        setErrorMessage(frameTask.getErrorMessage());
+        setStatus(TaskStatus.ERROR);
+        return false;
+      }
+    }
+
+    desc = "Merging mobilograms of feature list " + flist.getName();
+    final ExpandedTrace[] results = new ExpandedTrace[index.size()];
+    final int numTraceRanges = Math.max(1, Math.min(NUM_THREADS, index.size()));
+    IntStream.range(0, numTraceRanges).parallel().forEach(range -> {
+      // the binning data access is not thread safe
+      final BinningMobilogramDataAccess mobilogramDataAccess = EfficientDataAccess.of(imsFile,
+          binWidth);
+      final List<MobilogramBuffer> parts = new ArrayList<>(frameTasks.size());
+      final int end = index.size() * (range + 1) / numTraceRanges;
+      for (int t = index.size() * range / numTraceRanges; t < end && !isCanceled(); t++) {
+        parts.clear();
+        for (ImsExpanderFrameTask frameTask : frameTasks) {
+          parts.add(frameTask.getBuffer(t));
+        }
+        final IonMobilogramTimeSeries series = MobilogramBuffer.toIonMobilogramTimeSeries(parts,
+            getMemoryMapStorage(), mobilogramDataAccess);
+        if (series != null) {
+          final ModularFeatureListRow row = index.get(t).getRow();
+          results[t] = new ExpandedTrace(series, row, row.getFeature(imsFile));
+        }
+        processedRows.getAndIncrement();
+      }
+    });
+    // allow the partial mobilograms to be released
+    frameTasks.forEach(ImsExpanderFrameTask::clearBuffers);
+
+    if (isCanceled()) {
+      return false;
+    }
+    for (ExpandedTrace result : results) {
+      if (result != null) {
+        expandedTraces.add(result);
+      }
+    }
+    return true;
+  }
+
   @Override
   public TaskPriority getTaskPriority() {
     return TaskPriority.HIGH; // master task needs high priority, so it does not brick the task controller
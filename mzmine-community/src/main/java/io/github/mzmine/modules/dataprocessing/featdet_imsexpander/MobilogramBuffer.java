@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.featdet_imsexpander;
+
+import io.github.mzmine.datamodel.MobilityScan;
+import io.github.mzmine.datamodel.data_access.BinningMobilogramDataAccess;
+import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
+import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
+import io.github.mzmine.datamodel.featuredata.impl.IonMobilogramTimeSeriesFactory;
+import io.github.mzmine.datamodel.featuredata.impl.SimpleIonMobilitySeries;
+import io.github.mzmine.util.MemoryMapStorage;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The signals of one {@link ExpandingTrace} in a consecutive range of frames. Signals are added in
+ * frame and mobility scan order, so the partial mobilograms of all frame ranges are merged by
+ * concatenation.
+ */
+class MobilogramBuffer {
+
+  private final List<MobilityScan> scans = new ArrayList<>();
+  private final DoubleArrayList mzs = new DoubleArrayList();
+  private final DoubleArrayList intensities = new DoubleArrayList();
+
+  /**
+   * Offers a signal of a mobility scan. Only the first signal of each mobility scan is added.
+   *
+   * @return true if the signal was added
+   */
+  boolean offer(@NotNull MobilityScan scan, double mz, double intensity) {
+    if (!scans.isEmpty() && scans.getLast() == scan) {
+      return false;
+    }
+    scans.add(scan);
+    mzs.add(mz);
+    intensities.add(intensity);
+    return true;
+  }
+
+  int size() {
+    return scans.size();
+  }
+
+  /**
+   * Splits the buffered signals into one mobilogram per frame
+   */
+  private void addMobilograms(@NotNull List<IonMobilitySeries> mobilograms) {
+    int start = 0;
+    for (int i = 1; i <= scans.size(); i++) {
+      if (i == scans.size() || scans.get(i).getFrame() != scans.get(start).getFrame()) {
+        mobilograms.add(new SimpleIonMobilitySeries(null,
+            Arrays.copyOfRange(mzs.elements(), start, i),
+            Arrays.copyOfRange(intensities.elements(), start, i), scans.subList(start, i)));
+        start = i;
+      }
+    }
+  }
+
+  /**
+   * @param parts the buffers of one trace in frame order, null for frame ranges without signals
+   * @return the merged series or null if the trace has signals in less than two mobility scans
+   */
+  @Nullable
+  static IonMobilogramTimeSeries toIonMobilogramTimeSeries(
+      @NotNull List<@Nullable MobilogramBuffer> parts, @Nullable MemoryMapStorage storage,
+      @NotNull BinningMobilogramDataAccess mobilogramDataAccess) {
+    int numScans = 0;
+    for (MobilogramBuffer part : parts) {
+      numScans += part != null ? part.size() : 0;
+    }
+    if (numScans <= 1) {
+      return null;
+    }
+
+    final List<IonMobilitySeries> mobilograms = new ArrayList<>();
+    for (MobilogramBuffer part : parts) {
+      if (part != null) {
+        part.addMobilograms(mobilograms);
+      }
+    }
+    return IonMobilogramTimeSeriesFactory.of(storage, mobilograms, mobilogramDataAccess);
+  }
+}
@@ -40,6 +40,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonMobilitySeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
@@ -54,12 +55,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class SmoothingTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(SmoothingTask.class.getName());
+  private static final int CHUNK_SIZE = 512;
 
   private final ModularFeatureList flist;
   private final ParameterSet parameters;
@@ -121,25 +124,28 @@ public class SmoothingTask extends AbstractTask {
       return;
     }
 
-    // include zeros
-    final FeatureDataAccess dataAccess = EfficientDataAccess.of(smoothedList,
-        FeatureDataType.INCLUDE_ZEROS);
-
-    while (dataAccess.hasNextFeature()) {
-      final ModularFeature feature = (ModularFeature) dataAccess.nextFeature();
-
-      final IonTimeSeries<? extends Scan> smoothedSeries = smoother.smoothFeature(
-          getMemoryMapStorage(), dataAccess, feature, zht);
-      feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class, smoothedSeries);
-      FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
-
-      processedFeatures.getAndIncrement();
-    }
+    // smooth chunks of rows in parallel. Each chunk has its own data access and therefore its own
+    // data buffers. The smoothers only hold their settings and can be shared between threads.
+    final List<FeatureListRow> rows = smoothedList.getRows();
+    final int numChunks = (rows.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    final List<SmoothedChunk> smoothedChunks = IntStream.range(0, numChunks).parallel()
+        .mapToObj(chunk -> smoothChunk(smoothedList, rows.subList(chunk * CHUNK_SIZE,
+            Math.min(rows.size(), (chunk + 1) * CHUNK_SIZE)), smoother)).toList();
 
     if (isCanceled()) {
       return;
     }
 
+    // the features are only changed after all chunks were smoothed
+    for (final SmoothedChunk chunk : smoothedChunks) {
+      for (int i = 0; i < chunk.series().size(); i++) {
+        final ModularFeature feature = chunk.features()[i];
+        feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class,
+            chunk.series().get(i));
+        FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
+      }
+    }
+
     smoothedList.getAppliedMethods().add(
         new SimpleFeatureListAppliedMethod(SmoothingModule.class, parameters, getModuleCallDate()));
 
@@ -149,6 +155,22 @@ public class SmoothingTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  private SmoothedChunk smoothChunk(final ModularFeatureList smoothedList,
+      final List<FeatureListRow> chunkRows, final SmoothingAlgorithm smoother) {
+    // include zeros
+    final FeatureDataAccess dataAccess = EfficientDataAccess.of(smoothedList,
+        FeatureDataType.INCLUDE_ZEROS, null, chunkRows);
+
+    final ModularFeature[] features = new ModularFeature[dataAccess.getNumOfFeatures()];
+    final List<IonTimeSeries<? extends Scan>> series = new ArrayList<>(features.length);
+    for (int i = 0; dataAccess.hasNextFeature() && !isCanceled(); i++) {
+      features[i] = (ModularFeature) dataAccess.nextFeature();
+      series.add(smoother.smoothFeature(getMemoryMapStorage(), dataAccess, features[i], zht));
+      processedFeatures.getAndIncrement();
+    }
+    return new SmoothedChunk(features, series);
+  }
+
   // -----------------------------
   // todo: these are not used yet due to questions regarding the actual implementation
   //  1. if new intensities are added on the peak edges - what do we do on the mobilogram level? We
@@ -250,6 +272,14 @@ public class SmoothingTask extends AbstractTask {
     return null;
   }
 
+  /**
+   * The smoothed series of a chunk of rows, in the order of the features
+   */
+  private record SmoothedChunk(ModularFeature[] features,
+                               List<IonTimeSeries<? extends Scan>> series) {
+
+  }
+
   public enum SmoothingDimension {
     RETENTION_TIME("Retention time"), MOBILITY("Mobility");
     private final String name;
@@ -27,6 +27,7 @@ package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Utilities for the Savitzky-Golay smoother.
@@ -39,6 +40,9 @@ public class SavitzkyGolayFilter {
   // The filter values.
   private static final Map<Integer, int[]> VALUES = new HashMap<Integer, int[]>(11);
 
+  // normalized weights are computed once per width and shared between all smoothers
+  private static final Map<Integer, double[]> NORMALIZED_WEIGHTS = new ConcurrentHashMap<>(11);
+
   static {
 
     // Load the values.
@@ -64,12 +68,17 @@ public class SavitzkyGolayFilter {
   }
 
   /**
-   * Gets the normalized Savitzky-Golay filter weights.
+   * Gets the normalized Savitzky-Golay filter weights. The weights are cached per width, the
+   * returned array is shared and must not be modified.
    *
    * @param width the full width of the filter.
    * @return the filter weights (normalized).
    */
   public static double[] getNormalizedWeights(final int width) {
+    return NORMALIZED_WEIGHTS.computeIfAbsent(width, SavitzkyGolayFilter::computeNormalizedWeights);
+  }
+
+  private static double[] computeNormalizedWeights(final int width) {
 
     if (width == 0) {
       return new double[]{1d};
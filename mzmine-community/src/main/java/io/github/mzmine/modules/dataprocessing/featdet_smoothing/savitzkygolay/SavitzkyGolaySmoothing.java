@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
 
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.FeatureDataAccess;
 import io.github.mzmine.datamodel.featuredata.IntensitySeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.MobilitySeries;
@@ -83,22 +84,28 @@ public class SavitzkyGolaySmoothing implements SmoothingAlgorithm {
     final int fullWidth = normWeights.length;
     final int halfWidth = (fullWidth - 1) / 2;
 
+    // work on the backing buffer of data accesses to avoid a virtual call per data point
+    final double[] intensities = access instanceof FeatureDataAccess da ? da.getIntensityValues()
+        : access.getIntensityValues(new double[numPoints]);
+
     double[] smoothed = new double[numPoints];
     for (int i = 0; i < numPoints; i++) {
       final int k = i - halfWidth;
+      double sum = 0d;
       for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
-        smoothed[i] += access.getIntensity(k + j) * normWeights[j];
+        sum += intensities[k + j] * normWeights[j];
       }
 
-      if (smoothed[i] < 0d) {
-        smoothed[i] = 0d;
+      if (sum < 0d) {
+        sum = 0d;
       }
 
 //      if (/*zht == ZeroHandlingType.KEEP &&*/ Double.compare(access.getIntensity(i), 0d) == 0) {
       // if values that were previously 0 shall remain 0, we process that here.
-      if (Double.compare(access.getIntensity(i), 0d) == 0) {
-        smoothed[i] = 0;
+      if (Double.compare(intensities[i], 0d) == 0) {
+        sum = 0;
       }
+      smoothed[i] = sum;
     }
 
     return smoothed;
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_groupms2;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.MSnInfoImpl;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Index of the precursor windows of all fragment scans in a raw data file. Entries are bucketed by
+ * precursor m/z and sorted by retention time within each bucket, so that a feature only visits the
+ * fragment scans within its m/z and RT window. PASEF {@link PasefMsMsInfo}s of TIMS frames are
+ * indexed separately.
+ * <p>
+ * One index is shared per raw data file by all MS2 grouping steps. It is rebuilt if the number of
+ * scans changed. Entries only hold positions in {@link RawDataFile#getScans()} so that the shared
+ * index does not keep removed raw data files alive.
+ */
+public class PrecursorWindowIndex {
+
+  /**
+   * Precursor m/z width of a bucket
+   */
+  private static final double BUCKET_WIDTH = 1d;
+
+  private static final Map<RawDataFile, PrecursorWindowIndex> INDICES = Collections.synchronizedMap(
+      new WeakHashMap<>());
+
+  private final WeakReference<RawDataFile> dataFile;
+  private final int numScans;
+  private final Windows fragmentScans;
+  private final Windows pasefMsMsInfos;
+
+  private PrecursorWindowIndex(@NotNull RawDataFile dataFile) {
+    this.dataFile = new WeakReference<>(dataFile);
+    final List<Scan> scans = dataFile.getScans();
+    numScans = scans.size();
+
+    final WindowsBuilder scanBuilder = new WindowsBuilder();
+    final WindowsBuilder pasefBuilder = new WindowsBuilder();
+    for (int i = 0; i < scans.size(); i++) {
+      final Scan scan = scans.get(i);
+      if (scan.getMSLevel() <= 1) {
+        continue;
+      }
+      final double precursorMz = getPrecursorMz(scan);
+      if (precursorMz != 0) {
+        scanBuilder.add(i, 0, scan.getRetentionTime(), precursorMz);
+      }
+      if (scan.getMSLevel() == 2 && scan instanceof Frame frame) {
+        int ordinal = 0;
+        for (final PasefMsMsInfo info : frame.getImsMsMsInfos()) {
+          pasefBuilder.add(i, ordinal++, frame.getRetentionTime(), info.getIsolationMz());
+        }
+      }
+    }
+    fragmentScans = scanBuilder.build();
+    pasefMsMsInfos = pasefBuilder.build();
+  }
+
+  /**
+   * @return the shared index of this raw data file, created or updated on demand
+   */
+  public static @NotNull PrecursorWindowIndex of(@NotNull RawDataFile dataFile) {
+    PrecursorWindowIndex index = INDICES.get(dataFile);
+    if (index == null || index.numScans != dataFile.getNumOfScans()) {
+      index = new PrecursorWindowIndex(dataFile);
+      INDICES.put(dataFile, index);
+    }
+    return index;
+  }
+
+  /**
+   * @return the precursor m/z of a fragment scan or 0 if not available
+   */
+  public static double getPrecursorMz(@NotNull Scan scan) {
+    if (scan.getMsMsInfo() instanceof MSnInfoImpl msn) {
+      return msn.getMS2PrecursorMz();
+    } else if (scan.getMsMsInfo() instanceof DDAMsMsInfo info) {
+      return info.getIsolationMz();
+    }
+    return Objects.requireNonNullElse(scan.getPrecursorMz(), 0d);
+  }
+
+  /**
+   * @param precursorMzRange the precursor m/z range
+   * @param rtRange          the retention time range or null for all
+   * @return all scans with MS level > 1 in range in the order of the raw data file
+   */
+  public @NotNull List<Scan> getFragmentScans(@NotNull Range<Double> precursorMzRange,
+      @Nullable Range<Float> rtRange) {
+    final List<Scan> scans = getDataFile().getScans();
+    final int[] entries = fragmentScans.find(precursorMzRange, rtRange);
+    final List<Scan> result = new ArrayList<>(entries.length);
+    for (final int entry : entries) {
+      result.add(scans.get(fragmentScans.scanIndices[entry]));
+    }
+    return result;
+  }
+
+  /**
+   * @param isolationMzRange the isolation m/z range
+   * @param rtRange          the retention time range of the frames or null for all
+   * @return all PASEF MS/MS infos of MS2 frames in range in the order of the raw data file
+   */
+  public @NotNull List<FrameMsMsInfo> getPasefMsMsInfos(@NotNull Range<Double> isolationMzRange,
+      @Nullable Range<Float> rtRange) {
+    final List<Scan> scans = getDataFile().getScans();
+    final int[] entries = pasefMsMsInfos.find(isolationMzRange, rtRange);
+    final List<FrameMsMsInfo> result = new ArrayList<>(entries.length);
+    for (final int entry : entries) {
+      final Frame frame = (Frame) scans.get(pasefMsMsInfos.scanIndices[entry]);
+      final Iterator<PasefMsMsInfo> infos = frame.getImsMsMsInfos().iterator();
+      for (int i = 0; i < pasefMsMsInfos.ordinals[entry]; i++) {
+        infos.next();
+      }
+      result.add(new FrameMsMsInfo(frame, infos.next()));
+    }
+    return result;
+  }
+
+  private @NotNull RawDataFile getDataFile() {
+    return Objects.requireNonNull(dataFile.get(), "Raw data file was removed");
+  }
+
+  private static int bucket(double mz) {
+    return (int) Math.floor(mz / BUCKET_WIDTH);
+  }
+
+  /**
+   * @param frame the MS2 frame that contains the info
+   * @param info  the PASEF MS/MS info
+   */
+  public record FrameMsMsInfo(@NotNull Frame frame, @NotNull PasefMsMsInfo info) {
+
+  }
+
+  /**
+   * Collects entries in the order of the raw data file
+   */
+  private static class WindowsBuilder {
+
+    private final IntArrayList scanIndices = new IntArrayList();
+    private final IntArrayList ordinals = new IntArrayList();
+    private final FloatArrayList rts = new FloatArrayList();
+    private final DoubleArrayList mzs = new DoubleArrayList();
+
+    private void add(int scanIndex, int ordinal, float rt, double mz) {
+      scanIndices.add(scanIndex);
+      ordinals.add(ordinal);
+      rts.add(rt);
+      mzs.add(mz);
+    }
+
+    private Windows build() {
+      final int size = rts.size();
+      final int[] order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      // sort by bucket, then by retention time
+      IntArrays.quickSort(order, (a, b) -> {
+        final int bucketCompare = Integer.compare(bucket(mzs.getDouble(a)),
+            bucket(mzs.getDouble(b)));
+        if (bucketCompare != 0) {
+          return bucketCompare;
+        }
+        final int rtCompare = Float.compare(rts.getFloat(a), rts.getFloat(b));
+        return rtCompare != 0 ? rtCompare : Integer.compare(a, b);
+      });
+
+      final float[] sortedRts = new float[size];
+      final double[] sortedMzs = new double[size];
+      final Int2IntOpenHashMap bucketStarts = new Int2IntOpenHashMap();
+      final Int2IntOpenHashMap bucketEnds = new Int2IntOpenHashMap();
+      for (int i = 0; i < size; i++) {
+        sortedRts[i] = rts.getFloat(order[i]);
+        sortedMzs[i] = mzs.getDouble(order[i]);
+        final int bucket = bucket(sortedMzs[i]);
+        bucketStarts.putIfAbsent(bucket, i);
+        bucketEnds.put(bucket, i + 1);
+      }
+      return new Windows(scanIndices.toIntArray(), ordinals.toIntArray(), order, sortedRts,
+          sortedMzs, bucketStarts, bucketEnds);
+    }
+  }
+
+  /**
+   * @param scanIndices  scan index per entry, entries in the order of the raw data file
+   * @param ordinals     position of the entry within its scan
+   * @param sortedIds    entries sorted by bucket and retention time
+   * @param sortedRts    retention times of sortedIds
+   * @param sortedMzs    precursor m/z of sortedIds
+   * @param bucketStarts first position of a bucket in the sorted arrays
+   * @param bucketEnds   end position (exclusive) of a bucket in the sorted arrays
+   */
+  private record Windows(int[] scanIndices, int[] ordinals, int[] sortedIds, float[] sortedRts,
+                         double[] sortedMzs, Int2IntOpenHashMap bucketStarts,
+                         Int2IntOpenHashMap bucketEnds) {
+
+    /**
+     * @return the entries in range in ascending order
+     */
+    private int[] find(@NotNull Range<Double> mzRange, @Nullable Range<Float> rtRange) {
+      final IntArrayList result = new IntArrayList();
+      if (sortedIds.length == 0 || !mzRange.hasLowerBound() || !mzRange.hasUpperBound()) {
+        return new int[0];
+      }
+      final int lastBucket = bucket(mzRange.upperEndpoint());
+      for (int bucket = bucket(mzRange.lowerEndpoint()); bucket <= lastBucket; bucket++) {
+        if (!bucketStarts.containsKey(bucket)) {
+          continue;
+        }
+        final int end = bucketEnds.get(bucket);
+        int i = bucketStarts.get(bucket);
+        if (rtRange != null && rtRange.hasLowerBound()) {
+          i = firstRtNotBelow(i, end, rtRange.lowerEndpoint());
+        }
+        for (; i < end; i++) {
+          if (rtRange != null && rtRange.hasUpperBound()
+              && sortedRts[i] > rtRange.upperEndpoint()) {
+            break;
+          }
+          if (mzRange.contains(sortedMzs[i]) && (rtRange == null || rtRange.contains(
+              sortedRts[i]))) {
+            result.add(sortedIds[i]);
+          }
+        }
+      }
+      final int[] entries = result.toIntArray();
+      IntArrays.quickSort(entries);
+      return entries;
+    }
+
+    private int firstRtNotBelow(int start, int end, float rt) {
+      int low = start;
+      int high = end;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (sortedRts[mid] < rt) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
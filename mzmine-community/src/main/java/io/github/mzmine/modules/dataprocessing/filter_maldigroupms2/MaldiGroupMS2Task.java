@@ -43,6 +43,8 @@ import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
+import io.github.mzmine.modules.dataprocessing.filter_groupms2.PrecursorWindowIndex;
+import io.github.mzmine.modules.dataprocessing.filter_groupms2.PrecursorWindowIndex.FrameMsMsInfo;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
@@ -146,13 +148,9 @@ public class MaldiGroupMS2Task extends AbstractTask {
 
       final ModularFeatureList newFlist = list;
 
-      // collect all MS2 infos from all files for fast access
-      final List<PasefMsMsInfo> msmsInfos = files.stream()
-          .flatMap(file -> file.getScanNumbers(2).stream()).filter(
-              scan -> (scan instanceof ImagingFrame imgFrame)
-                      && imgFrame.getMaldiSpotInfo() != null)
-          .flatMap(f -> ((ImagingFrame) f).getImsMsMsInfos().stream())
-          .sorted(Comparator.comparingDouble(info -> info.getIsolationMz())).toList();
+      // precursor index of all files for fast access, shared with the other MS2 grouping steps
+      final List<PrecursorWindowIndex> indices = files.stream().map(PrecursorWindowIndex::of)
+          .toList();
 
       // for all features
       for (FeatureListRow row : newFlist.getRows()) {
@@ -160,7 +158,7 @@ public class MaldiGroupMS2Task extends AbstractTask {
           return;
         }
 
-        processRow(row, msmsInfos);
+        processRow(row, indices);
         processedRows++;
       }
 
@@ -187,18 +185,18 @@ public class MaldiGroupMS2Task extends AbstractTask {
    *
    * @param row
    */
-  public void processRow(FeatureListRow row, List<PasefMsMsInfo> allInfos) {
+  public void processRow(FeatureListRow row, List<PrecursorWindowIndex> indices) {
     for (ModularFeature f : row.getFeatures()) {
       if (f != null && f.getFeatureStatus() != FeatureStatus.UNKNOWN && (
           f.getMobilityUnit() == MobilityType.TIMS || (
               f.getRawDataFile() instanceof IMSRawDataFile imsfile
               && imsfile.getMobilityType() == MobilityType.TIMS))) {
-        processTimsFeature(f, allInfos);
+        processTimsFeature(f, indices);
       }
     }
   }
 
-  private void processTimsFeature(ModularFeature feature, List<PasefMsMsInfo> allInfos) {
+  private void processTimsFeature(ModularFeature feature, List<PrecursorWindowIndex> indices) {
 
     double fmz = feature.getMZ();
     Float mobility = feature.getMobility();
@@ -207,10 +205,13 @@ public class MaldiGroupMS2Task extends AbstractTask {
     final IonTimeSeries<ImagingScan> featureData = (IonTimeSeries<ImagingScan>) feature.getFeatureData();
     final Set<String> spots = featureData.getSpectra().stream()
         .map(f -> f.getMaldiSpotInfo().spotName()).collect(Collectors.toSet());
-    final List<PasefMsMsInfo> msMsInfos = getMsMsInfos(allInfos,
-        mzTol.getToleranceRange(feature.getMZ())).stream().filter(
-            info -> spots.contains(((ImagingFrame) info.getMsMsFrame()).getMaldiSpotInfo().spotName()))
-        .toList();
+    final Range<Double> mzRange = mzTol.getToleranceRange(feature.getMZ());
+    final List<PasefMsMsInfo> msMsInfos = indices.stream()
+        .flatMap(index -> index.getPasefMsMsInfos(mzRange, null).stream()).filter(
+            info -> info.frame() instanceof ImagingFrame imgFrame
+                    && imgFrame.getMaldiSpotInfo() != null && spots.contains(
+                imgFrame.getMaldiSpotInfo().spotName())).map(FrameMsMsInfo::info)
+        .sorted(Comparator.comparingDouble(PasefMsMsInfo::getIsolationMz)).toList();
 
     msMsInfos.forEach(imsMsMsInfo -> {
       if (mzTol.checkWithinTolerance(fmz, imsMsMsInfo.getIsolationMz())) {
@@ -42,6 +42,7 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.MissingMassListException;
+import io.github.mzmine.util.io.FileResourceCache;
 import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.MS2DeepscoreModel;
 import java.io.File;
 import java.io.IOException;
@@ -96,20 +97,40 @@ public class MS2DeepscoreNetworkingTask extends AbstractFeatureListTask {
   protected void process() {
     // init model
     description = "Loading model";
+    if (FileResourceCache.isEnabled()) {
+      // long-running processes keep the model loaded between batch runs
+      try {
+        final MS2DeepscoreModel model = FileResourceCache.get(MS2DeepscoreModel.class,
+            () -> new MS2DeepscoreModel(ms2deepscoreModelFile, ms2deepscoreSettingsFile),
+            ms2deepscoreModelFile, ms2deepscoreSettingsFile);
+        // the predictor of a shared model is not thread safe
+        synchronized (model) {
+          processFeatureLists(model);
+        }
+      } catch (Exception e) {
+        error("Error in MS2Deepscore model " + e.getMessage(), e);
+      }
+      return;
+    }
+
     // auto close model after use
     try (var model = new MS2DeepscoreModel(ms2deepscoreModelFile, ms2deepscoreSettingsFile)) {
-      description = "Calculating MS2Deepscore similarity";
-      // estimate work load - like how many elements to process
-      totalItems = Arrays.stream(featureLists).mapToLong(FeatureList::getNumberOfRows).sum();
-      // each feature list
-      for (FeatureList featureList : featureLists) {
-        processFeatureList(featureList, model);
-      }
+      processFeatureLists(model);
     } catch (ModelNotFoundException | MalformedModelException | IOException e) {
       error("Error in MS2Deepscore model " + e.getMessage(), e);
     }
   }
 
+  private void processFeatureLists(MS2DeepscoreModel model) {
+    description = "Calculating MS2Deepscore similarity";
+    // estimate work load - like how many elements to process
+    totalItems = Arrays.stream(featureLists).mapToLong(FeatureList::getNumberOfRows).sum();
+    // each feature list
+    for (FeatureList featureList : featureLists) {
+      processFeatureList(featureList, model);
+    }
+  }
+
   private void processFeatureList(FeatureList featureList, MS2DeepscoreModel model) {
 
     List<Scan> scanList = new ArrayList<>();
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import com.google.common.collect.Range;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.interfaces.IIsotope;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+/**
+ * Table of all neutral formulas within the element constraints of a {@link MolecularFormulaRange},
+ * split into blocks of {@link #BLOCK_WIDTH} Da. Blocks are enumerated once by the CDK
+ * {@link MolecularFormulaGenerator} when a mass range is first requested. Each block stores the
+ * monoisotopic masses sorted in a primitive array and the element counts packed next to each
+ * other, so that rows with close masses only run a range query.
+ * <p>
+ * Tables are shared between all formula prediction tasks with the same element constraints and the
+ * number of stored formulas is bounded by removing the least recently used blocks.
+ */
+public class FormulaMassTable {
+
+  /**
+   * Mass width of a block in Da, about the size of a mass tolerance window
+   */
+  public static final double BLOCK_WIDTH = 0.01;
+  private static final Logger logger = Logger.getLogger(FormulaMassTable.class.getName());
+  private static final long DEFAULT_MAX_FORMULAS = 5_000_000;
+  private static final int MAX_TABLES = 8;
+  private static final LinkedHashMap<String, FormulaMassTable> TABLES = new LinkedHashMap<>(16,
+      0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Entry<String, FormulaMassTable> eldest) {
+      return size() > MAX_TABLES;
+    }
+  };
+
+  private final MolecularFormulaRange elementCounts;
+  private final IIsotope[] isotopes;
+  private final double[] isotopeMasses;
+  private final long maxFormulas;
+  // access ordered: first entry is the least recently used block
+  private final LinkedHashMap<Long, Block> blocks = new LinkedHashMap<>(1024, 0.75f, true);
+  private long storedFormulas;
+
+  public FormulaMassTable(@NotNull MolecularFormulaRange elementCounts, long maxFormulas) {
+    this.elementCounts = elementCounts;
+    this.maxFormulas = maxFormulas;
+    final List<IIsotope> isotopeList = new ArrayList<>();
+    elementCounts.isotopes().forEach(isotopeList::add);
+    isotopes = isotopeList.toArray(IIsotope[]::new);
+    isotopeMasses = new double[isotopes.length];
+    for (int i = 0; i < isotopes.length; i++) {
+      isotopeMasses[i] = isotopes[i].getExactMass();
+    }
+  }
+
+  /**
+   * @return the shared table for these element constraints
+   */
+  public static @NotNull FormulaMassTable forElements(@NotNull MolecularFormulaRange elementCounts) {
+    final String key = createKey(elementCounts);
+    synchronized (TABLES) {
+      return TABLES.computeIfAbsent(key,
+          _ -> new FormulaMassTable(elementCounts, DEFAULT_MAX_FORMULAS));
+    }
+  }
+
+  private static String createKey(MolecularFormulaRange elementCounts) {
+    final StringBuilder key = new StringBuilder();
+    for (final IIsotope isotope : elementCounts.isotopes()) {
+      key.append(isotope.getMassNumber()).append(isotope.getSymbol()).append('[')
+          .append(elementCounts.getIsotopeCountMin(isotope)).append('-')
+          .append(elementCounts.getIsotopeCountMax(isotope)).append(']');
+    }
+    return key.toString();
+  }
+
+  private static long blockIndex(double mass) {
+    return (long) Math.floor(mass / BLOCK_WIDTH);
+  }
+
+  /**
+   * Enumerates missing blocks of the mass range. Consecutive missing blocks are enumerated by a
+   * single generator run.
+   *
+   * @param massRange  neutral mass range
+   * @param isCanceled checked between formulas. Nothing is stored after cancellation
+   * @return all formulas within the mass range sorted by mass. Empty if canceled
+   */
+  public @NotNull List<IMolecularFormula> getFormulas(@NotNull Range<Double> massRange,
+      @Nullable BooleanSupplier isCanceled) {
+    return getFormulas(massRange, isCanceled, null);
+  }
+
+  /**
+   * Enumerates missing blocks of the mass range. Consecutive missing blocks are enumerated by a
+   * single generator run.
+   *
+   * @param massRange         neutral mass range
+   * @param isCanceled        checked between formulas. Nothing is stored after cancellation
+   * @param runningGenerators generators are added while they run, so that a task can cancel them.
+   *                          Searching for the next formula may take a long time. Must be thread
+   *                          safe if the table is used in parallel
+   * @return all formulas within the mass range sorted by mass. Empty if canceled
+   */
+  public @NotNull List<IMolecularFormula> getFormulas(@NotNull Range<Double> massRange,
+      @Nullable BooleanSupplier isCanceled,
+      @Nullable Collection<MolecularFormulaGenerator> runningGenerators) {
+    final long first = blockIndex(massRange.lowerEndpoint());
+    final long last = blockIndex(massRange.upperEndpoint());
+
+    final List<Block> rangeBlocks = new ArrayList<>((int) (last - first + 1));
+    long missingStart = -1;
+    for (long i = first; i <= last + 1; i++) {
+      final Block block = i <= last ? getBlock(i) : null;
+      if (i <= last && block == null) {
+        if (missingStart == -1) {
+          missingStart = i;
+        }
+        continue;
+      }
+      if (missingStart != -1) {
+        final List<Block> enumerated = enumerate(missingStart, i - 1, isCanceled,
+            runningGenerators);
+        if (enumerated == null) {
+          return List.of();
+        }
+        rangeBlocks.addAll(enumerated);
+        missingStart = -1;
+      }
+      if (block != null) {
+        rangeBlocks.add(block);
+      }
+    }
+
+    final IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+    final List<IMolecularFormula> formulas = new ArrayList<>();
+    for (final Block block : rangeBlocks) {
+      for (int i = block.firstIndex(massRange.lowerEndpoint()); i < block.masses.length; i++) {
+        if (block.masses[i] > massRange.upperEndpoint()) {
+          break;
+        }
+        formulas.add(block.createFormula(builder, i));
+      }
+    }
+    return formulas;
+  }
+
+  private @Nullable Block getBlock(long index) {
+    synchronized (blocks) {
+      return blocks.get(index);
+    }
+  }
+
+  /**
+   * @return the blocks from first to last (inclusive) or null if canceled
+   */
+  private @Nullable List<Block> enumerate(long firstBlock, long lastBlock,
+      @Nullable BooleanSupplier isCanceled,
+      @Nullable Collection<MolecularFormulaGenerator> runningGenerators) {
+    final double minMass = firstBlock * BLOCK_WIDTH;
+    final double maxMass = (lastBlock + 1) * BLOCK_WIDTH;
+    final int numBlocks = (int) (lastBlock - firstBlock + 1);
+
+    final List<DoubleArrayList> masses = new ArrayList<>(numBlocks);
+    final List<ShortArrayList> counts = new ArrayList<>(numBlocks);
+    for (int i = 0; i < numBlocks; i++) {
+      masses.add(new DoubleArrayList());
+      counts.add(new ShortArrayList());
+    }
+
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), minMass, maxMass, elementCounts);
+    if (runningGenerators != null) {
+      runningGenerators.add(generator);
+    }
+    try {
+      // canceled before the generator was registered
+      if (isCanceled != null && isCanceled.getAsBoolean()) {
+        return null;
+      }
+      enumerateInto(generator, firstBlock, lastBlock, masses, counts, isCanceled);
+    } finally {
+      if (runningGenerators != null) {
+        runningGenerators.remove(generator);
+      }
+    }
+    if (isCanceled != null && isCanceled.getAsBoolean()) {
+      return null;
+    }
+    logger.finest(() -> "Enumerated %d blocks of formulas from %.4f to %.4f Da".formatted(numBlocks,
+        minMass, maxMass));
+
+    final List<Block> result = new ArrayList<>(numBlocks);
+    synchronized (blocks) {
+      for (int i = 0; i < numBlocks; i++) {
+        final Block block = new Block(masses.get(i).toDoubleArray(), counts.get(i).toShortArray(),
+            isotopes);
+        final Block existing = blocks.putIfAbsent(firstBlock + i, block);
+        if (existing == null) {
+          storedFormulas += block.masses.length;
+        }
+        result.add(existing != null ? existing : block);
+      }
+      evict();
+    }
+    return result;
+  }
+
+  /**
+   * Adds the formulas of the generator to the masses and counts of their blocks
+   */
+  private void enumerateInto(MolecularFormulaGenerator generator, long firstBlock, long lastBlock,
+      List<DoubleArrayList> masses, List<ShortArrayList> counts,
+      @Nullable BooleanSupplier isCanceled) {
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      if (isCanceled != null && isCanceled.getAsBoolean()) {
+        generator.cancel();
+        return;
+      }
+      double mass = 0;
+      final short[] formulaCounts = new short[isotopes.length];
+      for (int e = 0; e < isotopes.length; e++) {
+        formulaCounts[e] = (short) formula.getIsotopeCount(isotopes[e]);
+        mass += formulaCounts[e] * isotopeMasses[e];
+      }
+      // the generator includes both limits, each formula belongs to exactly one block
+      final long block = blockIndex(mass);
+      if (block < firstBlock || block > lastBlock) {
+        continue;
+      }
+      masses.get((int) (block - firstBlock)).add(mass);
+      counts.get((int) (block - firstBlock)).addElements(
+          counts.get((int) (block - firstBlock)).size(), formulaCounts);
+    }
+  }
+
+  /**
+   * Removes the least recently used blocks if too many formulas are stored
+   */
+  private void evict() {
+    final Iterator<Block> iterator = blocks.values().iterator();
+    while (storedFormulas > maxFormulas && blocks.size() > 1 && iterator.hasNext()) {
+      storedFormulas -= iterator.next().masses.length;
+      iterator.remove();
+    }
+  }
+
+  public long getNumberOfStoredFormulas() {
+    synchronized (blocks) {
+      return storedFormulas;
+    }
+  }
+
+  /**
+   * Formulas of one mass block sorted by mass
+   */
+  private static final class Block {
+
+    // sorted monoisotopic masses
+    private final double[] masses;
+    // element counts per formula, isotopes.length values per formula
+    private final short[] counts;
+    private final IIsotope[] isotopes;
+
+    private Block(double[] masses, short[] counts, IIsotope[] isotopes) {
+      // sort by mass
+      final int n = masses.length;
+      final int[] order = new int[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      IntArrays.quickSort(order, (a, b) -> Double.compare(masses[a], masses[b]));
+      final double[] sortedMasses = new double[n];
+      final short[] sortedCounts = new short[counts.length];
+      for (int i = 0; i < n; i++) {
+        sortedMasses[i] = masses[order[i]];
+        System.arraycopy(counts, order[i] * isotopes.length, sortedCounts, i * isotopes.length,
+            isotopes.length);
+      }
+      this.masses = sortedMasses;
+      this.counts = sortedCounts;
+      this.isotopes = isotopes;
+    }
+
+    private int firstIndex(double minMass) {
+      int low = 0;
+      int high = masses.length;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (masses[mid] < minMass) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    private IMolecularFormula createFormula(IChemObjectBuilder builder, int index) {
+      final IMolecularFormula formula = builder.newInstance(IMolecularFormula.class);
+      for (int e = 0; e < isotopes.length; e++) {
+        final short count = counts[index * isotopes.length + e];
+        if (count > 0) {
+          formula.addIsotope(isotopes[e], count);
+        }
+      }
+      return formula;
+    }
+  }
+}
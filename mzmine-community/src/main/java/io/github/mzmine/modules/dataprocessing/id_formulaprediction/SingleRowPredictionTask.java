@@ -43,7 +43,7 @@ import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreCalculator;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreParameters;
-import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCache;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScore;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreCalculator;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreParameters;
@@ -53,15 +53,16 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FormulaUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import javafx.application.Platform;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class SingleRowPredictionTask extends AbstractTask {
 
@@ -90,8 +91,11 @@ public class SingleRowPredictionTask extends AbstractTask {
   private Double msmsMinScore;
   private int topNmsmsSignals;
   private MZTolerance msmsMzTolerance;
-  private MolecularFormulaGenerator generator;
   private int foundFormulas = 0;
+  private int totalCandidates = 0;
+  private int processedCandidates = 0;
+  // running formula generators, cancelled with the task
+  private final Set<MolecularFormulaGenerator> generators = ConcurrentHashMap.newKeySet();
 
 
   SingleRowPredictionTask(ParameterSet parameters, FeatureListRow peakListRow,
@@ -156,10 +160,10 @@ public class SingleRowPredictionTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    if (generator == null) {
+    if (totalCandidates == 0) {
       return 0;
     }
-    return generator.getFinishedPercentage();
+    return (double) processedCandidates / totalCandidates;
   }
 
   @Override
@@ -192,13 +196,12 @@ public class SingleRowPredictionTask extends AbstractTask {
 
     try {
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+      // candidates are shared with other formula predictions with the same elements
+      final List<IMolecularFormula> candidates = FormulaMassTable.forElements(elementCounts)
+          .getFormulas(massRange, this::isCanceled, generators);
+      totalCandidates = candidates.size();
 
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
-
-      IMolecularFormula cdkFormula;
-      while ((cdkFormula = generator.getNextFormula()) != null) {
+      for (IMolecularFormula cdkFormula : candidates) {
 
         if (isCanceled()) {
           return;
@@ -206,8 +209,7 @@ public class SingleRowPredictionTask extends AbstractTask {
 
         // Mass is ok, so test other constraints
         checkConstraints(cdkFormula);
-
-
+        processedCandidates++;
       }
 
       if (isCanceled()) {
@@ -265,8 +267,9 @@ public class SingleRowPredictionTask extends AbstractTask {
     // Fixed min abundance
     final double minPredictedAbundance = 0.00001;
 
-    final IsotopePattern predictedIsotopePattern = IsotopePatternCalculator.calculateIsotopePattern(
-        clonedFormula, minPredictedAbundance, charge, ionType.getPolarity());
+    final IsotopePattern predictedIsotopePattern = IsotopePatternCache.getInstance()
+        .calculateIsotopePattern(clonedFormula, minPredictedAbundance, charge,
+            ionType.getPolarity());
 
     Float isotopeScore = null;
     if (checkIsotopes && detectedPattern != null && predictedIsotopePattern != null) {
@@ -327,11 +330,8 @@ public class SingleRowPredictionTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
+    // We need to cancel the formula generators, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
+    generators.forEach(MolecularFormulaGenerator::cancel);
   }
-
 }
@@ -34,8 +34,8 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.DataTypes;
-import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.id_formula_sort.FormulaSortParameters;
+import io.github.mzmine.modules.dataprocessing.id_formulaprediction.FormulaMassTable;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.ResultFormula;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicChecker;
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.elements.ElementalHeuristicParameters;
@@ -43,7 +43,7 @@ import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions
 import io.github.mzmine.modules.dataprocessing.id_formulaprediction.restrictions.rdbe.RDBERestrictionParameters;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreCalculator;
 import io.github.mzmine.modules.tools.isotopepatternscore.IsotopePatternScoreParameters;
-import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCache;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScore;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreCalculator;
 import io.github.mzmine.modules.tools.msmsscore.MSMSScoreParameters;
@@ -56,13 +56,15 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.formula.MolecularFormulaGenerator;
 import org.openscience.cdk.formula.MolecularFormulaRange;
-import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IMolecularFormula;
-import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 public class FormulaPredictionFeatureListTask extends AbstractTask {
 
@@ -84,10 +86,13 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   private float sortPPMFactor;
   private float sortMSMSFactor;
   private float sortIsotopeFactor;
-  private MolecularFormulaGenerator generator;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
+  // running formula generators, cancelled with the task
+  private final Set<MolecularFormulaGenerator> generators = ConcurrentHashMap.newKeySet();
+  // first error of the parallel workers, the status is only set by the task thread
+  private final AtomicReference<String> rowError = new AtomicReference<>();
   private String message;
-  private int totalRows, finishedRows;
-  private List<ResultFormula> resultingFormulas;
+  private int totalRows;
   private Range<Double> rdbeRange;
   private Boolean rdbeIsInteger;
   private Boolean checkHCRatio;
@@ -182,7 +187,7 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
     if (totalRows == 0) {
       return 0.0;
     }
-    return (double) finishedRows / (double) totalRows;
+    return (double) finishedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -196,76 +201,73 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
 
     totalRows = featureList.getNumberOfRows();
+    message = "Formula prediction on " + featureList.getName();
 
     featureList.addRowType(DataTypes.get(
         io.github.mzmine.datamodel.features.types.annotations.formula.FormulaListType.class));
 
-    for (FeatureListRow row : featureList.getRows()) {
-
-      if (row.getPeakIdentities().size() > 0) {
-        continue;
+    // candidates are enumerated once per mass block and shared by rows with close masses
+    final FormulaMassTable formulaTable = FormulaMassTable.forElements(elementCounts);
+    // rows are independent
+    featureList.getRows().parallelStream().forEach(row -> {
+      if (isCanceled() || rowError.get() != null) {
+        return;
       }
-      this.resultingFormulas = new ArrayList<>();
+      predictFormulas(formulaTable, row);
+      finishedRows.incrementAndGet();
+    });
 
-      double searchedMass =
-          (row.getAverageMZ() - ionType.getAddedMass()) * Math.abs(ionType.getCharge());
+    if (isCanceled()) {
+      return;
+    }
+    if (rowError.get() != null) {
+      setErrorMessage(rowError.get());
+      setStatus(TaskStatus.ERROR);
+      return;
+    }
 
-      message = "Formula prediction for " + MZmineCore.getConfiguration().getMZFormat()
-          .format(searchedMass);
+    featureList.getAppliedMethods().add(
+        new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
+            getModuleCallDate()));
 
-      Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
+    logger.finest("Finished formula search for all the features");
 
-      IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
-      generator = new MolecularFormulaGenerator(builder, massRange.lowerEndpoint(),
-          massRange.upperEndpoint(), elementCounts);
+    setStatus(TaskStatus.FINISHED);
 
-      IMolecularFormula cdkFormula;
+  }
 
-      // create a map to store ResultFormula and relative mass deviation
-      // for sorting
-      while ((cdkFormula = generator.getNextFormula()) != null) {
-        // Mass is ok, so test other constraints
-        ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
+  private void predictFormulas(FormulaMassTable formulaTable, FeatureListRow row) {
+    if (!row.getPeakIdentities().isEmpty()) {
+      return;
+    }
+    final List<ResultFormula> resultingFormulas = new ArrayList<>();
 
-        if (isCanceled() || getStatus().equals(TaskStatus.ERROR)) {
-          return;
-        }
+    double searchedMass =
+        (row.getAverageMZ() - ionType.getAddedMass()) * Math.abs(ionType.getCharge());
 
-        if (molf != null) {
-          resultingFormulas.add(molf);
-        }
-      }
+    Range<Double> massRange = mzTolerance.getToleranceRange(searchedMass);
 
-      if (isCanceled()) {
+    for (IMolecularFormula cdkFormula : formulaTable.getFormulas(massRange, this::isCanceled,
+        generators)) {
+      // Mass is ok, so test other constraints
+      ResultFormula molf = checkConstraints(cdkFormula, row, searchedMass);
+
+      if (isCanceled() || rowError.get() != null) {
         return;
       }
 
-      // Add the new formula entry top results
-      if (!resultingFormulas.isEmpty()) {
-        FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
-            sortMSMSFactor);
-        row.setFormulas(resultingFormulas.subList(0,
-            Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
+      if (molf != null) {
+        resultingFormulas.add(molf);
       }
-
-      if (isCanceled()) {
-        return;
-      }
-      finishedRows++;
     }
 
-    if (isCanceled()) {
-      return;
+    // Add the new formula entry top results
+    if (!resultingFormulas.isEmpty()) {
+      FormulaUtils.sortFormulaList(resultingFormulas, sortPPMFactor, sortIsotopeFactor,
+          sortMSMSFactor);
+      row.setFormulas(resultingFormulas.subList(0,
+          Math.min(resultingFormulas.size(), maxBestFormulasPerFeature)));
     }
-
-    featureList.getAppliedMethods().add(
-        new SimpleFeatureListAppliedMethod(FormulaPredictionFeatureListModule.class, parameters,
-            getModuleCallDate()));
-
-    logger.finest("Finished formula search for all the features");
-
-    setStatus(TaskStatus.FINISHED);
-
   }
 
   /**
@@ -301,8 +303,9 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
       final double detectedPatternHeight = detectedPattern.getBasePeakIntensity();
       final double minPredictedAbundance = isotopeNoiseLevel / detectedPatternHeight;
 
-      predictedIsotopePattern = IsotopePatternCalculator.calculateIsotopePattern(clonedFormula,
-          minPredictedAbundance, ionType.getCharge(), ionType.getPolarity());
+      predictedIsotopePattern = IsotopePatternCache.getInstance()
+          .calculateIsotopePattern(clonedFormula, minPredictedAbundance, ionType.getCharge(),
+              ionType.getPolarity());
 
       isotopeScore = IsotopePatternScoreCalculator.getSimilarityScore(detectedPattern,
           predictedIsotopePattern, isotopeMZTolerance, isotopeNoiseLevel);
@@ -322,8 +325,7 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
       if (msmsScan != null) {
         MassList ms2MassList = msmsScan.getMassList();
         if (ms2MassList == null) {
-          setStatus(TaskStatus.ERROR);
-          setErrorMessage(
+          rowError.compareAndSet(null,
               "The MS/MS scan #" + msmsScan.getScanNumber() + " in file " + msmsScan.getDataFile()
                   .getName() + " does not have a mass list");
           return null;
@@ -354,11 +356,8 @@ public class FormulaPredictionFeatureListTask extends AbstractTask {
   public void cancel() {
     super.cancel();
 
-    // We need to cancel the formula generator, because searching for next
+    // We need to cancel the formula generators, because searching for next
     // candidate formula may take a looong time
-    if (generator != null) {
-      generator.cancel();
-    }
-
+    generators.forEach(MolecularFormulaGenerator::cancel);
   }
 }
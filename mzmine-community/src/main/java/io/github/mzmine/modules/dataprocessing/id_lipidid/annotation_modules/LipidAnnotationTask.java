@@ -36,7 +36,6 @@ import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClassParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -44,14 +43,12 @@ import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.collections.BinarySearch;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import javafx.collections.ObservableList;
 import org.jetbrains.annotations.NotNull;
@@ -64,7 +61,7 @@ import org.jetbrains.annotations.NotNull;
 public class LipidAnnotationTask extends AbstractTask {
 
   private final Logger logger = Logger.getLogger(this.getClass().getName());
-  private double finishedSteps;
+  private final AtomicInteger finishedSteps = new AtomicInteger(0);
   private double totalSteps;
   private final FeatureList featureList;
   private ILipidClass[] selectedLipids;
@@ -156,7 +153,7 @@ public class LipidAnnotationTask extends AbstractTask {
     if (totalSteps == 0) {
       return 0;
     }
-    return (finishedSteps) / totalSteps;
+    return finishedSteps.get() / totalSteps;
   }
 
   /**
@@ -183,36 +180,28 @@ public class LipidAnnotationTask extends AbstractTask {
     totalSteps = rows.size();
     Set<PolarityType> polarityTypes = getPolarityTypes();
 
-    // build lipid species database
-    List<LipidIon> lipidDatabase = LipidAnnotationUtils.buildLipidDatabase(selectedLipids,
-        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
-        ionizationTypesToIgnore, polarityTypes);
-    List<LipidIon> sortedLipidDatabase = lipidDatabase.stream()
-        .sorted(Comparator.comparingDouble(LipidIon::mz)).toList();
+    // build lipid species database or reuse the database of a previous run
+    LipidIonDatabase lipidDatabase = LipidIonDatabase.getInstance(selectedLipids,
+        parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
+            .getEmbeddedParameters(), ionizationTypesToIgnore, polarityTypes);
 
     rows.parallelStream().forEach(row -> {
       Range<Double> mzTolRange = mzTolerance.getToleranceRange(row.getAverageMZ());
-      double lowerEdge = mzTolRange.lowerEndpoint();
       double upperEdge = mzTolRange.upperEndpoint();
-      int index = BinarySearch.binarySearch(lowerEdge, DefaultTo.GREATER_EQUALS,
-          sortedLipidDatabase.size(), i -> sortedLipidDatabase.get(i).mz());
+      int index = lipidDatabase.indexOf(mzTolRange);
       if (index >= 0) {
-        for (int i = index; i < sortedLipidDatabase.size(); i++) {
+        for (int i = index; i < lipidDatabase.size() && lipidDatabase.getMz(i) <= upperEdge;
+            i++) {
           if (isCanceled()) {
             return;
           }
 
-          LipidAnnotationUtils.findPossibleLipid(sortedLipidDatabase.get(i), row, parameters,
-              mzTolerance, mzToleranceMS2, searchForMSMSFragments, minMsMsScore,
-              keepUnconfirmedAnnotations,
-              sortedLipidDatabase.get(i).lipidAnnotation().getLipidClass().getCoreClass());
-
-          if (upperEdge < sortedLipidDatabase.get(i).mz()) {
-            break;
-          }
+          LipidAnnotationUtils.findPossibleLipid(lipidDatabase, i, row, mzTolerance,
+              mzToleranceMS2, searchForMSMSFragments, minMsMsScore, keepUnconfirmedAnnotations,
+              lipidDatabase.getIon(i).lipidAnnotation().getLipidClass().getCoreClass());
         }
       }
-      finishedSteps++;
+      finishedSteps.incrementAndGet();
     });
 
     // Add task description to featureList
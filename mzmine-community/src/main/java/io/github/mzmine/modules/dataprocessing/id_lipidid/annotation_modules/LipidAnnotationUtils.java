@@ -33,8 +33,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.ILipidFragmentFactory;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipid;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.molecular_species.GlyceroAndPhosphoMolecularSpeciesLevelMatchedLipidFactory;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.molecular_species.IMolecularSpeciesLevelMatchedLipidFactory;
@@ -52,7 +51,6 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFra
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidAnnotationResolver;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidFactory;
-import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -142,11 +140,16 @@ public class LipidAnnotationUtils {
     }
   }
 
-  public static void findPossibleLipid(LipidIon lipidIon, FeatureListRow row,
-      ParameterSet parameters, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
+  /**
+   * @param lipidDatabase the database
+   * @param index         index of the lipid ion in the m/z sorted database
+   */
+  public static void findPossibleLipid(LipidIonDatabase lipidDatabase, int index,
+      FeatureListRow row, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
       boolean searchForMSMSFragments, double minMsMsScore, boolean keepUnconfirmedAnnotations,
       LipidCategories lipidCategory) {
     Set<MatchedLipid> possibleRowAnnotations = new HashSet<>();
+    LipidIon lipidIon = lipidDatabase.getIon(index);
 
     if (Objects.requireNonNull(row.getBestFeature().getRepresentativeScan()).getPolarity()
         .equals(lipidIon.ionizationType().getPolarity())) {
@@ -159,8 +162,8 @@ public class LipidAnnotationUtils {
         if (searchForMSMSFragments) {
           possibleRowAnnotations.addAll(
               searchMsmsFragments(row, lipidIon.ionizationType(), lipidIon.lipidAnnotation(),
-                  parameters, mzToleranceMS2, minMsMsScore, keepUnconfirmedAnnotations,
-                  lipidCategory));
+                  lipidDatabase.getFragments(index), mzToleranceMS2, minMsMsScore,
+                  keepUnconfirmedAnnotations, lipidCategory));
         } else {
 
           // make MS1 annotation
@@ -178,13 +181,14 @@ public class LipidAnnotationUtils {
 
   /**
    * This method searches for MS/MS fragments. A mass list for MS2 scans will be used if present.
+   *
+   * @param theoreticalFragments the precalculated fragments of this lipid ion
    */
   private static Set<MatchedLipid> searchMsmsFragments(FeatureListRow row,
-      IonizationType ionization, ILipidAnnotation lipid, ParameterSet parameters,
-      MZTolerance mzToleranceMS2, double minMsMsScore, boolean keepUnconfirmedAnnotations,
-      LipidCategories lipidCategory) {
+      IonizationType ionization, ILipidAnnotation lipid,
+      TheoreticalLipidFragments theoreticalFragments, MZTolerance mzToleranceMS2,
+      double minMsMsScore, boolean keepUnconfirmedAnnotations, LipidCategories lipidCategory) {
     Set<MatchedLipid> matchedLipids = new HashSet<>();
-    LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
     // Check if selected feature has MSMS spectra and LipidIdentity
     if (!row.getAllFragmentScans().isEmpty()) {
       List<Scan> msmsScans = row.getAllFragmentScans();
@@ -195,17 +199,8 @@ public class LipidAnnotationUtils {
         }
         DataPoint[] dataPoints = null;
         dataPoints = msmsScan.getMassList().getDataPoints();
-        Set<LipidFragment> annotatedFragments = new HashSet<>();
-        if (rules != null && rules.length > 0) {
-          ILipidFragmentFactory lipidFragmentFactory = new LipidFragmentFactory(mzToleranceMS2,
-              lipid, ionization, rules, msmsScan,
-              parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
-                  .getEmbeddedParameters());
-          List<LipidFragment> annotatedFragmentsForDataPoint = lipidFragmentFactory.findLipidFragments();
-          if (annotatedFragmentsForDataPoint != null && !annotatedFragmentsForDataPoint.isEmpty()) {
-            annotatedFragments.addAll(annotatedFragmentsForDataPoint);
-          }
-        }
+        Set<LipidFragment> annotatedFragments = new HashSet<>(
+            theoreticalFragments.findFragments(msmsScan, mzToleranceMS2));
         if (!annotatedFragments.isEmpty()) {
           ISpeciesLevelMatchedLipidFactory matchedLipidFactory = getSpeciesLevelMatchedLipidFactory(
               lipidCategory);
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IonizationType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The lipid ions of a set of lipid classes and chain parameters, sorted by m/z. The theoretical
+ * MS/MS fragments of each ion are calculated on first use and kept with the database. Databases
+ * are shared between tasks with the same lipid classes, chain parameters, ions and polarities so
+ * that batch runs over many feature lists only build them once.
+ */
+public final class LipidIonDatabase {
+
+  private static final Logger logger = Logger.getLogger(LipidIonDatabase.class.getName());
+
+  /**
+   * Maximum number of databases kept in memory
+   */
+  private static final int MAX_CACHED_DATABASES = 4;
+
+  private static final Map<Key, LipidIonDatabase> DATABASES = new LinkedHashMap<>(
+      MAX_CACHED_DATABASES, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, LipidIonDatabase> eldest) {
+      return size() > MAX_CACHED_DATABASES;
+    }
+  };
+
+  /**
+   * lipid ions in the order of creation. Ions of the same lipid are consecutive.
+   */
+  private final List<LipidIon> ions;
+  private final LipidIon[] sortedIons;
+  private final double[] sortedMzs;
+  private final AtomicReferenceArray<TheoreticalLipidFragments> fragments;
+  private final LipidAnnotationChainParameters chainParameters;
+
+  private LipidIonDatabase(List<LipidIon> ions, LipidAnnotationChainParameters chainParameters) {
+    this.ions = List.copyOf(ions);
+    this.chainParameters = chainParameters;
+    sortedIons = ions.toArray(LipidIon[]::new);
+    Arrays.sort(sortedIons, Comparator.comparingDouble(LipidIon::mz));
+    sortedMzs = new double[sortedIons.length];
+    for (int i = 0; i < sortedIons.length; i++) {
+      sortedMzs[i] = sortedIons[i].mz();
+    }
+    fragments = new AtomicReferenceArray<>(sortedIons.length);
+  }
+
+  /**
+   * @param ionizationTypesToIgnore ionization types that are not added, may be null
+   * @param polarityTypes           only ions of these polarities are added
+   * @return a shared database for these parameters
+   */
+  public static LipidIonDatabase getInstance(ILipidClass[] lipidClasses,
+      LipidAnnotationChainParameters chainParameters,
+      @Nullable IonizationType[] ionizationTypesToIgnore, Set<PolarityType> polarityTypes) {
+    final int minChainLength = chainParameters.getValue(
+        LipidAnnotationChainParameters.minChainLength);
+    final int maxChainLength = chainParameters.getValue(
+        LipidAnnotationChainParameters.maxChainLength);
+    final int minDoubleBonds = chainParameters.getValue(LipidAnnotationChainParameters.minDBEs);
+    final int maxDoubleBonds = chainParameters.getValue(LipidAnnotationChainParameters.maxDBEs);
+    final boolean onlySearchForEvenChains = chainParameters.getValue(
+        LipidAnnotationChainParameters.onlySearchForEvenChainLength);
+
+    final Set<IonizationType> ignored = EnumSet.noneOf(IonizationType.class);
+    if (ionizationTypesToIgnore != null) {
+      ignored.addAll(Arrays.asList(ionizationTypesToIgnore));
+    }
+    final Key key = new Key(Arrays.stream(lipidClasses).map(LipidIonDatabase::describe).toList(),
+        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+        ignored, polarityTypes.isEmpty() ? Set.of() : EnumSet.copyOf(polarityTypes));
+
+    synchronized (DATABASES) {
+      final LipidIonDatabase database = DATABASES.get(key);
+      if (database != null) {
+        return database;
+      }
+    }
+
+    final List<LipidIon> ions = LipidAnnotationUtils.buildLipidDatabase(lipidClasses,
+        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
+        ionizationTypesToIgnore, polarityTypes);
+    final LipidIonDatabase database = new LipidIonDatabase(ions,
+        (LipidAnnotationChainParameters) chainParameters.cloneParameterSet());
+    logger.finest(() -> "Created lipid database with " + ions.size() + " ions");
+
+    synchronized (DATABASES) {
+      // another task may have created the same database in the meantime
+      final LipidIonDatabase existing = DATABASES.putIfAbsent(key, database);
+      return existing != null ? existing : database;
+    }
+  }
+
+  /**
+   * The lipid classes are compared by their content, as custom lipid classes do not implement
+   * equals.
+   */
+  private static String describe(ILipidClass lipidClass) {
+    final StringBuilder b = new StringBuilder().append(lipidClass.getClass().getName()).append(';')
+        .append(lipidClass.getName()).append(';').append(lipidClass.getAbbr()).append(';')
+        .append(lipidClass.getBackBoneFormula()).append(';')
+        .append(Arrays.toString(lipidClass.getChainTypes()));
+    // custom lipid classes may not define rules
+    for (LipidFragmentationRule rule : Objects.requireNonNullElse(
+        lipidClass.getFragmentationRules(), new LipidFragmentationRule[0])) {
+      b.append(';').append(rule.getPolarityType()).append(',').append(rule.getIonizationType())
+          .append(',').append(rule.getLipidFragmentationRuleType()).append(',')
+          .append(rule.getLipidFragmentInformationLevelType()).append(',')
+          .append(rule.getMolecularFormula()).append(',')
+          .append(rule.getLipidFragmentationRuleRating());
+    }
+    return b.toString();
+  }
+
+  public int size() {
+    return sortedIons.length;
+  }
+
+  /**
+   * @return all ions in the order of creation. Ions of the same lipid are consecutive.
+   */
+  public @NotNull List<LipidIon> getIons() {
+    return ions;
+  }
+
+  /**
+   * @param index index in the m/z sorted database
+   */
+  public @NotNull LipidIon getIon(int index) {
+    return sortedIons[index];
+  }
+
+  /**
+   * @param index index in the m/z sorted database
+   */
+  public double getMz(int index) {
+    return sortedMzs[index];
+  }
+
+  /**
+   * @return the index of the first ion with an m/z within the range or -1 if there is none. The
+   * following ions up to {@link Range#upperEndpoint()} are all within the range.
+   */
+  public int indexOf(@NotNull Range<Double> mzRange) {
+    int index = BinarySearch.binarySearch(sortedMzs, mzRange.lowerEndpoint(),
+        DefaultTo.GREATER_EQUALS);
+    // exact matches may point to any of several ions with the same m/z
+    while (index > 0 && sortedMzs[index - 1] == sortedMzs[index]) {
+      index--;
+    }
+    if (index < 0 || sortedMzs[index] > mzRange.upperEndpoint()) {
+      return -1;
+    }
+    return index;
+  }
+
+  /**
+   * @param index index in the m/z sorted database
+   * @return the theoretical fragments of the ion, calculated on first access
+   */
+  public @NotNull TheoreticalLipidFragments getFragments(int index) {
+    final TheoreticalLipidFragments existing = fragments.get(index);
+    if (existing != null) {
+      return existing;
+    }
+    final LipidIon ion = sortedIons[index];
+    final TheoreticalLipidFragments created = new LipidFragmentFactory(ion.lipidAnnotation(),
+        ion.ionizationType(), ion.lipidAnnotation().getLipidClass().getFragmentationRules(),
+        chainParameters).createTheoreticalFragments();
+    return fragments.compareAndSet(index, null, created) ? created : fragments.get(index);
+  }
+
+  private record Key(List<String> lipidClasses, int minChainLength, int maxChainLength,
+                     int minDoubleBonds, int maxDoubleBonds, boolean onlySearchForEvenChains,
+                     Set<IonizationType> ionizationTypesToIgnore,
+                     Set<PolarityType> polarityTypes) {
+
+  }
+}
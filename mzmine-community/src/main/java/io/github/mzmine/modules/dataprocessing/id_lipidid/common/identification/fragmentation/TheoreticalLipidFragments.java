@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFragment;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * All theoretical fragments of one lipid ion. The fragments only depend on the lipid, the
+ * ionization, the fragmentation rules and the chain parameters, so they are calculated once by
+ * the {@link LipidFragmentFactory} and matched against any number of MS/MS scans. Fragments are
+ * kept in the order of the rules.
+ */
+public final class TheoreticalLipidFragments {
+
+  private final ILipidClass lipidClass;
+  private final LipidFragmentationRule[] rules;
+  private final double[] mzs;
+  private final String[] ionFormulas;
+  /**
+   * chain information, only set if the chain type is not null
+   */
+  private final LipidChainType[] chainTypes;
+  private final int[] chainLengths;
+  private final int[] numberOfDBEs;
+  private final int[] numberOfOxygens;
+
+  private TheoreticalLipidFragments(Builder builder) {
+    lipidClass = builder.lipidClass;
+    rules = builder.rules.toArray(LipidFragmentationRule[]::new);
+    mzs = builder.mzs.toDoubleArray();
+    ionFormulas = builder.ionFormulas.toArray(String[]::new);
+    chainTypes = builder.chainTypes.toArray(LipidChainType[]::new);
+    chainLengths = builder.chainLengths.toIntArray();
+    numberOfDBEs = builder.numberOfDBEs.toIntArray();
+    numberOfOxygens = builder.numberOfOxygens.toIntArray();
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  public String getIonFormula(int index) {
+    return ionFormulas[index];
+  }
+
+  public LipidFragmentationRule getRule(int index) {
+    return rules[index];
+  }
+
+  /**
+   * @return all fragments that were found in the mass list of the scan. The most intense signal
+   * within the tolerance is matched to each fragment.
+   */
+  public @NotNull List<LipidFragment> findFragments(@NotNull Scan msMsScan,
+      @NotNull MZTolerance mzToleranceMS2) {
+    final MassList massList = msMsScan.getMassList();
+    if (massList == null || mzs.length == 0) {
+      return List.of();
+    }
+
+    final List<LipidFragment> matched = new ArrayList<>();
+    final int numberOfDataPoints = massList.getNumberOfDataPoints();
+    for (int f = 0; f < mzs.length; f++) {
+      final double mzExact = mzs[f];
+      final Range<Double> toleranceRange = mzToleranceMS2.getToleranceRange(mzExact);
+      final int index = massList.binarySearch(toleranceRange.lowerEndpoint(),
+          DefaultTo.GREATER_EQUALS);
+      if (index < 0) {
+        continue;
+      }
+
+      double maxIntensity = 0.0;
+      double bestMzValue = 0.0;
+      boolean fragmentMatched = false;
+      for (int i = index; i < numberOfDataPoints; i++) {
+        final double intensity = massList.getIntensityValue(i);
+        final double mzValue = massList.getMzValue(i);
+        final Range<Double> mzTolRangeMSMS = mzToleranceMS2.getToleranceRange(mzValue);
+        if (mzTolRangeMSMS.contains(mzExact) && intensity > maxIntensity) {
+          maxIntensity = intensity;
+          bestMzValue = mzValue;
+          fragmentMatched = true;
+        }
+        if (mzTolRangeMSMS.upperEndpoint() < mzValue) {
+          break;
+        }
+      }
+
+      if (fragmentMatched) {
+        matched.add(createFragment(f, bestMzValue, maxIntensity, msMsScan));
+      }
+    }
+    return matched;
+  }
+
+  private LipidFragment createFragment(int f, double mz, double intensity, Scan msMsScan) {
+    final LipidFragmentationRule rule = rules[f];
+    final LipidChainType chainType = chainTypes[f];
+    return new LipidFragment(rule.getLipidFragmentationRuleType(),
+        rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
+        mzs[f], ionFormulas[f], new SimpleDataPoint(mz, intensity), lipidClass,
+        chainType == null ? null : chainLengths[f], chainType == null ? null : numberOfDBEs[f],
+        chainType == null ? null : numberOfOxygens[f], chainType, msMsScan);
+  }
+
+  static final class Builder {
+
+    private final ILipidClass lipidClass;
+    private final List<LipidFragmentationRule> rules = new ArrayList<>();
+    private final DoubleArrayList mzs = new DoubleArrayList();
+    private final List<String> ionFormulas = new ArrayList<>();
+    private final List<LipidChainType> chainTypes = new ArrayList<>();
+    private final IntArrayList chainLengths = new IntArrayList();
+    private final IntArrayList numberOfDBEs = new IntArrayList();
+    private final IntArrayList numberOfOxygens = new IntArrayList();
+
+    Builder(ILipidClass lipidClass) {
+      this.lipidClass = lipidClass;
+    }
+
+    void add(LipidFragmentationRule rule, double mz, String ionFormula) {
+      add(rule, mz, ionFormula, null, 0, 0, 0);
+    }
+
+    void add(LipidFragmentationRule rule, double mz, String ionFormula,
+        @Nullable LipidChainType chainType, int chainLength, int dbes, int oxygens) {
+      rules.add(rule);
+      mzs.add(mz);
+      ionFormulas.add(ionFormula);
+      chainTypes.add(chainType);
+      chainLengths.add(chainLength);
+      numberOfDBEs.add(dbes);
+      numberOfOxygens.add(oxygens);
+    }
+
+    TheoreticalLipidFragments build() {
+      return new TheoreticalLipidFragments(this);
+    }
+  }
+}
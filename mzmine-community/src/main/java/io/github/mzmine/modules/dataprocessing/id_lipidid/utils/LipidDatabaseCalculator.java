@@ -25,147 +25,159 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.utils;
 
-import io.github.mzmine.datamodel.IonizationType;
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidIonDatabase;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.species_level.SpeciesLevelAnnotation;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClassDescription;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.stream.Collectors;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
+/**
+ * Creates the lipid database table from the same {@link LipidIonDatabase} that is used by the
+ * lipid annotation.
+ */
 public class LipidDatabaseCalculator {
 
-  private static final LipidFactory LIPID_FACTORY = new LipidFactory();
-
-  private int minChainLength;
-  private int maxChainLength;
-  private int minDoubleBonds;
-  private int maxDoubleBonds;
-  private Boolean onlySearchForEvenChains;
-  private MZTolerance mzTolerance;
-  private ILipidClass[] selectedLipids;
+  private final LipidAnnotationChainParameters chainParameters;
+  private final MZTolerance mzTolerance;
+  private final ILipidClass[] selectedLipids;
 
   private final ObservableList<LipidClassDescription> tableData = FXCollections.observableArrayList();
+  /**
+   * all ions of the table, in the order of the table
+   */
+  private final List<TableIon> tableIons = new ArrayList<>();
 
   public LipidDatabaseCalculator(ParameterSet parameters, ILipidClass[] selectedLipids) {
-
-    this.minChainLength = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters().getParameter(LipidAnnotationChainParameters.minChainLength)
-        .getValue();
-    this.maxChainLength = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters().getParameter(LipidAnnotationChainParameters.maxChainLength)
-        .getValue();
-    this.minDoubleBonds = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters().getParameter(LipidAnnotationChainParameters.minDBEs).getValue();
-    this.maxDoubleBonds = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters().getParameter(LipidAnnotationChainParameters.maxDBEs).getValue();
-    this.onlySearchForEvenChains = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters).getEmbeddedParameters()
-        .getParameter(LipidAnnotationChainParameters.onlySearchForEvenChainLength).getValue();
+    this.chainParameters = parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
+        .getEmbeddedParameters();
     this.mzTolerance = parameters.getParameter(LipidAnnotationParameters.mzTolerance).getValue();
     this.selectedLipids = selectedLipids;
-
   }
 
   public ObservableList<LipidClassDescription> createTableData() {
+    final LipidIonDatabase database = LipidIonDatabase.getInstance(selectedLipids, chainParameters,
+        null, EnumSet.allOf(PolarityType.class));
+    final NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+
+    final List<LipidIon> ions = database.getIons();
     int id = 1;
-    for (ILipidClass selectedLipid : selectedLipids) {
-      // TODO starting point to extend for better oxidized lipid support
-      int numberOfAdditionalOxygens = 0;
-      int minTotalChainLength = minChainLength * selectedLipid.getChainTypes().length;
-      int maxTotalChainLength = maxChainLength * selectedLipid.getChainTypes().length;
-      int minTotalDoubleBonds = minDoubleBonds * selectedLipid.getChainTypes().length;
-      int maxTotalDoubleBonds = maxDoubleBonds * selectedLipid.getChainTypes().length;
-      for (int chainLength = minTotalChainLength; chainLength <= maxTotalChainLength; chainLength++) {
-        if (onlySearchForEvenChains && chainLength % 2 != 0) {
-          continue;
-        }
-        for (int chainDoubleBonds = minTotalDoubleBonds; chainDoubleBonds <= maxTotalDoubleBonds;
-            chainDoubleBonds++) {
-
-          if (chainLength / 2 < chainDoubleBonds || chainLength == 0) {
-            continue;
-          }
-          // Prepare a lipid instance
-          SpeciesLevelAnnotation lipid = LIPID_FACTORY.buildSpeciesLevelLipid(selectedLipid,
-              chainLength, chainDoubleBonds, numberOfAdditionalOxygens);
-          if (lipid == null) {
-            continue;
-          }
-          List<LipidFragmentationRule> fragmentationRules = Arrays.asList(selectedLipid.getFragmentationRules());
-          StringBuilder fragmentationRuleSB = new StringBuilder();
-          fragmentationRules.stream().forEach(rule -> {
-            fragmentationRuleSB.append(rule.toString()).append("\n");
-          });
-          StringBuilder exactMassSB = new StringBuilder();
-          Set<IonizationType> ionizationTypes = fragmentationRules.stream().map(LipidFragmentationRule::getIonizationType).collect(Collectors.toSet());
-          for (IonizationType ionizationType : ionizationTypes) {
-            double mz = MolecularFormulaManipulator.getMass(lipid.getMolecularFormula(),
-                AtomContainerManipulator.MonoIsotopic) + ionizationType.getAddedMass();
-            exactMassSB.append(ionizationType.getAdductName()).append(" ").append(MZmineCore.getConfiguration().getMZFormat().format(mz)).append("\n");
-          }
-          tableData.add(new LipidClassDescription(String.valueOf(id), // id
-              selectedLipid.getName(), // lipid class
-              MolecularFormulaManipulator.getString(lipid.getMolecularFormula()), // molecular
-              // formula
-              lipid.getAnnotation(),
-              // abbr
-              exactMassSB.toString(), // exact mass
-              // mass
-              "", // info
-              "", // status
-              fragmentationRuleSB.toString())); // msms fragments
-          id++;
-        }
+    // ions of the same lipid are consecutive
+    for (int start = 0, end; start < ions.size(); start = end) {
+      final ILipidAnnotation lipid = ions.get(start).lipidAnnotation();
+      end = start + 1;
+      while (end < ions.size() && ions.get(end).lipidAnnotation() == lipid) {
+        end++;
       }
+
+      final ILipidClass lipidClass = lipid.getLipidClass();
+      StringBuilder fragmentationRuleSB = new StringBuilder();
+      for (LipidFragmentationRule rule : lipidClass.getFragmentationRules()) {
+        fragmentationRuleSB.append(rule.toString()).append("\n");
+      }
+      StringBuilder exactMassSB = new StringBuilder();
+      for (int i = start; i < end; i++) {
+        final LipidIon ion = ions.get(i);
+        final String adduct = ion.ionizationType().getAdductName();
+        final String mz = mzFormat.format(ion.mz());
+        exactMassSB.append(adduct).append(" ").append(mz).append("\n");
+        tableIons.add(new TableIon(tableIons.size(), tableData.size(), adduct, ion.mz(), mz));
+      }
+      tableData.add(new LipidClassDescription(String.valueOf(id), // id
+          lipidClass.getName(), // lipid class
+          MolecularFormulaManipulator.getString(lipid.getMolecularFormula()), // molecular
+          // formula
+          lipid.getAnnotation(),
+          // abbr
+          exactMassSB.toString(), // exact mass
+          // mass
+          "", // info
+          "", // status
+          fragmentationRuleSB.toString())); // msms fragments
+      id++;
     }
     return tableData;
   }
 
+  /**
+   * Adds a note to all lipids with ions that interfere with ions of other lipids. The ions are
+   * sorted by m/z so that only the ions within the m/z tolerance are compared.
+   */
   public void checkInterferences() {
-    for (int i = 0; i < tableData.size(); i++) {
-      LipidClassDescription lipidClassDescription = tableData.get(i);
-      Map<String, Double> ionSpecificMzValues = extractIonNotationMzValuesFromTable(
-          lipidClassDescription);
-      for (Entry<String, Double> entry : ionSpecificMzValues.entrySet()) {
-        for (int j = 0; j < tableData.size(); j++) {
-          if (i == j) {
-            continue;
-          }
-          StringBuilder sb = new StringBuilder();
-          LipidClassDescription lipidClassDescriptionCompare = tableData.get(j);
-          Map<String, Double> ionSpecificMzValuesCompare = extractIonNotationMzValuesFromTable(
-              lipidClassDescriptionCompare);
-          for (Entry<String, Double> entryCompare : ionSpecificMzValuesCompare.entrySet()) {
-            double valueOne = entry.getValue();
-            double valueTwo = entryCompare.getValue();
-            if (valueOne == valueTwo && isSamePolarity(entry.getKey(), entryCompare.getKey())) {
-              if (!sb.isEmpty()) {
-                sb.append("\n");
-              }
-              sb.append(entryCompare.getKey()).append(" interference with ").append(lipidClassDescription.getAbbreviation()).append(" ")
-                  .append(entry.getKey());
-            } else if (mzTolerance.checkWithinTolerance(valueOne, valueTwo) && isSamePolarity(entry.getKey(), entryCompare.getKey())) {
-              double delta = valueOne - valueTwo;
-              if (!sb.isEmpty()) {
-                sb.append("\n");
-              }
-              sb.append(entryCompare.getKey()).append(" possible interference with ").append(lipidClassDescription.getAbbreviation()).append(" ")
-                  .append(entry.getKey()).append(" \u0394 ").append(MZmineCore.getConfiguration().getMZFormat().format(delta));
-            }
-          }
-          if (!sb.isEmpty()) {
-            lipidClassDescriptionCompare.setInfo(lipidClassDescriptionCompare.getInfo() + "\n" + sb);
-          }
+    final TableIon[] sorted = tableIons.toArray(TableIon[]::new);
+    Arrays.sort(sorted, Comparator.comparingDouble(TableIon::mz));
+    final double[] sortedMzs = new double[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      sortedMzs[i] = sorted[i].mz();
+    }
+    final NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+
+    final IntArrayList interfering = new IntArrayList();
+    for (final TableIon ion : tableIons) {
+      final LipidClassDescription lipidClassDescription = tableData.get(ion.row());
+      final Range<Double> toleranceRange = mzTolerance.getToleranceRange(ion.mz());
+      int index = BinarySearch.binarySearch(sortedMzs, toleranceRange.lowerEndpoint(),
+          DefaultTo.GREATER_EQUALS);
+      if (index < 0) {
+        continue;
+      }
+      while (index > 0 && sortedMzs[index - 1] == sortedMzs[index]) {
+        index--;
+      }
+
+      interfering.clear();
+      for (int i = index; i < sorted.length && sortedMzs[i] <= toleranceRange.upperEndpoint();
+          i++) {
+        final TableIon other = sorted[i];
+        if (other.row() != ion.row() && isSamePolarity(ion.ionNotation(), other.ionNotation())) {
+          interfering.add(other.index());
+        }
+      }
+      // report in the order of the table
+      interfering.sort(null);
+
+      StringBuilder sb = new StringBuilder();
+      for (int k = 0; k < interfering.size(); k++) {
+        final TableIon other = tableIons.get(interfering.getInt(k));
+        if (!sb.isEmpty()) {
+          sb.append("\n");
+        }
+        if (ion.formattedMz().equals(other.formattedMz())) {
+          sb.append(other.ionNotation()).append(" interference with ")
+              .append(lipidClassDescription.getAbbreviation()).append(" ")
+              .append(ion.ionNotation());
+        } else {
+          double delta = ion.mz() - other.mz();
+          sb.append(other.ionNotation()).append(" possible interference with ")
+              .append(lipidClassDescription.getAbbreviation()).append(" ")
+              .append(ion.ionNotation()).append(" \u0394 ").append(mzFormat.format(delta));
+        }
+        final boolean lastOfRow = k == interfering.size() - 1
+            || tableIons.get(interfering.getInt(k + 1)).row() != other.row();
+        if (lastOfRow) {
+          final LipidClassDescription lipidClassDescriptionCompare = tableData.get(other.row());
+          lipidClassDescriptionCompare.setInfo(
+              lipidClassDescriptionCompare.getInfo() + "\n" + sb);
+          sb = new StringBuilder();
         }
       }
     }
@@ -175,19 +187,6 @@ public class LipidDatabaseCalculator {
     return ((key.contains("]+") && key2.contains("]+")) || (key.contains("]-") && key2.contains("]-")));
   }
 
-  private Map<String, Double> extractIonNotationMzValuesFromTable(LipidClassDescription lipidClassDescription) {
-    Map<String, Double> ionSpecificMzValues = new HashMap<>();
-    String allPairs = lipidClassDescription.getExactMass();
-    String[] pairs = allPairs.split("\n");
-    for (String s : pairs) {
-      String[] pair = s.split(" ");
-      if (pair.length > 1) {
-        ionSpecificMzValues.put(pair[0], Double.parseDouble(pair[1]));
-      }
-    }
-    return ionSpecificMzValues;
-  }
-
   public ObservableList<LipidClassDescription> getTableData() {
     return tableData;
   }
@@ -195,4 +194,13 @@ public class LipidDatabaseCalculator {
   public MZTolerance getMzTolerance() {
     return mzTolerance;
   }
+
+  /**
+   * @param index       index of the ion in the table ions
+   * @param row         index of the lipid in the table
+   * @param formattedMz the m/z as shown in the table
+   */
+  private record TableIon(int index, int row, String ionNotation, double mz, String formattedMz) {
+
+  }
 }
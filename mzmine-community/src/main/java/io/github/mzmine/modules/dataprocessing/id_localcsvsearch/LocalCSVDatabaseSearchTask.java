@@ -25,7 +25,6 @@
 
 package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
@@ -57,6 +56,7 @@ import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
 import io.github.mzmine.datamodel.features.types.numbers.NeutralMassType;
 import io.github.mzmine.datamodel.features.types.numbers.PrecursorMZType;
 import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.datamodel.identities.iontype.IonTypeParser;
 import io.github.mzmine.gui.DesktopService;
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
@@ -70,8 +70,8 @@ import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.M
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.CSVParsingUtils;
-import io.github.mzmine.util.FeatureListRowSorter;
-import io.github.mzmine.util.FeatureListUtils;
+import io.github.mzmine.util.annotations.PrecursorMzIndex;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.File;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -80,13 +80,13 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.transformation.SortedList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -145,8 +145,24 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   private final List<RawDataFile> allRawDataFiles;
   private IonNetworkLibrary ionNetworkLibrary;
 
-  private List<String[]> databaseValues;
-  private int finishedLines = 0;
+  /**
+   * the csv lines, only the imported columns are retained
+   */
+  private final List<String[]> databaseRecords = new ArrayList<>();
+  private String[] header;
+  private List<ImportType> lineIds;
+  private List<ImportType> commentFields;
+  /**
+   * adducts of the ion library, the variants of the {@link #index}
+   */
+  private List<IonType> adducts;
+  private PrecursorMzIndex index;
+  /**
+   * the base annotations are created on the first match of a record
+   */
+  private AtomicReferenceArray<CompoundDBAnnotation> baseAnnotations;
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private int totalRows;
   private int sampleColIndex = -1;
 
   LocalCSVDatabaseSearchTask(FeatureList[] featureLists, ParameterSet parameters,
@@ -207,10 +223,10 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    if (databaseValues == null) {
+    if (totalRows == 0) {
       return 0;
     }
-    return ((double) finishedLines) / databaseValues.size();
+    return ((double) processedRows.get()) / totalRows;
   }
 
   @Override
@@ -222,84 +238,64 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
-    try {
-      // read database contents in memory
-      databaseValues = CSVParsingUtils.readData(dataBaseFile, fieldSeparator);
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Could not read file " + dataBaseFile, e);
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage(e.getMessage());
-      return;
-    }
-
     try {
       ionNetworkLibrary =
           ionLibraryParameterSet != null ? new IonNetworkLibrary(ionLibraryParameterSet,
               mzTolerance) : null;
-
-      final StringProperty error = new SimpleStringProperty();
-      final List<ImportType> lineIds = CSVParsingUtils.findLineIds(importTypes,
-          databaseValues.getFirst(), error);
-      if (lineIds == null) {
-        setErrorMessage(error.get());
-        DesktopService.getDesktop().displayErrorMessage(error.get());
-        setStatus(TaskStatus.ERROR);
-        return;
-      }
-
-      // option to read more fields and append to comment as json
-      List<ImportType> commentFields = extractCommentFields();
-      if (commentFields == null) {
-        setStatus(TaskStatus.ERROR);
-        return;
-      }
-
-      // sample header index
-      if (filterSamples) {
-        sampleColIndex = getHeaderColumnIndex(databaseValues.getFirst(), sampleHeader);
-        if (sampleColIndex == -1) {
-          setErrorMessage("Sample header " + sampleHeader + " not found");
-          setStatus(TaskStatus.ERROR);
-          return;
-        }
-      }
-
-      // extract rows and sort by mz for binary search
-      var mzSortedRows = Arrays.stream(featureLists)
-          .map(flist -> flist.getRows().sorted(FeatureListRowSorter.MZ_ASCENDING)).toList();
-
-      for (String[] currentLine : databaseValues) {
-        if (finishedLines == 0) {
-          finishedLines++;
-          continue; // skip header
+      adducts = ionNetworkLibrary != null ? CompoundDBAnnotation.getIonizableAdducts(
+          ionNetworkLibrary) : null;
+
+      // stream the database into the m/z sorted index
+      final PrecursorMzIndex.Builder builder = PrecursorMzIndex.builder();
+      final AtomicInteger line = new AtomicInteger(0);
+      CSVParsingUtils.readData(dataBaseFile, fieldSeparator, values -> {
+        if (line.getAndIncrement() == 0) {
+          return readHeader(values);
         }
         if (isCanceled()) {
-          return;
+          return false;
         }
         try {
-          // check already once for all raw data files
-          if (filterSamples && !matchSample(allRawDataFiles, currentLine[sampleColIndex])) {
-            // sample mismatch for this line
-            continue;
-          }
-
-          processOneLine(mzSortedRows, currentLine, lineIds, commentFields);
+          addToIndex(builder, values);
         } catch (Exception e) {
-          logger.log(Level.FINE, "Exception while processing csv line " + finishedLines, e);
+          logger.log(Level.FINE, "Exception while processing csv line " + line.get(), e);
         }
-        finishedLines++;
+        return true;
+      });
+      if (isCanceled() || getStatus() == TaskStatus.ERROR) {
+        return;
+      }
+      if (header == null) {
+        error("Database " + dataBaseFile + " is empty");
+        return;
       }
+      index = builder.build();
+      baseAnnotations = new AtomicReferenceArray<>(databaseRecords.size());
+      logger.fine(() -> "Indexed " + index.size() + " ions of " + databaseRecords.size()
+          + " compounds in " + dataBaseFile);
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Could not read file " + dataBaseFile, e);
+      setStatus(TaskStatus.ERROR);
+      setErrorMessage(e.getMessage());
+      return;
+    }
 
-      for (final SortedList<FeatureListRow> flist : mzSortedRows) {
-        for (final FeatureListRow row : flist) {
-          var matches = row.getCompoundAnnotations().stream().sorted()
-              .collect(Collectors.toCollection(ArrayList::new));
-          if (matches.isEmpty()) {
-            continue;
+    try {
+      totalRows = Arrays.stream(featureLists).mapToInt(FeatureList::getNumberOfRows).sum();
+      for (final FeatureList flist : featureLists) {
+        // not all feature lists have all samples
+        final List<RawDataFile> rawFiles = flist.getRawDataFiles();
+        flist.getRows().parallelStream().forEach(row -> {
+          if (!isCanceled()) {
+            annotateRow(row, rawFiles);
+            processedRows.incrementAndGet();
           }
-          row.setCompoundAnnotations(matches);
+        });
+        if (isCanceled()) {
+          return;
         }
       }
+
       if (isotopePatternMatcherParameters != null) {
         for (FeatureList flist : featureLists) {
           refineAnnotationsByIsotopes(flist);
@@ -308,7 +304,7 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
 
     } catch (Exception e) {
-      logger.log(Level.WARNING, "Could not read file " + dataBaseFile, e);
+      logger.log(Level.WARNING, "Could not annotate with database " + dataBaseFile, e);
       setStatus(TaskStatus.ERROR);
       setErrorMessage(e.getMessage());
       return;
@@ -325,6 +321,142 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   }
 
+  /**
+   * Finds the columns in the header line
+   *
+   * @return false on error
+   */
+  private boolean readHeader(final String[] values) {
+    header = values;
+    final StringProperty error = new SimpleStringProperty();
+    lineIds = CSVParsingUtils.findLineIds(importTypes, header, error);
+    if (lineIds == null) {
+      setErrorMessage(error.get());
+      DesktopService.getDesktop().displayErrorMessage(error.get());
+      setStatus(TaskStatus.ERROR);
+      return false;
+    }
+
+    // option to read more fields and append to comment as json
+    commentFields = extractCommentFields();
+    if (commentFields == null) {
+      setStatus(TaskStatus.ERROR);
+      return false;
+    }
+
+    // sample header index
+    if (filterSamples) {
+      sampleColIndex = getHeaderColumnIndex(header, sampleHeader);
+      if (sampleColIndex == -1) {
+        setErrorMessage("Sample header " + sampleHeader + " not found");
+        setStatus(TaskStatus.ERROR);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds one entry per adduct of the csv line to the index. The annotation is only used to
+   * calculate the m/z and is created again if the entry matches a feature.
+   */
+  private void addToIndex(final PrecursorMzIndex.Builder builder, final String[] values) {
+    // check already once for all raw data files
+    if (filterSamples && !matchSample(allRawDataFiles, values[sampleColIndex])) {
+      // sample mismatch for this line
+      return;
+    }
+
+    final CompoundDBAnnotation annotation = getCompoundFromLine(values, lineIds, commentFields);
+    final int record = databaseRecords.size();
+    final int entries = builder.size();
+    if (adducts == null) {
+      final Double mz = annotation.getPrecursorMZ();
+      if (mz == null) {
+        return;
+      }
+      builder.add(mz, annotation.getRT(), annotation.getMobility(), annotation.getCCS(), record,
+          -1);
+    } else {
+      for (int i = 0; i < adducts.size(); i++) {
+        try {
+          builder.add(annotation.calcMzForAdduct(adducts.get(i)), annotation.getRT(),
+              annotation.getMobility(), annotation.getCCS(), record, i);
+        } catch (IllegalStateException e) {
+          // do not log the full stack trace as this is expected in many cases
+          logger.log(Level.WARNING, e.getMessage());
+        }
+      }
+    }
+    if (builder.size() > entries) {
+      databaseRecords.add(retainImportedColumns(values));
+    }
+  }
+
+  /**
+   * Drops the values of all columns that are not imported to reduce memory
+   */
+  private String[] retainImportedColumns(final String[] values) {
+    final String[] retained = new String[values.length];
+    for (final ImportType type : lineIds) {
+      retained[type.getColumnIndex()] = values[type.getColumnIndex()];
+    }
+    for (final ImportType type : commentFields) {
+      retained[type.getColumnIndex()] = values[type.getColumnIndex()];
+    }
+    if (sampleColIndex != -1) {
+      retained[sampleColIndex] = values[sampleColIndex];
+    }
+    return retained;
+  }
+
+  /**
+   * Matches all index entries within the tolerances and adds the annotations to the row
+   */
+  private void annotateRow(final FeatureListRow row, final List<RawDataFile> rawFiles) {
+    final IntArrayList candidates = index.findCandidates(row.getAverageMZ(), mzTolerance,
+        row.getAverageRT(), rtTolerance, row.getAverageMobility(), mobTolerance);
+    if (candidates.isEmpty()) {
+      return;
+    }
+
+    final List<CompoundDBAnnotation> matches = new ArrayList<>(row.getCompoundAnnotations());
+    final int before = matches.size();
+    for (int i = 0; i < candidates.size(); i++) {
+      final int entry = candidates.getInt(i);
+      final int record = index.getRecord(entry);
+      //  if active, check sample name contains id - this time for the feature list
+      if (filterSamples && !matchSample(rawFiles, databaseRecords.get(record)[sampleColIndex])) {
+        continue;
+      }
+      final CompoundDBAnnotation annotation = getAnnotation(record, index.getVariant(entry));
+      final CompoundDBAnnotation clone = annotation.checkMatchAndCalculateDeviation(row,
+          mzTolerance, rtTolerance, mobTolerance, ccsTolerance);
+      if (clone != null) {
+        matches.add(clone);
+      }
+    }
+    if (matches.size() > before) {
+      matches.sort(null);
+      row.setCompoundAnnotations(matches);
+    }
+  }
+
+  /**
+   * @param variant the adduct index or -1 if the database contains the precursor m/z
+   */
+  private CompoundDBAnnotation getAnnotation(final int record, final int variant) {
+    CompoundDBAnnotation base = baseAnnotations.get(record);
+    if (base == null) {
+      base = getCompoundFromLine(databaseRecords.get(record), lineIds, commentFields);
+      base.put(databaseType, dataBaseFile.getName());
+      if (!baseAnnotations.compareAndSet(record, null, base)) {
+        base = baseAnnotations.get(record);
+      }
+    }
+    return variant < 0 ? base : base.ionize(adducts.get(variant));
+  }
+
   private void refineAnnotationsByIsotopes(FeatureList flist) {
     DatabaseIsotopeRefinerScanBased.refineAnnotationsByIsotopesDifferentResolutions(flist.getRows(),
         isotopeMzTolerance, minRelativeIsotopeIntensity, minIsotopeScore);
@@ -345,8 +477,7 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
           .map(s -> new ImportType(true, s, type)).toList();
       if (!commentFields.isEmpty()) {
         final SimpleStringProperty error = new SimpleStringProperty();
-        commentFields = CSVParsingUtils.findLineIds(commentFields, databaseValues.getFirst(),
-            error);
+        commentFields = CSVParsingUtils.findLineIds(commentFields, header, error);
         if (commentFields == null) {
           setErrorMessage(error.get());
         }
@@ -360,92 +491,6 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
         .anyMatch(raw -> raw.getName().toLowerCase().contains(sample.toLowerCase()));
   }
 
-  /**
-   * @param mzSortedRows     rows per feature list sorted by mz
-   * @param values           csv values to be parsed into annotation
-   * @param linesWithIndices columns
-   * @param commentFields    comment fields that are put together into the comment
-   */
-  @SuppressWarnings("ResultOfMethodCallIgnored")
-  private void processOneLine(final List<SortedList<FeatureListRow>> mzSortedRows,
-      @NotNull String[] values, @NotNull List<ImportType> linesWithIndices,
-      @NotNull final List<ImportType> commentFields) {
-
-    final List<CompoundDBAnnotation> annotations = getCompoundDBAnnotations(values,
-        linesWithIndices, commentFields);
-
-    IntStream indexStream = IntStream.range(0, featureLists.length);
-    if (featureLists.length > 1000) {
-      indexStream.parallel();
-    }
-    // not all feature lists have all samples
-    indexStream.forEach(i -> {
-      var rawFiles = featureLists[i].getRawDataFiles();
-      //  if active, check sample name contains id - this time for the feature list
-      if (!filterSamples || matchSample(rawFiles, values[sampleColIndex])) {
-        var sortedRows = mzSortedRows.get(i);
-
-        for (CompoundDBAnnotation annotation : annotations) {
-          List<FeatureListRow> candidates = binarySearchCandidates(sortedRows, annotation);
-
-          for (FeatureListRow row : candidates) {
-            checkMatchAndAnnotate(annotation, row, mzTolerance, rtTolerance, mobTolerance,
-                ccsTolerance);
-          }
-        }
-      }
-    });
-  }
-
-  @NotNull
-  private List<FeatureListRow> binarySearchCandidates(final SortedList<FeatureListRow> mzSortedRows,
-      final CompoundDBAnnotation annotation) {
-    // ranges are build with prechecks - so if there is no mobility use Range.all() to deactivate the filter
-    Double mz = annotation.getPrecursorMZ();
-    assert mz != null;
-    final Float rt = annotation.getRT();
-    final Float mobility = annotation.getMobility();
-    var mzRange = mzTolerance.getToleranceRange(mz);
-    Range<Float> rtRange =
-        rtTolerance != null && rt != null ? rtTolerance.getToleranceRange(rt) : Range.all();
-    Range<Float> mobilityRange =
-        mobTolerance != null && mobility != null ? mobTolerance.getToleranceRange(mobility)
-            : Range.all();
-
-    // get all canditates with binary search
-    // CCS is still missing here but will be tested later
-    return FeatureListUtils.getCandidatesWithinRanges(mzRange, rtRange, mobilityRange, mzSortedRows,
-        true);
-  }
-
-  @NotNull
-  private List<CompoundDBAnnotation> getCompoundDBAnnotations(final @NotNull String[] values,
-      final @NotNull List<ImportType> linesWithIndices,
-      final @NotNull List<ImportType> commentFields) {
-    final CompoundDBAnnotation baseAnnotation = getCompoundFromLine(values, linesWithIndices,
-        commentFields);
-    baseAnnotation.put(databaseType, dataBaseFile.getName());
-    final List<CompoundDBAnnotation> annotations = new ArrayList<>();
-    if (ionNetworkLibrary != null) {
-      annotations.addAll(
-          CompoundDBAnnotation.buildCompoundsWithAdducts(baseAnnotation, ionNetworkLibrary));
-    } else {
-      annotations.add(baseAnnotation);
-    }
-    return annotations;
-  }
-
-  private void checkMatchAndAnnotate(CompoundDBAnnotation annotation, FeatureListRow row,
-      MZTolerance mzTolerance, RTTolerance rtTolerance, MobilityTolerance mobTolerance,
-      Double percCcsTolerance) {
-
-    final CompoundDBAnnotation clone = annotation.checkMatchAndCalculateDeviation(row, mzTolerance,
-        rtTolerance, mobTolerance, percCcsTolerance);
-    if (clone != null) {
-      row.addCompoundAnnotation(clone);
-    }
-  }
-
   @NotNull
   private CompoundDBAnnotation getCompoundFromLine(@NotNull String[] values,
       @NotNull List<ImportType> linesWithIndices, @NotNull final List<ImportType> commentFields) {
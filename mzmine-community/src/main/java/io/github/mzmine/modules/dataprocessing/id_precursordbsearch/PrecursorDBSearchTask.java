@@ -28,18 +28,18 @@ package io.github.mzmine.modules.dataprocessing.id_precursordbsearch;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
-import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.annotations.PrecursorMzIndex;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.PrecursorDBFeatureIdentity;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
-import io.github.mzmine.util.spectraldb.parser.LibraryEntryProcessor;
 import io.github.mzmine.util.spectraldb.parser.UnsupportedFormatException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
@@ -67,9 +67,9 @@ class PrecursorDBSearchTask extends AbstractTask {
   private final boolean useRT;
   private final RTTolerance rtTol;
 
-  private List<AbstractTask> tasks;
-  private int totalTasks;
   private final AtomicInteger matches = new AtomicInteger(0);
+  private final AtomicInteger processedRows = new AtomicInteger(0);
+  private int totalRows;
 
   public PrecursorDBSearchTask(FeatureList peakList, ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
@@ -89,10 +89,10 @@ class PrecursorDBSearchTask extends AbstractTask {
    */
   @Override
   public double getFinishedPercentage() {
-    if (totalTasks == 0 || tasks == null) {
+    if (totalRows == 0) {
       return 0;
     }
-    return ((double) totalTasks - tasks.size()) / totalTasks;
+    return processedRows.get() / (double) totalRows;
   }
 
   /**
@@ -110,38 +110,48 @@ class PrecursorDBSearchTask extends AbstractTask {
   @Override
   public void run() {
     setStatus(TaskStatus.PROCESSING);
-    int count = 0;
     try {
-      tasks = parseFile(dataBaseFile);
-      totalTasks = tasks.size();
-      if (!tasks.isEmpty()) {
-        // wait for the tasks to finish
-        while (!isCanceled() && !tasks.isEmpty()) {
-          for (int i = 0; i < tasks.size(); i++) {
-            if (tasks.get(i).isFinished() || tasks.get(i).isCanceled()) {
-              tasks.remove(i);
-              i--;
-            }
-          }
-          // wait for all sub tasks to finish
-          try {
-            Thread.sleep(100);
-          } catch (Exception e) {
-            cancel();
-          }
-        }
-        // cancelled
-        if (isCanceled()) {
-          tasks.forEach(AbstractTask::cancel);
-        }
-      } else {
+      final List<SpectralLibraryEntry> entries = new ArrayList<>();
+      final PrecursorMzIndex index = parseFile(dataBaseFile, entries);
+      if (isCanceled()) {
+        return;
+      }
+      if (entries.isEmpty()) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("DB file was empty - or error while parsing " + dataBaseFile);
+        return;
+      }
+
+      final List<FeatureListRow> rows = peakList.getRows();
+      totalRows = rows.size();
+      rows.parallelStream().forEach(row -> {
+        if (isCanceled()) {
+          return;
+        }
+        final IntArrayList candidates = index.findCandidates(row.getAverageMZ(), mzTol, null,
+            null, null, null);
+        for (int i = 0; i < candidates.size(); i++) {
+          final int candidate = candidates.getInt(i);
+          final float rt = index.getRT(candidate);
+          if (checkRT(row, Float.isNaN(rt) ? null : rt) && checkMZ(row,
+              index.getMz(candidate))) {
+            // add identity
+            row.addFeatureIdentity(new PrecursorDBFeatureIdentity(
+                entries.get(index.getRecord(candidate)), PrecursorDBSearchModule.MODULE_NAME),
+                false);
+            matches.getAndIncrement();
+          }
+        }
+        processedRows.incrementAndGet();
+      });
+      if (isCanceled()) {
+        return;
       }
     } catch (Exception e) {
       logger.log(Level.SEVERE, "Could not read file " + dataBaseFile, e);
       setStatus(TaskStatus.ERROR);
       setErrorMessage(e.toString());
+      return;
     }
     logger.info("Added " + matches.get() + " matches to possible precursors in library: "
         + dataBaseFile.getAbsolutePath());
@@ -155,75 +165,28 @@ class PrecursorDBSearchTask extends AbstractTask {
   }
 
   /**
-   * Load all library entries from data base file
+   * Load all library entries from data base file into an index sorted by precursor m/z
    *
-   * @param dataBaseFile
-   * @return
+   * @param entries the list to add all entries with precursor m/z to, the records of the index
+   * @return the index
    */
-  private List<AbstractTask> parseFile(File dataBaseFile)
+  private PrecursorMzIndex parseFile(File dataBaseFile, List<SpectralLibraryEntry> entries)
       throws UnsupportedFormatException, IOException {
-    //
-    List<AbstractTask> tasks = new ArrayList<>();
-    AutoLibraryParser parser = new AutoLibraryParser(100, new LibraryEntryProcessor() {
-      @Override
-      public void processNextEntries(List<SpectralLibraryEntry> list, int alreadyProcessed) {
-
-        AbstractTask task = new AbstractTask(null, Instant.now()) {
-          private final int total = peakList.getNumberOfRows();
-          private int done = 0;
-
-          @Override
-          public void run() {
-            for (FeatureListRow row : peakList.getRows()) {
-              if (this.isCanceled()) {
-                break;
-              }
-              for (SpectralLibraryEntry db : list) {
-                if (this.isCanceled()) {
-                  break;
-                }
-
-                if (checkRT(row, (Float) db.getField(DBEntryField.RT).orElse(null)) && checkMZ(row,
-                    db.getPrecursorMZ())) {
-                  // add identity
-                  row.addFeatureIdentity(
-                      new PrecursorDBFeatureIdentity(db, PrecursorDBSearchModule.MODULE_NAME),
-                      false);
-                  matches.getAndIncrement();
-                }
-              }
-              done++;
-            }
-
-            if (!this.isCanceled()) {
-              setStatus(TaskStatus.FINISHED);
-            }
-          }
-
-          @Override
-          public String getTaskDescription() {
-            return "Checking for precursors: " + alreadyProcessed + 1 + " - " + alreadyProcessed
-                + list.size();
-          }
-
-          @Override
-          public double getFinishedPercentage() {
-            if (total == 0) {
-              return 0;
-            }
-            return done / (double) total;
-          }
-        };
-
-        // start last task
-        MZmineCore.getTaskController().addTask(task);
-        tasks.add(task);
+    final PrecursorMzIndex.Builder index = PrecursorMzIndex.builder();
+    AutoLibraryParser parser = new AutoLibraryParser(100, (list, _) -> {
+      for (SpectralLibraryEntry entry : list) {
+        final Double mz = entry.getPrecursorMZ();
+        if (mz == null) {
+          continue;
+        }
+        index.add(mz, (Float) entry.getField(DBEntryField.RT).orElse(null), null, null,
+            entries.size(), 0);
+        entries.add(entry);
       }
     });
 
-    // return tasks
     parser.parse(this, dataBaseFile, null);
-    return tasks;
+    return index.build();
   }
 
   protected boolean checkMZ(FeatureListRow row, Double mz) {
@@ -232,7 +195,8 @@ class PrecursorDBSearchTask extends AbstractTask {
 
   protected boolean checkRT(FeatureListRow row, Float rt) {
     // if no rt is in the library still use
-    return !useRT || rtTol == null || rtTol.checkWithinTolerance(row.getAverageRT(), rt);
+    return !useRT || rtTol == null || rt == null || rtTol.checkWithinTolerance(
+        row.getAverageRT(), rt);
   }
 
 }
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.LinkedGraphicalType;
+import io.github.mzmine.datamodel.features.types.modifiers.NoTextColumn;
+import io.github.mzmine.datamodel.features.types.modifiers.NullColumnType;
+import io.github.mzmine.datamodel.features.types.modifiers.SubColumnsFactory;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.Column;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.ColumnKind;
+import io.github.mzmine.modules.io.export_features_gnps.fbmn.FeatureListRowsFilter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListRowSorter;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Exports feature lists to the {@link ColumnarFeatureTable} format. Row groups are encoded in
+ * parallel and written in order.
+ */
+public class ColumnarExportTask extends AbstractTask implements ProcessedItemsCounter {
+
+  public static final String DATAFILE_PREFIX = "datafile";
+  private static final Logger logger = Logger.getLogger(ColumnarExportTask.class.getName());
+  private static final int ROW_GROUP_SIZE = 4096;
+  private static final String HEADER_SEPARATOR = ":";
+
+  private final ModularFeatureList[] featureLists;
+  private final File fileName;
+  private final FeatureListRowsFilter rowFilter;
+  private final ParameterSet parameters;
+  private final AtomicInteger exportedRows = new AtomicInteger(0);
+  private int totalRows = 0;
+
+  public ColumnarExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
+    super(null, moduleCallDate); // no new data stored -> null
+    this.featureLists = parameters.getValue(ColumnarExportParameters.featureLists)
+        .getMatchingFeatureLists();
+    fileName = parameters.getValue(ColumnarExportParameters.filename);
+    rowFilter = parameters.getValue(ColumnarExportParameters.filter);
+    this.parameters = parameters;
+  }
+
+  @Override
+  public int getProcessedItems() {
+    return exportedRows.get();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return totalRows == 0 ? 0 : exportedRows.get() / (double) totalRows;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Exporting feature list(s) " + Arrays.toString(featureLists)
+        + " to columnar binary file(s)";
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+
+    String plNamePattern = "{}";
+    boolean substitute = fileName.getPath().contains(plNamePattern);
+
+    if (!substitute && featureLists.length > 1) {
+      error("""
+          Cannot export multiple feature lists to the same file. Please use "{}" pattern in filename.\
+          This will be replaced with the feature list name to generate one file per feature list.
+          """);
+      return;
+    }
+
+    for (ModularFeatureList featureList : featureLists) {
+      totalRows += featureList.getNumberOfRows();
+    }
+
+    for (ModularFeatureList featureList : featureLists) {
+      if (isCanceled()) {
+        return;
+      }
+
+      File curFile = fileName;
+      if (substitute) {
+        // Cleanup from illegal filename characters
+        String cleanPlName = featureList.getName().replaceAll("[^a-zA-Z0-9.-]", "_");
+        String newFilename = fileName.getPath()
+            .replaceAll(Pattern.quote(plNamePattern), cleanPlName);
+        curFile = new File(newFilename);
+      }
+      curFile = FileAndPathUtil.getRealFilePath(curFile, ColumnarFeatureTable.FILE_EXTENSION);
+
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(curFile.toPath()), 1 << 16))) {
+        exportFeatureList(featureList, out);
+      } catch (IOException | UncheckedIOException e) {
+        logger.log(Level.WARNING, "Error writing columnar file %s for feature list %s: %s".formatted(
+            curFile.getAbsolutePath(), featureList.getName(), e.getMessage()), e);
+        error("Could not write file " + curFile + ": " + e.getMessage());
+        return;
+      }
+
+      featureList.getAppliedMethods().add(
+          new SimpleFeatureListAppliedMethod(ColumnarExportModule.class, parameters,
+              getModuleCallDate()));
+
+      if (!substitute) {
+        break;
+      }
+    }
+
+    if (getStatus() == TaskStatus.PROCESSING) {
+      setStatus(TaskStatus.FINISHED);
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void exportFeatureList(ModularFeatureList flist, DataOutputStream out)
+      throws IOException {
+    final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
+        .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
+    final List<RawDataFile> rawDataFiles = flist.getRawDataFiles();
+
+    final List<ExportColumn> columns = new ArrayList<>();
+    for (DataType type : flist.getRowTypes()) {
+      addColumns(columns, type, "", -1);
+    }
+    for (int r = 0; r < rawDataFiles.size(); r++) {
+      final String prefix =
+          DATAFILE_PREFIX + HEADER_SEPARATOR + rawDataFiles.get(r).getName() + HEADER_SEPARATOR;
+      for (DataType type : flist.getFeatureTypes()) {
+        addColumns(columns, type, prefix, r);
+      }
+    }
+
+    // header
+    out.write(ColumnarFeatureTable.MAGIC);
+    out.writeInt(ColumnarFeatureTable.VERSION);
+    ColumnarFeatureTable.writeString(out, flist.getName());
+    out.writeInt(rows.size());
+    out.writeInt(rawDataFiles.size());
+    for (RawDataFile raw : rawDataFiles) {
+      ColumnarFeatureTable.writeString(out, raw.getName());
+    }
+    out.writeInt(columns.size());
+    for (ExportColumn column : columns) {
+      column.column().write(out);
+    }
+
+    // encode row groups in parallel windows and write them in order
+    final int numGroups = (rows.size() + ROW_GROUP_SIZE - 1) / ROW_GROUP_SIZE;
+    final int window = Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2);
+    for (int first = 0; first < numGroups; first += window) {
+      if (isCanceled()) {
+        return;
+      }
+      final int firstGroup = first;
+      final byte[][] encoded = IntStream.range(first, Math.min(numGroups, first + window))
+          .parallel().mapToObj(g -> {
+            final int start = g * ROW_GROUP_SIZE;
+            final List<FeatureListRow> group = rows.subList(start,
+                Math.min(rows.size(), start + ROW_GROUP_SIZE));
+            return encodeRowGroup(group, columns, rawDataFiles);
+          }).toArray(byte[][]::new);
+      for (byte[] bytes : encoded) {
+        out.write(bytes);
+      }
+      logger.finest(() -> "Wrote row groups %d to %d".formatted(firstGroup,
+          firstGroup + encoded.length));
+    }
+    out.writeInt(0);
+  }
+
+  private byte[] encodeRowGroup(List<FeatureListRow> rows, List<ExportColumn> columns,
+      List<RawDataFile> rawDataFiles) {
+    try {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(bytes);
+      out.writeInt(rows.size());
+      final Object[] values = new Object[rows.size()];
+      for (ExportColumn exportColumn : columns) {
+        final Column column = exportColumn.column();
+        final RawDataFile raw =
+            column.rawFileIndex() < 0 ? null : rawDataFiles.get(column.rawFileIndex());
+        for (int i = 0; i < values.length; i++) {
+          final FeatureListRow row = rows.get(i);
+          final ModularDataModel data = raw == null ? row : (ModularFeature) row.getFeature(raw);
+          values[i] = getValue(data, exportColumn.type(), column);
+        }
+        ColumnarFeatureTable.writeBlock(out, column.kind(), values);
+      }
+      exportedRows.addAndGet(rows.size());
+      out.flush();
+      return bytes.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * @return a Number for numeric columns, a String or null if there is no value
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private @Nullable Object getValue(@Nullable ModularDataModel data, DataType type,
+      Column column) {
+    final Object value = data == null ? null : data.get(type);
+    if (value == null) {
+      return null;
+    }
+    try {
+      if (column.subColumn() >= 0) {
+        return ((SubColumnsFactory) type).getFormattedSubColExportValue(column.subColumn(),
+            value);
+      }
+      if (column.kind() != ColumnKind.STRING) {
+        return value;
+      }
+      return type.getFormattedExportString(value);
+    } catch (Exception e) {
+      logger.log(Level.FINEST,
+          "Cannot format value of type " + type.getClass().getName() + " value: " + value, e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("rawtypes")
+  private void addColumns(List<ExportColumn> columns, DataType type, String prefix,
+      int rawIndex) {
+    if (!filterType(type)) {
+      return;
+    }
+    final String header = prefix + type.getUniqueID();
+    if (type instanceof SubColumnsFactory subFactory) {
+      for (int s = 0; s < subFactory.getNumberOfSubColumns(); s++) {
+        if (!filterType(subFactory.getType(s))) {
+          continue;
+        }
+        columns.add(new ExportColumn(
+            new Column(header + HEADER_SEPARATOR + subFactory.getUniqueID(s), type.getUniqueID(),
+                s, rawIndex, ColumnKind.STRING), type));
+      }
+    } else {
+      columns.add(new ExportColumn(new Column(header, type.getUniqueID(), -1, rawIndex,
+          ColumnKind.forValueClass(type.getValueClass())), type));
+    }
+  }
+
+  /**
+   * @return true if type should be exported
+   */
+  @SuppressWarnings("rawtypes")
+  private boolean filterType(DataType type) {
+    return !(type instanceof NoTextColumn || type instanceof NullColumnType
+        || type instanceof LinkedGraphicalType);
+  }
+
+  /**
+   * @param column the column in the file
+   * @param type   the data type that provides the values
+   */
+  @SuppressWarnings("rawtypes")
+  private record ExportColumn(Column column, DataType type) {
+
+  }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Binary columnar feature table format (.mzcol). All values are big-endian as written by
+ * {@link DataOutputStream}. Strings are written as int length followed by UTF-8 bytes (length -1
+ * for null).
+ *
+ * <pre>
+ * file      := MAGIC version:int header rowGroup* 0:int
+ * header    := featureListName:string numRows:int
+ *              numRawFiles:int rawFileName:string*
+ *              numColumns:int column*
+ * column    := name:string typeUniqueId:string subColumn:int rawFileIndex:int kind:byte
+ * rowGroup  := numRows:int block*   (one block per column in header order)
+ * block     := nullMask:byte[(numRows + 7) / 8] values
+ * values    := DOUBLE double[numRows] | FLOAT float[numRows] | INT int[numRows]
+ *              | LONG long[numRows]
+ *              | STRING dictionarySize:int string* code:int[numRows]
+ * </pre>
+ * The null mask has a set bit for each row without value (bit i % 8 of byte i / 8). Missing
+ * numbers are written as 0 and missing strings as code -1. Row types have rawFileIndex -1, feature
+ * types point to the raw file of the header. subColumn is -1 for the main column of a type. The
+ * name equals the CSV header of the modular CSV export.
+ */
+public final class ColumnarFeatureTable {
+
+  public static final byte[] MAGIC = "MZCOLTBL".getBytes(StandardCharsets.US_ASCII);
+  public static final int VERSION = 1;
+  public static final String FILE_EXTENSION = "mzcol";
+
+  private ColumnarFeatureTable() {
+  }
+
+  /**
+   * The value encoding of a column
+   */
+  public enum ColumnKind {
+    DOUBLE, FLOAT, INT, LONG, STRING;
+
+    /**
+     * @return the numeric kind to store values of this class or STRING
+     */
+    public static @NotNull ColumnKind forValueClass(@Nullable Class<?> valueClass) {
+      if (Double.class.equals(valueClass)) {
+        return DOUBLE;
+      }
+      if (Float.class.equals(valueClass)) {
+        return FLOAT;
+      }
+      if (Integer.class.equals(valueClass)) {
+        return INT;
+      }
+      if (Long.class.equals(valueClass)) {
+        return LONG;
+      }
+      return STRING;
+    }
+  }
+
+  /**
+   * A column of the table
+   *
+   * @param name         the header
+   * @param typeId       unique id of the data type
+   * @param subColumn    sub column index or -1 for the main column
+   * @param rawFileIndex index of the raw file in the header or -1 for row types
+   * @param kind         the value encoding
+   */
+  public record Column(@NotNull String name, @NotNull String typeId, int subColumn,
+                       int rawFileIndex, @NotNull ColumnKind kind) {
+
+    public void write(DataOutputStream out) throws IOException {
+      writeString(out, name);
+      writeString(out, typeId);
+      out.writeInt(subColumn);
+      out.writeInt(rawFileIndex);
+      out.writeByte(kind.ordinal());
+    }
+
+    public static Column read(DataInputStream in) throws IOException {
+      final String name = readString(in);
+      final String typeId = readString(in);
+      final int subColumn = in.readInt();
+      final int rawFileIndex = in.readInt();
+      final ColumnKind kind = ColumnKind.values()[in.readUnsignedByte()];
+      return new Column(name, typeId, subColumn, rawFileIndex, kind);
+    }
+  }
+
+  public static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  public static @Nullable String readString(DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes the values of one column of a row group
+   *
+   * @param values Numbers for numeric kinds or Strings, null for missing values
+   */
+  public static void writeBlock(DataOutputStream out, ColumnKind kind, Object[] values)
+      throws IOException {
+    final byte[] nullMask = new byte[(values.length + 7) / 8];
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == null) {
+        nullMask[i >> 3] |= (byte) (1 << (i & 7));
+      }
+    }
+    out.write(nullMask);
+
+    switch (kind) {
+      case DOUBLE -> {
+        for (Object v : values) {
+          out.writeDouble(v == null ? 0d : ((Number) v).doubleValue());
+        }
+      }
+      case FLOAT -> {
+        for (Object v : values) {
+          out.writeFloat(v == null ? 0f : ((Number) v).floatValue());
+        }
+      }
+      case INT -> {
+        for (Object v : values) {
+          out.writeInt(v == null ? 0 : ((Number) v).intValue());
+        }
+      }
+      case LONG -> {
+        for (Object v : values) {
+          out.writeLong(v == null ? 0L : ((Number) v).longValue());
+        }
+      }
+      case STRING -> {
+        // dictionary of this row group
+        final Map<String, Integer> dictionary = new HashMap<>();
+        final List<String> entries = new ArrayList<>();
+        final int[] codes = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+          if (values[i] == null) {
+            codes[i] = -1;
+            continue;
+          }
+          codes[i] = dictionary.computeIfAbsent((String) values[i], s -> {
+            entries.add(s);
+            return entries.size() - 1;
+          });
+        }
+        out.writeInt(entries.size());
+        for (String entry : entries) {
+          writeString(out, entry);
+        }
+        for (int code : codes) {
+          out.writeInt(code);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the values of one column of a row group
+   *
+   * @return Numbers for numeric kinds or Strings, null for missing values
+   */
+  public static Object[] readBlock(DataInputStream in, ColumnKind kind, int numRows)
+      throws IOException {
+    final byte[] nullMask = in.readNBytes((numRows + 7) / 8);
+    final Object[] values = new Object[numRows];
+    switch (kind) {
+      case DOUBLE -> {
+        for (int i = 0; i < numRows; i++) {
+          values[i] = in.readDouble();
+        }
+      }
+      case FLOAT -> {
+        for (int i = 0; i < numRows; i++) {
+          values[i] = in.readFloat();
+        }
+      }
+      case INT -> {
+        for (int i = 0; i < numRows; i++) {
+          values[i] = in.readInt();
+        }
+      }
+      case LONG -> {
+        for (int i = 0; i < numRows; i++) {
+          values[i] = in.readLong();
+        }
+      }
+      case STRING -> {
+        final String[] dictionary = new String[in.readInt()];
+        for (int d = 0; d < dictionary.length; d++) {
+          dictionary[d] = readString(in);
+        }
+        for (int i = 0; i < numRows; i++) {
+          final int code = in.readInt();
+          values[i] = code < 0 ? null : dictionary[code];
+        }
+      }
+    }
+
+    for (int i = 0; i < numRows; i++) {
+      if ((nullMask[i >> 3] & (1 << (i & 7))) != 0) {
+        values[i] = null;
+      }
+    }
+    return values;
+  }
+}
@@ -45,11 +45,9 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.CSVUtils;
-import java.io.BufferedWriter;
+import io.github.mzmine.util.io.ParallelChunkWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -80,7 +78,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   private final ParameterSet parameters;
   // track number of exported items
   private final AtomicInteger exportedRows = new AtomicInteger(0);
-  private int processedTypes = 0, totalTypes = 0;
+  private int totalRows = 0;
 
   public CSVExportModularTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -125,10 +123,10 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
   @Override
   public double getFinishedPercentage() {
-    if (totalTypes == 0) {
+    if (totalRows == 0) {
       return 0;
     }
-    return (double) processedTypes / (double) totalTypes;
+    return (double) exportedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -156,7 +154,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
     // Total number of rows
     for (ModularFeatureList featureList : featureLists) {
-      totalTypes += featureList.getNumberOfRows();
+      totalRows += featureList.getNumberOfRows();
     }
 
     // Process feature lists
@@ -184,8 +182,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
       // Open file
 
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (ParallelChunkWriter writer = new ParallelChunkWriter(curFile)) {
         exportFeatureList(featureList, writer);
 
       } catch (IOException e) {
@@ -218,7 +215,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
   @SuppressWarnings("rawtypes")
-  private void exportFeatureList(ModularFeatureList flist, BufferedWriter writer)
+  private void exportFeatureList(ModularFeatureList flist, ParallelChunkWriter writer)
       throws IOException {
     final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
         .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
@@ -240,64 +237,49 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
               true));
     }
 
-    writer.append(header.toString());
-    writer.newLine();
+    writer.writeLine(header);
 
-    // write data
-    totalTypes = rowTypes.size() + featureTypes.size() * rawDataFiles.size();
-
-    List<String[]> formattedCols = new ArrayList<>(totalTypes);
-
-    // list string values for each type and sub type
+    // define columns for each type and sub type
+    List<ExportColumn> columns = new ArrayList<>();
     for (DataType rowType : rowTypes) {
-      if (isCanceled()) {
-        return;
-      }
-
-      addFormattedColumnsRecursively(formattedCols, rows, null, rowType);
-
-      processedTypes++;
+      addColumnsRecursively(columns, rows, null, rowType);
     }
 
     // add feature types for each raw data file
     for (RawDataFile raw : rawDataFiles) {
       for (DataType featureType : featureTypes) {
-        if (isCanceled()) {
-          return;
-        }
-
-        addFormattedColumnsRecursively(formattedCols, rows, raw, featureType);
-        processedTypes++;
+        addColumnsRecursively(columns, rows, raw, featureType);
       }
     }
 
-    for (int i = 0; i < rows.size(); i++) {
-      // Cancel?
-      if (isCanceled()) {
-        return;
-      }
-
-      final int row = i;
-      writer.append(
-          formattedCols.stream().map(col -> col[row]).collect(Collectors.joining(fieldSeparator)));
-      writer.newLine();
-
-      exportedRows.incrementAndGet();
-      processedTypes++;
-    }
+    // format chunks of rows in parallel and write them in order
+    final String newLine = System.lineSeparator();
+    writer.writeChunks(rows, ParallelChunkWriter.DEFAULT_CHUNK_SIZE, this::isCanceled,
+        (chunk, out) -> {
+          for (FeatureListRow row : chunk) {
+            for (int c = 0; c < columns.size(); c++) {
+              if (c > 0) {
+                out.append(fieldSeparator);
+              }
+              out.append(getFormattedValue(row, columns.get(c)));
+            }
+            out.append(newLine);
+            exportedRows.incrementAndGet();
+          }
+        });
   }
 
   /**
-   * Adds columns of formatted values for each column / sub column. missing values are replaced by
-   * empty strings or default values
+   * Adds columns for each column / sub column. missing values are replaced by empty strings or
+   * default values
    *
-   * @param formattedCols the target list
-   * @param rows          the data
-   * @param raw           defines the feature
-   * @param type          the feature data type to be added (and its sub columns)
+   * @param columns the target list
+   * @param rows    the data
+   * @param raw     defines the feature
+   * @param type    the feature data type to be added (and its sub columns)
    */
-  private void addFormattedColumnsRecursively(List<String[]> formattedCols,
-      List<FeatureListRow> rows, @Nullable RawDataFile raw, DataType type) {
+  private void addColumnsRecursively(List<ExportColumn> columns, List<FeatureListRow> rows,
+      @Nullable RawDataFile raw, DataType type) {
     if (type instanceof SubColumnsFactory subFactory) {
       int subCols = subFactory.getNumberOfSubColumns();
       for (int s = 0; s < subCols; s++) {
@@ -307,16 +289,10 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
             s))) {
           continue;
         }
-        // collect column data
-        final int subIndex = s;
-        String[] column = getDataStream(rows, raw, false).map(
-            data -> getFormattedValue(data, subFactory, subIndex)).toArray(String[]::new);
-        formattedCols.add(column);
+        columns.add(new ExportColumn(type, raw, s));
       }
     } else {
-      String[] column = getDataStream(rows, raw, false).map(data -> getFormattedValue(data, type))
-          .toArray(String[]::new);
-      formattedCols.add(column);
+      columns.add(new ExportColumn(type, raw, -1));
     }
   }
 
@@ -340,6 +316,16 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
 
+  @SuppressWarnings("rawtypes")
+  private String getFormattedValue(FeatureListRow row, ExportColumn column) {
+    final ModularDataModel data =
+        column.raw() == null ? row : (ModularFeature) row.getFeature(column.raw());
+    if (column.subIndex() < 0) {
+      return getFormattedValue(data, column.type());
+    }
+    return getFormattedValue(data, (SubColumnsFactory) column.type(), column.subIndex());
+  }
+
   private String getFormattedValue(@Nullable ModularDataModel data, SubColumnsFactory subColFactory,
       int col) {
     Object value = data == null ? null : data.get((DataType) subColFactory);
@@ -466,4 +452,16 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
           featureList.getName(), numMS2, numMS2End));
     }
   }
+
+  /**
+   * A column of the export
+   *
+   * @param type     the data type
+   * @param raw      the raw data file for feature types or null for row types
+   * @param subIndex the sub column index or -1 for the whole type
+   */
+  @SuppressWarnings("rawtypes")
+  private record ExportColumn(DataType type, @Nullable RawDataFile raw, int subIndex) {
+
+  }
 }
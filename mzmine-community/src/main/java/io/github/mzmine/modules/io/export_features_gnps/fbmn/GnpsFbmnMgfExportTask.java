@@ -53,13 +53,12 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureUtils;
+import io.github.mzmine.util.ThreadLocalNumberFormat;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ParallelChunkWriter;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.text.NumberFormat;
@@ -96,13 +95,13 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
   private final AtomicInteger exportedRows = new AtomicInteger(0);
   private final OnlineReactionJsonWriter reactionJsonWriter;
   private int currentIndex = 0;
-  // by robin
-  private NumberFormat mzForm = MZmineCore.getConfiguration().getMZFormat();
-  private NumberFormat intensityForm = MZmineCore.getConfiguration().getIntensityFormat();
+  // by robin - formats are used by multiple threads
+  private final NumberFormat mzForm = ThreadLocalNumberFormat.of(
+      MZmineCore.getConfiguration().getMZFormat());
+  private final NumberFormat intensityForm = ThreadLocalNumberFormat.of(
+      MZmineCore.getConfiguration().getIntensityFormat());
   // seconds
-  private NumberFormat rtsForm = new DecimalFormat("0.###");
-  // correlation
-  private NumberFormat corrForm = new DecimalFormat("0.0000");
+  private final NumberFormat rtsForm = ThreadLocalNumberFormat.of(new DecimalFormat("0.###"));
 
   GnpsFbmnMgfExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -169,8 +168,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       }
 
       // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (ParallelChunkWriter writer = new ParallelChunkWriter(curFile)) {
 
         export(featureList, rows, writer);
       } catch (IOException e) {
@@ -224,105 +222,117 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
     }
   }
 
-  private long export(FeatureList featureList, List<FeatureListRow> rows, BufferedWriter writer)
-      throws IOException {
-    final String newLine = System.lineSeparator();
+  private long export(FeatureList featureList, List<FeatureListRow> rows,
+      ParallelChunkWriter writer) throws IOException {
+    final List<FeatureListRow> filtered = rows.stream().filter(filter::accept).toList();
+    final AtomicInteger noMS2Counter = new AtomicInteger(0);
+    // format chunks of rows in parallel and write in order
+    writer.writeChunks(filtered, ParallelChunkWriter.DEFAULT_CHUNK_SIZE, this::isCanceled,
+        (chunk, out) -> {
+          for (FeatureListRow row : chunk) {
+            if (appendRow(row, out)) {
+              exportedRows.incrementAndGet();
+            } else {
+              noMS2Counter.incrementAndGet();
+            }
+          }
+        });
 
-    int noMS2Counter = 0;
-    // count exported
-    for (FeatureListRow row : rows) {
-      // do not export if no MSMS
-      if (!filter.accept(row)) {
-        continue;
-      }
+    if (exportedRows.get() == 0) {
+      logger.log(Level.WARNING, "No MS/MS scans exported.");
+    } else {
+      logger.info(
+          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
+              exportedRows.get(), featureList.getName()));
+    }
+    if (noMS2Counter.get() > 0 && filter.requiresMS2()) {
+      logger.warning(
+          noMS2Counter.get() + " features had no MS/MS scan after already filtering for MS2");
+    }
 
-      // Get the MS/MS scan number
-      Scan msmsScan = row.getMostIntenseFragmentScan();
-      if (msmsScan == null) {
-        noMS2Counter++;
-        // with IIMN, filter also accepts feature without MS2
-        continue;
-      }
+    return exportedRows.get();
+  }
 
-      MassList massList = msmsScan.getMassList();
+  /**
+   * Appends the MGF entry of a row. Called in parallel for different rows.
+   *
+   * @return false if the row has no MS2 scan and was not exported
+   */
+  private boolean appendRow(FeatureListRow row, StringBuilder out) {
+    final String newLine = System.lineSeparator();
 
-      if (massList == null) {
-        setErrorMessage("MS2 scan has no mass list. Run Mass detection on all scans");
-        setStatus(TaskStatus.ERROR);
-        throw new IllegalArgumentException(
-            "MS2 scan has no mass list. Run Mass detection on all scans");
-      }
+    // Get the MS/MS scan number
+    Scan msmsScan = row.getMostIntenseFragmentScan();
+    if (msmsScan == null) {
+      // with IIMN, filter also accepts feature without MS2
+      return false;
+    }
 
-      String rowID = Integer.toString(row.getID());
-      final Float averageRT = row.getAverageRT();
-      double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
+    MassList massList = msmsScan.getMassList();
 
-      writer.append("BEGIN IONS").append(newLine);
-      writer.append("FEATURE_ID=").append(rowID).write(newLine);
+    if (massList == null) {
+      setErrorMessage("MS2 scan has no mass list. Run Mass detection on all scans");
+      setStatus(TaskStatus.ERROR);
+      throw new IllegalArgumentException(
+          "MS2 scan has no mass list. Run Mass detection on all scans");
+    }
 
-      final Double mz = row.getAverageMZ();
-      if (mz != null) {
-        writer.append("PEPMASS=").append(mzForm.format(mz)).write(newLine);
-      }
+    String rowID = Integer.toString(row.getID());
+    final Float averageRT = row.getAverageRT();
+    double retTimeInSeconds = averageRT == null ? 0d : ((averageRT * 60 * 100.0) / 100.);
 
-      writer.append("SCANS=").append(rowID).write(newLine);
-      writer.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).write(newLine);
+    out.append("BEGIN IONS").append(newLine);
+    out.append("FEATURE_ID=").append(rowID).append(newLine);
 
-      // write reactions if available
-      List<OnlineReactionMatch> reactions = row.getOnlineReactionMatches();
-      String reactionJson = reactionJsonWriter.createReactivityString(row, reactions);
-      if (reactionJson != null) {
-        writer.append(DBEntryField.ONLINE_REACTIVITY.getMgfID()).append("=").append(reactionJson)
-            .write(newLine);
-      }
+    final Double mz = row.getAverageMZ();
+    if (mz != null) {
+      out.append("PEPMASS=").append(mzForm.format(mz)).append(newLine);
+    }
 
-      final int charge = FeatureUtils.extractBestAbsoluteChargeState(row, msmsScan);
-      final PolarityType pol = FeatureUtils.extractBestPolarity(row, msmsScan);
-      writer.write(STR."CHARGE=\{charge}\{pol.asSingleChar()}\{newLine}");
-
-      writer.append("MSLEVEL=2").write(newLine);
-
-      DataPoint[] dataPoints = null;
-      // merge MS/MS spectra
-      if (mergeMS2) {
-        try {
-          MergedSpectrum spectrum = merger.getBestMergedSpectrum(mergeParameters, row);
-          if (spectrum != null) {
-            dataPoints = spectrum.data;
-            writer.write("MERGED_STATS=");
-            writer.write(spectrum.getMergeStatsDescription());
-            writer.write(newLine);
-          }
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, "Error during MS2 merge in mgf export: " + ex.getMessage(), ex);
-        }
-      }
-      // nothing after merging or no merging active
-      if (dataPoints == null) {
-        dataPoints = massList.getDataPoints();
-      }
+    out.append("SCANS=").append(rowID).append(newLine);
+    out.append("RTINSECONDS=").append(rtsForm.format(retTimeInSeconds)).append(newLine);
 
-      for (DataPoint feature : dataPoints) {
-        writer.append(mzForm.format(feature.getMZ())).append(" ")
-            .append(intensityForm.format(feature.getIntensity())).write(newLine);
-      }
-      //
-      writer.append("END IONS").append(newLine).write(newLine);
-      exportedRows.incrementAndGet();
+    // write reactions if available
+    List<OnlineReactionMatch> reactions = row.getOnlineReactionMatches();
+    String reactionJson = reactionJsonWriter.createReactivityString(row, reactions);
+    if (reactionJson != null) {
+      out.append(DBEntryField.ONLINE_REACTIVITY.getMgfID()).append("=").append(reactionJson)
+          .append(newLine);
     }
 
-    if (exportedRows.get() == 0) {
-      logger.log(Level.WARNING, "No MS/MS scans exported.");
-    } else {
-      logger.info(
-          MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
-              exportedRows.get(), featureList.getName()));
+    final int charge = FeatureUtils.extractBestAbsoluteChargeState(row, msmsScan);
+    final PolarityType pol = FeatureUtils.extractBestPolarity(row, msmsScan);
+    out.append(STR."CHARGE=\{charge}\{pol.asSingleChar()}\{newLine}");
+
+    out.append("MSLEVEL=2").append(newLine);
+
+    DataPoint[] dataPoints = null;
+    // merge MS/MS spectra
+    if (mergeMS2) {
+      try {
+        MergedSpectrum spectrum = merger.getBestMergedSpectrum(mergeParameters, row);
+        if (spectrum != null) {
+          dataPoints = spectrum.data;
+          out.append("MERGED_STATS=");
+          out.append(spectrum.getMergeStatsDescription());
+          out.append(newLine);
+        }
+      } catch (Exception ex) {
+        logger.log(Level.WARNING, "Error during MS2 merge in mgf export: " + ex.getMessage(), ex);
+      }
     }
-    if (noMS2Counter > 0 && filter.requiresMS2()) {
-      logger.warning(noMS2Counter + " features had no MS/MS scan after already filtering for MS2");
+    // nothing after merging or no merging active
+    if (dataPoints == null) {
+      dataPoints = massList.getDataPoints();
     }
 
-    return exportedRows.get();
+    for (DataPoint feature : dataPoints) {
+      out.append(mzForm.format(feature.getMZ())).append(" ")
+          .append(intensityForm.format(feature.getIntensity())).append(newLine);
+    }
+    //
+    out.append("END IONS").append(newLine).append(newLine);
+    return true;
   }
 
   @Override
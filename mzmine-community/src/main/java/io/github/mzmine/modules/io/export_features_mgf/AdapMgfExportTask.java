@@ -34,15 +34,17 @@ import io.github.mzmine.modules.io.export_features_mgf.AdapMgfExportParameters.M
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.ThreadLocalNumberFormat;
+import io.github.mzmine.util.io.ParallelChunkWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.ScanUtils.IntegerMode;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
@@ -55,12 +57,14 @@ import org.jetbrains.annotations.NotNull;
 public class AdapMgfExportTask extends AbstractTask {
 
   private final String newLine = System.lineSeparator();
-  //
-  private NumberFormat mzForm = MZmineCore.getConfiguration().getMZFormat();
-  private NumberFormat mzNominalForm = new DecimalFormat("0");
-  private NumberFormat intensityForm = MZmineCore.getConfiguration().getIntensityFormat();
+  // formats are used by multiple threads
+  private final NumberFormat mzForm = ThreadLocalNumberFormat.of(
+      MZmineCore.getConfiguration().getMZFormat());
+  private final NumberFormat mzNominalForm = ThreadLocalNumberFormat.of(new DecimalFormat("0"));
+  private final NumberFormat intensityForm = ThreadLocalNumberFormat.of(
+      MZmineCore.getConfiguration().getIntensityFormat());
   // seconds
-  private NumberFormat rtsForm = new DecimalFormat("0.###");
+  private final NumberFormat rtsForm = ThreadLocalNumberFormat.of(new DecimalFormat("0.###"));
 
   private final FeatureList[] featureLists;
   private final File fileName;
@@ -69,7 +73,7 @@ public class AdapMgfExportTask extends AbstractTask {
   private final IntegerMode roundMode;
   private MzMode representativeMZ;
   private final int totalRows;
-  private int finishedRows = 0;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
 
   public AdapMgfExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(parameters, parameters.getParameter(AdapMgfExportParameters.FEATURE_LISTS).getValue()
@@ -80,7 +84,7 @@ public class AdapMgfExportTask extends AbstractTask {
       @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
     this.featureLists = featureLists;
-    totalRows = (int) Stream.of(featureLists).map(FeatureList::getRows).count();
+    totalRows = Stream.of(featureLists).mapToInt(FeatureList::getNumberOfRows).sum();
 
     this.fileName = parameters.getParameter(AdapMgfExportParameters.FILENAME).getValue();
 
@@ -93,7 +97,7 @@ public class AdapMgfExportTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    return totalRows != 0 ? finishedRows / totalRows : 0;
+    return totalRows != 0 ? finishedRows.get() / (double) totalRows : 0;
   }
 
   @Override
@@ -123,16 +127,7 @@ public class AdapMgfExportTask extends AbstractTask {
       }
 
       // Open file
-      FileWriter writer;
-      try {
-        writer = new FileWriter(curFile);
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Could not open file " + curFile + " for writing.");
-        return;
-      }
-
-      try {
+      try (ParallelChunkWriter writer = new ParallelChunkWriter(curFile)) {
         exportFeatureList(featureList, writer);
       } catch (IOException e) {
         setStatus(TaskStatus.ERROR);
@@ -145,15 +140,6 @@ public class AdapMgfExportTask extends AbstractTask {
         return;
       }
 
-      // Close file
-      try {
-        writer.close();
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Could not close file " + curFile);
-        return;
-      }
-
       // If feature list substitution pattern wasn't found,
       // treat one feature list only
       if (!substitute) {
@@ -166,21 +152,22 @@ public class AdapMgfExportTask extends AbstractTask {
     }
   }
 
-  private void exportFeatureList(FeatureList featureList, FileWriter writer) throws IOException {
-    for (FeatureListRow row : featureList.getRows()) {
-      IsotopePattern ip = row.getBestIsotopePattern();
-      if (ip == null) {
-        continue;
-      }
-
-      exportRow(writer, row, ip);
-
-      finishedRows++;
-    }
+  private void exportFeatureList(FeatureList featureList, ParallelChunkWriter writer)
+      throws IOException {
+    // format chunks of rows in parallel and write in order
+    writer.writeChunks(featureList.getRows(), ParallelChunkWriter.DEFAULT_CHUNK_SIZE,
+        this::isCanceled, (chunk, out) -> {
+          for (FeatureListRow row : chunk) {
+            IsotopePattern ip = row.getBestIsotopePattern();
+            if (ip != null) {
+              exportRow(out, row, ip);
+            }
+            finishedRows.incrementAndGet();
+          }
+        });
   }
 
-  private void exportRow(FileWriter writer, FeatureListRow row, IsotopePattern ip)
-      throws IOException {
+  private void exportRow(StringBuilder writer, FeatureListRow row, IsotopePattern ip) {
     // data points of this cluster
     DataPoint dataPoints[] = ScanUtils.extractDataPoints(ip);
     if (!fractionalMZ) {
@@ -190,23 +177,23 @@ public class AdapMgfExportTask extends AbstractTask {
     double mz = getRepresentativeMZ(row, dataPoints);
     String retTimeInSeconds = rtsForm.format(row.getAverageRT() * 60);
     // write
-    writer.write("BEGIN IONS" + newLine);
-    writer.write("FEATURE_ID=" + row.getID() + newLine);
-    writer.write("PEPMASS=" + formatMZ(mz) + newLine);
-    writer.write("RTINSECONDS=" + retTimeInSeconds + newLine);
-    writer.write("SCANS=" + row.getID() + newLine);
+    writer.append("BEGIN IONS").append(newLine);
+    writer.append("FEATURE_ID=").append(row.getID()).append(newLine);
+    writer.append("PEPMASS=").append(formatMZ(mz)).append(newLine);
+    writer.append("RTINSECONDS=").append(retTimeInSeconds).append(newLine);
+    writer.append("SCANS=").append(row.getID()).append(newLine);
 
     // needs to be MSLEVEL=2 for GC-GNPS (even for GC-EI-MS data)
-    writer.write("MSLEVEL=2" + newLine);
-    writer.write("CHARGE=1+" + newLine);
+    writer.append("MSLEVEL=2").append(newLine);
+    writer.append("CHARGE=1+").append(newLine);
 
     for (DataPoint point : dataPoints) {
-      String line = formatMZ(point.getMZ()) + " " + intensityForm.format(point.getIntensity());
-      writer.write(line + newLine);
+      writer.append(formatMZ(point.getMZ())).append(" ")
+          .append(intensityForm.format(point.getIntensity())).append(newLine);
     }
 
-    writer.write("END IONS" + newLine);
-    writer.write(newLine);
+    writer.append("END IONS").append(newLine);
+    writer.append(newLine);
   }
 
   /**
@@ -61,14 +61,13 @@ import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ParallelChunkWriter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.spectraldb.entry.DBEntryField;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -183,8 +182,7 @@ public class SiriusExportTask extends AbstractTask {
       }
 
       // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (ParallelChunkWriter writer = new ParallelChunkWriter(curFile)) {
         logger.fine(() -> String.format("Exporting SIRIUS mgf for feature list: %s to file %s",
             featureList.getName(), curFile.getAbsolutePath()));
         exportFeatureList(featureList, writer);
@@ -215,26 +213,36 @@ public class SiriusExportTask extends AbstractTask {
     return substitute;
   }
 
-  private void exportFeatureList(FeatureList featureList, BufferedWriter writer)
+  private void exportFeatureList(FeatureList featureList, ParallelChunkWriter writer)
       throws IOException {
-
-    for (FeatureListRow row : featureList.getRows()) {
-      if (isCanceled()) {
-        return;
-      }
-
-      if (exportRow(writer, row)) {
-        exportedRows.getAndIncrement();
-      }
-
-      processedRows.getAndIncrement();
-    }
+    // format chunks of rows in parallel and write in order
+    writer.writeChunks(featureList.getRows(), ParallelChunkWriter.DEFAULT_CHUNK_SIZE,
+        this::isCanceled, (chunk, out) -> {
+          for (FeatureListRow row : chunk) {
+            if (appendRow(out, row)) {
+              exportedRows.getAndIncrement();
+            }
+            processedRows.getAndIncrement();
+          }
+        });
   }
 
   /**
    * @return True if the row was exported.
    */
   public boolean exportRow(BufferedWriter writer, FeatureListRow row) throws IOException {
+    final StringBuilder out = new StringBuilder();
+    final boolean exported = appendRow(out, row);
+    writer.append(out);
+    return exported;
+  }
+
+  /**
+   * Appends the MGF entries of a row. Called in parallel for different rows.
+   *
+   * @return True if the row was exported.
+   */
+  private boolean appendRow(StringBuilder out, FeatureListRow row) {
 
     if (!checkFeatureCriteria(row)) {
       return false;
@@ -271,9 +279,7 @@ public class SiriusExportTask extends AbstractTask {
     }
 
     for (SpectralLibraryEntry entry : entries) {
-      final String mgfEntry = MGFEntryGenerator.createMGFEntry(entry);
-      writer.write(mgfEntry);
-      writer.newLine();
+      out.append(MGFEntryGenerator.createMGFEntry(entry)).append(System.lineSeparator());
     }
     return true;
   }
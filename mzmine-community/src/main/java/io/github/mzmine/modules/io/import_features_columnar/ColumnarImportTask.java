@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_features_columnar;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.MZmineProject;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.Column;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.ColumnKind;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Imports a {@link ColumnarFeatureTable} file as a feature list skeleton. Rows and features are
+ * restored with all numeric values of known data types. Text columns are skipped, as in the CSV
+ * import.
+ */
+public class ColumnarImportTask extends AbstractTask {
+
+  private static final Logger logger = Logger.getLogger(ColumnarImportTask.class.getName());
+
+  private final MZmineProject project;
+  private final File file;
+  private final ParameterSet parameters;
+  private int totalRows;
+  private int importedRows;
+
+  ColumnarImportTask(MZmineProject project, File file, ParameterSet parameters,
+      @Nullable MemoryMapStorage storage, @NotNull Instant moduleCallDate) {
+    super(storage, moduleCallDate);
+    this.project = project;
+    this.file = file;
+    this.parameters = parameters;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Importing feature list from columnar file " + file;
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return totalRows == 0 ? 0 : importedRows / (double) totalRows;
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16))) {
+      final ModularFeatureList flist = importFeatureList(in);
+      if (flist == null || isCanceled()) {
+        return;
+      }
+      flist.addDescriptionOfAppliedTask(
+          new SimpleFeatureListAppliedMethod(ColumnarImportModule.class, parameters,
+              getModuleCallDate()));
+      project.addFeatureList(flist);
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot import columnar file " + file + ": " + e.getMessage(), e);
+      error("Could not import feature list from file " + file.getName() + ": " + e.getMessage());
+      return;
+    }
+
+    if (getStatus() == TaskStatus.PROCESSING) {
+      setStatus(TaskStatus.FINISHED);
+    }
+  }
+
+  private @Nullable ModularFeatureList importFeatureList(DataInputStream in) throws IOException {
+    final byte[] magic = in.readNBytes(ColumnarFeatureTable.MAGIC.length);
+    if (!Arrays.equals(magic, ColumnarFeatureTable.MAGIC)) {
+      error("File " + file.getName() + " is not a columnar feature table");
+      return null;
+    }
+    final int version = in.readInt();
+    if (version > ColumnarFeatureTable.VERSION) {
+      error("Unsupported columnar feature table version " + version);
+      return null;
+    }
+
+    final String name = ColumnarFeatureTable.readString(in);
+    totalRows = in.readInt();
+
+    // raw data files are matched by name, missing files are skipped
+    final RawDataFile[] raws = new RawDataFile[in.readInt()];
+    final List<RawDataFile> foundRaws = new ArrayList<>();
+    for (int r = 0; r < raws.length; r++) {
+      final String rawName = ColumnarFeatureTable.readString(in);
+      raws[r] = project.getDataFileByName(rawName);
+      if (raws[r] == null) {
+        logger.warning("Raw data file %s is not imported, skipping its features".formatted(rawName));
+      } else {
+        foundRaws.add(raws[r]);
+      }
+    }
+
+    final Column[] columns = new Column[in.readInt()];
+    final DataType<?>[] types = new DataType[columns.length];
+    int idColumn = -1;
+    for (int c = 0; c < columns.length; c++) {
+      columns[c] = Column.read(in);
+      types[c] = getRestoredType(columns[c]);
+      if (types[c] instanceof IDType && columns[c].rawFileIndex() < 0) {
+        idColumn = c;
+      }
+    }
+
+    final ModularFeatureList flist = new ModularFeatureList(name, getMemoryMapStorage(),
+        foundRaws);
+    int numRows;
+    while ((numRows = in.readInt()) > 0) {
+      if (isCanceled()) {
+        return null;
+      }
+      final Object[][] values = new Object[columns.length][];
+      for (int c = 0; c < columns.length; c++) {
+        values[c] = ColumnarFeatureTable.readBlock(in, columns[c].kind(), numRows);
+      }
+      for (int i = 0; i < numRows; i++) {
+        final int id = idColumn >= 0 && values[idColumn][i] != null ? (Integer) values[idColumn][i]
+            : importedRows + 1;
+        flist.addRow(createRow(flist, id, columns, types, values, i, raws));
+        importedRows++;
+      }
+    }
+    return flist;
+  }
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private ModularFeatureListRow createRow(ModularFeatureList flist, int id, Column[] columns,
+      DataType<?>[] types, Object[][] values, int i, RawDataFile[] raws) {
+    final ModularFeatureListRow row = new ModularFeatureListRow(flist, id);
+    final ModularFeature[] features = new ModularFeature[raws.length];
+    for (int c = 0; c < columns.length; c++) {
+      final Object value = values[c][i];
+      if (types[c] == null || types[c] instanceof IDType || value == null) {
+        continue;
+      }
+      final int rawIndex = columns[c].rawFileIndex();
+      if (rawIndex < 0) {
+        row.set((DataType) types[c], value);
+        continue;
+      }
+      if (raws[rawIndex] == null) {
+        continue;
+      }
+      if (features[rawIndex] == null) {
+        features[rawIndex] = new ModularFeature(flist, raws[rawIndex], FeatureStatus.DETECTED);
+      }
+      if (types[c] instanceof DetectionType) {
+        features[rawIndex].set(DetectionType.class, parseStatus((String) value));
+      } else {
+        features[rawIndex].set((DataType) types[c], value);
+      }
+    }
+
+    for (int r = 0; r < raws.length; r++) {
+      if (features[r] != null) {
+        row.addFeature(raws[r], features[r], false);
+      }
+    }
+    return row;
+  }
+
+  /**
+   * @return the data type if values of this column can be restored, null otherwise
+   */
+  private static @Nullable DataType<?> getRestoredType(Column column) {
+    final DataType<?> type = DataTypes.getTypeForId(column.typeId());
+    if (type == null || column.subColumn() >= 0) {
+      return null;
+    }
+    if (type instanceof DetectionType && column.kind() == ColumnKind.STRING) {
+      return type;
+    }
+    if (column.kind() == ColumnKind.STRING
+        || ColumnKind.forValueClass(type.getValueClass()) != column.kind()) {
+      return null;
+    }
+    return type;
+  }
+
+  private static FeatureStatus parseStatus(String value) {
+    for (FeatureStatus status : FeatureStatus.values()) {
+      if (status.name().equalsIgnoreCase(value) || status.toString().equalsIgnoreCase(value)) {
+        return status;
+      }
+    }
+    return FeatureStatus.DETECTED;
+  }
+}
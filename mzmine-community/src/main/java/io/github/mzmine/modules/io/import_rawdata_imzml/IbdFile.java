@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Read only memory mapping of the binary .ibd file of an imzML data set. Arrays are decoded
+ * directly from the mapped segment, which is safe to be used by multiple threads. Data is little
+ * endian as defined by the imzML specification.
+ */
+public class IbdFile implements AutoCloseable {
+
+  private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+
+  private final Arena arena;
+  private final MemorySegment data;
+
+  public IbdFile(@NotNull File ibd) throws IOException {
+    arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(ibd.toPath(), StandardOpenOption.READ)) {
+      data = channel.map(MapMode.READ_ONLY, 0, channel.size(), arena);
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param imzML the imzML file
+   * @return the .ibd file next to the imzML file
+   */
+  public static @NotNull File findIbdFile(@NotNull File imzML) {
+    final String name = imzML.getName();
+    final int dot = name.lastIndexOf('.');
+    final String base = dot > 0 ? name.substring(0, dot) : name;
+    final File lower = new File(imzML.getParentFile(), base + ".ibd");
+    if (lower.exists()) {
+      return lower;
+    }
+    return new File(imzML.getParentFile(), base + ".IBD");
+  }
+
+  /**
+   * Decodes an array from the .ibd file.
+   *
+   * @param offset        byte offset
+   * @param length        number of values
+   * @param encodedLength number of bytes, only used for compressed data
+   * @param format        the data format, see {@link ImzMLSpectrumIndex#encodeFormat}
+   * @return the values as double
+   */
+  public double[] readDoubles(long offset, int length, long encodedLength, byte format)
+      throws DataFormatException {
+    final MzMLBitLength bitLength = ImzMLSpectrumIndex.decodeBitLength(format);
+    MemorySegment source = data;
+    long position = offset;
+    if (ImzMLSpectrumIndex.decodeZlib(format)) {
+      source = inflate(offset, encodedLength, (long) length * bitLength.bits() / 8);
+      position = 0;
+    }
+
+    final double[] values = new double[length];
+    switch (bitLength) {
+      case THIRTY_TWO_BIT_FLOAT -> {
+        for (int i = 0; i < length; i++) {
+          values[i] = source.get(FLOAT, position + (long) i * Float.BYTES);
+        }
+      }
+      case SIXTY_FOUR_BIT_FLOAT ->
+          MemorySegment.copy(source, DOUBLE, position, values, 0, length);
+      case THIRTY_TWO_BIT_INTEGER -> {
+        for (int i = 0; i < length; i++) {
+          values[i] = source.get(INT, position + (long) i * Integer.BYTES);
+        }
+      }
+      case SIXTY_FOUR_BIT_INTEGER -> {
+        for (int i = 0; i < length; i++) {
+          values[i] = source.get(LONG, position + (long) i * Long.BYTES);
+        }
+      }
+      case SIXTEEN_BIT_FLOAT -> {
+        for (int i = 0; i < length; i++) {
+          values[i] = Float.float16ToFloat(
+              source.get(ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN),
+                  position + (long) i * Short.BYTES));
+        }
+      }
+    }
+    return values;
+  }
+
+  private MemorySegment inflate(long offset, long encodedLength, long decodedLength)
+      throws DataFormatException {
+    final byte[] compressed = new byte[Math.toIntExact(encodedLength)];
+    MemorySegment.copy(data, ValueLayout.JAVA_BYTE, offset, compressed, 0, compressed.length);
+    final byte[] decompressed = new byte[Math.toIntExact(decodedLength)];
+    final Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      int total = 0;
+      while (total < decompressed.length && !inflater.finished()) {
+        final int n = inflater.inflate(decompressed, total, decompressed.length - total);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        total += n;
+      }
+    } finally {
+      inflater.end();
+    }
+    return MemorySegment.ofArray(decompressed);
+  }
+
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
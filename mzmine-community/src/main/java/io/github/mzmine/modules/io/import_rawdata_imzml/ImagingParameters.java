@@ -183,6 +183,64 @@ public class ImagingParameters {
     }
   }
 
+  /**
+   * Imaging parameters from the scan settings of the {@link ImzMLStreamReader}.
+   *
+   * @param minMZ the lowest m/z in the data
+   * @param maxMZ the highest m/z in the data
+   */
+  public ImagingParameters(ImzMLSpectrumIndex index, double minMZ, double maxMZ) {
+    maxNumberOfPixelX = index.getWidth();
+    maxNumberOfPixelY = index.getHeight();
+    maxNumberOfPixelZ = Math.max(1, index.getDepth());
+    spectraPerPixel = 1;
+    this.minMZ = minMZ;
+    this.maxMZ = maxMZ;
+
+    lateralWidth = index.maxDimensionX;
+    lateralHeight = index.maxDimensionY;
+    vStart = index.bottomUp ? VerticalStart.BOTTOM : VerticalStart.TOP;
+    hStart = index.rightLeft ? HorizontalStart.RIGHT : HorizontalStart.LEFT;
+    scanDirection = index.verticalScan ? ScanDirection.VERTICAL : ScanDirection.HORIZONTAL;
+    pattern = index.pattern;
+
+    if (index.pixelSizeX > 0) {
+      pixelWidth = index.pixelSizeX;
+    }
+    pixelHeight = index.pixelSizeY > 0 ? index.pixelSizeY : pixelWidth;
+
+    if (Double.compare(lateralHeight, 0d) == 0) {
+      lateralHeight = maxNumberOfPixelY * pixelHeight;
+    }
+    if (Double.compare(lateralWidth, 0d) == 0) {
+      lateralWidth = maxNumberOfPixelX * pixelWidth;
+    }
+  }
+
+  /**
+   * Imaging parameters of a regular raster with one spectrum per pixel, scanned line by line from
+   * the top left.
+   *
+   * @param pixelSize width and height of a pixel in micrometer
+   */
+  public ImagingParameters(int pixelsX, int pixelsY, double pixelSize, double minMZ,
+      double maxMZ) {
+    maxNumberOfPixelX = pixelsX;
+    maxNumberOfPixelY = pixelsY;
+    maxNumberOfPixelZ = 1;
+    spectraPerPixel = 1;
+    this.minMZ = minMZ;
+    this.maxMZ = maxMZ;
+    pixelWidth = pixelSize;
+    pixelHeight = pixelSize;
+    lateralWidth = pixelsX * pixelSize;
+    lateralHeight = pixelsY * pixelSize;
+    vStart = VerticalStart.TOP;
+    hStart = HorizontalStart.LEFT;
+    scanDirection = ScanDirection.HORIZONTAL;
+    pattern = Pattern.FLY_BACK;
+  }
+
   public double getMinMZ() {
     return minMZ;
   }
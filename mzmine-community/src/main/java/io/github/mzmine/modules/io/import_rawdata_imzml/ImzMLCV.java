@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+/**
+ * Controlled vocabulary accessions of the imaging MS ontology (imagingMS.obo) that are used by the
+ * {@link ImzMLStreamReader}. General mzML accessions are found in
+ * {@link io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCV}.
+ */
+final class ImzMLCV {
+
+  // file content
+  static final String CONTINUOUS = "IMS:1000030";
+  static final String PROCESSED = "IMS:1000031";
+  static final String UUID = "IMS:1000080";
+
+  // scan settings
+  static final String MAX_COUNT_PIXELS_X = "IMS:1000042";
+  static final String MAX_COUNT_PIXELS_Y = "IMS:1000043";
+  static final String MAX_DIMENSION_X = "IMS:1000044";
+  static final String MAX_DIMENSION_Y = "IMS:1000045";
+  static final String PIXEL_SIZE_X = "IMS:1000046";
+  static final String PIXEL_SIZE_Y = "IMS:1000047";
+  static final String SCAN_PATTERN_MEANDERING = "IMS:1000410";
+  static final String SCAN_PATTERN_RANDOM_ACCESS = "IMS:1000412";
+  static final String SCAN_PATTERN_FLYBACK = "IMS:1000413";
+  static final String SCAN_TYPE_VERTICAL = "IMS:1000481";
+  static final String LINE_SCAN_RIGHT_LEFT = "IMS:1000490";
+  static final String LINE_SCAN_BOTTOM_UP = "IMS:1000492";
+
+  // spectrum position
+  static final String POSITION_X = "IMS:1000050";
+  static final String POSITION_Y = "IMS:1000051";
+  static final String POSITION_Z = "IMS:1000052";
+
+  // binary data in the .ibd file
+  static final String EXTERNAL_OFFSET = "IMS:1000102";
+  static final String EXTERNAL_ARRAY_LENGTH = "IMS:1000103";
+  static final String EXTERNAL_ENCODED_LENGTH = "IMS:1000104";
+
+  private ImzMLCV() {
+  }
+}
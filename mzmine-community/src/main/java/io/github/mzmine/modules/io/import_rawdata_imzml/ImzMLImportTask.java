@@ -25,26 +25,15 @@
 
 package io.github.mzmine.modules.io.import_rawdata_imzml;
 
-import com.alanmrace.jimzmlparser.imzml.ImzML;
-import com.alanmrace.jimzmlparser.mzml.BinaryDataArray;
-import com.alanmrace.jimzmlparser.mzml.BinaryDataArrayList;
-import com.alanmrace.jimzmlparser.mzml.CVParam;
-import com.alanmrace.jimzmlparser.mzml.Precursor;
-import com.alanmrace.jimzmlparser.mzml.PrecursorList;
-import com.alanmrace.jimzmlparser.mzml.Scan;
-import com.alanmrace.jimzmlparser.mzml.ScanList;
-import com.alanmrace.jimzmlparser.mzml.SelectedIon;
-import com.alanmrace.jimzmlparser.mzml.SelectedIonList;
-import com.alanmrace.jimzmlparser.mzml.Spectrum;
-import com.alanmrace.jimzmlparser.mzml.SpectrumList;
-import com.alanmrace.jimzmlparser.parser.ImzMLHandler;
+import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.ImagingRawDataFile;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleImagingScan;
-import io.github.mzmine.datamodel.impl.SimpleScan;
 import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
 import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.modules.MZmineModule;
@@ -57,47 +46,39 @@ import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.io.File;
-import java.io.IOException;
+import java.lang.foreign.MemorySegment;
 import java.time.Instant;
-import java.util.Hashtable;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * This class reads mzML 1.0 and 1.1.0 files (http://www.psidev.info/index.php?q=node/257) using the
- * jmzml library (http://code.google.com/p/jmzml/).
+ * Reads imzML files. The metadata is streamed into a primitive {@link ImzMLSpectrumIndex} by the
+ * {@link ImzMLStreamReader}, the memory mapped .ibd file is then decoded in parallel chunks of
+ * spectra. Continuous imzML files share a single m/z axis between all pixels.
  */
 public class ImzMLImportTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(ImzMLImportTask.class.getName());
 
+  /**
+   * Number of consecutive spectra decoded by one thread. Consecutive spectra are also close in the
+   * .ibd file.
+   */
+  private static final int CHUNK_SIZE = 256;
+
   private final File file;
   private final MZmineProject project;
   private final ScanImportProcessorConfig scanProcessorConfig;
   private final ImagingRawDataFile newMZmineFile;
   private final ParameterSet parameters;
   private final Class<? extends MZmineModule> module;
-  private int totalScans = 0, parsedScans;
-
-  private int lastScanNumber = 0;
-
-  private final Map<String, Integer> scanIdTable = new Hashtable<>();
-
-  /*
-   * This stack stores at most 20 consecutive scans. This window serves to find possible fragments
-   * (current scan) that belongs to any of the stored scans in the stack. The reason of the size
-   * follows the concept of neighborhood of scans and all his fragments. These solution is
-   * implemented because exists the possibility to find fragments of one scan after one or more full
-   * scans.
-   */
-  private static final int PARENT_STACK_SIZE = 20;
-  private final LinkedList<SimpleScan> parentStack = new LinkedList<>();
+  private final AtomicInteger parsedScans = new AtomicInteger(0);
+  private int totalScans = 0;
 
   public ImzMLImportTask(MZmineProject project, File fileToOpen,
       final @NotNull ScanImportProcessorConfig scanProcessorConfig,
@@ -115,7 +96,7 @@ public class ImzMLImportTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    return totalScans == 0 ? 0 : (double) parsedScans / totalScans;
+    return totalScans == 0 ? 0 : (double) parsedScans.get() / totalScans;
   }
 
   /**
@@ -127,92 +108,53 @@ public class ImzMLImportTask extends AbstractTask {
     setStatus(TaskStatus.PROCESSING);
     logger.info("Started parsing file " + file);
 
-    ImzML imzml;
+    int importedScans = 0;
     try {
-      imzml = ImzMLHandler.parseimzML(file.getAbsolutePath());
-
-      SpectrumList spectra = imzml.getRun().getSpectrumList();
-      totalScans = spectra.size();
-      for (int i = 0; i < totalScans; i++) {
-
-        if (isCanceled()) {
-          return;
-        }
-
-        Spectrum spectrum = spectra.get(i);
+      final ImzMLSpectrumIndex index = ImzMLStreamReader.read(file, this::isCanceled);
+      if (index == null || isCanceled()) {
+        return;
+      }
+      totalScans = index.size();
+
+      final Scan[] scans = new Scan[totalScans];
+      try (IbdFile ibd = new IbdFile(IbdFile.findIbdFile(file))) {
+        final SharedMzAxis sharedMzs = index.isContinuous() && totalScans > 0 ? readSharedMzAxis(
+            index, ibd) : null;
+
+        final int numChunks = (totalScans + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+          final int end = Math.min(totalScans, (chunk + 1) * CHUNK_SIZE);
+          for (int i = chunk * CHUNK_SIZE; i < end && !isCanceled(); i++) {
+            scans[i] = readScan(index, ibd, sharedMzs, i);
+            parsedScans.incrementAndGet();
+          }
+        });
+      }
 
-        // Ignore scans that are not MS, e.g. UV
-        if (!isMsSpectrum(spectrum)) {
-          parsedScans++;
-          continue;
-        }
+      if (isCanceled()) {
+        return;
+      }
 
-        String scanId = spectrum.getID();
-        int scanNumber = convertScanIdToScanNumber(scanId);
-
-        // Extract scan data
-        int msLevel = extractMSLevel(spectrum);
-        float retentionTime = extractRetentionTime(spectrum);
-        PolarityType polarity = extractPolarity(spectrum);
-        int parentScan = extractParentScanNumber(spectrum);
-        double precursorMz = extractPrecursorMz(spectrum);
-        int precursorCharge = extractPrecursorCharge(spectrum);
-        String scanDefinition = extractScanDefinition(spectrum);
-        // imaging
-        Coordinates coord = extractCoordinates(spectrum);
-
-        // TODO find out if spectrum type is encoded in imzml file
-        var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
-            MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
-        if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
-          // skip parsing of data and skip this scan completely
-          parsedScans++;
+      // add in file order
+      double minMz = Double.POSITIVE_INFINITY;
+      double maxMz = Double.NEGATIVE_INFINITY;
+      for (final Scan scan : scans) {
+        if (scan == null) {
           continue;
         }
-
-        double[] mzValues = extractMzValues(spectrum);
-        double[] intensityValues = extractIntensityValues(spectrum);
-        // Auto-detect whether this scan is centroided
-        SimpleSpectralArrays data = new SimpleSpectralArrays(mzValues, intensityValues);
-        MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
-
-        data = scanProcessorConfig.processor().processScan(metadataScan, data);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          spectrumType = MassSpectrumType.CENTROIDED;
-        }
-
-        SimpleImagingScan scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel,
-            retentionTime, precursorMz, precursorCharge, data.mzs(), data.intensities(),
-            spectrumType, polarity, scanDefinition, null, coord);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          scan.addMassList(new ScanPointerMassList(scan));
-        }
-
-        /*
-         * Verify the size of parentStack. The actual size of the window to cover possible
-         * candidates is defined by limitSize.
-         */
-        if (parentStack.size() > PARENT_STACK_SIZE) {
-          io.github.mzmine.datamodel.Scan firstScan = parentStack.removeLast();
-          newMZmineFile.addScan(firstScan);
-        }
-
-        parentStack.addFirst(scan);
-
-        parsedScans++;
-
-      }
-
-      while (!parentStack.isEmpty()) {
-        io.github.mzmine.datamodel.Scan scan = parentStack.removeLast();
         newMZmineFile.addScan(scan);
+        importedScans++;
+        final Range<Double> mzRange = scan.getDataPointMZRange();
+        if (mzRange != null) {
+          minMz = Math.min(minMz, mzRange.lowerEndpoint());
+          maxMz = Math.max(maxMz, mzRange.upperEndpoint());
+        }
       }
-      newMZmineFile.getScans().sort(io.github.mzmine.datamodel.Scan::compareTo);
+      newMZmineFile.getScans().sort(Scan::compareTo);
 
       // set settings of image
-      newMZmineFile.setImagingParam(new ImagingParameters(imzml));
+      newMZmineFile.setImagingParam(new ImagingParameters(index,
+          Double.isFinite(minMz) ? minMz : 0, Double.isFinite(maxMz) ? maxMz : 0));
       newMZmineFile.getAppliedMethods()
           .add(new SimpleFeatureListAppliedMethod(module, parameters, getModuleCallDate()));
       project.addFile(newMZmineFile);
@@ -223,237 +165,100 @@ public class ImzMLImportTask extends AbstractTask {
       return;
     }
 
-    if (parsedScans == 0) {
+    if (importedScans == 0) {
       setStatus(TaskStatus.ERROR);
       setErrorMessage("No scans found");
       return;
     }
 
-    logger.info("Finished parsing " + file + ", parsed " + parsedScans + " scans");
+    logger.info("Finished parsing " + file + ", parsed " + importedScans + " scans");
     setStatus(TaskStatus.FINISHED);
 
   }
 
-  private int convertScanIdToScanNumber(String scanId) {
-
-    if (scanIdTable.containsKey(scanId)) {
-      return scanIdTable.get(scanId);
-    }
-
-    final Pattern pattern = Pattern.compile("scan=([0-9]+)");
-    final Matcher matcher = pattern.matcher(scanId);
-    boolean scanNumberFound = matcher.find();
-
-    // Some vendors include scan=XX in the ID, some don't, such as
-    // mzML converted from WIFF files. See the definition of nativeID in
-    // http://psidev.cvs.sourceforge.net/viewvc/psidev/psi/psi-ms/mzML/controlledVocabulary/psi-ms.obo
-    if (scanNumberFound) {
-      int scanNumber = Integer.parseInt(matcher.group(1));
-      scanIdTable.put(scanId, scanNumber);
-      return scanNumber;
-    }
-
-    int scanNumber = lastScanNumber + 1;
-    lastScanNumber++;
-    scanIdTable.put(scanId, scanNumber);
-    return scanNumber;
-  }
-
-  private int extractMSLevel(Spectrum spectrum) {
-    // Browse the spectrum parameters
-    // MS level MS:1000511
-    // CVParam param = spectrum.getCVParam(Spectrum.MS1_SPECTRUM_ID);
-    // if (param != null)
-    // return param.getValueAsInteger();
-    return 1;
-  }
-
-  private float extractRetentionTime(Spectrum spectrum) {
-    ScanList scanListElement = spectrum.getScanList();
-    if (scanListElement == null) {
-      return 0;
-    }
-
-    for (Scan scan : scanListElement) {
-      try {
-        // scan start time correct?
-        CVParam param = scan.getCVParam(Scan.SCAN_START_TIME_ID);
-        if (param != null) {
-          return (float) param.getValueAsDouble();
-        }
-      } catch (Exception e) {
-        e.printStackTrace();
+  /**
+   * In continuous mode all spectra point to the same m/z array. Decode it once and store it once.
+   *
+   * @return the shared axis or null if the axis is not sorted and needs to be sorted per spectrum
+   */
+  private @Nullable SharedMzAxis readSharedMzAxis(ImzMLSpectrumIndex index, IbdFile ibd)
+      throws DataFormatException {
+    final double[] mzs = ibd.readDoubles(index.getMzOffset(0), index.getMzLength(0),
+        index.getMzEncodedLength(0), index.getMzFormat(0));
+    for (int i = 1; i < mzs.length; i++) {
+      if (mzs[i - 1] > mzs[i]) {
+        return null;
       }
     }
-
-    return 0;
+    final MemorySegment stored = StorageUtils.storeValuesToDoubleBuffer(
+        newMZmineFile.getMemoryMapStorage(), mzs);
+    return new SharedMzAxis(index.getMzOffset(0), mzs, stored);
   }
 
-  private double[] extractIntensityValues(Spectrum spectrum) {
-    try {
-      BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
-      BinaryDataArray intensityArray = dataList.getIntensityArray();
-      double intensityValues[] = intensityArray.getDataAsDouble();
-      return intensityValues;
-    } catch (IOException e) {
-      e.printStackTrace();
-      return new double[0];
+  /**
+   * @return the scan or null if it was filtered
+   */
+  private @Nullable Scan readScan(ImzMLSpectrumIndex index, IbdFile ibd,
+      @Nullable SharedMzAxis sharedMzs, int i) {
+    final int scanNumber = index.getScanNumber(i);
+    // MS level is not reliably encoded in imzML files
+    final int msLevel = 1;
+    final float retentionTime = index.getRetentionTime(i);
+    final PolarityType polarity = index.getPolarity(i);
+    final double precursorMz = index.getPrecursorMz(i);
+    final int precursorCharge = index.getPrecursorCharge(i);
+
+    // TODO find out if spectrum type is encoded in imzml file
+    var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
+        MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
+    if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
+      // skip parsing of data and skip this scan completely
+      return null;
     }
-  }
 
-  private double[] extractMzValues(Spectrum spectrum) {
+    final boolean useSharedMzs = sharedMzs != null && sharedMzs.offset() == index.getMzOffset(i);
+    final double[] mzValues;
+    final double[] intensityValues;
     try {
-      BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
-
-      BinaryDataArray mzArray = dataList.getmzArray();
-      double mzValues[] = mzArray.getDataAsDouble();
-      return mzValues;
-
-    } catch (IOException e) {
-      e.printStackTrace();
-      return new double[0];
-    }
-
-  }
-
-  private Coordinates extractCoordinates(Spectrum spectrum) {
-    ScanList list = spectrum.getScanList();
-    if (list != null) {
-      for (Scan scan : spectrum.getScanList()) {
-        CVParam xValue = scan.getCVParam(Scan.POSITION_X_ID);
-        CVParam yValue = scan.getCVParam(Scan.POSITION_Y_ID);
-        CVParam zValue = scan.getCVParam(Scan.POSITION_Z_ID);
-
-        if (xValue != null && yValue != null) {
-          int x = xValue.getValueAsInteger() - 1;
-          int y = yValue.getValueAsInteger() - 1;
-
-          if (zValue != null) {
-            return new Coordinates(x, y, zValue.getValueAsInteger() - 1);
-          } else {
-            return new Coordinates(x, y, 0);
-          }
-        }
-      }
-    }
-    return null;
-  }
-
-
-  private int extractParentScanNumber(Spectrum spectrum) {
-    PrecursorList precursorListElement = spectrum.getPrecursorList();
-    if ((precursorListElement == null) || (precursorListElement.size() == 0)) {
-      return -1;
-    }
-
-    for (Precursor parent : precursorListElement) {
-      // Get the precursor scan number
-      String precursorScanId = parent.getXMLAttributeText();
-      if (precursorScanId == null) {
-        return -1;
-      }
-      int parentScan = convertScanIdToScanNumber(precursorScanId);
-      return parentScan;
-    }
-    return -1;
-  }
-
-  private double extractPrecursorMz(Spectrum spectrum) {
-
-    PrecursorList precursorListElement = spectrum.getPrecursorList();
-    if ((precursorListElement == null) || (precursorListElement.size() == 0)) {
-      return 0;
-    }
-
-    for (Precursor parent : precursorListElement) {
-
-      SelectedIonList selectedIonListElement = parent.getSelectedIonList();
-      if ((selectedIonListElement == null) || (selectedIonListElement.size() == 0)) {
-        return 0;
-      }
-
-      // MS:1000040 is used in mzML 1.0,
-      // MS:1000744 is used in mzML 1.1.0
-      for (SelectedIon sion : selectedIonListElement) {
-        CVParam param = sion.getCVParam("MS:1000040");
-        if (param != null) {
-          return param.getValueAsDouble();
-        }
-
-        param = sion.getCVParam("MS:1000744");
-        if (param != null) {
-          return param.getValueAsDouble();
-        }
-      }
+      mzValues = useSharedMzs ? sharedMzs.mzs()
+          : ibd.readDoubles(index.getMzOffset(i), index.getMzLength(i),
+              index.getMzEncodedLength(i), index.getMzFormat(i));
+      intensityValues = ibd.readDoubles(index.getIntensityOffset(i), index.getIntensityLength(i),
+          index.getIntensityEncodedLength(i), index.getIntensityFormat(i));
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Cannot decode spectrum " + scanNumber, e);
     }
-    return 0;
-  }
 
-  private int extractPrecursorCharge(Spectrum spectrum) {
-    PrecursorList precursorList = spectrum.getPrecursorList();
-    if ((precursorList == null) || (precursorList.size() == 0)) {
-      return 0;
-    }
+    // Auto-detect whether this scan is centroided
+    SimpleSpectralArrays data = new SimpleSpectralArrays(mzValues, intensityValues);
+    MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
 
-    for (Precursor parent : precursorList) {
-      SelectedIonList selectedIonListElement = parent.getSelectedIonList();
-      if ((selectedIonListElement == null) || (selectedIonListElement.size() == 0)) {
-        return 0;
-      }
+    data = scanProcessorConfig.processor().processScan(metadataScan, data);
 
-      for (SelectedIon sion : selectedIonListElement) {
-
-        // precursor charge
-        CVParam param = sion.getCVParam("MS:1000041");
-        if (param != null) {
-          return param.getValueAsInteger();
-        }
-      }
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      spectrumType = MassSpectrumType.CENTROIDED;
     }
-    return 0;
-  }
 
-  private PolarityType extractPolarity(Spectrum spectrum) {
-    CVParam cv = spectrum.getCVParam(Spectrum.SCAN_POLARITY_ID);
-    if (spectrum.getCVParam("MS:1000130") != null) {
-      return PolarityType.POSITIVE;
-    } else if (spectrum.getCVParam("MS:1000129") != null) {
-      return PolarityType.NEGATIVE;
+    final String scanDefinition = index.getScanDefinition(i);
+    final Coordinates coord = index.getCoordinates(i);
+    final SimpleImagingScan scan;
+    if (useSharedMzs && data.mzs() == sharedMzs.mzs()) {
+      // processing kept the m/z axis, so all pixels point to the same stored m/z values
+      final MemorySegment intensities = StorageUtils.storeValuesToDoubleBuffer(
+          newMZmineFile.getMemoryMapStorage(), data.intensities());
+      scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel, retentionTime, precursorMz,
+          precursorCharge, sharedMzs.stored(), intensities, spectrumType, polarity, scanDefinition,
+          null, coord);
+    } else {
+      scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel, retentionTime, precursorMz,
+          precursorCharge, data.mzs(), data.intensities(), spectrumType, polarity, scanDefinition,
+          null, coord);
     }
 
-    ScanList scanListElement = spectrum.getScanList();
-    if (scanListElement != null) {
-      for (int i = 0; i < scanListElement.size(); i++) {
-        Scan scan = scanListElement.get(i);
-
-        if (scan.getCVParam("MS:1000130") != null) {
-          return PolarityType.POSITIVE;
-        } else if (scan.getCVParam("MS:1000129") != null) {
-          return PolarityType.NEGATIVE;
-        }
-      }
-    }
-    return PolarityType.UNKNOWN;
-  }
-
-  private String extractScanDefinition(Spectrum spectrum) {
-    CVParam cvParams = spectrum.getCVParam("MS:1000512");
-    if (cvParams != null) {
-      return cvParams.getValueAsString();
-    }
-
-    ScanList scanListElement = spectrum.getScanList();
-    if (scanListElement != null) {
-      for (int i = 0; i < scanListElement.size(); i++) {
-        Scan scan = scanListElement.get(i);
-
-        cvParams = scan.getCVParam("MS:1000512");
-        if (cvParams != null) {
-          return cvParams.getValueAsString();
-        }
-      }
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      scan.addMassList(new ScanPointerMassList(scan));
     }
-    return spectrum.getID();
+    return scan;
   }
 
   @Override
@@ -461,12 +266,14 @@ public class ImzMLImportTask extends AbstractTask {
     return "Opening file " + file;
   }
 
-  boolean isMsSpectrum(Spectrum spectrum) {
-    // one thats not MS (code for UV?)
-    CVParam cvParams = spectrum.getCVParam("MS:1000804");
+  /**
+   * The m/z axis of continuous imzML files
+   *
+   * @param offset the offset in the .ibd file
+   * @param mzs    the decoded values, must not be modified
+   * @param stored the values in the memory map storage of the raw data file
+   */
+  private record SharedMzAxis(long offset, double[] mzs, MemorySegment stored) {
 
-    // By default, let's assume unidentified spectra are MS spectra
-    return cvParams == null;
   }
-
 }
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Metadata of all MS spectra in an imzML file, kept in primitive columns. Only the offsets of the
+ * binary arrays in the .ibd file are stored, the data is read by {@link IbdFile}.
+ */
+public class ImzMLSpectrumIndex {
+
+  private static final PolarityType[] POLARITIES = PolarityType.values();
+  private static final MzMLBitLength[] BIT_LENGTHS = MzMLBitLength.values();
+
+  // spectrum metadata
+  private final IntArrayList scanNumbers = new IntArrayList();
+  private final FloatArrayList retentionTimes = new FloatArrayList();
+  private final ByteArrayList polarities = new ByteArrayList();
+  private final IntArrayList scanDefinitions = new IntArrayList();
+  private final DoubleArrayList precursorMzs = new DoubleArrayList();
+  private final ByteArrayList precursorCharges = new ByteArrayList();
+  private final IntArrayList x = new IntArrayList();
+  private final IntArrayList y = new IntArrayList();
+  private final IntArrayList z = new IntArrayList();
+  // binary arrays
+  private final LongArrayList mzOffsets = new LongArrayList();
+  private final IntArrayList mzLengths = new IntArrayList();
+  private final LongArrayList mzEncodedLengths = new LongArrayList();
+  private final ByteArrayList mzFormats = new ByteArrayList();
+  private final LongArrayList intensityOffsets = new LongArrayList();
+  private final IntArrayList intensityLengths = new IntArrayList();
+  private final LongArrayList intensityEncodedLengths = new LongArrayList();
+  private final ByteArrayList intensityFormats = new ByteArrayList();
+
+  // scan definitions are mostly the same filter string for all spectra
+  private final List<String> distinctScanDefinitions = new ArrayList<>();
+  private final Object2IntOpenHashMap<String> scanDefinitionIndex = new Object2IntOpenHashMap<>();
+
+  // file content and scan settings
+  boolean continuous;
+  @Nullable String uuid;
+  int maxCountPixelsX;
+  int maxCountPixelsY;
+  double maxDimensionX;
+  double maxDimensionY;
+  double pixelSizeX;
+  double pixelSizeY;
+  boolean bottomUp;
+  boolean rightLeft;
+  boolean verticalScan;
+  @Nullable ImagingParameters.Pattern pattern;
+
+  ImzMLSpectrumIndex() {
+  }
+
+  /**
+   * Encodes the binary data type of an array
+   */
+  static byte encodeFormat(@NotNull MzMLBitLength bitLength, boolean zlib) {
+    return (byte) (bitLength.ordinal() << 1 | (zlib ? 1 : 0));
+  }
+
+  static MzMLBitLength decodeBitLength(byte format) {
+    return BIT_LENGTHS[format >> 1];
+  }
+
+  static boolean decodeZlib(byte format) {
+    return (format & 1) == 1;
+  }
+
+  void add(int scanNumber, float rt, @NotNull PolarityType polarity,
+      @NotNull String scanDefinition, double precursorMz, int precursorCharge, int x, int y, int z, long mzOffset, int mzLength,
+      long mzEncodedLength, byte mzFormat, long intensityOffset, int intensityLength,
+      long intensityEncodedLength, byte intensityFormat) {
+    scanNumbers.add(scanNumber);
+    retentionTimes.add(rt);
+    polarities.add((byte) polarity.ordinal());
+    scanDefinitions.add(scanDefinitionIndex.computeIfAbsent(scanDefinition, _ -> {
+      distinctScanDefinitions.add(scanDefinition);
+      return distinctScanDefinitions.size() - 1;
+    }));
+    precursorMzs.add(precursorMz);
+    precursorCharges.add((byte) precursorCharge);
+    this.x.add(x);
+    this.y.add(y);
+    this.z.add(z);
+    mzOffsets.add(mzOffset);
+    mzLengths.add(mzLength);
+    mzEncodedLengths.add(mzEncodedLength);
+    mzFormats.add(mzFormat);
+    intensityOffsets.add(intensityOffset);
+    intensityLengths.add(intensityLength);
+    intensityEncodedLengths.add(intensityEncodedLength);
+    intensityFormats.add(intensityFormat);
+  }
+
+  /**
+   * Releases the spare capacity after parsing
+   */
+  void trim() {
+    scanNumbers.trim();
+    retentionTimes.trim();
+    polarities.trim();
+    scanDefinitions.trim();
+    precursorMzs.trim();
+    precursorCharges.trim();
+    x.trim();
+    y.trim();
+    z.trim();
+    mzOffsets.trim();
+    mzLengths.trim();
+    mzEncodedLengths.trim();
+    mzFormats.trim();
+    intensityOffsets.trim();
+    intensityLengths.trim();
+    intensityEncodedLengths.trim();
+    intensityFormats.trim();
+    scanDefinitionIndex.clear();
+    scanDefinitionIndex.trim();
+  }
+
+  public int size() {
+    return scanNumbers.size();
+  }
+
+  public int getScanNumber(int i) {
+    return scanNumbers.getInt(i);
+  }
+
+  public float getRetentionTime(int i) {
+    return retentionTimes.getFloat(i);
+  }
+
+  public PolarityType getPolarity(int i) {
+    return POLARITIES[polarities.getByte(i)];
+  }
+
+  public String getScanDefinition(int i) {
+    return distinctScanDefinitions.get(scanDefinitions.getInt(i));
+  }
+
+  /**
+   * @return the precursor m/z or 0 if not set
+   */
+  public double getPrecursorMz(int i) {
+    return precursorMzs.getDouble(i);
+  }
+
+  /**
+   * @return the precursor charge or 0 if not set
+   */
+  public int getPrecursorCharge(int i) {
+    return precursorCharges.getByte(i);
+  }
+
+  /**
+   * @return the zero based coordinates of the spectrum
+   */
+  public Coordinates getCoordinates(int i) {
+    return new Coordinates(x.getInt(i), y.getInt(i), z.getInt(i));
+  }
+
+  public long getMzOffset(int i) {
+    return mzOffsets.getLong(i);
+  }
+
+  public int getMzLength(int i) {
+    return mzLengths.getInt(i);
+  }
+
+  public long getMzEncodedLength(int i) {
+    return mzEncodedLengths.getLong(i);
+  }
+
+  public byte getMzFormat(int i) {
+    return mzFormats.getByte(i);
+  }
+
+  public long getIntensityOffset(int i) {
+    return intensityOffsets.getLong(i);
+  }
+
+  public int getIntensityLength(int i) {
+    return intensityLengths.getInt(i);
+  }
+
+  public long getIntensityEncodedLength(int i) {
+    return intensityEncodedLengths.getLong(i);
+  }
+
+  public byte getIntensityFormat(int i) {
+    return intensityFormats.getByte(i);
+  }
+
+  /**
+   * In continuous mode, all spectra share the same m/z array in the .ibd file.
+   */
+  public boolean isContinuous() {
+    return continuous;
+  }
+
+  public @Nullable String getUuid() {
+    return uuid;
+  }
+
+  /**
+   * @return the image width in pixels from the scan settings or from the maximum coordinate
+   */
+  public int getWidth() {
+    return maxCountPixelsX > 0 ? maxCountPixelsX : x.intStream().max().orElse(-1) + 1;
+  }
+
+  /**
+   * @return the image height in pixels from the scan settings or from the maximum coordinate
+   */
+  public int getHeight() {
+    return maxCountPixelsY > 0 ? maxCountPixelsY : y.intStream().max().orElse(-1) + 1;
+  }
+
+  public int getDepth() {
+    return z.intStream().max().orElse(-1) + 1;
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLBitLength;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCV;
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.MzMLCompressionType;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Streams the imzML metadata with StAX and keeps only what is needed to read the spectra from the
+ * .ibd file in a {@link ImzMLSpectrumIndex}. No object is created per spectrum besides the reused
+ * parsing state.
+ */
+public class ImzMLStreamReader {
+
+  private static final Pattern SCAN_NUMBER_PATTERN = Pattern.compile("scan=([0-9]+)");
+
+  private final Map<String, List<CvParam>> paramGroups = new HashMap<>();
+  private final ImzMLSpectrumIndex index = new ImzMLSpectrumIndex();
+  private final SpectrumState spectrum = new SpectrumState();
+  private final ArrayState array = new ArrayState();
+
+  private Section section = Section.NONE;
+  private @Nullable List<CvParam> currentGroup;
+  private int lastScanNumber = 0;
+
+  /**
+   * @param imzML      the imzML file, the .ibd file is not accessed
+   * @param isCanceled checked regularly to stop parsing
+   * @return the spectrum index or null if canceled
+   */
+  public static @Nullable ImzMLSpectrumIndex read(@NotNull File imzML,
+      @NotNull BooleanSupplier isCanceled) throws IOException, XMLStreamException {
+    InputFactoryImpl factory = new InputFactoryImpl();
+    factory.configureForSpeed();
+    try (InputStream is = Files.newInputStream(imzML.toPath())) {
+      XMLStreamReader reader = factory.createXMLStreamReader(is);
+      try {
+        return new ImzMLStreamReader().parse(reader, isCanceled);
+      } finally {
+        reader.close();
+      }
+    }
+  }
+
+  private @Nullable ImzMLSpectrumIndex parse(XMLStreamReader reader, BooleanSupplier isCanceled)
+      throws XMLStreamException {
+    while (reader.hasNext()) {
+      final int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        openTag(reader, reader.getLocalName());
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if (closeTag(reader.getLocalName()) && isCanceled.getAsBoolean()) {
+          return null;
+        }
+      }
+    }
+    index.trim();
+    return index;
+  }
+
+  private void openTag(XMLStreamReader reader, String tag) {
+    switch (tag) {
+      case "fileContent" -> section = Section.FILE_CONTENT;
+      case "referenceableParamGroup" -> {
+        section = Section.PARAM_GROUP;
+        currentGroup = new ArrayList<>();
+        paramGroups.put(reader.getAttributeValue(null, "id"), currentGroup);
+      }
+      case "scanSettings" -> section = Section.SCAN_SETTINGS;
+      case "spectrum" -> {
+        section = Section.SPECTRUM;
+        spectrum.reset(reader.getAttributeValue(null, "id"));
+      }
+      case "binaryDataArray" -> {
+        if (section == Section.SPECTRUM) {
+          section = Section.BINARY_ARRAY;
+          array.reset();
+        }
+      }
+      case "referenceableParamGroupRef" -> {
+        final List<CvParam> group = paramGroups.get(reader.getAttributeValue(null, "ref"));
+        if (group != null) {
+          for (CvParam param : group) {
+            handleCvParam(param.accession(), param.value());
+          }
+        }
+      }
+      case "cvParam" -> {
+        final String accession = reader.getAttributeValue(null, "accession");
+        final String value = reader.getAttributeValue(null, "value");
+        if (section == Section.PARAM_GROUP && currentGroup != null) {
+          currentGroup.add(new CvParam(accession, value));
+        } else {
+          handleCvParam(accession, value);
+        }
+      }
+      default -> {
+      }
+    }
+  }
+
+  /**
+   * @return true if a spectrum was closed
+   */
+  private boolean closeTag(String tag) {
+    switch (tag) {
+      case "fileContent", "scanSettings" -> section = Section.NONE;
+      case "referenceableParamGroup" -> {
+        section = Section.NONE;
+        currentGroup = null;
+      }
+      case "binaryDataArray" -> {
+        if (section == Section.BINARY_ARRAY) {
+          spectrum.addArray(array);
+          section = Section.SPECTRUM;
+        }
+      }
+      case "spectrum" -> {
+        section = Section.NONE;
+        addSpectrum();
+        return true;
+      }
+      default -> {
+      }
+    }
+    return false;
+  }
+
+  private void handleCvParam(String accession, @Nullable String value) {
+    if (accession == null) {
+      return;
+    }
+    switch (section) {
+      case FILE_CONTENT -> handleFileContent(accession, value);
+      case SCAN_SETTINGS -> handleScanSettings(accession, value);
+      case SPECTRUM -> handleSpectrum(accession, value);
+      case BINARY_ARRAY -> handleBinaryArray(accession, value);
+      default -> {
+      }
+    }
+  }
+
+  private void handleFileContent(String accession, @Nullable String value) {
+    switch (accession) {
+      case ImzMLCV.CONTINUOUS -> index.continuous = true;
+      case ImzMLCV.PROCESSED -> index.continuous = false;
+      case ImzMLCV.UUID -> index.uuid = value;
+      default -> {
+      }
+    }
+  }
+
+  private void handleScanSettings(String accession, @Nullable String value) {
+    switch (accession) {
+      case ImzMLCV.MAX_COUNT_PIXELS_X -> index.maxCountPixelsX = parseInt(value, 0);
+      case ImzMLCV.MAX_COUNT_PIXELS_Y -> index.maxCountPixelsY = parseInt(value, 0);
+      case ImzMLCV.MAX_DIMENSION_X -> index.maxDimensionX = parseDouble(value, 0);
+      case ImzMLCV.MAX_DIMENSION_Y -> index.maxDimensionY = parseDouble(value, 0);
+      case ImzMLCV.PIXEL_SIZE_X -> index.pixelSizeX = parseDouble(value, 0);
+      case ImzMLCV.PIXEL_SIZE_Y -> index.pixelSizeY = parseDouble(value, 0);
+      case ImzMLCV.LINE_SCAN_BOTTOM_UP -> index.bottomUp = true;
+      case ImzMLCV.LINE_SCAN_RIGHT_LEFT -> index.rightLeft = true;
+      case ImzMLCV.SCAN_TYPE_VERTICAL -> index.verticalScan = true;
+      case ImzMLCV.SCAN_PATTERN_MEANDERING -> index.pattern = ImagingParameters.Pattern.MEANDER;
+      case ImzMLCV.SCAN_PATTERN_FLYBACK -> index.pattern = ImagingParameters.Pattern.FLY_BACK;
+      case ImzMLCV.SCAN_PATTERN_RANDOM_ACCESS -> index.pattern = ImagingParameters.Pattern.RANDOM;
+      default -> {
+      }
+    }
+  }
+
+  private void handleSpectrum(String accession, @Nullable String value) {
+    switch (accession) {
+      case MzMLCV.cvUVSpectrum -> spectrum.isMs = false;
+      case MzMLCV.cvPolarityPositive -> spectrum.polarity = PolarityType.POSITIVE;
+      case MzMLCV.cvPolarityNegative -> spectrum.polarity = PolarityType.NEGATIVE;
+      case MzMLCV.MS_RT_SCAN_START -> spectrum.rt = (float) parseDouble(value, 0);
+      case MzMLCV.cvScanFilterString -> {
+        // the first filter string wins, the spectrum level comes before the scan level
+        if (spectrum.scanDefinition == null) {
+          spectrum.scanDefinition = value;
+        }
+      }
+      // MS:1000040 is used in mzML 1.0, MS:1000744 is used in mzML 1.1.0
+      case MzMLCV.cvMz, MzMLCV.cvPrecursorMz -> {
+        if (spectrum.precursorMz == 0) {
+          spectrum.precursorMz = parseDouble(value, 0);
+        }
+      }
+      case MzMLCV.cvChargeState -> spectrum.precursorCharge = parseInt(value, 0);
+      case ImzMLCV.POSITION_X -> spectrum.x = parseInt(value, 0) - 1;
+      case ImzMLCV.POSITION_Y -> spectrum.y = parseInt(value, 0) - 1;
+      case ImzMLCV.POSITION_Z -> spectrum.z = parseInt(value, 0) - 1;
+      default -> {
+      }
+    }
+  }
+
+  private void handleBinaryArray(String accession, @Nullable String value) {
+    switch (accession) {
+      case MzMLCV.cvMzArray -> array.isMz = true;
+      case MzMLCV.cvIntensityArray -> array.isIntensity = true;
+      case ImzMLCV.EXTERNAL_OFFSET -> array.offset = parseLong(value, -1);
+      case ImzMLCV.EXTERNAL_ARRAY_LENGTH -> array.length = parseInt(value, 0);
+      case ImzMLCV.EXTERNAL_ENCODED_LENGTH -> array.encodedLength = parseLong(value, 0);
+      default -> {
+        final MzMLBitLength bitLength = MzMLBitLength.of(accession);
+        if (bitLength != null) {
+          array.bitLength = bitLength;
+        } else if (MzMLCompressionType.ZLIB.getAccession().equals(accession)) {
+          array.zlib = true;
+        }
+      }
+    }
+  }
+
+  private void addSpectrum() {
+    // Ignore scans that are not MS, e.g. UV
+    if (!spectrum.isMs || spectrum.mzOffset < 0 || spectrum.intensityOffset < 0) {
+      return;
+    }
+    final int scanNumber = convertScanIdToScanNumber(spectrum.id);
+    final String scanDefinition =
+        spectrum.scanDefinition != null ? spectrum.scanDefinition : spectrum.id;
+    index.add(scanNumber, spectrum.rt, spectrum.polarity, scanDefinition, spectrum.precursorMz,
+        spectrum.precursorCharge, spectrum.x, spectrum.y, spectrum.z, spectrum.mzOffset,
+        spectrum.mzLength, spectrum.mzEncodedLength, spectrum.mzFormat,
+        spectrum.intensityOffset, spectrum.intensityLength, spectrum.intensityEncodedLength,
+        spectrum.intensityFormat);
+  }
+
+  private int convertScanIdToScanNumber(@Nullable String scanId) {
+    // Some vendors include scan=XX in the ID, some don't, such as
+    // mzML converted from WIFF files. See the definition of nativeID in
+    // http://psidev.cvs.sourceforge.net/viewvc/psidev/psi/psi-ms/mzML/controlledVocabulary/psi-ms.obo
+    if (scanId != null) {
+      final Matcher matcher = SCAN_NUMBER_PATTERN.matcher(scanId);
+      if (matcher.find()) {
+        return Integer.parseInt(matcher.group(1));
+      }
+    }
+    lastScanNumber++;
+    return lastScanNumber;
+  }
+
+  private static int parseInt(@Nullable String value, int defaultValue) {
+    try {
+      return value == null ? defaultValue : (int) Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static long parseLong(@Nullable String value, long defaultValue) {
+    try {
+      return value == null ? defaultValue : Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private static double parseDouble(@Nullable String value, double defaultValue) {
+    try {
+      return value == null ? defaultValue : Double.parseDouble(value);
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  private enum Section {
+    NONE, FILE_CONTENT, PARAM_GROUP, SCAN_SETTINGS, SPECTRUM, BINARY_ARRAY
+  }
+
+  private record CvParam(String accession, @Nullable String value) {
+
+  }
+
+  /**
+   * Parsing state of the current binary data array, reused for all arrays
+   */
+  private static class ArrayState {
+
+    boolean isMz;
+    boolean isIntensity;
+    long offset;
+    int length;
+    long encodedLength;
+    MzMLBitLength bitLength;
+    boolean zlib;
+
+    void reset() {
+      isMz = false;
+      isIntensity = false;
+      offset = -1;
+      length = 0;
+      encodedLength = 0;
+      bitLength = MzMLBitLength.THIRTY_TWO_BIT_FLOAT;
+      zlib = false;
+    }
+  }
+
+  /**
+   * Parsing state of the current spectrum, reused for all spectra
+   */
+  private static class SpectrumState {
+
+    String id;
+    boolean isMs;
+    PolarityType polarity;
+    float rt;
+    @Nullable String scanDefinition;
+    double precursorMz;
+    int precursorCharge;
+    int x, y, z;
+    long mzOffset, intensityOffset;
+    int mzLength, intensityLength;
+    long mzEncodedLength, intensityEncodedLength;
+    byte mzFormat, intensityFormat;
+
+    void reset(String id) {
+      this.id = id;
+      isMs = true;
+      polarity = PolarityType.UNKNOWN;
+      rt = 0;
+      scanDefinition = null;
+      precursorMz = 0;
+      precursorCharge = 0;
+      x = 0;
+      y = 0;
+      z = 0;
+      mzOffset = -1;
+      intensityOffset = -1;
+      mzLength = 0;
+      intensityLength = 0;
+      mzEncodedLength = 0;
+      intensityEncodedLength = 0;
+    }
+
+    void addArray(ArrayState array) {
+      final byte format = ImzMLSpectrumIndex.encodeFormat(array.bitLength, array.zlib);
+      if (array.isMz) {
+        mzOffset = array.offset;
+        mzLength = array.length;
+        mzEncodedLength = array.encodedLength;
+        mzFormat = format;
+      } else if (array.isIntensity) {
+        intensityOffset = array.offset;
+        intensityLength = array.length;
+        intensityEncodedLength = array.encodedLength;
+        intensityFormat = format;
+      }
+    }
+  }
+}
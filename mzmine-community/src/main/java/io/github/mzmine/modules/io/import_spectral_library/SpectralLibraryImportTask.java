@@ -29,6 +29,7 @@ import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.io.FileResourceCache;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.parser.AutoLibraryParser;
@@ -76,7 +77,13 @@ public class SpectralLibraryImportTask extends AbstractTask {
 
     try {
       // will block until all library spectra are added to entries list
-      SpectralLibrary library = parseFile(dataBaseFile);
+      // long-running processes share libraries between batch runs
+      // the parser returns early on cancel, never cache partial or empty libraries
+      SpectralLibrary library = FileResourceCache.get(SpectralLibrary.class,
+          () -> parseFile(dataBaseFile), lib -> !isCanceled() && lib.size() > 0, dataBaseFile);
+      if (isCanceled()) {
+        return;
+      }
       final List<SpectralLibraryEntry> entries = library.getEntries();
       if (entries.size() > 0) {
         project.addSpectralLibrary(library);
@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.io.projectload;
 
 import com.google.common.io.CountingInputStream;
+import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.javafx.dialogs.DialogLoggerUtil;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.version_3_0.FeatureListLoadTask;
@@ -67,7 +68,9 @@ public class ProjectOpeningTask extends AbstractTask {
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
   private File openFile;
-  private MZmineProjectImpl newProject;
+  private MZmineProject newProject;
+  // load raw data files and feature lists into the current project instead of replacing it
+  private final boolean appendToCurrentProject;
 
   private RawDataFileOpenHandler rawDataFileOpenHandler;
   private PeakListOpenHandler peakListOpenHandler;
@@ -85,11 +88,24 @@ public class ProjectOpeningTask extends AbstractTask {
   public ProjectOpeningTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate);
     this.openFile = parameters.getParameter(ProjectLoaderParameters.projectFile).getValue();
+    this.appendToCurrentProject = false;
   }
 
   public ProjectOpeningTask(File openFile, @NotNull Instant moduleCallDate) {
+    this(openFile, moduleCallDate, false);
+  }
+
+  /**
+   * @param appendToCurrentProject true: add the raw data files and feature lists of the project
+   *                               file to the current project, e.g., to merge projects of
+   *                               distributed batch workers. The configuration of the project file
+   *                               is not loaded in this case. false: replace the current project
+   */
+  public ProjectOpeningTask(File openFile, @NotNull Instant moduleCallDate,
+      boolean appendToCurrentProject) {
     super(null, moduleCallDate);
     this.openFile = openFile;
+    this.appendToCurrentProject = appendToCurrentProject;
   }
 
   /**
@@ -134,7 +150,7 @@ public class ProjectOpeningTask extends AbstractTask {
     try {
       // Check if existing raw data files are present
       ProjectManager projectManager = ProjectService.getProjectManager();
-      if (projectManager.getCurrentProject().getDataFiles().length > 0) {
+      if (!appendToCurrentProject && projectManager.getCurrentProject().getDataFiles().length > 0) {
         boolean confirm = DialogLoggerUtil.showDialogYesNo("Replace existing project?",
             "Loading the project will replace the existing raw data files and feature lists. Do you want to proceed?");
 
@@ -147,11 +163,17 @@ public class ProjectOpeningTask extends AbstractTask {
       logger.info("Started opening project " + openFile);
       setStatus(TaskStatus.PROCESSING);
 
-      newProject = new MZmineProjectImpl();
-      newProject.setProjectFile(openFile);
-      newProject.setStandalone(false); // set to false by default, we check for existing files later
-      GUIUtils.closeAllWindows();
-      projectManager.setCurrentProject(newProject);
+      if (appendToCurrentProject) {
+        newProject = projectManager.getCurrentProject();
+      } else {
+        final MZmineProjectImpl project = new MZmineProjectImpl();
+        project.setProjectFile(openFile);
+        // set to false by default, we check for existing files later
+        project.setStandalone(false);
+        newProject = project;
+        GUIUtils.closeAllWindows();
+        projectManager.setCurrentProject(newProject);
+      }
 
       ZipFile zipFile = new ZipFile(openFile);
       Enumeration<? extends ZipEntry> entries = zipFile.entries();
@@ -181,12 +203,15 @@ public class ProjectOpeningTask extends AbstractTask {
           loadVersion(cis);
           versionInformationLoaded = true;
         } else if (entryName.equals(ProjectSavingTask.CONFIG_FILENAME)) {
-          loadConfiguration(cis);
+          if (!appendToCurrentProject) {
+            loadConfiguration(cis);
+          }
         } else if (entryName.equals(ProjectSavingTask.PARAMETERS_FILENAME)) {
           loadUserParameters(cis);
         } else if (entryName.equals(RawDataFileSaveHandler.RAW_DATA_IMPORT_BATCH_FILENAME)) {
           loadRawDataFiles(cis, zipFile);
-        } else if (entryName.equals(ProjectSavingTask.STANDALONE_FILENAME)) {
+        } else if (entryName.equals(ProjectSavingTask.STANDALONE_FILENAME)
+                   && !appendToCurrentProject) {
           newProject.setStandalone(true);
         }
 
@@ -220,7 +245,9 @@ public class ProjectOpeningTask extends AbstractTask {
       setStatus(TaskStatus.FINISHED);
 
       // add to last loaded projects
-      MZmineCore.getConfiguration().getLastProjectsParameter().addFile(openFile);
+      if (!appendToCurrentProject) {
+        MZmineCore.getConfiguration().getLastProjectsParameter().addFile(openFile);
+      }
 
     } catch (Throwable e) {
 
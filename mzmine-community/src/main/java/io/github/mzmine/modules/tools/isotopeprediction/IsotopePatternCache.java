@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.tools.isotopeprediction;
+
+import io.github.mzmine.datamodel.IsotopePattern;
+import io.github.mzmine.datamodel.PolarityType;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import org.jetbrains.annotations.NotNull;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+/**
+ * Least recently used cache of predicted isotope patterns. Formula prediction calculates the same
+ * patterns for all rows with candidates of the same mass and again for every run. Patterns are
+ * immutable and can be shared.
+ * <p>
+ * Patterns are cached per minimum abundance. Merging and normalization depend on the minimum
+ * abundance, so a pattern calculated at a lower abundance and filtered afterwards would differ from
+ * the pattern calculated at the requested abundance.
+ */
+public class IsotopePatternCache {
+
+  private static final int DEFAULT_MAX_PATTERNS = 50_000;
+  private static final IsotopePatternCache INSTANCE = new IsotopePatternCache(
+      DEFAULT_MAX_PATTERNS);
+
+  private final LinkedHashMap<Key, IsotopePattern> patterns;
+
+  public IsotopePatternCache(int maxPatterns) {
+    // access ordered: first entry is the least recently used
+    patterns = new LinkedHashMap<>(1024, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<Key, IsotopePattern> eldest) {
+        return size() > maxPatterns;
+      }
+    };
+  }
+
+  public static IsotopePatternCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Same as
+   * {@link IsotopePatternCalculator#calculateIsotopePattern(IMolecularFormula, double, int,
+   * PolarityType)} but the pattern is only calculated if it is not cached for this minimum
+   * abundance.
+   *
+   * @param ionizedFormula the ionized formula, is not modified
+   * @param minAbundance   the minimum abundance relative to the most abundant isotope
+   */
+  public @NotNull IsotopePattern calculateIsotopePattern(@NotNull IMolecularFormula ionizedFormula,
+      double minAbundance, int charge, @NotNull PolarityType polarity) {
+    final Key key = new Key(MolecularFormulaManipulator.getString(ionizedFormula, false, true),
+        minAbundance, charge, polarity);
+    synchronized (patterns) {
+      final IsotopePattern pattern = patterns.get(key);
+      if (pattern != null) {
+        return pattern;
+      }
+    }
+
+    // calculate outside the lock
+    final IsotopePattern pattern = IsotopePatternCalculator.calculateIsotopePattern(ionizedFormula,
+        minAbundance, charge, polarity);
+    synchronized (patterns) {
+      patterns.put(key, pattern);
+    }
+    return pattern;
+  }
+
+  public int size() {
+    synchronized (patterns) {
+      return patterns.size();
+    }
+  }
+
+  public void clear() {
+    synchronized (patterns) {
+      patterns.clear();
+    }
+  }
+
+  /**
+   * @param formula formula string with mass numbers to distinguish isotopes
+   */
+  private record Key(String formula, double minAbundance, int charge, PolarityType polarity) {
+
+  }
+}
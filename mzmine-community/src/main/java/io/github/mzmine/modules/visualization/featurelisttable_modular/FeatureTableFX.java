@@ -75,6 +75,7 @@ import io.github.mzmine.datamodel.features.types.numbers.scores.IsotopePatternSc
 import io.github.mzmine.datamodel.features.types.numbers.scores.MsMsScoreType;
 import io.github.mzmine.datamodel.features.types.numbers.scores.SimilarityType;
 import io.github.mzmine.javafx.concurrent.threading.FxThread;
+import io.github.mzmine.javafx.mvci.LatestTaskScheduler;
 import io.github.mzmine.javafx.util.FxIconUtil;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.dataprocessing.filter_deleterows.DeleteRowsModule;
@@ -93,6 +94,7 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javafx.beans.property.ObjectProperty;
@@ -101,13 +103,14 @@ import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.geometry.Orientation;
 import javafx.geometry.Pos;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableColumn;
@@ -136,8 +139,18 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
     ListChangeListener<FeatureListRow> {
 
   private static final Logger logger = Logger.getLogger(FeatureTableFX.class.getName());
-  private final FilteredList<TreeItem<ModularFeatureListRow>> filteredRowItems;
+  /**
+   * Feature lists with more samples only create the feature columns of a sample once the sample
+   * column is scrolled into view.
+   */
+  private static final int LAZY_SAMPLE_COLUMNS_THRESHOLD = 30;
   private final ObservableList<TreeItem<ModularFeatureListRow>> rowItems;
+  // sorting and filtering runs on a task thread
+  private final LatestTaskScheduler rowOrderScheduler = new LatestTaskScheduler();
+  private @Nullable Predicate<ModularFeatureListRow> rowFilter;
+  // sample columns without feature sub columns yet
+  private final Map<TreeTableColumn<ModularFeatureListRow, ?>, RawDataFile> pendingSampleColumns = new HashMap<>();
+  private @Nullable ScrollBar horizontalScrollBar;
   // parameters
   private final ParameterSet parameters;
   private final DataTypeCheckListParameter rowTypesParameter;
@@ -166,8 +179,18 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
         FeatureTableFXParameters.showFeatureTypeColumns);
 
     rowItems = FXCollections.observableArrayList();
-    filteredRowItems = new FilteredList<>(rowItems);
     newColumnMap = new HashMap<>();
+    // the default sort policy compares all rows on the FX thread
+    setSortPolicy(_ -> {
+      updateRowOrder();
+      return true;
+    });
+    skinProperty().addListener((_, _, skin) -> {
+      if (skin != null) {
+        FxThread.runLater(this::initLazySampleColumnListeners);
+      }
+    });
+    widthProperty().addListener((_, _, _) -> createVisibleSampleColumns());
     initHandleDoubleClicks();
     setContextMenu(new FeatureTableContextMenu(this));
 
@@ -481,18 +504,50 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
     }
 
     FxThread.runLater(() -> {
-      getRoot().getChildren().clear();
       rowItems.clear();
       // add rows
       for (FeatureListRow row : featureListProperty.get().getRows()) {
         final ModularFeatureListRow mrow = (ModularFeatureListRow) row;
         rowItems.add(new TreeItem<>(mrow));
       }
-      getRoot().getChildren().addAll(filteredRowItems);
-      this.sort();
+      updateRowOrder();
     });
   }
 
+  /**
+   * Filters and sorts the rows on a task thread. The table is updated once the new order is
+   * available. Without filter and sort order, the rows are shown directly.
+   */
+  public void updateRowOrder() {
+    final List<TreeItem<ModularFeatureListRow>> items = List.copyOf(rowItems);
+    if (rowFilter == null && getSortOrder().isEmpty()) {
+      rowOrderScheduler.cancelTasks();
+      getRoot().getChildren().setAll(items);
+      return;
+    }
+    rowOrderScheduler.onTaskThread(new FeatureTableRowOrderTask(this, items, rowFilter));
+  }
+
+  /**
+   * Called on the FX thread with the filtered and sorted rows
+   */
+  void applyRowOrder(@NotNull List<TreeItem<ModularFeatureListRow>> orderedItems) {
+    getRoot().getChildren().setAll(orderedItems);
+  }
+
+  /**
+   * @param rowFilter only rows matching this filter are shown. null to show all rows. The filter
+   *                  is applied on a task thread.
+   */
+  public void setRowFilter(@Nullable Predicate<ModularFeatureListRow> rowFilter) {
+    this.rowFilter = rowFilter;
+    updateRowOrder();
+  }
+
+  public @Nullable Predicate<ModularFeatureListRow> getRowFilter() {
+    return rowFilter;
+  }
+
   /**
    * Add all columns of {@link FeatureListRow} data
    *
@@ -680,11 +735,6 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
     return headerLabel;
   }
 
-  @NotNull
-  public FilteredList<TreeItem<ModularFeatureListRow>> getFilteredRowItems() {
-    return filteredRowItems;
-  }
-
   /**
    * Sets visibility of all data type columns.
    *
@@ -746,8 +796,11 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
       return;
     }
 
+    final List<RawDataFile> dataFiles = getFeatureList().getRawDataFiles();
+    final boolean lazy = dataFiles.size() > LAZY_SAMPLE_COLUMNS_THRESHOLD;
+
     // Add feature columns for each raw file
-    for (RawDataFile dataFile : getFeatureList().getRawDataFiles()) {
+    for (RawDataFile dataFile : dataFiles) {
       TreeTableColumn<ModularFeatureListRow, String> sampleCol = new TreeTableColumn<>();
 
       // Add raw data file label
@@ -756,35 +809,103 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
       headerLabel.setGraphic(new ImageView(FxIconUtil.getFileIcon(dataFile.getColor())));
       sampleCol.setGraphic(headerLabel);
 
-      // Add sub columns of feature
-      for (DataType ftype : getFeatureList().getFeatureTypes()) {
-        if (ftype instanceof ImageType && !(dataFile instanceof ImagingRawDataFile)) {
-          // non-imaging files don't need a image column
-          continue;
-        } else if (ftype instanceof FeatureShapeIonMobilityRetentionTimeHeatMapType && (
-            !(dataFile instanceof IMSRawDataFile) || dataFile instanceof ImagingRawDataFile)) {
-          // non ims files or ims-imaging files don't need a ims trace column
-          continue;
-        }
-
-        TreeTableColumn<ModularFeatureListRow, ?> subCol = ftype.createColumn(dataFile, null);
-        if (subCol != null) {
-          if (ftype instanceof ExpandableType) {
-            setupExpandableColumn(ftype, subCol, ColumnType.FEATURE_TYPE, dataFile);
-          }
-          sampleCol.getColumns().add(subCol);
-          registerColumn(subCol, ColumnType.FEATURE_TYPE, ftype, dataFile);
-          //          newColumnMap.put(subCol, new ColumnID(ftype, ColumnType.FEATURE_TYPE, dataFile));
-          if (!(ftype instanceof ExpandableType)) {
-            recursivelyApplyVisibilityParameterToColumn(subCol);
-          }
-        }
+      if (lazy) {
+        // sub columns are created once the column is scrolled into view
+        pendingSampleColumns.put(sampleCol, dataFile);
+      } else {
+        addFeatureSubColumns(sampleCol, dataFile);
       }
       // Add sample column
       // NOTE: sample column is not added to the columnMap
-      sortColumn(sampleCol);
       this.getColumns().add(sampleCol);
     }
+
+    if (lazy) {
+      FxThread.runLater(this::createVisibleSampleColumns);
+    }
+  }
+
+  /**
+   * Adds the columns of all feature types to a sample column
+   */
+  private void addFeatureSubColumns(TreeTableColumn<ModularFeatureListRow, String> sampleCol,
+      RawDataFile dataFile) {
+    if (getFeatureList() == null) {
+      return;
+    }
+    // Add sub columns of feature
+    for (DataType ftype : getFeatureList().getFeatureTypes()) {
+      if (ftype instanceof ImageType && !(dataFile instanceof ImagingRawDataFile)) {
+        // non-imaging files don't need a image column
+        continue;
+      } else if (ftype instanceof FeatureShapeIonMobilityRetentionTimeHeatMapType && (
+          !(dataFile instanceof IMSRawDataFile) || dataFile instanceof ImagingRawDataFile)) {
+        // non ims files or ims-imaging files don't need a ims trace column
+        continue;
+      }
+
+      TreeTableColumn<ModularFeatureListRow, ?> subCol = ftype.createColumn(dataFile, null);
+      if (subCol != null) {
+        if (ftype instanceof ExpandableType) {
+          setupExpandableColumn(ftype, subCol, ColumnType.FEATURE_TYPE, dataFile);
+        }
+        sampleCol.getColumns().add(subCol);
+        registerColumn(subCol, ColumnType.FEATURE_TYPE, ftype, dataFile);
+        //          newColumnMap.put(subCol, new ColumnID(ftype, ColumnType.FEATURE_TYPE, dataFile));
+        if (!(ftype instanceof ExpandableType)) {
+          recursivelyApplyVisibilityParameterToColumn(subCol);
+        }
+      }
+    }
+    sortColumn(sampleCol);
+  }
+
+  /**
+   * Finds the horizontal scroll bar of the table skin to create sample columns lazily
+   */
+  private void initLazySampleColumnListeners() {
+    if (horizontalScrollBar != null) {
+      return;
+    }
+    for (Node node : lookupAll(".scroll-bar")) {
+      if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.HORIZONTAL) {
+        horizontalScrollBar = bar;
+        bar.valueProperty().addListener((_, _, _) -> createVisibleSampleColumns());
+        break;
+      }
+    }
+  }
+
+  /**
+   * Creates the feature sub columns of all pending sample columns that intersect the visible area
+   * of the table.
+   */
+  @SuppressWarnings("unchecked")
+  private void createVisibleSampleColumns() {
+    if (pendingSampleColumns.isEmpty()) {
+      return;
+    }
+    final double viewStart = horizontalScrollBar != null ? horizontalScrollBar.getValue() : 0d;
+    final double viewEnd = viewStart + Math.max(getWidth(), 1d);
+
+    double columnEnd = 0d;
+    for (final TreeTableColumn<ModularFeatureListRow, ?> column : List.copyOf(getColumns())) {
+      if (!column.isVisible()) {
+        continue;
+      }
+      final double columnStart = columnEnd;
+      columnEnd += column.getWidth();
+      if (columnEnd < viewStart) {
+        continue;
+      }
+      if (columnStart > viewEnd) {
+        break;
+      }
+      final RawDataFile dataFile = pendingSampleColumns.remove(column);
+      if (dataFile != null) {
+        addFeatureSubColumns((TreeTableColumn<ModularFeatureListRow, String>) column, dataFile);
+      }
+    }
   }
 
   private void initHandleDoubleClicks() {
@@ -974,6 +1095,7 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
     // Clear old rows and old columns
     getRoot().getChildren().clear();
     getColumns().clear();
+    pendingSampleColumns.clear();
     rowItems.clear();
 
     // remove the old listener
@@ -996,8 +1118,7 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
       rowItems.add(new TreeItem<>(mrow));
     }
 
-    TreeItem<ModularFeatureListRow> root = getRoot();
-    root.getChildren().addAll(filteredRowItems);
+    updateRowOrder();
 
     // reflect the changes to the feature list in the table
     newFeatureList.getRows().addListener(this);
@@ -1078,6 +1199,7 @@ public class FeatureTableFX extends TreeTableView<ModularFeatureListRow> impleme
     if (flist == null) {
       return;
     }
+    rowOrderScheduler.cancelTasks();
     flist.getRows().removeListener(this);
     flist.onFeatureTableFxClosed();
   }
@@ -163,9 +163,8 @@ public class FeatureTableFXMLTabAnchorPaneController {
         anySearchField.getText().isBlank() ? null : anySearchField.getText().toLowerCase().trim();
     DataType<?> type = typeComboBox.getValue();
 
-    // Filter rows
-    featureTable.getFilteredRowItems().setPredicate(item -> {
-      ModularFeatureListRow row = item.getValue();
+    // Filter rows on a task thread
+    featureTable.setRowFilter(row -> {
       boolean anyFilterOk = true;
       if (anyFilterString != null && type != null) {
         Object value = row.get(type);
@@ -181,10 +180,6 @@ public class FeatureTableFXMLTabAnchorPaneController {
       return (mz == null || mzFilter.contains(mz)) && (rt == null || rtFilter.contains(
           rt.doubleValue())) && anyFilterOk;
     });
-
-    // Update rows in feature table
-    featureTable.getRoot().getChildren().clear();
-    featureTable.getRoot().getChildren().addAll(featureTable.getFilteredRowItems());
   }
 
   public TextField getIdSearchField() {
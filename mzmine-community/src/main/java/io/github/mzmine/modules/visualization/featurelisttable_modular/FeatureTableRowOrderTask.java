@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.featurelisttable_modular;
+
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.fx.DataTypeCellValueFactory;
+import io.github.mzmine.javafx.mvci.FxUpdateTask;
+import io.github.mzmine.taskcontrol.progress.TotalFinishedItemsProgress;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableColumn;
+import javafx.scene.control.TreeTableColumn.SortType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Filters and sorts the rows of a {@link FeatureTableFX} off the FX thread. The values of all sort
+ * columns are extracted once into snapshots (primitive arrays for numbers), then a permutation of
+ * the row indices is sorted. Only the final order is applied to the table on the FX thread.
+ * <p>
+ * Values of data type columns are read from the data model. Columns with other cell value
+ * factories are read from the table on the FX thread when the task is created.
+ */
+class FeatureTableRowOrderTask extends FxUpdateTask<FeatureTableFX> {
+
+  private final List<TreeItem<ModularFeatureListRow>> items;
+  // one value reader (by item index), comparator and sort type for each sort column
+  private final List<IntFunction<Object>> sortValues;
+  private final List<Comparator<Object>> comparators;
+  private final List<SortType> sortTypes;
+  private final @Nullable Predicate<ModularFeatureListRow> filter;
+  private final TotalFinishedItemsProgress progress = new TotalFinishedItemsProgress();
+
+  private List<TreeItem<ModularFeatureListRow>> orderedItems;
+
+  /**
+   * Call on FX thread to capture the current sort order of the table
+   *
+   * @param table  the target table
+   * @param items  all row items, a copy is not required as the list is not modified
+   * @param filter the row filter or null
+   */
+  FeatureTableRowOrderTask(@NotNull FeatureTableFX table,
+      @NotNull List<TreeItem<ModularFeatureListRow>> items,
+      @Nullable Predicate<ModularFeatureListRow> filter) {
+    super("feature_table_row_order", table);
+    this.items = items;
+    this.filter = filter;
+    final List<TreeTableColumn<ModularFeatureListRow, ?>> sortColumns = List.copyOf(
+        table.getSortOrder());
+    sortTypes = sortColumns.stream().map(TreeTableColumn::getSortType).toList();
+    sortValues = sortColumns.stream().map(this::createValueReader).toList();
+    comparators = sortColumns.stream().map(FeatureTableRowOrderTask::getComparator).toList();
+    progress.setTotal((long) items.size() * (sortColumns.size() + 1));
+  }
+
+  /**
+   * Call on FX thread. Only data type columns can be read off the FX thread, all other columns are
+   * read from the table now.
+   */
+  private IntFunction<Object> createValueReader(TreeTableColumn<ModularFeatureListRow, ?> column) {
+    if (column.getCellValueFactory() instanceof DataTypeCellValueFactory factory) {
+      return i -> factory.getValue(items.get(i).getValue());
+    }
+    final Object[] values = new Object[items.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = column.getCellData(items.get(i));
+    }
+    return i -> values[i];
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Comparator<Object> getComparator(
+      TreeTableColumn<ModularFeatureListRow, ?> column) {
+    return (Comparator) column.getComparator();
+  }
+
+  @Override
+  protected void process() {
+    final int numItems = items.size();
+    int[] indices = IntStream.range(0, numItems).parallel().filter(i -> {
+      progress.getAndIncrement();
+      return filter == null || filter.test(items.get(i).getValue());
+    }).toArray();
+
+    if (isCanceled()) {
+      return;
+    }
+
+    if (!sortValues.isEmpty()) {
+      final List<ColumnSnapshot> snapshots = new ArrayList<>(sortValues.size());
+      for (int c = 0; c < sortValues.size(); c++) {
+        snapshots.add(createSnapshot(c, indices));
+        if (isCanceled()) {
+          return;
+        }
+      }
+
+      IntArrays.parallelQuickSort(indices, (a, b) -> {
+        for (final ColumnSnapshot snapshot : snapshots) {
+          final int result = snapshot.compare(a, b);
+          if (result != 0) {
+            return result;
+          }
+        }
+        // stable order for equal values
+        return Integer.compare(a, b);
+      });
+    }
+
+    final List<TreeItem<ModularFeatureListRow>> ordered = new ArrayList<>(indices.length);
+    for (final int index : indices) {
+      ordered.add(items.get(index));
+    }
+    orderedItems = ordered;
+  }
+
+  /**
+   * Extracts the values of a sort column for all filtered rows. Numbers are stored in a primitive
+   * array.
+   */
+  private ColumnSnapshot createSnapshot(int column, int[] indices) {
+    final IntFunction<Object> reader = sortValues.get(column);
+    final Object[] values = new Object[items.size()];
+    IntStream.of(indices).parallel().forEach(i -> {
+      values[i] = reader.apply(i);
+      progress.getAndIncrement();
+    });
+    final boolean numeric = IntStream.of(indices)
+        .allMatch(i -> values[i] == null || values[i] instanceof Number);
+
+    final boolean ascending = sortTypes.get(column) != SortType.DESCENDING;
+    if (numeric) {
+      final double[] numbers = new double[items.size()];
+      for (final int i : indices) {
+        numbers[i] = values[i] instanceof Number n ? n.doubleValue() : Double.NaN;
+      }
+      return new NumberSnapshot(numbers, ascending);
+    }
+    return new ObjectSnapshot(values, comparators.get(column), ascending);
+  }
+
+  @Override
+  protected void updateGuiModel() {
+    if (orderedItems == null || !isFinished()) {
+      return;
+    }
+    model.applyRowOrder(orderedItems);
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Sorting and filtering feature table rows";
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return progress.progress();
+  }
+
+  private sealed interface ColumnSnapshot permits NumberSnapshot, ObjectSnapshot {
+
+    int compare(int a, int b);
+  }
+
+  /**
+   * Missing values are always sorted to the end.
+   */
+  private record NumberSnapshot(double[] values, boolean ascending) implements ColumnSnapshot {
+
+    @Override
+    public int compare(int a, int b) {
+      final double va = values[a];
+      final double vb = values[b];
+      final boolean naA = Double.isNaN(va);
+      final boolean naB = Double.isNaN(vb);
+      if (naA || naB) {
+        return Boolean.compare(naA, naB);
+      }
+      return ascending ? Double.compare(va, vb) : Double.compare(vb, va);
+    }
+  }
+
+  /**
+   * Uses the column comparator. Missing values are always sorted to the end.
+   */
+  private record ObjectSnapshot(Object[] values, Comparator<Object> comparator,
+                                boolean ascending) implements ColumnSnapshot {
+
+    @Override
+    public int compare(int a, int b) {
+      final Object va = values[a];
+      final Object vb = values[b];
+      if (va == null || vb == null) {
+        return Boolean.compare(va == null, vb == null);
+      }
+      return ascending ? comparator.compare(va, vb) : comparator.compare(vb, va);
+    }
+  }
+}
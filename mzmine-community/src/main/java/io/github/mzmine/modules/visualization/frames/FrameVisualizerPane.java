@@ -38,7 +38,7 @@ import io.github.mzmine.gui.chartbasics.gui.wrapper.ChartViewWrapper;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
-import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.DensityBinnedXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.CachedFrame;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.FrameHeatmapProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.FrameSummedMobilogramProvider;
@@ -204,7 +204,7 @@ public class FrameVisualizerPane extends BorderPane {
 
     cachedFrame = new CachedFrame(selectedFrame.get(), frameNoiseLevel,
         mobilityScanNoiseLevel);//selectedFrame.get();//
-    heatmapChart.setDataset(new FrameHeatmapProvider(cachedFrame));
+    heatmapChart.setDataset(FrameHeatmapProvider.createBinned(cachedFrame));
     mobilogramChart.addDataset(new FrameSummedMobilogramProvider(cachedFrame, binWidth));
     summedSpectrumChart.addDataset(new FrameSummedSpectrumProvider(cachedFrame));
     if (selectedMobilityScan.get() != null) {
@@ -308,9 +308,9 @@ public class FrameVisualizerPane extends BorderPane {
     heatmapChart.cursorPositionProperty().addListener(((observable, oldValue, newValue) -> {
       selectedMz.set(mzTolerance.getToleranceRange(newValue.getDomainValue()));
       if (newValue.getDataset() != null) {
-        selectedMobilityScan.set(
-            ((FrameHeatmapProvider) ((ColoredXYZDataset) newValue.getDataset()).getXyzValueProvider()).getMobilityScanAtValueIndex(
-                newValue.getValueIndex()));
+        final DensityBinnedXYZDataset dataset = (DensityBinnedXYZDataset) newValue.getDataset();
+        selectedMobilityScan.set(FrameHeatmapProvider.getMobilityScan(dataset,
+            newValue.getValueIndex(), newValue.getRangeValue()));
       }
     }));
   }
@@ -33,9 +33,13 @@ import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.FeatureImageProvider;
+import io.github.mzmine.gui.preferences.ImageNormalization;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.visualization.featurelisttable_modular.FeatureTableFXModule;
 import io.github.mzmine.modules.visualization.featurelisttable_modular.FeatureTableFXParameters;
+import io.github.mzmine.modules.visualization.image.raster.ImageRasterKey;
+import io.github.mzmine.modules.visualization.image.raster.ImageRasterRenderer;
+import io.github.mzmine.modules.visualization.image.raster.RasterXYZDataset;
 import io.github.mzmine.parameters.ParameterSet;
 import java.awt.Color;
 import java.util.List;
@@ -84,16 +88,26 @@ public class ImagingPlot extends BorderPane {
   }
 
   public void setData(Feature feature) {
+    final ImageNormalization normalization = parameters.getValue(
+        ImageVisualizerParameters.imageNormalization);
     FeatureImageProvider<ImagingScan> prov = new FeatureImageProvider<>(feature,
         (List<ImagingScan>) feature.getFeatureList().getSeletedScans(feature.getRawDataFile()),
-        parameters.getValue(ImageVisualizerParameters.imageNormalization));
-    ColoredXYZDataset ds = new ColoredXYZDataset(prov, RunOption.THIS_THREAD);
+        normalization);
+    ColoredXYZDataset ds = new RasterXYZDataset(prov,
+        ImageRasterKey.ofFeature(feature, normalization), RunOption.THIS_THREAD);
     setData(ds);
   }
 
   public void setData(ImagingRawDataFile raw) {
     RawImageProvider prov = new RawImageProvider(raw, parameters);
-    ColoredXYZDataset ds = new ColoredXYZDataset(prov, RunOption.NEW_THREAD);
+    final Range<Double> mobilityRange =
+        parameters.getValue(ImageVisualizerParameters.mobilityRange) ? parameters.getParameter(
+            ImageVisualizerParameters.mobilityRange).getEmbeddedParameter().getValue() : null;
+    final ImageRasterKey key = new ImageRasterKey(raw,
+        parameters.getValue(ImageVisualizerParameters.mzRange), mobilityRange,
+        parameters.getValue(ImageVisualizerParameters.imageNormalization),
+        parameters.getValue(ImageVisualizerParameters.scanSelection));
+    ColoredXYZDataset ds = new RasterXYZDataset(prov, key, RunOption.NEW_THREAD);
     setData(ds);
   }
 
@@ -109,6 +123,8 @@ public class ImagingPlot extends BorderPane {
 
   private SimpleXYZScatterPlot<FeatureImageProvider> createChart() {
     SimpleXYZScatterPlot<FeatureImageProvider> chart = new SimpleXYZScatterPlot<>();
+    // draws cached tiles of the image raster instead of one block per pixel
+    chart.setDefaultRenderer(new ImageRasterRenderer());
     chart.setRangeAxisLabel("µm");
     chart.setDomainAxisLabel("µm");
 
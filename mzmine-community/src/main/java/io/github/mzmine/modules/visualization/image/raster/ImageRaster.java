@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.image.raster;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.data.xy.XYZDataset;
+
+/**
+ * Ion image as a primitive float raster with a mip-map pyramid. Level 0 holds one value per image
+ * pixel, every following level halves the resolution and keeps the maximum of each 2x2 block, so
+ * that hot spots remain visible when zoomed out. Missing pixels are NaN. The index of the dataset
+ * item of each level 0 pixel is kept, so that cursor positions map to the original items.
+ * <p>
+ * Colored tiles are created on demand for a paint scale and kept until the paint scale changes.
+ */
+public class ImageRaster {
+
+  public static final int TILE_SIZE = 256;
+
+  private final double originX;
+  private final double originY;
+  private final double pixelWidth;
+  private final double pixelHeight;
+  private final List<Level> levels;
+  // item index of the source dataset per level 0 pixel, -1 for missing pixels
+  private final int[] sourceIndices;
+  // level 0 pixel per item index of the source dataset
+  private final int[] sourcePixels;
+  private final double minValue;
+  private final double maxValue;
+  private final @Nullable PaintScale paintScale;
+
+  // colored tiles for the current paint scale
+  private final Map<Long, BufferedImage> tiles = new HashMap<>();
+  private PaintScale tilePaintScale;
+
+  private ImageRaster(double originX, double originY, double pixelWidth, double pixelHeight,
+      List<Level> levels, int[] sourceIndices, int[] sourcePixels, double minValue,
+      double maxValue, @Nullable PaintScale paintScale) {
+    this.originX = originX;
+    this.originY = originY;
+    this.pixelWidth = pixelWidth;
+    this.pixelHeight = pixelHeight;
+    this.levels = levels;
+    this.sourceIndices = sourceIndices;
+    this.sourcePixels = sourcePixels;
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+    this.paintScale = paintScale;
+  }
+
+  /**
+   * Creates a raster without a paint scale, see {@link #of(XYZDataset, double, double, PaintScale)}
+   */
+  public static @Nullable ImageRaster of(@NotNull XYZDataset dataset, double pixelWidth,
+      double pixelHeight) {
+    return of(dataset, pixelWidth, pixelHeight, null);
+  }
+
+  /**
+   * Creates a raster from a dataset with pixel center coordinates. Call off the FX thread.
+   *
+   * @param dataset     the image values
+   * @param pixelWidth  the width of a pixel in data units
+   * @param pixelHeight the height of a pixel in data units
+   * @param paintScale  the paint scale of the dataset, kept to show the raster without the dataset
+   * @return the raster or null if the dataset is empty
+   */
+  public static @Nullable ImageRaster of(@NotNull XYZDataset dataset, double pixelWidth,
+      double pixelHeight, @Nullable PaintScale paintScale) {
+    final int numValues = dataset.getItemCount(0);
+    if (numValues == 0 || !(pixelWidth > 0) || !(pixelHeight > 0)) {
+      return null;
+    }
+
+    double minX = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    double minZ = Double.POSITIVE_INFINITY;
+    double maxZ = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numValues; i++) {
+      final double x = dataset.getXValue(0, i);
+      final double y = dataset.getYValue(0, i);
+      final double z = dataset.getZValue(0, i);
+      minX = Math.min(minX, x);
+      maxX = Math.max(maxX, x);
+      minY = Math.min(minY, y);
+      maxY = Math.max(maxY, y);
+      minZ = Math.min(minZ, z);
+      maxZ = Math.max(maxZ, z);
+    }
+
+    final int width = (int) Math.round((maxX - minX) / pixelWidth) + 1;
+    final int height = (int) Math.round((maxY - minY) / pixelHeight) + 1;
+    final float[] values = new float[width * height];
+    Arrays.fill(values, Float.NaN);
+    final int[] sourceIndices = new int[width * height];
+    Arrays.fill(sourceIndices, -1);
+    final int[] sourcePixels = new int[numValues];
+
+    for (int i = 0; i < numValues; i++) {
+      final int px = (int) Math.round((dataset.getXValue(0, i) - minX) / pixelWidth);
+      final int py = (int) Math.round((dataset.getYValue(0, i) - minY) / pixelHeight);
+      final float z = (float) dataset.getZValue(0, i);
+      final int index = py * width + px;
+      sourcePixels[i] = index;
+      // multiple values per pixel are not expected, keep the maximum
+      if (Float.isNaN(values[index]) || z > values[index]) {
+        values[index] = z;
+        sourceIndices[index] = i;
+      }
+    }
+
+    final List<Level> levels = new ArrayList<>();
+    Level level = new Level(width, height, values);
+    levels.add(level);
+    while (level.width() > TILE_SIZE || level.height() > TILE_SIZE) {
+      level = level.downsample();
+      levels.add(level);
+    }
+
+    // coordinates are pixel centers
+    return new ImageRaster(minX - pixelWidth / 2, minY - pixelHeight / 2, pixelWidth, pixelHeight,
+        List.copyOf(levels), sourceIndices, sourcePixels, minZ, maxZ, paintScale);
+  }
+
+  public int getNumberOfLevels() {
+    return levels.size();
+  }
+
+  public @NotNull Level getLevel(int level) {
+    return levels.get(level);
+  }
+
+  /**
+   * @param screenPixelsPerImagePixel the number of screen pixels that one image pixel of level 0
+   *                                  covers
+   * @return the coarsest level that still has at least one image pixel per screen pixel
+   */
+  public int selectLevel(double screenPixelsPerImagePixel) {
+    if (!(screenPixelsPerImagePixel > 0) || screenPixelsPerImagePixel >= 1) {
+      return 0;
+    }
+    final int level = (int) Math.floor(Math.log(1d / screenPixelsPerImagePixel) / Math.log(2));
+    return Math.min(level, levels.size() - 1);
+  }
+
+  /**
+   * @return the value at the data coordinates in level 0 or NaN
+   */
+  public float getValue(double x, double y) {
+    final int px = (int) Math.floor((x - originX) / pixelWidth);
+    final int py = (int) Math.floor((y - originY) / pixelHeight);
+    return levels.getFirst().get(px, py);
+  }
+
+  /**
+   * @return the item index of the dataset that the raster was created from at the data coordinates
+   * or -1 if there is no item at this pixel
+   */
+  public int getSourceIndex(double x, double y) {
+    final Level level = levels.getFirst();
+    final int px = (int) Math.floor((x - originX) / pixelWidth);
+    final int py = (int) Math.floor((y - originY) / pixelHeight);
+    if (px < 0 || py < 0 || px >= level.width() || py >= level.height()) {
+      return -1;
+    }
+    return sourceIndices[py * level.width() + px];
+  }
+
+  /**
+   * @param sourceIndex item index of the dataset that the raster was created from
+   * @return the value of the pixel of this item or NaN
+   */
+  public float getSourceValue(int sourceIndex) {
+    if (sourceIndex < 0 || sourceIndex >= sourcePixels.length) {
+      return Float.NaN;
+    }
+    return levels.getFirst().values()[sourcePixels[sourceIndex]];
+  }
+
+  /**
+   * @return the number of items of the dataset that the raster was created from
+   */
+  public int getNumberOfSourceItems() {
+    return sourcePixels.length;
+  }
+
+  /**
+   * The colored tile of a level. Tiles are cached until a different paint scale is requested.
+   *
+   * @return the tile image, pixel rows ordered by increasing y
+   */
+  public synchronized @NotNull BufferedImage getTile(int level, int tileX, int tileY,
+      @NotNull PaintScale paintScale) {
+    if (tilePaintScale != paintScale) {
+      tiles.clear();
+      tilePaintScale = paintScale;
+    }
+    final long key = ((long) level << 42) | ((long) tileY << 21) | tileX;
+    return tiles.computeIfAbsent(key,
+        _ -> levels.get(level).createTile(tileX, tileY, paintScale));
+  }
+
+  /**
+   * Clears the colored tiles to free memory. The raster itself is kept.
+   */
+  public synchronized void clearTiles() {
+    tiles.clear();
+  }
+
+  /**
+   * @return the estimated memory of the raster and all tiles in bytes
+   */
+  public synchronized long estimateBytes() {
+    long bytes = 0;
+    for (final Level level : levels) {
+      bytes += (long) level.values().length * Float.BYTES;
+    }
+    bytes += (long) (sourceIndices.length + sourcePixels.length) * Integer.BYTES;
+    for (final BufferedImage tile : tiles.values()) {
+      bytes += (long) tile.getWidth() * tile.getHeight() * Integer.BYTES;
+    }
+    return bytes;
+  }
+
+  public double getOriginX() {
+    return originX;
+  }
+
+  public double getOriginY() {
+    return originY;
+  }
+
+  /**
+   * @return the x coordinate of the last pixel center
+   */
+  public double getMaxX() {
+    return originX + (levels.getFirst().width() - 0.5) * pixelWidth;
+  }
+
+  /**
+   * @return the y coordinate of the last pixel center
+   */
+  public double getMaxY() {
+    return originY + (levels.getFirst().height() - 0.5) * pixelHeight;
+  }
+
+  /**
+   * @return the data coordinate of the center of the pixel that contains x
+   */
+  public double snapToPixelCenterX(double x) {
+    return originX + (Math.floor((x - originX) / pixelWidth) + 0.5) * pixelWidth;
+  }
+
+  /**
+   * @return the data coordinate of the center of the pixel that contains y
+   */
+  public double snapToPixelCenterY(double y) {
+    return originY + (Math.floor((y - originY) / pixelHeight) + 0.5) * pixelHeight;
+  }
+
+  public double getMinValue() {
+    return minValue;
+  }
+
+  public double getMaxValue() {
+    return maxValue;
+  }
+
+  /**
+   * @return the paint scale of the dataset that the raster was created from
+   */
+  public @Nullable PaintScale getPaintScale() {
+    return paintScale;
+  }
+
+  /**
+   * @return the width of a pixel of level 0 in data units
+   */
+  public double getPixelWidth() {
+    return pixelWidth;
+  }
+
+  /**
+   * @return the height of a pixel of level 0 in data units
+   */
+  public double getPixelHeight() {
+    return pixelHeight;
+  }
+
+  /**
+   * @param width  number of pixels in x
+   * @param height number of pixels in y
+   * @param values row major values, NaN for missing pixels
+   */
+  public record Level(int width, int height, float[] values) {
+
+    public float get(int x, int y) {
+      if (x < 0 || y < 0 || x >= width || y >= height) {
+        return Float.NaN;
+      }
+      return values[y * width + x];
+    }
+
+    public int getNumberOfTilesX() {
+      return (width + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    public int getNumberOfTilesY() {
+      return (height + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * Halves the resolution, each pixel is the maximum of a 2x2 block
+     */
+    Level downsample() {
+      final int newWidth = (width + 1) / 2;
+      final int newHeight = (height + 1) / 2;
+      final float[] newValues = new float[newWidth * newHeight];
+      for (int y = 0; y < newHeight; y++) {
+        for (int x = 0; x < newWidth; x++) {
+          float max = Float.NaN;
+          for (int dy = 0; dy < 2; dy++) {
+            for (int dx = 0; dx < 2; dx++) {
+              final float v = get(x * 2 + dx, y * 2 + dy);
+              if (!Float.isNaN(v) && (Float.isNaN(max) || v > max)) {
+                max = v;
+              }
+            }
+          }
+          newValues[y * newWidth + x] = max;
+        }
+      }
+      return new Level(newWidth, newHeight, newValues);
+    }
+
+    BufferedImage createTile(int tileX, int tileY, PaintScale paintScale) {
+      final int x0 = tileX * TILE_SIZE;
+      final int y0 = tileY * TILE_SIZE;
+      final int tileWidth = Math.min(TILE_SIZE, width - x0);
+      final int tileHeight = Math.min(TILE_SIZE, height - y0);
+      final BufferedImage image = new BufferedImage(tileWidth, tileHeight,
+          BufferedImage.TYPE_INT_ARGB);
+      final int[] argb = new int[tileWidth * tileHeight];
+      for (int y = 0; y < tileHeight; y++) {
+        for (int x = 0; x < tileWidth; x++) {
+          final float v = values[(y0 + y) * width + x0 + x];
+          // transparent for missing pixels
+          argb[y * tileWidth + x] = Float.isNaN(v) ? 0
+              : paintScale.getPaint(v) instanceof Color c ? c.getRGB() : 0;
+        }
+      }
+      image.setRGB(0, 0, tileWidth, tileHeight, argb, 0, tileWidth);
+      return image;
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.image.raster;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Least recently used cache of {@link ImageRaster}s that is bounded by the estimated memory of the
+ * rasters and their colored tiles. Shared by all image plots, so the image gallery of co-located
+ * features does not rebuild rasters while scrolling.
+ */
+public class ImageRasterCache {
+
+  private static final Logger logger = Logger.getLogger(ImageRasterCache.class.getName());
+  private static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+  private static final ImageRasterCache INSTANCE = new ImageRasterCache(DEFAULT_MAX_BYTES);
+
+  private final long maxBytes;
+  // access ordered: first entry is the least recently used
+  private final LinkedHashMap<ImageRasterKey, ImageRaster> rasters = new LinkedHashMap<>(16, 0.75f,
+      true);
+
+  public ImageRasterCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  public static ImageRasterCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param key     the cache key
+   * @param factory creates the raster if it is not cached. Called outside of the cache lock.
+   * @return the cached or new raster. null if the factory returned null
+   */
+  public @Nullable ImageRaster computeIfAbsent(@NotNull ImageRasterKey key,
+      @NotNull Supplier<@Nullable ImageRaster> factory) {
+    synchronized (rasters) {
+      final ImageRaster raster = rasters.get(key);
+      if (raster != null) {
+        return raster;
+      }
+    }
+
+    final ImageRaster raster = factory.get();
+    if (raster == null) {
+      return null;
+    }
+
+    synchronized (rasters) {
+      // another thread might have been faster
+      final ImageRaster existing = rasters.putIfAbsent(key, raster);
+      evict();
+      return existing != null ? existing : raster;
+    }
+  }
+
+  public @Nullable ImageRaster get(@NotNull ImageRasterKey key) {
+    synchronized (rasters) {
+      return rasters.get(key);
+    }
+  }
+
+  public void clear() {
+    synchronized (rasters) {
+      rasters.clear();
+    }
+  }
+
+  /**
+   * Removes the rasters of closed features and raw data files, then the least recently used rasters
+   * until the estimated memory is below the limit. The most recent raster is always kept.
+   */
+  private void evict() {
+    rasters.keySet().removeIf(ImageRasterKey::isStale);
+
+    long bytes = 0;
+    for (final ImageRaster raster : rasters.values()) {
+      bytes += raster.estimateBytes();
+    }
+
+    final Iterator<Entry<ImageRasterKey, ImageRaster>> iterator = rasters.entrySet().iterator();
+    while (bytes > maxBytes && rasters.size() > 1 && iterator.hasNext()) {
+      final Entry<ImageRasterKey, ImageRaster> eldest = iterator.next();
+      bytes -= eldest.getValue().estimateBytes();
+      iterator.remove();
+      logger.finest(() -> "Evicted image raster " + eldest.getKey());
+    }
+  }
+}
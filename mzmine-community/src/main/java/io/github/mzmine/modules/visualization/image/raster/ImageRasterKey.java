@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.visualization.image.raster;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.gui.preferences.ImageNormalization;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Identifies an ion image in the {@link ImageRasterCache}. The source is only weakly referenced
+ * and compared by identity, so that cached rasters do not keep closed features or raw data files
+ * in memory. Keys of collected sources never match and are evicted by the cache.
+ */
+public final class ImageRasterKey {
+
+  private final WeakReference<Object> source;
+  private final int sourceHash;
+  private final @Nullable Range<Double> mzRange;
+  private final @Nullable Range<Double> mobilityRange;
+  private final @Nullable ImageNormalization normalization;
+  private final @Nullable ScanSelection scanSelection;
+
+  /**
+   * @param source        the feature or raw data file the image was extracted from
+   * @param mzRange       the m/z range for raw images, null for features
+   * @param mobilityRange the mobility range for raw images, null if not applied
+   * @param normalization the intensity normalization or null
+   * @param scanSelection the scan selection for raw images, null for features
+   */
+  public ImageRasterKey(@NotNull Object source, @Nullable Range<Double> mzRange,
+      @Nullable Range<Double> mobilityRange, @Nullable ImageNormalization normalization,
+      @Nullable ScanSelection scanSelection) {
+    this.source = new WeakReference<>(source);
+    this.sourceHash = System.identityHashCode(source);
+    this.mzRange = mzRange;
+    this.mobilityRange = mobilityRange;
+    this.normalization = normalization;
+    this.scanSelection = scanSelection;
+  }
+
+  public static ImageRasterKey ofFeature(@NotNull Object feature,
+      @Nullable ImageNormalization normalization) {
+    return new ImageRasterKey(feature, null, null, normalization, null);
+  }
+
+  /**
+   * @return true if the source was garbage collected
+   */
+  public boolean isStale() {
+    return source.get() == null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ImageRasterKey that)) {
+      return false;
+    }
+    final Object src = source.get();
+    return src != null && src == that.source.get() && Objects.equals(mzRange, that.mzRange)
+           && Objects.equals(mobilityRange, that.mobilityRange)
+           && Objects.equals(normalization, that.normalization)
+           && Objects.equals(scanSelection, that.scanSelection);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sourceHash, mzRange, mobilityRange, normalization, scanSelection);
+  }
+
+  @Override
+  public String toString() {
+    return "ImageRasterKey[source=" + source.get() + ", mzRange=" + mzRange + ", mobilityRange="
+           + mobilityRange + ", normalization=" + normalization + "]";
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.image.raster;
+
+import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYSmallBlockRenderer;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import org.jfree.chart.axis.ValueAxis;
+import org.jfree.chart.plot.CrosshairState;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.PlotRenderingInfo;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.PaintScale;
+import org.jfree.chart.renderer.xy.XYItemRendererState;
+import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.xy.XYDataset;
+
+/**
+ * Draws a {@link RasterXYZDataset} as colored tiles of the {@link ImageRaster} instead of one
+ * rectangle per pixel. The raster level is chosen by the current zoom, and only tiles within the
+ * data area are drawn. The raster is drawn once per pass, because the dataset reports a single
+ * item as soon as the raster is available. Other datasets are drawn block by block.
+ */
+public class ImageRasterRenderer extends ColoredXYSmallBlockRenderer {
+
+  @Override
+  public void drawItem(Graphics2D g2, XYItemRendererState state, Rectangle2D dataArea,
+      PlotRenderingInfo info, XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis,
+      XYDataset dataset, int series, int item, CrosshairState crosshairState, int pass) {
+    if (!(dataset instanceof RasterXYZDataset ds) || ds.getStatus() != TaskStatus.FINISHED
+        || ds.getRaster() == null || plot.getOrientation() != PlotOrientation.VERTICAL) {
+      super.drawItem(g2, state, dataArea, info, plot, domainAxis, rangeAxis, dataset, series, item,
+          crosshairState, pass);
+      return;
+    }
+
+    // the dataset reports a single item once the raster is available, draw it once per pass
+    final ImageRaster raster = ds.getRaster();
+    final PaintScale paintScale =
+        isUseDatasetPaintScale() && ds.getPaintScale() != null ? ds.getPaintScale()
+            : getPaintScale();
+    drawRaster(g2, dataArea, plot, domainAxis, rangeAxis, raster, paintScale);
+    updateRasterCrosshair(crosshairState, dataArea, plot, domainAxis, rangeAxis, raster,
+        plot.indexOf(dataset));
+  }
+
+  /**
+   * Snaps the crosshair to the center of the pixel below the anchor. Entities per pixel are skipped
+   * on purpose.
+   */
+  private void updateRasterCrosshair(CrosshairState crosshairState, Rectangle2D dataArea,
+      XYPlot plot, ValueAxis domainAxis, ValueAxis rangeAxis, ImageRaster raster,
+      int datasetIndex) {
+    if (crosshairState == null || crosshairState.getAnchor() == null) {
+      return;
+    }
+    final RectangleEdge xEdge = plot.getDomainAxisEdge();
+    final RectangleEdge yEdge = plot.getRangeAxisEdge();
+    final double anchorX = domainAxis.java2DToValue(crosshairState.getAnchor().getX(), dataArea,
+        xEdge);
+    final double anchorY = rangeAxis.java2DToValue(crosshairState.getAnchor().getY(), dataArea,
+        yEdge);
+    if (Float.isNaN(raster.getValue(anchorX, anchorY))) {
+      return;
+    }
+
+    final double x = raster.snapToPixelCenterX(anchorX);
+    final double y = raster.snapToPixelCenterY(anchorY);
+    final double transX = domainAxis.valueToJava2D(x, dataArea, xEdge);
+    final double transY = rangeAxis.valueToJava2D(y, dataArea, yEdge);
+    updateCrosshairValues(crosshairState, x, y, datasetIndex, transX, transY,
+        plot.getOrientation());
+  }
+
+  private void drawRaster(Graphics2D g2, Rectangle2D dataArea, XYPlot plot, ValueAxis domainAxis,
+      ValueAxis rangeAxis, ImageRaster raster, PaintScale paintScale) {
+    final RectangleEdge xEdge = plot.getDomainAxisEdge();
+    final RectangleEdge yEdge = plot.getRangeAxisEdge();
+
+    final double screenPerPixel = Math.min(
+        Math.abs(domainAxis.lengthToJava2D(raster.getPixelWidth(), dataArea, xEdge)),
+        Math.abs(rangeAxis.lengthToJava2D(raster.getPixelHeight(), dataArea, yEdge)));
+    final int levelIndex = raster.selectLevel(screenPerPixel);
+    final ImageRaster.Level level = raster.getLevel(levelIndex);
+    final double scale = 1 << levelIndex;
+    final double tileWidth = raster.getPixelWidth() * scale * ImageRaster.TILE_SIZE;
+    final double tileHeight = raster.getPixelHeight() * scale * ImageRaster.TILE_SIZE;
+
+    // visible tile range
+    final double xLower = domainAxis.getLowerBound() - raster.getOriginX();
+    final double xUpper = domainAxis.getUpperBound() - raster.getOriginX();
+    final double yLower = rangeAxis.getLowerBound() - raster.getOriginY();
+    final double yUpper = rangeAxis.getUpperBound() - raster.getOriginY();
+    final int firstTileX = Math.max(0, (int) Math.floor(xLower / tileWidth));
+    final int lastTileX = Math.min(level.getNumberOfTilesX() - 1,
+        (int) Math.floor(xUpper / tileWidth));
+    final int firstTileY = Math.max(0, (int) Math.floor(yLower / tileHeight));
+    final int lastTileY = Math.min(level.getNumberOfTilesY() - 1,
+        (int) Math.floor(yUpper / tileHeight));
+
+    final Object oldInterpolation = g2.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+    g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+        RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+    final var oldClip = g2.getClip();
+    g2.clip(dataArea);
+
+    for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+      for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+        final BufferedImage tile = raster.getTile(levelIndex, tileX, tileY, paintScale);
+        final double x0 = raster.getOriginX() + tileX * tileWidth;
+        final double y0 = raster.getOriginY() + tileY * tileHeight;
+        final double x1 = x0 + tile.getWidth() * raster.getPixelWidth() * scale;
+        final double y1 = y0 + tile.getHeight() * raster.getPixelHeight() * scale;
+
+        // tile rows are ordered by increasing y, inverted axes are handled by the destination
+        final int dx0 = (int) Math.round(domainAxis.valueToJava2D(x0, dataArea, xEdge));
+        final int dx1 = (int) Math.round(domainAxis.valueToJava2D(x1, dataArea, xEdge));
+        final int dy0 = (int) Math.round(rangeAxis.valueToJava2D(y0, dataArea, yEdge));
+        final int dy1 = (int) Math.round(rangeAxis.valueToJava2D(y1, dataArea, yEdge));
+        g2.drawImage(tile, dx0, dy0, dx1, dy1, 0, 0, tile.getWidth(), tile.getHeight(), null);
+      }
+    }
+
+    g2.setClip(oldClip);
+    if (oldInterpolation != null) {
+      g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, oldInterpolation);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.image.raster;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Image dataset that is drawn from an {@link ImageRaster}. Rasters are shared via the
+ * {@link ImageRasterCache}: if the image is cached, the values are not computed at all, otherwise
+ * the raster is created once the values were computed. As soon as the raster is available, the
+ * dataset reports a single item per series, so that the {@link ImageRasterRenderer} draws the
+ * whole raster once per pass instead of once per pixel.
+ * <p>
+ * Cursor positions are looked up in the raster: {@link #getValueIndex(double, double)} returns the
+ * item index of the {@link PlotXYZDataProvider} and {@link #getZValue(int, int)} the value of the
+ * pixel of such an index. The provider values are not computed for cached rasters.
+ */
+public class RasterXYZDataset extends ColoredXYZDataset {
+
+  private final @Nullable ImageRasterKey key;
+  private final RunOption runOption;
+  private volatile @Nullable ImageRaster raster;
+
+  /**
+   * @param key the cache key or null to create a raster that is not cached
+   */
+  public RasterXYZDataset(@NotNull PlotXYZDataProvider dataProvider,
+      @Nullable ImageRasterKey key, @NotNull RunOption runOption) {
+    super(dataProvider, RunOption.DO_NOT_RUN);
+    this.key = key;
+    this.runOption = checkRunOption(runOption);
+
+    final ImageRaster cached = key != null ? ImageRasterCache.getInstance().get(key) : null;
+    if (cached != null) {
+      // everything to draw the image is cached, skip the computation
+      applyRaster(cached);
+      super.onCalculationsFinished();
+    } else {
+      handleRunOption(this.runOption);
+    }
+  }
+
+  @Override
+  protected void onCalculationsFinished() {
+    // still on the calculation thread
+    final ImageRaster raster;
+    if (key != null) {
+      raster = ImageRasterCache.getInstance().computeIfAbsent(key,
+          () -> ImageRaster.of(this, getBoxWidth(), getBoxHeight(), getPaintScale()));
+    } else {
+      raster = ImageRaster.of(this, getBoxWidth(), getBoxHeight(), getPaintScale());
+    }
+    if (raster != null) {
+      applyRaster(raster);
+    }
+    super.onCalculationsFinished();
+  }
+
+  /**
+   * Takes the bounds, pixel size and paint scale from the raster
+   */
+  private void applyRaster(@NotNull ImageRaster raster) {
+    domainRange = Range.closed(raster.getOriginX() + raster.getPixelWidth() / 2,
+        raster.getMaxX());
+    rangeRange = Range.closed(raster.getOriginY() + raster.getPixelHeight() / 2,
+        raster.getMaxY());
+    zRange = Range.closed(raster.getMinValue(), raster.getMaxValue());
+    boxWidth = raster.getPixelWidth();
+    boxHeight = raster.getPixelHeight();
+    if (raster.getPaintScale() != null) {
+      paintScale = raster.getPaintScale();
+    }
+    valuesComputed = true;
+    computedItemCount = 1;
+    this.raster = raster;
+  }
+
+  /**
+   * @return the raster or null if the values are not computed yet or the image is empty
+   */
+  public @Nullable ImageRaster getRaster() {
+    return raster;
+  }
+
+  @Override
+  public int getItemCount(int series) {
+    return raster != null ? 1 : super.getItemCount(series);
+  }
+
+  /**
+   * @return the item index of the data provider at the pixel or -1
+   */
+  @Override
+  public int getValueIndex(double domainValue, double rangeValue) {
+    final ImageRaster r = raster;
+    return r != null ? r.getSourceIndex(domainValue, rangeValue)
+        : super.getValueIndex(domainValue, rangeValue);
+  }
+
+  // the single item of a raster is placed on the first pixel
+
+  @Override
+  public Number getX(int series, int item) {
+    return getXValue(series, item);
+  }
+
+  @Override
+  public double getXValue(int series, int item) {
+    final ImageRaster r = raster;
+    return r != null ? r.getOriginX() + r.getPixelWidth() / 2 : super.getXValue(series, item);
+  }
+
+  @Override
+  public Number getY(int series, int item) {
+    return getYValue(series, item);
+  }
+
+  @Override
+  public double getYValue(int series, int item) {
+    final ImageRaster r = raster;
+    return r != null ? r.getOriginY() + r.getPixelHeight() / 2 : super.getYValue(series, item);
+  }
+
+  @Override
+  public Number getZ(int series, int item) {
+    return getZValue(series, item);
+  }
+
+  /**
+   * @param item the item index of the data provider, see {@link #getValueIndex(double, double)}
+   */
+  @Override
+  public double getZValue(int series, int item) {
+    final ImageRaster r = raster;
+    return r != null ? r.getSourceValue(item) : super.getZValue(series, item);
+  }
+
+  @Override
+  protected RunOption getRunOption() {
+    return runOption;
+  }
+}
@@ -136,10 +136,12 @@ public class ImageAllMs2Pane extends BorderPane {
       final XYDataset dataset = newValue.getDataset();
 
       if (dataset instanceof ColoredXYZDataset xyz
-          && xyz.getXyzValueProvider() instanceof FeatureImageProvider fip) {
-        final int valueIndex = newValue.getValueIndex();
-        if (valueIndex >= 0 && valueIndex < fip.getValueCount()) {
-          final ImagingScan spectrum = fip.getSpectrum(valueIndex);
+          && xyz.getXyzValueProvider() instanceof FeatureImageProvider<?>) {
+        // the raster of a cached image maps the pixel to the index of the feature data, the
+        // provider values may not be computed
+        final Scan spectrum = getScanAtValueIndex(featureProperty.get(),
+            newValue.getValueIndex());
+        if (spectrum != null) {
           tab.loadRawData(spectrum);
         }
       }
@@ -155,6 +157,21 @@ public class ImageAllMs2Pane extends BorderPane {
     }
   }
 
+  /**
+   * @param valueIndex the value index of a cursor position in the image of the feature
+   * @return the scan of the image pixel or null
+   */
+  static @Nullable Scan getScanAtValueIndex(@Nullable Feature feature, int valueIndex) {
+    if (feature == null) {
+      return null;
+    }
+    final List<? extends Scan> scans = feature.getFeatureData().getSpectra();
+    if (valueIndex < 0 || valueIndex >= scans.size()) {
+      return null;
+    }
+    return scans.get(valueIndex);
+  }
+
   private void featureChanged(final Feature feature) {
 
     imagePlot.getChart().removeAllDatasets();
@@ -36,6 +36,7 @@ import io.github.mzmine.gui.chartbasics.simplechart.RegionSelectionWrapper;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.LevelOfDetailXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZPieDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.MassSpectrumProvider;
@@ -281,12 +282,13 @@ public class IMSMobilityMzPlot extends BorderPane {
   public void addFeatureToRightSide(ModularFeature feature) {
     if (!rawDataFiles.contains(feature.getRawDataFile())) {
       ticChart.addDataset(
-          new ColoredXYDataset(new ScanBPCProvider(feature.getRawDataFile().getScanNumbers(1))));
+          new LevelOfDetailXYDataset(
+              new ScanBPCProvider(feature.getRawDataFile().getScanNumbers(1))));
       rawDataFiles.add(feature.getRawDataFile());
     }
-    ticChart.addDataset(new IonTimeSeriesToXYProvider(feature.getFeatureData(),
-        FeatureUtils.featureToString(feature), new SimpleObjectProperty<>(
-        MZmineCore.getConfiguration().getDefaultColorPalette().getNextColor())));
+    ticChart.addDataset(new LevelOfDetailXYDataset(new IonTimeSeriesToXYProvider(
+        feature.getFeatureData(), FeatureUtils.featureToString(feature), new SimpleObjectProperty<>(
+        MZmineCore.getConfiguration().getDefaultColorPalette().getNextColor()))));
 
     SingleIMSFeatureVisualiserPane featureVisualiserPane = new SingleIMSFeatureVisualiserPane(
         feature);
@@ -41,6 +41,7 @@ import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.DensityBinnedXYZDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.series.IMSIonTraceHeatmapProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.CachedFrame;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.FrameHeatmapProvider;
@@ -251,7 +252,7 @@ public class IMSRawDataOverviewPane extends BorderPane {
     mzRangeTicDatasetIndices.clear();
     cachedFrame = new CachedFrame(selectedFrame.get(), frameNoiseLevel,
         mobilityScanNoiseLevel);//selectedFrame.get();//
-    heatmapChart.setDataset(new FrameHeatmapProvider(cachedFrame));
+    heatmapChart.setDataset(FrameHeatmapProvider.createBinned(cachedFrame));
     mobilogramChart.addDataset(new FrameSummedMobilogramProvider(cachedFrame, binWidth));
     summedSpectrumChart.addDataset(new FrameSummedSpectrumProvider(cachedFrame));
     if (selectedMobilityScan.get() != null) {
@@ -422,9 +423,9 @@ public class IMSRawDataOverviewPane extends BorderPane {
     heatmapChart.cursorPositionProperty().addListener(((observable, oldValue, newValue) -> {
       selectedMz.set(mzTolerance.getToleranceRange(newValue.getDomainValue()));
       if (newValue.getDataset() != null) {
-        selectedMobilityScan.set(
-            ((FrameHeatmapProvider) ((ColoredXYZDataset) newValue.getDataset()).getXyzValueProvider()).getMobilityScanAtValueIndex(
-                newValue.getValueIndex()));
+        final DensityBinnedXYZDataset dataset = (DensityBinnedXYZDataset) newValue.getDataset();
+        selectedMobilityScan.set(FrameHeatmapProvider.getMobilityScan(dataset,
+            newValue.getValueIndex(), newValue.getRangeValue()));
       }
     }));
     ticChart.cursorPositionProperty().addListener(
@@ -38,6 +38,10 @@ import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingController.ControllerStatus;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.datamodel.DPPParameterValueWrapper;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.datamodel.MSLevel;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.identification.sumformulaprediction.DPPSumFormulaPredictionModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.isotopes.anyelementdeisotoper.DPPAnyElementIsotopeGrouperModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.isotopes.deisotoper.DPPIsotopeGrouperModule;
+import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.massdetection.DPPMassDetectionModule;
 import io.github.mzmine.parameters.ParameterSet;
 
 /**
@@ -54,6 +58,13 @@ public class DataPointProcessingManager implements MZmineModule {
   private static final int MAX_RUNNING = 3;
   private static final String MODULE_NAME = "Data point processing manager";
 
+  /**
+   * All data point processing modules. Modules are only created on first use
+   */
+  public static final List<Class<? extends DataPointProcessingModule>> MODULES = List.of(
+      DPPMassDetectionModule.class, DPPIsotopeGrouperModule.class,
+      DPPAnyElementIsotopeGrouperModule.class, DPPSumFormulaPredictionModule.class);
+
   private ParameterSet parameters;
 
   private static Logger logger = Logger.getLogger(DataPointProcessingManager.class.getName());
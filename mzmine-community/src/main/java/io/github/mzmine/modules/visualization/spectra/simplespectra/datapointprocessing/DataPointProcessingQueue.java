@@ -33,7 +33,6 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.util.XMLUtils;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.Vector;
 import java.util.logging.Logger;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -60,9 +59,6 @@ public class DataPointProcessingQueue extends
   public static @NotNull DataPointProcessingQueue loadfromXML(final @NotNull Element xmlElement) {
     DataPointProcessingQueue queue = new DataPointProcessingQueue();
 
-    // Get the loaded modules.
-    final Collection<MZmineModule> allModules = MZmineCore.getAllModules();
-
     // Process the processing step elements.
     final NodeList nodes = xmlElement.getElementsByTagName(DATA_POINT_PROCESSING_STEP_ELEMENT);
     final int nodesLength = nodes.getLength();
@@ -73,24 +69,24 @@ public class DataPointProcessingQueue extends
       final String methodName = stepElement.getAttribute(METHOD_ELEMENT);
       logger.finest("loading method " + methodName);
 
-      for (MZmineModule module : allModules) {
-        if (module instanceof DataPointProcessingModule && module.getClass().getName()
-            .equals(methodName)) {
-
-          // since the same module can be used in different ms levels,
-          // we need to clone the
-          // parameter set, so we can have different values for every
-          // ms level
-          ParameterSet parameterSet = MZmineCore.getConfiguration()
-              .getModuleParameters(module.getClass()).cloneParameterSet();
-
-          parameterSet.loadValuesFromXML(stepElement);
-          queue.add(new MZmineProcessingStepImpl<DataPointProcessingModule>(
-              (DataPointProcessingModule) module, parameterSet));
-          // add to treeView
-          break;
-        }
-
+      final MZmineModule module;
+      try {
+        module = MZmineCore.getModuleInstance(methodName);
+      } catch (ClassNotFoundException e) {
+        logger.warning("Data point processing module not found: " + methodName);
+        continue;
+      }
+      if (module instanceof DataPointProcessingModule dppModule) {
+        // since the same module can be used in different ms levels,
+        // we need to clone the
+        // parameter set, so we can have different values for every
+        // ms level
+        ParameterSet parameterSet = MZmineCore.getConfiguration()
+            .getModuleParameters(module.getClass()).cloneParameterSet();
+
+        parameterSet.loadValuesFromXML(stepElement);
+        queue.add(new MZmineProcessingStepImpl<DataPointProcessingModule>(dppModule,
+            parameterSet));
       }
 
     }
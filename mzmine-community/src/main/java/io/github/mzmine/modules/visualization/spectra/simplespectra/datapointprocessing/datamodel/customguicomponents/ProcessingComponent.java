@@ -26,7 +26,6 @@
 package io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.datamodel.customguicomponents;
 
 import io.github.mzmine.main.MZmineCore;
-import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineProcessingStep;
 import io.github.mzmine.modules.impl.MZmineProcessingStepImpl;
 import io.github.mzmine.modules.visualization.spectra.simplespectra.datapointprocessing.DataPointProcessingManager;
@@ -178,10 +177,9 @@ public class ProcessingComponent extends SwingNode implements ActionListener {
     }
 
     // add modules to their module category items
-    Collection<MZmineModule> moduleList = MZmineCore.getAllModules();
-    for (MZmineModule module : moduleList) {
-      if (module instanceof DataPointProcessingModule) {
-        DataPointProcessingModule dppm = (DataPointProcessingModule) module;
+    for (var moduleClass : DataPointProcessingManager.MODULES) {
+      DataPointProcessingModule dppm = MZmineCore.getModuleInstance(moduleClass);
+      if (dppm != null) {
         // only add modules that have applicable ms levels
         // add each module as a child of the module category items
         for (DPPModuleCategoryTreeNode catItem : moduleCategories) {
@@ -100,12 +100,20 @@ public record MsLevelFilter(Options filter, int specificLevel) implements
    * @return true if scan matches filter
    */
   public boolean accept(Scan scan) {
+    return accept(scan.getMSLevel());
+  }
+
+  /**
+   * @param msLevel the tested MS level
+   * @return true if the MS level matches filter
+   */
+  public boolean accept(int msLevel) {
     return switch (filter) {
       case ALL -> true;
-      case MS1 -> scan.getMSLevel() == 1;
-      case MS2 -> scan.getMSLevel() == 2;
-      case MSn -> scan.getMSLevel() > 1;
-      case SPECIFIC_LEVEL -> scan.getMSLevel() == specificLevel;
+      case MS1 -> msLevel == 1;
+      case MS2 -> msLevel == 2;
+      case MSn -> msLevel > 1;
+      case SPECIFIC_LEVEL -> msLevel == specificLevel;
     };
   }
 
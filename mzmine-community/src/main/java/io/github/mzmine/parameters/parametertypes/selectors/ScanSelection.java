@@ -33,16 +33,21 @@ import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.TextUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilteringInteger,
                             Range<Double> scanRTRange, Range<Double> scanMobilityRange,
@@ -132,7 +137,49 @@ public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilterin
   }
 
   public Stream<Scan> streamMatchingScans(RawDataFile dataFile) {
-    return dataFile.getScans().stream().filter(this::matches);
+    final List<Scan> scans = dataFile.getScans();
+    return Arrays.stream(getMatchingScanIndices(dataFile)).mapToObj(scans::get);
+  }
+
+  /**
+   * Uses the {@link ScanMetadataIndex} of the data file to preselect scans by MS level and
+   * retention time, only the remaining scans are tested by {@link #matches(Scan, int)}.
+   *
+   * @return the indices of all matching scans in {@link RawDataFile#getScans()} in ascending order
+   */
+  public int[] getMatchingScanIndices(RawDataFile dataFile) {
+    final List<Scan> scans = dataFile.getScans();
+    final ScanMetadataIndex index = dataFile.getScanMetadataIndex();
+    final int[] candidates = index != null ? index.getScanIndices(msLevel::accept,
+        toClosedFloatRange(scanRTRange)) : IntStream.range(0, scans.size()).toArray();
+
+    final int offset;
+    if (scanNumberRange != null) {
+      offset = scanNumberRange.lowerEndpoint();
+    } else {
+      offset = scans.isEmpty() ? 1 : scans.getFirst().getScanNumber();
+    }
+
+    final IntArrayList matching = new IntArrayList(candidates.length);
+    for (final int i : candidates) {
+      if (matches(scans.get(i), offset)) {
+        matching.add(i);
+      }
+    }
+    return matching.toIntArray();
+  }
+
+  /**
+   * The float range may only be wider than the double range, the exact bounds are checked in
+   * {@link #matches(Scan, int)}
+   *
+   * @return a closed float range or null if the range is not bounded on both sides
+   */
+  private static @Nullable Range<Float> toClosedFloatRange(@Nullable Range<Double> range) {
+    if (range == null || !range.hasLowerBound() || !range.hasUpperBound()) {
+      return null;
+    }
+    return Range.closed(range.lowerEndpoint().floatValue(), range.upperEndpoint().floatValue());
   }
 
   public Scan[] getMatchingScans(RawDataFile dataFile) {
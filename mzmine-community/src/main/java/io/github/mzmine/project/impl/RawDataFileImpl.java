@@ -33,23 +33,22 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
+import io.github.mzmine.datamodel.impl.SharedMzAxisStorage;
 import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.javafx.util.FxColorUtil;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.util.MemoryMapStorage;
-import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ListChangeListener.Change;
 import javafx.collections.ObservableList;
 import javafx.scene.paint.Color;
 import org.jetbrains.annotations.NotNull;
@@ -72,18 +71,18 @@ public class RawDataFileImpl implements RawDataFile {
   protected final String absolutePath;
   protected final ObservableList<Scan> scans;
   protected final ObservableList<FeatureListAppliedMethod> appliedMethods = FXCollections.observableArrayList();
-  // for ease of use we have a javafx safe copy of name
-  private final Map<Integer, Range<Double>> dataMZRange = new HashMap<>();
-  private final Map<Integer, Range<Float>> dataRTRange = new HashMap<>();
-  private final Int2DoubleOpenHashMap dataMaxBasePeakIntensity = new Int2DoubleOpenHashMap(2);
-  private final Int2DoubleOpenHashMap dataMaxTIC = new Int2DoubleOpenHashMap(2);
   // Temporary file for scan data storage
   private final MemoryMapStorage storageMemoryMap;
+  // shares recurring m/z axes of scans in the storage
+  private final @Nullable SharedMzAxisStorage sharedMzAxisStorage;
   private final ObjectProperty<Color> color = new SimpleObjectProperty<>();
   // Name of this raw data file - may be changed by the user
   private final String name;
   // maximum number of data points and centroid data points in all scans
   protected int maxRawDataPoints = -1;
+  // created on first access, appended by addScan and rebuilt after other changes of the scan list
+  @Nullable
+  private ScanMetadataIndex scanMetadataIndex;
 
   @NotNull
   protected List<@NotNull OtherDataFile> otherDataFiles = new ArrayList<>();
@@ -106,9 +105,11 @@ public class RawDataFileImpl implements RawDataFile {
       @Nullable final MemoryMapStorage storage, @NotNull Color color) {
     this.name = dataFileName;
     this.storageMemoryMap = storage;
+    this.sharedMzAxisStorage = storage != null ? new SharedMzAxisStorage(storage) : null;
     this.absolutePath = absolutePath;
 
     scans = FXCollections.observableArrayList();
+    scans.addListener((ListChangeListener<Scan>) this::onScansChanged);
 
     this.color.setValue(color);
   }
@@ -118,6 +119,11 @@ public class RawDataFileImpl implements RawDataFile {
     return storageMemoryMap;
   }
 
+  @Override
+  public @Nullable SharedMzAxisStorage getSharedMzAxisStorage() {
+    return sharedMzAxisStorage;
+  }
+
   @Override
   public RawDataFile clone() throws CloneNotSupportedException {
     return (RawDataFile) super.clone();
@@ -135,43 +141,45 @@ public class RawDataFileImpl implements RawDataFile {
 
   @Override
   public double getDataMaxBasePeakIntensity(int msLevel) {
-    // check if we have this value already cached
-    return dataMaxBasePeakIntensity.computeIfAbsent(msLevel, key -> {
-      double max = Double.NEGATIVE_INFINITY;
-      // find the value
-      for (Scan scan : scans) {
-        // ignore scans of other ms levels
-        if (scan.getMSLevel() != msLevel) {
-          continue;
-        }
-
-        Double basePeakIntensity = scan.getBasePeakIntensity();
-        if (basePeakIntensity != null && basePeakIntensity > max) {
-          max = scan.getTIC();
-        }
-      }
-      return Double.compare(Double.NEGATIVE_INFINITY, max) == 0 ? -1d : max;
-    });
+    return getScanMetadataIndex().getMaxBasePeakIntensity(msLevel);
   }
 
   @Override
   public double getDataMaxTotalIonCurrent(int msLevel) {
-    // check if we have this value already cached
-    return dataMaxTIC.computeIfAbsent(msLevel, key -> {
-      double max = Double.NEGATIVE_INFINITY;
-      // find the value
-      for (Scan scan : scans) {
-        // ignore scans of other ms levels
-        if (scan.getMSLevel() != msLevel) {
-          continue;
-        }
+    return getScanMetadataIndex().getMaxTIC(msLevel);
+  }
 
-        if (scan.getTIC() > max) {
-          max = scan.getTIC();
-        }
+  @Override
+  public synchronized @NotNull ScanMetadataIndex getScanMetadataIndex() {
+    if (scanMetadataIndex == null || scanMetadataIndex.size() != scans.size()) {
+      scanMetadataIndex = ScanMetadataIndex.of(scans);
+    }
+    return scanMetadataIndex;
+  }
+
+  /**
+   * Discards the scan metadata index after the data of scans changed, e.g., when the spectrum of a
+   * frame was recalculated. The index is rebuilt on the next access.
+   */
+  public synchronized void invalidateScanMetadata() {
+    scanMetadataIndex = null;
+  }
+
+  /**
+   * Appends scans that were added to the end of the list to the index. Any other change discards
+   * the index.
+   */
+  private synchronized void onScansChanged(Change<? extends Scan> change) {
+    while (scanMetadataIndex != null && change.next()) {
+      if (change.wasPermutated() || change.wasUpdated() || change.wasRemoved()
+          || change.getFrom() != scanMetadataIndex.size()) {
+        scanMetadataIndex = null;
+        return;
+      }
+      for (final Scan scan : change.getAddedSubList()) {
+        scanMetadataIndex.add(scan);
       }
-      return Double.compare(Double.NEGATIVE_INFINITY, max) == 0 ? -1d : max;
-    });
+    }
   }
 
   @Override
@@ -219,11 +227,6 @@ public class RawDataFileImpl implements RawDataFile {
         }
       }
     }
-    // Remove cached values
-    dataMZRange.clear();
-    dataRTRange.clear();
-    dataMaxBasePeakIntensity.clear();
-    dataMaxTIC.clear();
   }
 
   @Override
@@ -250,41 +253,8 @@ public class RawDataFileImpl implements RawDataFile {
   @Override
   @NotNull
   public Range<Double> getDataMZRange(int msLevel) {
-
-    // check if we have this value already cached
-    Range<Double> mzRange = dataMZRange.get(msLevel);
-    if (mzRange != null) {
-      return mzRange;
-    }
-
-    // find the value
-    for (Scan scan : scans) {
-
-      // ignore scans of other ms levels
-      if ((msLevel != 0) && (scan.getMSLevel() != msLevel)) {
-        continue;
-      }
-
-      final Range<Double> scanMzRange = scan.getDataPointMZRange();
-      if (mzRange == null) {
-        mzRange = scanMzRange;
-      } else {
-        if (scanMzRange != null) {
-          mzRange = mzRange.span(scanMzRange);
-        }
-      }
-
-    }
-
-    // cache the value, if we found any
-    if (mzRange != null) {
-      dataMZRange.put(msLevel, mzRange);
-    } else {
-      mzRange = Range.singleton(0.0);
-    }
-
-    return mzRange;
-
+    final Range<Double> mzRange = getScanMetadataIndex().getMzRange(msLevel);
+    return mzRange != null ? mzRange : Range.singleton(0.0);
   }
 
   @Override
@@ -299,49 +269,42 @@ public class RawDataFileImpl implements RawDataFile {
     if (msLevel == null) {
       return getDataRTRange();
     }
-    // check if we have this value already cached
-    Range<Float> rtRange = dataRTRange.get(msLevel);
-    if (rtRange != null) {
-      return rtRange;
-    }
-
-    // find the value
-    for (Scan scan : scans) {
-
-      // ignore scans of other ms levels
-      if ((msLevel != 0) && (scan.getMSLevel() != msLevel)) {
-        continue;
-      }
-
-      if (rtRange == null) {
-        rtRange = Range.singleton(scan.getRetentionTime());
-      } else {
-        rtRange = rtRange.span(Range.singleton(scan.getRetentionTime()));
-      }
+    final Range<Float> rtRange = getScanMetadataIndex().getRtRange(msLevel);
+    return rtRange != null ? rtRange : Range.singleton(0.0f);
+  }
 
-    }
+  @Override
+  public int getNumOfScans(int msLevel) {
+    return getScanMetadataIndex().getScanIndices(msLevel).length;
+  }
 
-    // cache the value
-    if (rtRange != null) {
-      dataRTRange.put(msLevel, rtRange);
-    } else {
-      rtRange = Range.singleton(0.0f);
-    }
+  @Override
+  public @NotNull int[] getMSLevels() {
+    return getScanMetadataIndex().getMsLevels();
+  }
 
-    return rtRange;
+  @Override
+  public @NotNull List<Scan> getScanNumbers(int msLevel) {
+    return toScans(getScanMetadataIndex().getScanIndices(msLevel));
   }
 
   @Override
-  public int getNumOfScans(int msLevel) {
-    return getScanNumbers(msLevel).size();
+  public @NotNull Scan[] getScanNumbers(int msLevel, @NotNull Range<Float> rtRange) {
+    return toScans(getScanMetadataIndex().getScanIndices(msLevel, rtRange)).toArray(Scan[]::new);
+  }
+
+  private synchronized List<Scan> toScans(int[] scanIndices) {
+    final List<Scan> result = new ArrayList<>(scanIndices.length);
+    for (final int index : scanIndices) {
+      result.add(scans.get(index));
+    }
+    return result;
   }
 
   @NotNull
   @Override
   public List<PolarityType> getDataPolarity() {
-    Set<PolarityType> polarities = scans.stream().map(Scan::getPolarity)
-        .collect(Collectors.toSet());
-    return ImmutableList.copyOf(polarities);
+    return getScanMetadataIndex().getPolarities();
   }
 
   @Override
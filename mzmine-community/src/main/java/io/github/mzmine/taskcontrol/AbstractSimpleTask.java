@@ -45,7 +45,7 @@ import org.jetbrains.annotations.Nullable;
  * {@link #totalItems} and {@link #finishedItems} and incremented via
  * {@link #incrementFinishedItems()}.
  */
-public abstract class AbstractSimpleTask extends AbstractTask {
+public abstract class AbstractSimpleTask extends AbstractTask implements ProcessedItemsCounter {
 
   protected final ParameterSet parameters;
   private final Class<? extends MZmineModule> moduleClass;
@@ -133,6 +133,11 @@ public abstract class AbstractSimpleTask extends AbstractTask {
     }
   }
 
+  @Override
+  public int getProcessedItems() {
+    return (int) finishedItems.get();
+  }
+
   public ParameterSet getParameters() {
     return parameters;
   }
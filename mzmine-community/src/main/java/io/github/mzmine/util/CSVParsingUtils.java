@@ -56,6 +56,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import javafx.beans.property.SimpleStringProperty;
@@ -282,21 +283,48 @@ public class CSVParsingUtils {
   public static List<String[]> readData(final File file, final String separator)
       throws IOException, CsvException {
     try (var reader = Files.newBufferedReader(file.toPath())) {
+      skipByteOrderMark(reader);
+      return readData(reader, separator);
+    }
+  }
 
-      // some users/programs save csv files with an encoding prefix in the first few bytes. This
-      // prefix is equal to the char code \uFEFF and means that the file is utf-8 encoded. However,
-      // most UTF-8 files don't come with this prefix (=BOM, byte order marker). If it is there,
-      // we want to skip it, otherwise the first csv field may be mis-recognised as a string with a
-      // different encoding.
-      // see: https://stackoverflow.com/questions/4897876/reading-utf-8-bom-marker
-      reader.mark(1);
-      final char[] possibleBom = new char[1];
-      final int read = reader.read(possibleBom);
-      if (read == 1 && possibleBom[0] != '\uFEFF') {
-        reader.reset(); // no BOM found, don't skip
+  /**
+   * Streams the rows of a file to the consumer without keeping them in memory. Skips empty lines.
+   *
+   * @param separator separator
+   * @param consumer  receives the rows including the header, returns false to stop reading
+   * @throws IOException if read is unsuccessful
+   */
+  public static void readData(final File file, final String separator,
+      final Predicate<String[]> consumer) throws IOException, CsvException {
+    try (var reader = Files.newBufferedReader(file.toPath())) {
+      skipByteOrderMark(reader);
+      char sep = "\\t".equals(separator) ? '\t' : separator.charAt(0);
+      try (CSVReader csvReader = new CSVReaderBuilder(reader).withCSVParser(
+          new RFC4180ParserBuilder().withSeparator(sep).build()).build()) {
+        String[] row;
+        while ((row = csvReader.readNext()) != null) {
+          boolean empty = Arrays.stream(row).allMatch(s -> s == null || s.isBlank());
+          if (!empty && !consumer.test(row)) {
+            return;
+          }
+        }
       }
+    }
+  }
 
-      return readData(reader, separator);
+  private static void skipByteOrderMark(final BufferedReader reader) throws IOException {
+    // some users/programs save csv files with an encoding prefix in the first few bytes. This
+    // prefix is equal to the char code \uFEFF and means that the file is utf-8 encoded. However,
+    // most UTF-8 files don't come with this prefix (=BOM, byte order marker). If it is there,
+    // we want to skip it, otherwise the first csv field may be mis-recognised as a string with a
+    // different encoding.
+    // see: https://stackoverflow.com/questions/4897876/reading-utf-8-bom-marker
+    reader.mark(1);
+    final char[] possibleBom = new char[1];
+    final int read = reader.read(possibleBom);
+    if (read == 1 && possibleBom[0] != '\uFEFF') {
+      reader.reset(); // no BOM found, don't skip
     }
   }
 
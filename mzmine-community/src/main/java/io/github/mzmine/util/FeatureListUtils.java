@@ -45,6 +45,7 @@ import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.scores.RateType;
 import io.github.mzmine.gui.framework.fx.features.ParentFeatureListPaneGroup;
 import io.github.mzmine.modules.dataprocessing.align_join.RowAlignmentScoreCalculator;
 import io.github.mzmine.modules.visualization.featurelisttable_modular.FeatureTableFX;
@@ -303,11 +304,26 @@ public class FeatureListUtils {
    */
   public static void addAlignmentScores(@NotNull FeatureList alignedFeatureList,
       RowAlignmentScoreCalculator calculator, boolean mergeScores) {
+    SortedList<FeatureListRow> rows = alignedFeatureList.getRows().sorted(MZ_ASCENDING);
+    addAlignmentScores(alignedFeatureList, rows, calculator, mergeScores);
+  }
+
+  /**
+   * Calculates alignment scores for a subset of rows, e.g., only the rows that changed during an
+   * incremental alignment.
+   *
+   * @param alignedFeatureList the aligned list with average values for mz,RT, mobility
+   * @param rows               the rows to score
+   * @param calculator         the calculator holds tolerances and the orginal feature lists to
+   *                           score the alignment
+   * @param mergeScores        merge or override scores
+   */
+  public static void addAlignmentScores(@NotNull FeatureList alignedFeatureList,
+      @NotNull Collection<FeatureListRow> rows, RowAlignmentScoreCalculator calculator,
+      boolean mergeScores) {
     // add the new types to the feature list
     alignedFeatureList.addRowType(DataTypes.get(AlignmentMainType.class));
 
-    SortedList<FeatureListRow> rows = alignedFeatureList.getRows().sorted(MZ_ASCENDING);
-
     // find the number of rows that match RT,MZ,Mobility in each original feature list
     rows.stream().parallel().forEach(alignedRow -> {
       AlignmentScores score = calculator.calcScore(alignedRow);
@@ -319,6 +335,28 @@ public class FeatureListUtils {
     });
   }
 
+  /**
+   * Sets the alignment rate of all scored rows to aligned features / total samples. Used after
+   * samples were added to an aligned list, as the scores of unchanged rows and the merged scores
+   * of changed rows still refer to a different number of samples.
+   *
+   * @param alignedFeatureList the aligned list
+   * @param totalSamples       the number of samples in the aligned list
+   */
+  public static void updateAlignmentRates(@NotNull FeatureList alignedFeatureList,
+      int totalSamples) {
+    if (totalSamples <= 0) {
+      return;
+    }
+    alignedFeatureList.getRows().stream().parallel().forEach(row -> {
+      final AlignmentScores score = row.get(AlignmentMainType.class);
+      if (score != null) {
+        row.set(AlignmentMainType.class, score.modify(DataTypes.get(RateType.class),
+            score.alignedFeatures() / (float) totalSamples));
+      }
+    });
+  }
+
   /**
    * Compare row average values to ranges (during alignment or annotation to other mz, rt, and
    * mobility values based on tolerances -> ranges). General score is SUM((difference
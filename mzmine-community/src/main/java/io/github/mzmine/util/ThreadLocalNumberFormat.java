@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util;
+
+import java.math.RoundingMode;
+import java.text.AttributedCharacterIterator;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.Currency;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link NumberFormat} is not thread safe. This format keeps one copy of the original format per
+ * thread so that shared formats (e.g., the export formats or the formats of data types) can be used
+ * while formatting in parallel.
+ * <p>
+ * The setters replace the original format with a changed copy, each thread picks up the new format
+ * on its next call. Shared instances should not be changed, {@link #clone()} returns an independent
+ * format for callers that adjust a copy.
+ */
+public final class ThreadLocalNumberFormat extends NumberFormat {
+
+  // replaced on every change, never modified
+  private volatile NumberFormat prototype;
+  private final ThreadLocal<ThreadCopy> formats = new ThreadLocal<>();
+
+  private ThreadLocalNumberFormat(@NotNull NumberFormat prototype) {
+    this.prototype = (NumberFormat) prototype.clone();
+  }
+
+  /**
+   * @return a thread safe version of the format. Returns the input if it is already thread safe
+   */
+  public static @NotNull NumberFormat of(@NotNull NumberFormat format) {
+    if (format instanceof ThreadLocalNumberFormat) {
+      return format;
+    }
+    return new ThreadLocalNumberFormat(format);
+  }
+
+  /**
+   * @return the copy of the current prototype for this thread
+   */
+  private @NotNull NumberFormat format() {
+    final NumberFormat current = prototype;
+    ThreadCopy copy = formats.get();
+    if (copy == null || copy.prototype() != current) {
+      copy = new ThreadCopy(current, (NumberFormat) current.clone());
+      formats.set(copy);
+    }
+    return copy.format();
+  }
+
+  /**
+   * Replaces the prototype by a changed copy
+   */
+  private synchronized void change(@NotNull Consumer<NumberFormat> change) {
+    final NumberFormat changed = (NumberFormat) prototype.clone();
+    change.accept(changed);
+    prototype = changed;
+  }
+
+  @Override
+  public StringBuffer format(Object number, StringBuffer toAppendTo, FieldPosition pos) {
+    return format().format(number, toAppendTo, pos);
+  }
+
+  @Override
+  public StringBuffer format(double number, StringBuffer toAppendTo, FieldPosition pos) {
+    return format().format(number, toAppendTo, pos);
+  }
+
+  @Override
+  public StringBuffer format(long number, StringBuffer toAppendTo, FieldPosition pos) {
+    return format().format(number, toAppendTo, pos);
+  }
+
+  @Override
+  public AttributedCharacterIterator formatToCharacterIterator(Object obj) {
+    return format().formatToCharacterIterator(obj);
+  }
+
+  @Override
+  public Number parse(String source, ParsePosition parsePosition) {
+    return format().parse(source, parsePosition);
+  }
+
+  /**
+   * @return an independent copy of the original format, changes do not affect this format
+   */
+  @Override
+  public Object clone() {
+    return getPrototype();
+  }
+
+  /**
+   * @return a copy of the original format
+   */
+  public @NotNull NumberFormat getPrototype() {
+    return (NumberFormat) prototype.clone();
+  }
+
+  @Override
+  public boolean isGroupingUsed() {
+    return prototype.isGroupingUsed();
+  }
+
+  @Override
+  public boolean isParseIntegerOnly() {
+    return prototype.isParseIntegerOnly();
+  }
+
+  @Override
+  public int getMaximumIntegerDigits() {
+    return prototype.getMaximumIntegerDigits();
+  }
+
+  @Override
+  public int getMinimumIntegerDigits() {
+    return prototype.getMinimumIntegerDigits();
+  }
+
+  @Override
+  public int getMaximumFractionDigits() {
+    return prototype.getMaximumFractionDigits();
+  }
+
+  @Override
+  public int getMinimumFractionDigits() {
+    return prototype.getMinimumFractionDigits();
+  }
+
+  @Override
+  public Currency getCurrency() {
+    return prototype.getCurrency();
+  }
+
+  @Override
+  public RoundingMode getRoundingMode() {
+    return prototype.getRoundingMode();
+  }
+
+  @Override
+  public void setGroupingUsed(boolean newValue) {
+    change(f -> f.setGroupingUsed(newValue));
+  }
+
+  @Override
+  public void setParseIntegerOnly(boolean value) {
+    change(f -> f.setParseIntegerOnly(value));
+  }
+
+  @Override
+  public void setMaximumIntegerDigits(int newValue) {
+    change(f -> f.setMaximumIntegerDigits(newValue));
+  }
+
+  @Override
+  public void setMinimumIntegerDigits(int newValue) {
+    change(f -> f.setMinimumIntegerDigits(newValue));
+  }
+
+  @Override
+  public void setMaximumFractionDigits(int newValue) {
+    change(f -> f.setMaximumFractionDigits(newValue));
+  }
+
+  @Override
+  public void setMinimumFractionDigits(int newValue) {
+    change(f -> f.setMinimumFractionDigits(newValue));
+  }
+
+  @Override
+  public void setCurrency(Currency currency) {
+    change(f -> f.setCurrency(currency));
+  }
+
+  @Override
+  public void setRoundingMode(RoundingMode roundingMode) {
+    change(f -> f.setRoundingMode(roundingMode));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof ThreadLocalNumberFormat other && prototype.equals(other.prototype);
+  }
+
+  @Override
+  public int hashCode() {
+    return prototype.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return prototype.toString();
+  }
+
+  private record ThreadCopy(NumberFormat prototype, NumberFormat format) {
+
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.annotations;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar index of database entries sorted by precursor m/z. Each entry points to a database
+ * record and a variant of this record (e.g., the adduct), so that large databases do not need to
+ * create an annotation object for every record and adduct. Retention time, mobility and CCS are
+ * optional and stored as {@link Float#NaN} if missing; missing values match every feature.
+ * <p>
+ * Instances are immutable and safe to query from multiple threads.
+ */
+public final class PrecursorMzIndex {
+
+  private final double[] mzs;
+  private final float[] rts;
+  private final float[] mobilities;
+  private final float[] ccs;
+  private final int[] records;
+  private final int[] variants;
+
+  private PrecursorMzIndex(Builder b) {
+    final int n = b.mzs.size();
+    final int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    final double[] unsortedMzs = b.mzs.elements();
+    // equal m/z keep the insertion order
+    IntArrays.parallelQuickSort(order, (x, y) -> {
+      final int compare = Double.compare(unsortedMzs[x], unsortedMzs[y]);
+      return compare != 0 ? compare : Integer.compare(x, y);
+    });
+
+    mzs = new double[n];
+    rts = new float[n];
+    mobilities = new float[n];
+    ccs = new float[n];
+    records = new int[n];
+    variants = new int[n];
+    for (int i = 0; i < n; i++) {
+      final int j = order[i];
+      mzs[i] = unsortedMzs[j];
+      rts[i] = b.rts.getFloat(j);
+      mobilities[i] = b.mobilities.getFloat(j);
+      ccs[i] = b.ccs.getFloat(j);
+      records[i] = b.records.getInt(j);
+      variants[i] = b.variants.getInt(j);
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  /**
+   * @return the retention time or NaN
+   */
+  public float getRT(int index) {
+    return rts[index];
+  }
+
+  /**
+   * @return the mobility or NaN
+   */
+  public float getMobility(int index) {
+    return mobilities[index];
+  }
+
+  /**
+   * @return the CCS or NaN
+   */
+  public float getCCS(int index) {
+    return ccs[index];
+  }
+
+  /**
+   * @return the index of the database record
+   */
+  public int getRecord(int index) {
+    return records[index];
+  }
+
+  /**
+   * @return the variant of the record, e.g., the index of the adduct
+   */
+  public int getVariant(int index) {
+    return variants[index];
+  }
+
+  /**
+   * Finds all entries that may match a feature. The m/z window is widened by the tolerance of its
+   * borders, so that entries whose own tolerance range contains the feature m/z are included.
+   * Retention time and mobility are checked with the tolerance range around the entry value. The
+   * result is a superset for checks that center the tolerance on the entry, final scoring is up to
+   * the caller.
+   *
+   * @param rt       the feature retention time or null to skip the check
+   * @param mobility the feature mobility or null to skip the check
+   * @return indices in this index ordered by record and variant
+   */
+  public @NotNull IntArrayList findCandidates(double mz, @NotNull MZTolerance mzTolerance,
+      @Nullable Float rt, @Nullable RTTolerance rtTolerance, @Nullable Float mobility,
+      @Nullable MobilityTolerance mobilityTolerance) {
+    final Range<Double> mzRange = mzTolerance.getToleranceRange(
+        mzTolerance.getToleranceRange(mz));
+    final IntArrayList candidates = new IntArrayList();
+    int i = BinarySearch.binarySearch(mzs, mzRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS);
+    if (i < 0) {
+      return candidates;
+    }
+    while (i > 0 && mzs[i - 1] == mzs[i]) {
+      i--;
+    }
+
+    final double upper = mzRange.upperEndpoint();
+    for (; i < mzs.length && mzs[i] <= upper; i++) {
+      if (rt != null && rtTolerance != null && !Float.isNaN(rts[i])
+          && !rtTolerance.getToleranceRange(rts[i]).contains(rt)) {
+        continue;
+      }
+      if (mobility != null && mobilityTolerance != null && !Float.isNaN(mobilities[i])
+          && !mobilityTolerance.getToleranceRange(mobilities[i]).contains(mobility)) {
+        continue;
+      }
+      candidates.add(i);
+    }
+
+    // database order
+    IntArrays.quickSort(candidates.elements(), 0, candidates.size(), (x, y) -> {
+      final int compare = Integer.compare(records[x], records[y]);
+      return compare != 0 ? compare : Integer.compare(variants[x], variants[y]);
+    });
+    return candidates;
+  }
+
+  public static final class Builder {
+
+    private final DoubleArrayList mzs = new DoubleArrayList();
+    private final FloatArrayList rts = new FloatArrayList();
+    private final FloatArrayList mobilities = new FloatArrayList();
+    private final FloatArrayList ccs = new FloatArrayList();
+    private final IntArrayList records = new IntArrayList();
+    private final IntArrayList variants = new IntArrayList();
+
+    private Builder() {
+    }
+
+    /**
+     * @param rt       the retention time or null if unknown
+     * @param mobility the mobility or null if unknown
+     * @param ccs      the CCS or null if unknown
+     * @param record   index of the database record
+     * @param variant  variant of the record, e.g., the index of the adduct
+     */
+    public Builder add(double mz, @Nullable Float rt, @Nullable Float mobility,
+        @Nullable Float ccs, int record, int variant) {
+      mzs.add(mz);
+      rts.add(rt == null ? Float.NaN : rt);
+      mobilities.add(mobility == null ? Float.NaN : mobility);
+      this.ccs.add(ccs == null ? Float.NaN : ccs);
+      records.add(record);
+      variants.add(variant);
+      return this;
+    }
+
+    public int size() {
+      return mzs.size();
+    }
+
+    public PrecursorMzIndex build() {
+      return new PrecursorMzIndex(this);
+    }
+  }
+}
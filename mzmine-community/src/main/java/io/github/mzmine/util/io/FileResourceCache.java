@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.io;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Keeps resources that are loaded from files, like spectral libraries or models, in memory to
+ * share them between batch runs of a long-running process. The cache is disabled by default, so
+ * every call loads the resource. Entries are invalidated when the size or modification time of a
+ * file changes. Evicted resources are not closed, as they may still be used by a running task.
+ */
+public final class FileResourceCache {
+
+  private static final Logger logger = Logger.getLogger(FileResourceCache.class.getName());
+
+  private static final Map<Key, Object> RESOURCES = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+      final boolean remove = size() > maxEntries;
+      if (remove) {
+        logger.fine(() -> "Removed cached resource " + eldest.getKey());
+      }
+      return remove;
+    }
+  };
+
+  /**
+   * 0 to disable the cache
+   */
+  private static volatile int maxEntries = 0;
+
+  private FileResourceCache() {
+  }
+
+  /**
+   * @param maxEntries maximum number of cached resources, 0 to disable the cache
+   */
+  public static void setMaxEntries(int maxEntries) {
+    FileResourceCache.maxEntries = Math.max(0, maxEntries);
+    if (maxEntries <= 0) {
+      clear();
+    }
+  }
+
+  public static boolean isEnabled() {
+    return maxEntries > 0;
+  }
+
+  public static void clear() {
+    synchronized (RESOURCES) {
+      RESOURCES.clear();
+    }
+  }
+
+  /**
+   * @param type   the type of the resource, part of the key
+   * @param loader loads the resource if it is not cached
+   * @param files  all files the resource is loaded from
+   * @return the cached or newly loaded resource
+   */
+  @NotNull
+  public static <T> T get(@NotNull Class<T> type, @NotNull ResourceLoader<T> loader,
+      @NotNull File... files) throws Exception {
+    return get(type, loader, _ -> true, files);
+  }
+
+  /**
+   * @param type      the type of the resource, part of the key
+   * @param loader    loads the resource if it is not cached
+   * @param cacheable checks a newly loaded resource before it is cached, e.g., to skip resources
+   *                  that are incomplete because loading was cancelled. Resources that fail the
+   *                  check are returned but not cached.
+   * @param files     all files the resource is loaded from
+   * @return the cached or newly loaded resource
+   */
+  @NotNull
+  public static <T> T get(@NotNull Class<T> type, @NotNull ResourceLoader<T> loader,
+      @NotNull Predicate<T> cacheable, @NotNull File... files) throws Exception {
+    if (!isEnabled()) {
+      return loader.load();
+    }
+    final Key key = createKey(type, files);
+    synchronized (RESOURCES) {
+      final Object resource = RESOURCES.get(key);
+      if (resource != null) {
+        logger.finest(() -> "Using cached resource " + key);
+        return type.cast(resource);
+      }
+    }
+
+    final T resource = loader.load();
+    if (!cacheable.test(resource)) {
+      logger.fine(() -> "Resource was not cached " + key);
+      invalidate(type, files);
+      return resource;
+    }
+    synchronized (RESOURCES) {
+      // another task may have loaded the same resource in the meantime
+      final Object existing = RESOURCES.putIfAbsent(key, resource);
+      return existing != null ? type.cast(existing) : resource;
+    }
+  }
+
+  /**
+   * Removes the resource loaded from these files
+   */
+  public static void invalidate(@NotNull Class<?> type, @NotNull File... files) {
+    final Key key = createKey(type, files);
+    synchronized (RESOURCES) {
+      RESOURCES.remove(key);
+    }
+  }
+
+  private static Key createKey(@NotNull Class<?> type, @NotNull File... files) {
+    return new Key(type.getName(), Arrays.stream(files).map(FileKey::of).toList());
+  }
+
+  @FunctionalInterface
+  public interface ResourceLoader<T> {
+
+    @NotNull T load() throws Exception;
+  }
+
+  private record Key(String type, List<FileKey> files) {
+
+  }
+
+  private record FileKey(String path, long size, long lastModified) {
+
+    static FileKey of(File file) {
+      return new FileKey(file.getAbsolutePath(), file.length(), file.lastModified());
+    }
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Writes text to a UTF-8 file where the text of many items is formatted in parallel. Items are
+ * split into chunks that are formatted and encoded in parallel into reusable buffers and then
+ * written in the order of the items. Only a bounded window of chunks is kept in memory at a time.
+ * <p>
+ * The writer itself is not thread safe, all methods should be called from the same thread.
+ */
+public class ParallelChunkWriter implements AutoCloseable {
+
+  /**
+   * Default number of items per chunk
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 128;
+
+  private final FileChannel channel;
+  // one buffer per chunk in the current window, reused for all windows
+  private final ChunkBuffer[] buffers;
+  private final ChunkBuffer lineBuffer = new ChunkBuffer();
+
+  public ParallelChunkWriter(@NotNull File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    buffers = new ChunkBuffer[Math.max(2, ForkJoinPool.getCommonPoolParallelism() * 2)];
+    for (int i = 0; i < buffers.length; i++) {
+      buffers[i] = new ChunkBuffer();
+    }
+  }
+
+  /**
+   * Write text directly
+   */
+  public void write(@NotNull CharSequence text) throws IOException {
+    lineBuffer.text.append(text);
+    lineBuffer.encode();
+    lineBuffer.writeTo(channel);
+  }
+
+  /**
+   * Write text and the system line separator
+   */
+  public void writeLine(@NotNull CharSequence text) throws IOException {
+    lineBuffer.text.append(text).append(System.lineSeparator());
+    lineBuffer.encode();
+    lineBuffer.writeTo(channel);
+  }
+
+  /**
+   * Formats chunks of items in parallel and writes them in the order of the items.
+   *
+   * @param items      the items to format
+   * @param chunkSize  the number of items formatted in one chunk by one thread
+   * @param isCanceled stops before the next window of chunks when true
+   * @param formatter  formats all items of a chunk. Different chunks are formatted in parallel
+   * @return false if canceled
+   */
+  public <T> boolean writeChunks(@NotNull List<T> items, int chunkSize,
+      @NotNull BooleanSupplier isCanceled, @NotNull ChunkFormatter<T> formatter)
+      throws IOException {
+    final int size = items.size();
+    final int numChunks = (size + chunkSize - 1) / chunkSize;
+
+    for (int windowStart = 0; windowStart < numChunks; windowStart += buffers.length) {
+      if (isCanceled.getAsBoolean()) {
+        return false;
+      }
+      final int firstChunk = windowStart;
+      final int windowChunks = Math.min(buffers.length, numChunks - windowStart);
+      IntStream.range(0, windowChunks).parallel().forEach(i -> {
+        final int start = (firstChunk + i) * chunkSize;
+        final List<T> chunk = items.subList(start, Math.min(size, start + chunkSize));
+        final ChunkBuffer buffer = buffers[i];
+        buffer.text.setLength(0);
+        formatter.format(chunk, buffer.text);
+        buffer.encode();
+      });
+
+      // write in order
+      for (int i = 0; i < windowChunks; i++) {
+        buffers[i].writeTo(channel);
+      }
+    }
+    return !isCanceled.getAsBoolean();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Formats a chunk of items. Called in parallel for different chunks, so state like
+   * {@link java.text.NumberFormat} should not be shared between chunks.
+   */
+  @FunctionalInterface
+  public interface ChunkFormatter<T> {
+
+    /**
+     * @param chunk the items to format
+     * @param out   append the text of all items, including new lines
+     */
+    void format(@NotNull List<T> chunk, @NotNull StringBuilder out);
+  }
+
+  /**
+   * The text of a chunk and its UTF-8 encoded bytes
+   */
+  private static class ChunkBuffer {
+
+    private final StringBuilder text = new StringBuilder(1 << 14);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(1 << 14);
+
+    /**
+     * Encodes the text into the byte buffer and clears the text
+     */
+    private void encode() {
+      final int maxBytes = (int) Math.ceil(text.length() * (double) encoder.maxBytesPerChar());
+      if (bytes.capacity() < maxBytes) {
+        bytes = ByteBuffer.allocate(maxBytes);
+      }
+      bytes.clear();
+      encoder.reset();
+      final CharBuffer chars = CharBuffer.wrap(text);
+      CoderResult result = encoder.encode(chars, bytes, true);
+      if (!result.isUnderflow()) {
+        throwUnchecked(result);
+      }
+      result = encoder.flush(bytes);
+      if (!result.isUnderflow()) {
+        throwUnchecked(result);
+      }
+      bytes.flip();
+      text.setLength(0);
+    }
+
+    private void writeTo(FileChannel channel) throws IOException {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+
+    private static void throwUnchecked(CoderResult result) {
+      try {
+        result.throwException();
+      } catch (CharacterCodingException e) {
+        throw new IllegalStateException("Cannot encode text as UTF-8", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.synthetic;
+
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Collects signals of one spectrum in primitive lists. Reused for all spectra of a file to avoid
+ * allocations.
+ */
+class SpectrumBuilder {
+
+  private final DoubleArrayList mzs = new DoubleArrayList();
+  private final DoubleArrayList intensities = new DoubleArrayList();
+
+  void add(double mz, double intensity) {
+    mzs.add(mz);
+    intensities.add(intensity);
+  }
+
+  int size() {
+    return mzs.size();
+  }
+
+  void clear() {
+    mzs.clear();
+    intensities.clear();
+  }
+
+  /**
+   * @return a copy of the signals sorted by m/z
+   */
+  @NotNull
+  SimpleSpectralArrays build() {
+    final double[] mzArray = mzs.toDoubleArray();
+    final double[] intensityArray = intensities.toDoubleArray();
+    it.unimi.dsi.fastutil.Arrays.quickSort(0, mzArray.length,
+        (a, b) -> Double.compare(mzArray[a], mzArray[b]), (a, b) -> {
+          final double mz = mzArray[a];
+          mzArray[a] = mzArray[b];
+          mzArray[b] = mz;
+          final double intensity = intensityArray[a];
+          intensityArray[a] = intensityArray[b];
+          intensityArray[b] = intensity;
+        });
+    return new SimpleSpectralArrays(mzArray, intensityArray);
+  }
+}
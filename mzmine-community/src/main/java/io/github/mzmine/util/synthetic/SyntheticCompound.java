@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.synthetic;
+
+import io.github.mzmine.modules.tools.isotopeprediction.IsotopePatternCalculator;
+import java.util.Arrays;
+import java.util.Random;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A compound of the synthetic data set. All values are the ones of the reference sample, the
+ * {@link SyntheticDataGenerator} adds variation per sample.
+ *
+ * @param id                  index of the compound
+ * @param charge              charge state
+ * @param rt                  apex retention time in minutes
+ * @param height              apex height of the most abundant isotope
+ * @param mobility            apex mobility, only used for IMS files
+ * @param isotopeMzs          m/z values of the isotope pattern, starting with the monoisotopic
+ *                            signal
+ * @param isotopeIntensities  relative intensities of the isotopes, the highest is 1
+ * @param fragmentMzs         ascending m/z values of the fragment ions
+ * @param fragmentIntensities relative fragment intensities
+ * @param imageX              x center of the compound distribution in imaging files
+ * @param imageY              y center of the compound distribution in imaging files
+ * @param imageRadius         standard deviation of the distribution in pixels
+ */
+public record SyntheticCompound(int id, int charge, float rt, double height, double mobility,
+                                double[] isotopeMzs, double[] isotopeIntensities,
+                                double[] fragmentMzs, double[] fragmentIntensities,
+                                float imageX, float imageY, float imageRadius) {
+
+  /**
+   * Approximation of the mean number of heavy isotopes per Dalton for small molecules and
+   * peptides (roughly the carbon 13 content)
+   */
+  private static final double HEAVY_ISOTOPES_PER_DA = 1 / 1800d;
+
+  public double mz() {
+    return isotopeMzs[0];
+  }
+
+  /**
+   * @param random draws all values of the compound
+   */
+  @NotNull
+  static SyntheticCompound create(@NotNull Random random, @NotNull SyntheticDataConfig config,
+      int id) {
+    final int charge = 1 + random.nextInt(config.maxCharge());
+    final double mzMin = config.mzRange().lowerEndpoint();
+    final double mz = mzMin + random.nextDouble() * (config.mzRange().upperEndpoint() - mzMin);
+    final float rt = random.nextFloat() * config.numScans() * config.scanInterval();
+
+    final double logMin = Math.log10(config.heightRange().lowerEndpoint());
+    final double logMax = Math.log10(config.heightRange().upperEndpoint());
+    final double height = Math.pow(10, logMin + random.nextDouble() * (logMax - logMin));
+
+    final double mobilityMin = config.mobilityRange().lowerEndpoint();
+    final double mobility = mobilityMin
+        + random.nextDouble() * (config.mobilityRange().upperEndpoint() - mobilityMin);
+
+    // poisson distributed isotope pattern
+    final double lambda = mz * charge * HEAVY_ISOTOPES_PER_DA;
+    final double[] isotopeMzs = new double[config.maxIsotopes()];
+    final double[] isotopeIntensities = new double[config.maxIsotopes()];
+    double poisson = Math.exp(-lambda);
+    for (int i = 0; i < isotopeMzs.length; i++) {
+      isotopeMzs[i] = mz + i * IsotopePatternCalculator.THIRTHEEN_C_DISTANCE / charge;
+      isotopeIntensities[i] = poisson;
+      poisson *= lambda / (i + 1);
+    }
+    final double max = Arrays.stream(isotopeIntensities).max().orElse(1d);
+    for (int i = 0; i < isotopeIntensities.length; i++) {
+      isotopeIntensities[i] /= max;
+    }
+
+    final double precursorMass = mz * charge;
+    final double[] fragmentMzs = new double[config.fragments()];
+    final double[] fragmentIntensities = new double[config.fragments()];
+    for (int i = 0; i < fragmentMzs.length; i++) {
+      fragmentMzs[i] = 50 + random.nextDouble() * Math.max(precursorMass - 50, 1);
+    }
+    Arrays.sort(fragmentMzs);
+    for (int i = 0; i < fragmentIntensities.length; i++) {
+      fragmentIntensities[i] = 0.05 + random.nextDouble() * 0.95;
+    }
+
+    final float imageX = random.nextFloat() * config.imageWidth();
+    final float imageY = random.nextFloat() * config.imageHeight();
+    final float imageRadius =
+        1 + random.nextFloat() * Math.max(Math.min(config.imageWidth(), config.imageHeight()) / 4f,
+            1f);
+
+    return new SyntheticCompound(id, charge, rt, height, mobility, isotopeMzs, isotopeIntensities,
+        fragmentMzs, fragmentIntensities, imageX, imageY, imageRadius);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.synthetic;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MobilityType;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Settings of the {@link SyntheticDataGenerator}. Use {@link #builder()} to start from defaults
+ * that resemble a short LC-MS run.
+ *
+ * @param numScans           number of MS1 scans or frames per file. Not used for imaging
+ * @param scanInterval       retention time between two MS1 scans in minutes
+ * @param compounds          number of compounds shared by all files
+ * @param noiseSignals       number of random noise signals per MS1 scan or frame
+ * @param mzRange            m/z range of compounds and noise
+ * @param peakSigma          standard deviation of chromatographic peaks in minutes
+ * @param maxCharge          compounds get a random charge between 1 and this value
+ * @param maxIsotopes        maximum number of isotope signals per compound
+ * @param mzErrorPpm         standard deviation of the m/z error of each signal
+ * @param heightRange        range of compound heights, sampled log uniform
+ * @param noiseIntensity     maximum intensity of noise signals. Compound signals below this value
+ *                           are not written
+ * @param topN               number of MS2 scans (DDA) or PASEF precursors per MS1 scan, 0 to
+ *                           disable MS2
+ * @param fragments          number of fragment signals per compound
+ * @param minMs2Intensity    minimum precursor intensity for MS2 selection
+ * @param mobilityScans      number of mobility scans per frame. 0 for data without ion mobility
+ * @param mobilityType       mobility type of IMS files
+ * @param mobilityRange      mobility range of IMS files
+ * @param mobilitySigma      standard deviation of mobility peaks in mobility scans
+ * @param imageWidth         number of pixels in x for imaging files
+ * @param imageHeight        number of pixels in y for imaging files
+ * @param rtShift            standard deviation of the retention time shift between files in
+ *                           minutes
+ * @param intensityVariation relative standard deviation of compound intensities between files
+ */
+public record SyntheticDataConfig(int numScans, float scanInterval, int compounds,
+                                  int noiseSignals, @NotNull Range<Double> mzRange,
+                                  float peakSigma, int maxCharge, int maxIsotopes,
+                                  double mzErrorPpm, @NotNull Range<Double> heightRange,
+                                  double noiseIntensity, int topN, int fragments,
+                                  double minMs2Intensity, int mobilityScans,
+                                  @NotNull MobilityType mobilityType,
+                                  @NotNull Range<Double> mobilityRange, double mobilitySigma,
+                                  int imageWidth, int imageHeight, float rtShift,
+                                  double intensityVariation) {
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public boolean isIms() {
+    return mobilityScans > 0;
+  }
+
+  public boolean isImaging() {
+    return imageWidth > 0 && imageHeight > 0;
+  }
+
+  public boolean hasMs2() {
+    return topN > 0;
+  }
+
+  public static final class Builder {
+
+    private int numScans = 1000;
+    private float scanInterval = 0.01f;
+    private int compounds = 1000;
+    private int noiseSignals = 200;
+    private Range<Double> mzRange = Range.closed(100d, 1000d);
+    private float peakSigma = 0.03f;
+    private int maxCharge = 1;
+    private int maxIsotopes = 3;
+    private double mzErrorPpm = 2;
+    private Range<Double> heightRange = Range.closed(1E4, 1E7);
+    private double noiseIntensity = 500;
+    private int topN = 0;
+    private int fragments = 10;
+    private double minMs2Intensity = 5E4;
+    private int mobilityScans = 0;
+    private MobilityType mobilityType = MobilityType.TIMS;
+    private Range<Double> mobilityRange = Range.closed(0.6, 1.6);
+    private double mobilitySigma = 3;
+    private int imageWidth = 0;
+    private int imageHeight = 0;
+    private float rtShift = 0.01f;
+    private double intensityVariation = 0.2;
+
+    private Builder() {
+    }
+
+    public Builder numScans(int numScans) {
+      this.numScans = numScans;
+      return this;
+    }
+
+    public Builder scanInterval(float scanInterval) {
+      this.scanInterval = scanInterval;
+      return this;
+    }
+
+    public Builder compounds(int compounds) {
+      this.compounds = compounds;
+      return this;
+    }
+
+    public Builder noiseSignals(int noiseSignals) {
+      this.noiseSignals = noiseSignals;
+      return this;
+    }
+
+    public Builder mzRange(@NotNull Range<Double> mzRange) {
+      this.mzRange = mzRange;
+      return this;
+    }
+
+    public Builder peakSigma(float peakSigma) {
+      this.peakSigma = peakSigma;
+      return this;
+    }
+
+    public Builder maxCharge(int maxCharge) {
+      this.maxCharge = maxCharge;
+      return this;
+    }
+
+    public Builder maxIsotopes(int maxIsotopes) {
+      this.maxIsotopes = maxIsotopes;
+      return this;
+    }
+
+    public Builder mzErrorPpm(double mzErrorPpm) {
+      this.mzErrorPpm = mzErrorPpm;
+      return this;
+    }
+
+    public Builder heightRange(@NotNull Range<Double> heightRange) {
+      this.heightRange = heightRange;
+      return this;
+    }
+
+    public Builder noiseIntensity(double noiseIntensity) {
+      this.noiseIntensity = noiseIntensity;
+      return this;
+    }
+
+    /**
+     * DDA MS2 scans for LC-MS and PASEF MS2 frames for IMS files
+     */
+    public Builder ms2(int topN, int fragments, double minMs2Intensity) {
+      this.topN = topN;
+      this.fragments = fragments;
+      this.minMs2Intensity = minMs2Intensity;
+      return this;
+    }
+
+    public Builder mobility(int mobilityScans, @NotNull MobilityType mobilityType,
+        @NotNull Range<Double> mobilityRange, double mobilitySigma) {
+      this.mobilityScans = mobilityScans;
+      this.mobilityType = mobilityType;
+      this.mobilityRange = mobilityRange;
+      this.mobilitySigma = mobilitySigma;
+      return this;
+    }
+
+    public Builder mobilityScans(int mobilityScans) {
+      this.mobilityScans = mobilityScans;
+      return this;
+    }
+
+    public Builder image(int imageWidth, int imageHeight) {
+      this.imageWidth = imageWidth;
+      this.imageHeight = imageHeight;
+      return this;
+    }
+
+    public Builder sampleVariation(float rtShift, double intensityVariation) {
+      this.rtShift = rtShift;
+      this.intensityVariation = intensityVariation;
+      return this;
+    }
+
+    public SyntheticDataConfig build() {
+      if (numScans < 1 || compounds < 0 || noiseSignals < 0 || maxIsotopes < 1 || maxCharge < 1) {
+        throw new IllegalArgumentException(
+            "Number of scans, isotopes and charge must be positive, compounds and noise >= 0");
+      }
+      return new SyntheticDataConfig(numScans, scanInterval, compounds, noiseSignals, mzRange,
+          peakSigma, maxCharge, maxIsotopes, mzErrorPpm, heightRange, noiseIntensity, topN,
+          fragments, minMs2Intensity, mobilityScans, mobilityType, mobilityRange, mobilitySigma,
+          imageWidth, imageHeight, rtShift, intensityVariation);
+    }
+  }
+}
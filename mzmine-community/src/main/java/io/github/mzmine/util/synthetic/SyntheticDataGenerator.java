@@ -0,0 +1,603 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.synthetic;
+
+import com.google.common.collect.Range;
+import io.github.msdk.MSDKException;
+import io.github.msdk.io.mzml.MzMLFileExportMethod;
+import io.github.msdk.io.mzml.data.MzMLCompressionType;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.ImagingRawDataFile;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.MobilityType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.BuildingMobilityScan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.MZmineToMSDKRawDataFile;
+import io.github.mzmine.datamodel.impl.PasefMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleFrame;
+import io.github.mzmine.datamodel.impl.SimpleImagingScan;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
+import io.github.mzmine.datamodel.msms.MsMsInfo;
+import io.github.mzmine.datamodel.msms.PasefMsMsInfo;
+import io.github.mzmine.javafx.util.color.Vision;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_rawdata_imzml.Coordinates;
+import io.github.mzmine.modules.io.import_rawdata_imzml.ImagingParameters;
+import io.github.mzmine.project.impl.IMSRawDataFileImpl;
+import io.github.mzmine.project.impl.ImagingRawDataFileImpl;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.util.MemoryMapStorages;
+import io.github.mzmine.util.color.SimpleColorPalette;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import javafx.scene.paint.Color;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Generates reproducible synthetic LC-MS, LC-IMS-MS and imaging raw data files to test and
+ * benchmark mzmine at scale. All files of one generator share the same compounds, each file (sample
+ * index) adds its own retention time shift, intensity variation and noise. The same seed, config
+ * and sample index always create the same data, independent of the number of threads.
+ * <p>
+ * Scans are generated one after another and stored directly in the {@link MemoryMapStorage} of
+ * the file. Multiple files are generated in parallel, see
+ * {@link #createFiles(int, String, boolean)} and {@link #writeMzMLFiles(int, String, File)}.
+ */
+public class SyntheticDataGenerator {
+
+  private static final Logger logger = Logger.getLogger(SyntheticDataGenerator.class.getName());
+
+  /**
+   * Peaks are only calculated within this number of standard deviations around the apex
+   */
+  private static final double PEAK_WINDOW_SIGMAS = 4;
+  /**
+   * Number of MS1 cycles until a compound may be selected as precursor again
+   */
+  private static final int EXCLUSION_CYCLES = 5;
+  /**
+   * Fraction of the precursor intensity that ends up in the fragment spectrum
+   */
+  private static final double FRAGMENTATION_EFFICIENCY = 0.3;
+  private static final float COLLISION_ENERGY = 20f;
+  private static final double ISOLATION_WIDTH = 1d;
+  private static final double IMAGING_PIXEL_SIZE = 10d;
+
+  private final SyntheticDataConfig config;
+  private final long seed;
+  /**
+   * sorted by retention time
+   */
+  private final List<SyntheticCompound> compounds;
+  private final float[] compoundRts;
+
+  public SyntheticDataGenerator(@NotNull SyntheticDataConfig config, long seed) {
+    this.config = config;
+    this.seed = seed;
+    final Random random = new Random(seed);
+    compounds = IntStream.range(0, config.compounds())
+        .mapToObj(i -> SyntheticCompound.create(random, config, i))
+        .sorted(Comparator.comparingDouble(SyntheticCompound::rt)).toList();
+    compoundRts = new float[compounds.size()];
+    for (int i = 0; i < compoundRts.length; i++) {
+      compoundRts[i] = compounds.get(i).rt();
+    }
+  }
+
+  public SyntheticDataConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * @return the compounds of all files, sorted by retention time
+   */
+  public List<SyntheticCompound> getCompounds() {
+    return compounds;
+  }
+
+  /**
+   * Creates an imaging, IMS or LC-MS file depending on the config
+   *
+   * @param sampleIndex defines the sample specific variation and noise
+   */
+  @NotNull
+  public RawDataFile createFile(int sampleIndex, @NotNull String name,
+      @Nullable MemoryMapStorage storage) throws IOException {
+    if (config.isImaging()) {
+      return createImagingFile(sampleIndex, name, storage);
+    }
+    if (config.isIms()) {
+      return createImsFile(sampleIndex, name, storage);
+    }
+    return createLcmsFile(sampleIndex, name, storage);
+  }
+
+  /**
+   * Creates files in parallel. Files are named prefix_0000, prefix_0001, ...
+   *
+   * @param memoryMapped store the data of each file in its own {@link MemoryMapStorage}
+   * @return the files in the order of their sample index
+   */
+  @NotNull
+  public List<RawDataFile> createFiles(int numFiles, @NotNull String prefix,
+      boolean memoryMapped) {
+    return IntStream.range(0, numFiles).parallel().mapToObj(i -> {
+      try {
+        return createFile(i, fileName(prefix, i),
+            memoryMapped ? MemoryMapStorage.forRawDataFile() : null);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }).toList();
+  }
+
+  /**
+   * Creates files in parallel and writes them as mzML to the directory. Each file is released
+   * after the export, so only one file per thread is kept at a time. Mobility scans and imaging
+   * coordinates are not part of the mzML export.
+   *
+   * @return the mzML files in the order of their sample index
+   */
+  @NotNull
+  public List<File> writeMzMLFiles(int numFiles, @NotNull String prefix, @NotNull File directory)
+      throws IOException {
+    Files.createDirectories(directory.toPath());
+    return IntStream.range(0, numFiles).parallel().mapToObj(i -> {
+      final String name = fileName(prefix, i);
+      final File target = new File(directory, name + ".mzML");
+      final MemoryMapStorage storage = MemoryMapStorage.forRawDataFile();
+      RawDataFile file = null;
+      try {
+        file = createFile(i, name, storage);
+        new MzMLFileExportMethod(new MZmineToMSDKRawDataFile(file), target,
+            MzMLCompressionType.ZLIB, MzMLCompressionType.ZLIB).execute();
+        logger.finest(() -> "Wrote synthetic file " + target);
+        return target;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } catch (MSDKException e) {
+        throw new UncheckedIOException(new IOException("Cannot export " + target, e));
+      } finally {
+        if (file != null) {
+          file.close();
+        }
+        // storages are registered globally, unregister so that the file data can be freed
+        if (storage != null) {
+          MemoryMapStorages.getStorageList().remove(storage);
+        }
+      }
+    }).toList();
+  }
+
+  /**
+   * LC-MS file of centroid MS1 scans and optional DDA MS2 scans after each MS1 scan
+   */
+  @NotNull
+  public RawDataFile createLcmsFile(int sampleIndex, @NotNull String name,
+      @Nullable MemoryMapStorage storage) throws IOException {
+    final RawDataFile file = new RawDataFileImpl(name, null, storage, color(sampleIndex));
+    final Sample sample = createSample(sampleIndex);
+    final SpectrumBuilder spectrum = new SpectrumBuilder();
+    final IntArrayList eluting = new IntArrayList();
+    final DoubleArrayList intensities = new DoubleArrayList();
+    final int[] lastSelected = createExclusionList();
+
+    int scanNumber = 1;
+    for (int cycle = 0; cycle < config.numScans(); cycle++) {
+      final float rt = cycle * config.scanInterval();
+      collectEluting(rt, sample, eluting, intensities);
+
+      spectrum.clear();
+      for (int i = 0; i < eluting.size(); i++) {
+        addIsotopes(spectrum, compounds.get(eluting.getInt(i)), intensities.getDouble(i), 1d,
+            sample.random());
+      }
+      addNoise(spectrum, sample.random(), config.noiseSignals());
+      final Scan ms1 = addScan(file, scanNumber++, 1, rt, null, spectrum.build());
+
+      if (!config.hasMs2()) {
+        continue;
+      }
+      final IntList candidates = findPrecursorCandidates(cycle, eluting, intensities,
+          lastSelected);
+      final int numPrecursors = Math.min(config.topN(), candidates.size());
+      for (int p = 0; p < numPrecursors; p++) {
+        final int index = candidates.getInt(p);
+        final SyntheticCompound compound = compounds.get(eluting.getInt(index));
+        lastSelected[eluting.getInt(index)] = cycle;
+
+        spectrum.clear();
+        addFragments(spectrum, compound, intensities.getDouble(index), 1d, sample.random());
+        final float ms2Rt = rt + config.scanInterval() * (p + 1) / (numPrecursors + 1);
+        final DDAMsMsInfoImpl info = new DDAMsMsInfoImpl(compound.mz(), compound.charge(),
+            COLLISION_ENERGY, null, ms1, 2, ActivationMethod.CID, isolationWindow(compound));
+        addScan(file, scanNumber++, 2, ms2Rt, info, spectrum.build());
+      }
+    }
+    return file;
+  }
+
+  /**
+   * LC-IMS-MS file of MS1 frames and optional PASEF MS2 frames after each MS1 frame. Mobility
+   * scans are used as mass lists.
+   */
+  @NotNull
+  public IMSRawDataFile createImsFile(int sampleIndex, @NotNull String name,
+      @Nullable MemoryMapStorage storage) throws IOException {
+    final IMSRawDataFileImpl file = new IMSRawDataFileImpl(name, null, storage,
+        color(sampleIndex));
+    final Sample sample = createSample(sampleIndex);
+    final double[] mobilities = createMobilities();
+    final SpectrumBuilder frameSpectrum = new SpectrumBuilder();
+    final SpectrumBuilder[] mobilitySpectra = new SpectrumBuilder[mobilities.length];
+    for (int i = 0; i < mobilitySpectra.length; i++) {
+      mobilitySpectra[i] = new SpectrumBuilder();
+    }
+    final IntArrayList eluting = new IntArrayList();
+    final DoubleArrayList intensities = new DoubleArrayList();
+    final int[] lastSelected = createExclusionList();
+    final int mobilityWindow = (int) Math.ceil(config.mobilitySigma() * 3);
+
+    int frameNumber = 1;
+    for (int cycle = 0; cycle < config.numScans(); cycle++) {
+      final float rt = cycle * config.scanInterval();
+      collectEluting(rt, sample, eluting, intensities);
+
+      clear(frameSpectrum, mobilitySpectra);
+      for (int i = 0; i < eluting.size(); i++) {
+        final SyntheticCompound compound = compounds.get(eluting.getInt(i));
+        final int center = mobilityIndex(compound.mobility(), mobilities);
+        for (int m = Math.max(0, center - mobilityWindow);
+            m <= Math.min(mobilities.length - 1, center + mobilityWindow); m++) {
+          final double factor = gaussian(m - center, config.mobilitySigma());
+          addIsotopes(mobilitySpectra[m], compound, intensities.getDouble(i), factor,
+              sample.random());
+        }
+        // the frame spectrum contains the sum of all mobility scans, approximated by the apex
+        addIsotopes(frameSpectrum, compound, intensities.getDouble(i),
+            config.mobilitySigma() * Math.sqrt(2 * Math.PI), sample.random());
+      }
+      for (int i = 0; i < config.noiseSignals(); i++) {
+        final double mz = randomMz(sample.random());
+        final double intensity = randomNoiseIntensity(sample.random());
+        mobilitySpectra[sample.random().nextInt(mobilities.length)].add(mz, intensity);
+        frameSpectrum.add(mz, intensity);
+      }
+      final SimpleFrame ms1 = addFrame(file, frameNumber++, 1, rt, mobilities, frameSpectrum,
+          mobilitySpectra);
+
+      if (!config.hasMs2()) {
+        continue;
+      }
+      final IntList candidates = findPrecursorCandidates(cycle, eluting, intensities,
+          lastSelected);
+      clear(frameSpectrum, mobilitySpectra);
+      final List<Range<Integer>> usedRanges = new ArrayList<>();
+      final List<SyntheticCompound> precursors = new ArrayList<>();
+      for (int p = 0; p < candidates.size() && precursors.size() < config.topN(); p++) {
+        final int index = candidates.getInt(p);
+        final SyntheticCompound compound = compounds.get(eluting.getInt(index));
+        final int center = mobilityIndex(compound.mobility(), mobilities);
+        final Range<Integer> range = Range.closed(Math.max(0, center - mobilityWindow),
+            Math.min(mobilities.length - 1, center + mobilityWindow));
+        // precursors of one PASEF frame are separated in mobility
+        if (usedRanges.stream().anyMatch(used -> used.isConnected(range))) {
+          continue;
+        }
+        usedRanges.add(range);
+        precursors.add(compound);
+        lastSelected[eluting.getInt(index)] = cycle;
+
+        for (int m = range.lowerEndpoint(); m <= range.upperEndpoint(); m++) {
+          addFragments(mobilitySpectra[m], compound, intensities.getDouble(index),
+              gaussian(m - center, config.mobilitySigma()), sample.random());
+        }
+        addFragments(frameSpectrum, compound, intensities.getDouble(index),
+            config.mobilitySigma() * Math.sqrt(2 * Math.PI), sample.random());
+      }
+      if (precursors.isEmpty()) {
+        continue;
+      }
+
+      final SimpleFrame ms2 = addFrame(file, frameNumber++, 2, rt + config.scanInterval() / 2,
+          mobilities, frameSpectrum, mobilitySpectra);
+      final Set<PasefMsMsInfo> infos = new HashSet<>();
+      for (int p = 0; p < precursors.size(); p++) {
+        final SyntheticCompound compound = precursors.get(p);
+        infos.add(new PasefMsMsInfoImpl(compound.mz(), usedRanges.get(p), COLLISION_ENERGY,
+            compound.charge(), ms1, ms2, isolationWindow(compound)));
+      }
+      ms2.setPrecursorInfos(infos);
+    }
+    return file;
+  }
+
+  /**
+   * Imaging file with one MS1 spectrum per pixel. Each compound has a gaussian spatial
+   * distribution.
+   */
+  @NotNull
+  public ImagingRawDataFile createImagingFile(int sampleIndex, @NotNull String name,
+      @Nullable MemoryMapStorage storage) throws IOException {
+    if (!config.isImaging()) {
+      throw new IllegalStateException("Image width and height are not set in the config");
+    }
+    final ImagingRawDataFileImpl file = new ImagingRawDataFileImpl(name, null, storage);
+    file.setImagingParam(new ImagingParameters(config.imageWidth(), config.imageHeight(),
+        IMAGING_PIXEL_SIZE, config.mzRange().lowerEndpoint(), config.mzRange().upperEndpoint()));
+    final Sample sample = createSample(sampleIndex);
+    final SpectrumBuilder spectrum = new SpectrumBuilder();
+
+    int scanNumber = 1;
+    for (int y = 0; y < config.imageHeight(); y++) {
+      for (int x = 0; x < config.imageWidth(); x++) {
+        spectrum.clear();
+        for (int c = 0; c < compounds.size(); c++) {
+          final SyntheticCompound compound = compounds.get(c);
+          final double distance = Math.hypot(x - compound.imageX(), y - compound.imageY());
+          if (distance > PEAK_WINDOW_SIGMAS * compound.imageRadius()) {
+            continue;
+          }
+          final double intensity = compound.height() * sample.intensityFactors()[c] * gaussian(
+              distance, compound.imageRadius());
+          addIsotopes(spectrum, compound, intensity, 1d, sample.random());
+        }
+        addNoise(spectrum, sample.random(), config.noiseSignals());
+
+        final SimpleSpectralArrays data = spectrum.build();
+        final SimpleImagingScan scan = new SimpleImagingScan(file, scanNumber,
+            1, (scanNumber - 1) * config.scanInterval(), 0, 0, data.mzs(), data.intensities(),
+            MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", config.mzRange(),
+            new Coordinates(x, y, 0));
+        scan.addMassList(new ScanPointerMassList(scan));
+        file.addScan(scan);
+        scanNumber++;
+      }
+    }
+    return file;
+  }
+
+  private Sample createSample(int sampleIndex) {
+    final Random random = new Random(31 * seed + sampleIndex);
+    final float rtShift = (float) random.nextGaussian() * config.rtShift();
+    final double[] factors = new double[compounds.size()];
+    for (int i = 0; i < factors.length; i++) {
+      factors[i] = Math.max(0, 1 + random.nextGaussian() * config.intensityVariation());
+    }
+    return new Sample(random, rtShift, factors);
+  }
+
+  /**
+   * Collects the index and intensity of all compounds that elute at this retention time with an
+   * intensity above the noise level
+   */
+  private void collectEluting(float rt, @NotNull Sample sample, @NotNull IntArrayList eluting,
+      @NotNull DoubleArrayList intensities) {
+    eluting.clear();
+    intensities.clear();
+    final float window = (float) (PEAK_WINDOW_SIGMAS * config.peakSigma());
+    final float sampleRt = rt - sample.rtShift();
+    for (int i = lowerBound(compoundRts, sampleRt - window);
+        i < compoundRts.length && compoundRts[i] <= sampleRt + window; i++) {
+      final double intensity = compounds.get(i).height() * sample.intensityFactors()[i] * gaussian(
+          sampleRt - compoundRts[i], config.peakSigma());
+      if (intensity >= config.noiseIntensity()) {
+        eluting.add(i);
+        intensities.add(intensity);
+      }
+    }
+  }
+
+  /**
+   * @return indices in the eluting list of all compounds above the MS2 threshold that were not
+   * selected recently, sorted by intensity descending
+   */
+  private IntList findPrecursorCandidates(int cycle, @NotNull IntArrayList eluting,
+      @NotNull DoubleArrayList intensities, int[] lastSelected) {
+    final IntArrayList candidates = new IntArrayList();
+    for (int i = 0; i < eluting.size(); i++) {
+      if (intensities.getDouble(i) >= config.minMs2Intensity()
+          && cycle - lastSelected[eluting.getInt(i)] > EXCLUSION_CYCLES) {
+        candidates.add(i);
+      }
+    }
+    candidates.sort((a, b) -> Double.compare(intensities.getDouble(b), intensities.getDouble(a)));
+    return candidates;
+  }
+
+  private int[] createExclusionList() {
+    final int[] lastSelected = new int[compounds.size()];
+    Arrays.fill(lastSelected, -EXCLUSION_CYCLES - 1);
+    return lastSelected;
+  }
+
+  private void addIsotopes(@NotNull SpectrumBuilder spectrum, @NotNull SyntheticCompound compound,
+      double intensity, double factor, @NotNull Random random) {
+    final double[] mzs = compound.isotopeMzs();
+    final double[] relative = compound.isotopeIntensities();
+    for (int i = 0; i < mzs.length; i++) {
+      final double value = intensity * factor * relative[i];
+      // threshold on the intensity without factor to keep the same signals in all mobility scans
+      if (intensity * relative[i] >= config.noiseIntensity()) {
+        spectrum.add(withMzError(mzs[i], random), value);
+      }
+    }
+  }
+
+  private void addFragments(@NotNull SpectrumBuilder spectrum, @NotNull SyntheticCompound compound,
+      double precursorIntensity, double factor, @NotNull Random random) {
+    final double intensity = precursorIntensity * factor * FRAGMENTATION_EFFICIENCY;
+    final double[] mzs = compound.fragmentMzs();
+    final double[] relative = compound.fragmentIntensities();
+    for (int i = 0; i < mzs.length; i++) {
+      spectrum.add(withMzError(mzs[i], random), intensity * relative[i]);
+    }
+    // remaining precursor
+    spectrum.add(withMzError(compound.mz(), random), intensity * 0.1);
+  }
+
+  private void addNoise(@NotNull SpectrumBuilder spectrum, @NotNull Random random, int signals) {
+    for (int i = 0; i < signals; i++) {
+      spectrum.add(randomMz(random), randomNoiseIntensity(random));
+    }
+  }
+
+  private double randomMz(@NotNull Random random) {
+    final double min = config.mzRange().lowerEndpoint();
+    return min + random.nextDouble() * (config.mzRange().upperEndpoint() - min);
+  }
+
+  private double randomNoiseIntensity(@NotNull Random random) {
+    return config.noiseIntensity() * (0.2 + random.nextDouble() * 0.8);
+  }
+
+  private double withMzError(double mz, @NotNull Random random) {
+    return mz * (1 + random.nextGaussian() * config.mzErrorPpm() * 1E-6);
+  }
+
+  private Range<Double> isolationWindow(@NotNull SyntheticCompound compound) {
+    return Range.closed(compound.mz() - ISOLATION_WIDTH / 2, compound.mz() + ISOLATION_WIDTH / 2);
+  }
+
+  private Scan addScan(@NotNull RawDataFile file, int scanNumber, int msLevel, float rt,
+      @Nullable MsMsInfo info, @NotNull SimpleSpectralArrays data) throws IOException {
+    final SimpleScan scan = new SimpleScan(file, scanNumber, msLevel, rt, info, data.mzs(),
+        data.intensities(), MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+        config.mzRange());
+    scan.addMassList(new ScanPointerMassList(scan));
+    file.addScan(scan);
+    return scan;
+  }
+
+  private SimpleFrame addFrame(@NotNull IMSRawDataFile file, int frameNumber, int msLevel,
+      float rt, double[] mobilities, @NotNull SpectrumBuilder frameSpectrum,
+      @NotNull SpectrumBuilder[] mobilitySpectra) throws IOException {
+    final SimpleSpectralArrays data = frameSpectrum.build();
+    final SimpleFrame frame = new SimpleFrame(file, frameNumber, msLevel, rt, data.mzs(),
+        data.intensities(), MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+        config.mzRange(), config.mobilityType(), null, null);
+    frame.setMobilities(mobilities);
+    final List<BuildingMobilityScan> mobilityScans = new ArrayList<>(mobilitySpectra.length);
+    for (int i = 0; i < mobilitySpectra.length; i++) {
+      mobilityScans.add(new BuildingMobilityScan(i, mobilitySpectra[i].build()));
+    }
+    frame.setMobilityScans(mobilityScans, true);
+    frame.addMassList(new ScanPointerMassList(frame));
+    file.addScan(frame);
+    return frame;
+  }
+
+  /**
+   * @return equally spaced mobility values. Descending for TIMS, like in the raw data.
+   */
+  private double[] createMobilities() {
+    final double min = config.mobilityRange().lowerEndpoint();
+    final double max = config.mobilityRange().upperEndpoint();
+    final int n = config.mobilityScans();
+    final double step = n > 1 ? (max - min) / (n - 1) : 0;
+    final double[] mobilities = new double[n];
+    for (int i = 0; i < n; i++) {
+      mobilities[i] = config.mobilityType() == MobilityType.TIMS ? max - i * step : min + i * step;
+    }
+    return mobilities;
+  }
+
+  private static int mobilityIndex(double mobility, double[] mobilities) {
+    if (mobilities.length == 1) {
+      return 0;
+    }
+    final double first = mobilities[0];
+    final double last = mobilities[mobilities.length - 1];
+    final long index = Math.round((mobility - first) / (last - first) * (mobilities.length - 1));
+    return Math.clamp(index, 0, mobilities.length - 1);
+  }
+
+  private static void clear(@NotNull SpectrumBuilder frameSpectrum,
+      @NotNull SpectrumBuilder[] mobilitySpectra) {
+    frameSpectrum.clear();
+    for (SpectrumBuilder spectrum : mobilitySpectra) {
+      spectrum.clear();
+    }
+  }
+
+  private static double gaussian(double distance, double sigma) {
+    final double x = distance / sigma;
+    return Math.exp(-0.5 * x * x);
+  }
+
+  /**
+   * @return the first index with a value >= key
+   */
+  private static int lowerBound(float[] values, float key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (values[mid] < key) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private static String fileName(@NotNull String prefix, int sampleIndex) {
+    return "%s_%04d".formatted(prefix, sampleIndex);
+  }
+
+  private static Color color(int sampleIndex) {
+    return SimpleColorPalette.DEFAULT.get(Vision.NORMAL_VISION).get(sampleIndex);
+  }
+
+  /**
+   * Sample specific variation. The random generator is only used by the thread that creates the
+   * file.
+   */
+  private record Sample(Random random, float rtShift, double[] intensityFactors) {
+
+  }
+}
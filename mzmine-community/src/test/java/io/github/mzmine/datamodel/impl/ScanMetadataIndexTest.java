@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ScanMetadataIndexTest {
+
+  private RawDataFile file;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    file = new RawDataFileImpl("test", null, null, Color.BLACK);
+    // MS1 every 1 min with two MS2 scans in between
+    int scanNumber = 1;
+    for (int i = 0; i < 10; i++) {
+      final float rt = i;
+      file.addScan(scan(scanNumber++, 1, rt, null, 100 + i));
+      file.addScan(scan(scanNumber++, 2, rt + 0.25f, 200d + i, 10 + i));
+      file.addScan(scan(scanNumber++, 2, rt + 0.5f, 300d + i, 20 + i));
+    }
+  }
+
+  private Scan scan(int scanNumber, int msLevel, float rt, Double precursorMz, double intensity) {
+    return new SimpleScan(file, scanNumber, msLevel, rt,
+        precursorMz == null ? null : new DDAMsMsInfoImpl(precursorMz, 1, 2),
+        new double[]{50 + msLevel, 500 + scanNumber}, new double[]{intensity, intensity / 2},
+        MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "", null);
+  }
+
+  @Test
+  void testSummaryValues() {
+    assertArrayEquals(new int[]{1, 2}, file.getMSLevels());
+    assertEquals(10, file.getNumOfScans(1));
+    assertEquals(20, file.getNumOfScans(2));
+    assertEquals(Range.closed(0f, 9.5f), file.getDataRTRange());
+    assertEquals(Range.closed(0f, 9f), file.getDataRTRange(1));
+    assertEquals(Range.closed(51d, 528d), file.getDataMZRange(1));
+    assertEquals(Range.closed(51d, 530d), file.getDataMZRange());
+    assertEquals(109, file.getDataMaxBasePeakIntensity(1));
+    assertEquals(109 * 1.5, file.getDataMaxTotalIonCurrent(1), 1e-9);
+    assertEquals(List.of(PolarityType.POSITIVE), file.getDataPolarity());
+  }
+
+  @Test
+  void testRtAndPrecursorQueries() {
+    final ScanMetadataIndex index = file.getScanMetadataIndex();
+    assertArrayEquals(new int[]{6, 9}, index.getScanIndices(1, Range.closed(2f, 3f)));
+    assertArrayEquals(new int[]{6, 7, 8, 9}, index.getScanIndices(_ -> true, Range.closed(2f, 3f)));
+    assertArrayEquals(new int[]{7, 10},
+        index.getScanIndicesByPrecursor(2, Range.closed(201.5, 203.5), null));
+    assertArrayEquals(new int[]{10},
+        index.getScanIndicesByPrecursor(2, Range.closed(201.5, 203.5), Range.closed(3f, 4f)));
+    assertTrue(Double.isNaN(index.getPrecursorMz(0)));
+  }
+
+  @Test
+  void testScanSelection() {
+    final ScanSelection selection = new ScanSelection(Range.closed(2.0, 3.0), 2);
+    final Scan[] scans = selection.getMatchingScans(file);
+    assertEquals(2, scans.length);
+    assertEquals(8, scans[0].getScanNumber());
+    assertEquals(9, scans[1].getScanNumber());
+  }
+
+  @Test
+  void testIndexFollowsListChanges() {
+    final ScanMetadataIndex before = file.getScanMetadataIndex();
+    assertEquals(30, before.size());
+
+    file.getScans().removeLast();
+    assertEquals(29, file.getScanMetadataIndex().size());
+    assertEquals(Range.closed(0f, 9.25f), file.getDataRTRange());
+
+    // unsorted retention times fall back to a linear search
+    file.getScans().add(scan(100, 1, 0.5f, null, 1000));
+    assertEquals(1000, file.getDataMaxBasePeakIntensity(1));
+    assertArrayEquals(new int[]{0, 29},
+        file.getScanMetadataIndex().getScanIndices(1, Range.closed(0f, 0.5f)));
+  }
+}
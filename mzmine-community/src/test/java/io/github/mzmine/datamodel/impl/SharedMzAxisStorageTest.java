@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class SharedMzAxisStorageTest {
+
+  private static double[] axis(int length) {
+    final double[] mzs = new double[length];
+    for (int i = 0; i < length; i++) {
+      mzs[i] = 100 + i * 0.01;
+    }
+    return mzs;
+  }
+
+  @Test
+  void testSharedSlice() {
+    final SharedMzAxisStorage storage = new SharedMzAxisStorage(null);
+    final double[] axis = axis(1000);
+    final MemorySegment first = storage.storeMzValues(axis);
+
+    // same grid, a few indices off
+    final double[] shifted = Arrays.copyOfRange(axis, 5, 900);
+    final MemorySegment slice = storage.storeMzValues(shifted);
+    assertArrayEquals(shifted, slice.toArray(ValueLayout.JAVA_DOUBLE));
+    // no storage: values are wrapped, so the slice must point to the first array
+    assertSame(first.heapBase().orElseThrow(), slice.heapBase().orElseThrow());
+    assertEquals(1, storage.getNumSharedScans());
+  }
+
+  @Test
+  void testDifferentValuesAreStored() {
+    final SharedMzAxisStorage storage = new SharedMzAxisStorage(null);
+    final double[] axis = axis(1000);
+    storage.storeMzValues(axis);
+
+    final double[] changed = Arrays.copyOfRange(axis, 5, 900);
+    changed[100] += 0.001;
+    final MemorySegment stored = storage.storeMzValues(changed);
+    assertNotSame(axis, stored.heapBase().orElseThrow());
+    assertArrayEquals(changed, stored.toArray(ValueLayout.JAVA_DOUBLE));
+
+    // too long for the axis
+    final double[] longer = axis(1001);
+    assertEquals(-1, SharedMzAxisStorage.findOffset(MemorySegment.ofArray(axis), longer));
+    assertEquals(0, storage.getNumSharedScans());
+  }
+
+  @Test
+  void testParallelStores() {
+    final SharedMzAxisStorage storage = new SharedMzAxisStorage(null);
+    final double[] axis = axis(1000);
+    final int scans = 2000;
+    final MemorySegment first = storage.storeMzValues(axis);
+    IntStream.range(0, scans).parallel().forEach(i -> {
+      final double[] mzs = Arrays.copyOfRange(axis, i % 100, 900);
+      final MemorySegment stored = storage.storeMzValues(mzs);
+      assertArrayEquals(mzs, stored.toArray(ValueLayout.JAVA_DOUBLE));
+      assertSame(first.heapBase().orElseThrow(), stored.heapBase().orElseThrow());
+    });
+    assertEquals(scans, storage.getNumSharedScans());
+  }
+
+  @Test
+  void testShortSpectraAreNotShared() {
+    final SharedMzAxisStorage storage = new SharedMzAxisStorage(null);
+    final double[] axis = axis(SharedMzAxisStorage.MIN_AXIS_LENGTH - 1);
+    storage.storeMzValues(axis);
+    storage.storeMzValues(axis.clone());
+    assertEquals(0, storage.getNumSharedScans());
+  }
+}
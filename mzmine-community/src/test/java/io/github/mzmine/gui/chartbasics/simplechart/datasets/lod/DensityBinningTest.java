@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning.Aggregation;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.lod.DensityBinning.BinnedXYZ;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class DensityBinningTest {
+
+  // 100 x 100 grid with a distance of 1, z is the index of the point
+  static final int SIDE = 100;
+  static final int SIZE = SIDE * SIDE;
+
+  private static double x(int i) {
+    return i % SIDE;
+  }
+
+  private static double y(int i) {
+    return i / SIDE;
+  }
+
+  @Test
+  void binsKeepMaximum() {
+    final BinnedXYZ binned = DensityBinning.bin(SIZE, DensityBinningTest::x, DensityBinningTest::y,
+        i -> i, 10, 10, Aggregation.MAX);
+    assertEquals(100, binned.size());
+    assertEquals(SIZE - 1, Arrays.stream(binned.z()).max().orElseThrow());
+
+    final BinnedXYZ counts = DensityBinning.bin(SIZE, DensityBinningTest::x,
+        DensityBinningTest::y, i -> i, 10, 10, Aggregation.COUNT);
+    assertEquals(SIZE, Arrays.stream(counts.z()).sum());
+  }
+
+  @Test
+  void windowRefinesBins() {
+    // zoomed in to 10 x 10 points, each point gets its own bin
+    final BinnedXYZ binned = DensityBinning.bin(SIZE, DensityBinningTest::x,
+        DensityBinningTest::y, i -> i, 0, 9, 0, 9, 10, 10, Aggregation.COUNT);
+    assertEquals(100, binned.size());
+    assertEquals(100, Arrays.stream(binned.z()).sum());
+    assertEquals(1, Arrays.stream(binned.z()).max().orElseThrow());
+    assertEquals(0.9, binned.binWidth(), 1e-9);
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.gui.chartbasics.simplechart.datasets.lod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LineDownsamplingTest {
+
+  static final int SIZE = 100_000;
+  XYLevel data;
+
+  @BeforeEach
+  void init() {
+    final Random random = new Random(42);
+    final double[] x = new double[SIZE];
+    final double[] y = new double[SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      x[i] = i * 0.01;
+      y[i] = random.nextDouble();
+    }
+    // single spike that has to survive min/max reduction
+    y[SIZE / 3] = 100d;
+    data = new XYLevel(x, y, null);
+  }
+
+  @Test
+  void minMaxKeepsExtremaAndOrder() {
+    final XYLevel reduced = LineDownsampling.minMaxPerBucket(data, 1000);
+    assertTrue(reduced.size() <= 1000);
+    assertEquals(0, reduced.sourceIndex(0));
+    assertEquals(SIZE - 1, reduced.sourceIndex(reduced.size() - 1));
+    assertOrdered(reduced);
+
+    double max = Double.NEGATIVE_INFINITY;
+    for (double v : reduced.y()) {
+      max = Math.max(max, v);
+    }
+    assertEquals(100d, max);
+  }
+
+  @Test
+  void lttbSize() {
+    final XYLevel reduced = LineDownsampling.lttb(data, 500);
+    assertEquals(500, reduced.size());
+    assertEquals(0, reduced.sourceIndex(0));
+    assertEquals(SIZE - 1, reduced.sourceIndex(reduced.size() - 1));
+    assertOrdered(reduced);
+  }
+
+  @Test
+  void smallDataIsNotReduced() {
+    final XYLevel reduced = LineDownsampling.minMaxPerBucket(data, SIZE + 1);
+    assertEquals(SIZE, reduced.size());
+  }
+
+  @Test
+  void pyramidLevelSelection() {
+    final DownsamplingPyramid pyramid = DownsamplingPyramid.build(data.x(), data.y(),
+        DownsamplingMode.MIN_MAX, 1000, null);
+    assertNotNull(pyramid);
+    assertTrue(pyramid.getNumberOfLevels() > 1);
+    for (int i = 1; i < pyramid.getNumberOfLevels(); i++) {
+      assertTrue(pyramid.getLevel(i).size() < pyramid.getLevel(i - 1).size());
+    }
+
+    // whole range with a small budget selects a coarse level
+    final int coarse = pyramid.selectLevel(0, SIZE * 0.01, 4000);
+    assertTrue(coarse > 0);
+    assertTrue(pyramid.getLevel(coarse).size() <= 4000);
+    // zoomed in to 1000 points selects the full resolution
+    assertEquals(0, pyramid.selectLevel(10, 20, 4000));
+  }
+
+  private static void assertOrdered(XYLevel level) {
+    for (int i = 1; i < level.size(); i++) {
+      assertTrue(level.sourceIndex(i) > level.sourceIndex(i - 1));
+      assertTrue(level.x()[i] >= level.x()[i - 1]);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.main;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.main.AdaptiveMemoryTiering.Tier;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveMemoryTieringTest {
+
+  @Test
+  void escalatesUnderPressure() {
+    assertEquals(Tier.MAP_RAW_SCANS, AdaptiveMemoryTiering.nextTier(Tier.ALL_IN_RAM, 0.9, 0));
+    assertEquals(Tier.MAP_ALL, AdaptiveMemoryTiering.nextTier(Tier.MAP_ALL, 0.9, 0));
+  }
+
+  @Test
+  void relaxesOnlyAfterConsecutiveLowChecks() {
+    final int checks = AdaptiveMemoryTiering.RELAX_AFTER_CHECKS;
+    assertEquals(Tier.MAP_ALL, AdaptiveMemoryTiering.nextTier(Tier.MAP_ALL, 0.1, checks - 2));
+    assertEquals(Tier.MAP_RAW_SCANS_AND_MASS_LISTS,
+        AdaptiveMemoryTiering.nextTier(Tier.MAP_ALL, 0.1, checks - 1));
+    assertEquals(Tier.ALL_IN_RAM, AdaptiveMemoryTiering.nextTier(Tier.ALL_IN_RAM, 0.1, checks));
+  }
+
+  @Test
+  void keepsTierBetweenWatermarks() {
+    assertEquals(Tier.MAP_RAW_SCANS, AdaptiveMemoryTiering.nextTier(Tier.MAP_RAW_SCANS, 0.6, 100));
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.main.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterModule;
+import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterParameters;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MZmineConfigurationImplTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void moduleParametersAreAppliedOnFirstUse() throws IOException {
+    final File file = dir.resolve("config.xml").toFile();
+    final MZmineConfigurationImpl saved = new MZmineConfigurationImpl();
+    saved.getModuleParameters(DuplicateFilterModule.class)
+        .setParameter(DuplicateFilterParameters.suffix, "lazy");
+    saved.saveConfiguration(file);
+
+    final MZmineConfigurationImpl loaded = new MZmineConfigurationImpl();
+    loaded.loadConfiguration(file, false);
+    assertEquals("lazy", loaded.getModuleParameters(DuplicateFilterModule.class)
+        .getValue(DuplicateFilterParameters.suffix));
+
+    // values of modules that are already in use are applied directly
+    saved.getModuleParameters(DuplicateFilterModule.class)
+        .setParameter(DuplicateFilterParameters.suffix, "reloaded");
+    saved.saveConfiguration(file);
+    loaded.loadConfiguration(file, false);
+    assertEquals("reloaded", loaded.getModuleParameters(DuplicateFilterModule.class)
+        .getValue(DuplicateFilterParameters.suffix));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchStepCacheTest {
+
+  private static final String VERSION = "1|4.0.0";
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void keysDependOnAllEarlierSteps() {
+    List<String> keys = BatchStepCache.createKeys(VERSION, List.of("a", "b"),
+        List.of("import", "mass detection", "chromatograms"));
+    List<String> changedSecond = BatchStepCache.createKeys(VERSION, List.of("a", "b"),
+        List.of("import", "other mass detection", "chromatograms"));
+
+    assertEquals(3, keys.size());
+    assertEquals(keys.getFirst(), changedSecond.getFirst());
+    assertNotEquals(keys.get(1), changedSecond.get(1));
+    assertNotEquals(keys.get(2), changedSecond.get(2));
+  }
+
+  @Test
+  void keysDependOnDataFilesButNotTheirOrder() {
+    List<String> steps = List.of("import");
+    String key = BatchStepCache.createKeys(VERSION, List.of("a", "b"), steps).getFirst();
+
+    assertEquals(key, BatchStepCache.createKeys(VERSION, List.of("b", "a"), steps).getFirst());
+    assertNotEquals(key, BatchStepCache.createKeys(VERSION, List.of("a", "c"), steps).getFirst());
+    assertNotEquals(key, BatchStepCache.createKeys(VERSION, List.of("ab"), steps).getFirst());
+  }
+
+  @Test
+  void keysDependOnVersion() {
+    List<String> steps = List.of("import");
+    assertNotEquals(BatchStepCache.createKeys(VERSION, List.of("a"), steps),
+        BatchStepCache.createKeys("1|3.9.0", List.of("a"), steps));
+  }
+
+  @Test
+  void evictRemovesLeastRecentlyUsedEntries() throws IOException {
+    File oldest = createEntry("oldest.mzmine", 1000);
+    File recent = createEntry("recent.mzmine", 3000);
+    File newest = createEntry("newest.mzmine", 2000);
+
+    new BatchStepCache(dir.toFile(), 5000).evict();
+
+    assertFalse(oldest.exists());
+    assertTrue(recent.exists());
+    assertTrue(newest.exists());
+  }
+
+  private File createEntry(String name, long lastModified) throws IOException {
+    File file = Files.write(dir.resolve(name), new byte[2000]).toFile();
+    assertTrue(file.setLastModified(lastModified * 1000));
+    return file;
+  }
+}
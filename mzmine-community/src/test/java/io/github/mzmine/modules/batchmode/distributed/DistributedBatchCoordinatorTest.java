@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.batchmode.distributed;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.modules.MZmineModuleCategory;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DistributedBatchCoordinatorTest {
+
+  @TempDir
+  Path dir;
+
+  private File createFile(String name, int size) throws IOException {
+    return Files.write(dir.resolve(name), new byte[size]).toFile();
+  }
+
+  @Test
+  void shardsBalanceFileSizes() throws IOException {
+    File a = createFile("a.mzML", 100);
+    File b = createFile("b.mzML", 60);
+    File c = createFile("c.mzML", 50);
+    File d = createFile("d.mzML", 10);
+
+    // largest first, each into the smallest shard: a, d (110) | b, c (110)
+    List<List<File>> shards = DistributedBatchCoordinator.shardFiles(new File[]{d, c, b, a}, 2);
+    assertEquals(List.of(List.of(a, d), List.of(b, c)), shards);
+  }
+
+  @Test
+  void noMoreShardsThanFiles() throws IOException {
+    File a = createFile("a.mzML", 10);
+    File b = createFile("b.mzML", 10);
+
+    List<List<File>> shards = DistributedBatchCoordinator.shardFiles(new File[]{a, b}, 8);
+    assertEquals(2, shards.size());
+  }
+
+  @Test
+  void leadingPerFileStepsEndAtAlignment() {
+    assertEquals(4, DistributedBatchCoordinator.countLeadingPerFileSteps(
+        List.of(MZmineModuleCategory.RAWDATAIMPORT, MZmineModuleCategory.RAWDATA,
+            MZmineModuleCategory.EIC_DETECTION, MZmineModuleCategory.FEATURE_RESOLVING,
+            MZmineModuleCategory.ALIGNMENT, MZmineModuleCategory.ISOTOPES)));
+    assertEquals(0, DistributedBatchCoordinator.countLeadingPerFileSteps(
+        List.of(MZmineModuleCategory.PROJECTIO, MZmineModuleCategory.RAWDATA)));
+  }
+
+  @Test
+  void remoteArgumentsAreQuoted() {
+    assertEquals("'a b'", RemoteShellWorkerLauncher.shellQuote("a b"));
+    assertEquals("'it'\"'\"'s'", RemoteShellWorkerLauncher.shellQuote("it's"));
+  }
+}
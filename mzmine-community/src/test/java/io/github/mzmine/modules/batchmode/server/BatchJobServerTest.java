@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.batchmode.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchJobServerTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void parseQueryKeepsRepeatedKeys() {
+    Map<String, List<String>> query = BatchJobServer.parseQuery(
+        "file=a.mzML&file=dir%2Fb%20c.mzML&out=results/base&library=");
+    assertEquals(List.of("a.mzML", "dir/b c.mzML"), query.get("file"));
+    assertEquals(List.of("results/base"), query.get("out"));
+    assertEquals(List.of(""), query.get("library"));
+    assertTrue(BatchJobServer.parseQuery(null).isEmpty());
+  }
+
+  @Test
+  void serverListsJobsAndRejectsUnknownIds() throws IOException, InterruptedException {
+    BatchJobServer server = new BatchJobServer(0, 10, dir.toFile(), 0);
+    server.start();
+    try (HttpClient client = HttpClient.newHttpClient()) {
+      String base = "http://localhost:" + server.getPort() + "/jobs";
+      String token = Files.readString(server.getTokenFile().toPath());
+
+      HttpResponse<String> list = client.send(
+          HttpRequest.newBuilder(URI.create(base)).header(BatchJobServer.TOKEN_HEADER, token).GET()
+              .build(), BodyHandlers.ofString());
+      assertEquals(200, list.statusCode());
+
+      HttpResponse<String> unknown = client.send(
+          HttpRequest.newBuilder(URI.create(base + "/42"))
+              .header(BatchJobServer.TOKEN_HEADER, token).GET().build(), BodyHandlers.ofString());
+      assertEquals(404, unknown.statusCode());
+
+      HttpResponse<String> unsupported = client.send(
+          HttpRequest.newBuilder(URI.create(base)).header(BatchJobServer.TOKEN_HEADER, token)
+              .PUT(HttpRequest.BodyPublishers.noBody()).build(), BodyHandlers.ofString());
+      assertEquals(405, unsupported.statusCode());
+    } finally {
+      server.stop();
+    }
+    assertFalse(server.getTokenFile().exists());
+  }
+
+  @Test
+  void serverRejectsUnauthorizedRequests() throws IOException, InterruptedException {
+    BatchJobServer server = new BatchJobServer(0, 10, dir.toFile(), 0);
+    server.start();
+    try (HttpClient client = HttpClient.newHttpClient()) {
+      URI jobs = URI.create("http://localhost:" + server.getPort() + "/jobs");
+      String token = Files.readString(server.getTokenFile().toPath());
+      if (server.getTokenFile().toPath().getFileSystem().supportedFileAttributeViews()
+          .contains("posix")) {
+        assertEquals(PosixFilePermissions.fromString("rw-------"),
+            Files.getPosixFilePermissions(server.getTokenFile().toPath()));
+      }
+
+      HttpResponse<String> noToken = client.send(
+          HttpRequest.newBuilder(jobs).header("Content-Type", "text/plain")
+              .POST(BodyPublishers.ofString("<batch/>")).build(), BodyHandlers.ofString());
+      assertEquals(401, noToken.statusCode());
+
+      HttpResponse<String> wrongToken = client.send(
+          HttpRequest.newBuilder(jobs).header(BatchJobServer.TOKEN_HEADER, "wrong").GET().build(),
+          BodyHandlers.ofString());
+      assertEquals(401, wrongToken.statusCode());
+
+      HttpResponse<String> browser = client.send(
+          HttpRequest.newBuilder(jobs).header(BatchJobServer.TOKEN_HEADER, token)
+              .header("Origin", "https://example.org").GET().build(), BodyHandlers.ofString());
+      assertEquals(403, browser.statusCode());
+    } finally {
+      server.stop();
+    }
+  }
+}
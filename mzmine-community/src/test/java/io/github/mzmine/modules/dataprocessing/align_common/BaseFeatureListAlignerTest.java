@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
+import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerParameters;
+import io.github.mzmine.modules.dataprocessing.align_join.JoinAlignerTask;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import io.github.mzmine.taskcontrol.Task;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class BaseFeatureListAlignerTest {
+
+  // m/z and RT of the row groups
+  private static final double[][] GROUPS = {{200, 5}, {300, 6}, {400, 7}, {500, 8}, {600, 9}};
+
+  private final Task task = Mockito.mock(Task.class);
+  private ParameterSet parameters;
+  private ModularFeatureList a;
+  private ModularFeatureList b;
+  private ModularFeatureList c;
+
+  @BeforeEach
+  void setUp() {
+    parameters = new JoinAlignerParameters().cloneParameterSet();
+    parameters.setParameter(JoinAlignerParameters.MZTolerance, new MZTolerance(0.005, 5));
+    parameters.setParameter(JoinAlignerParameters.MZWeight, 3d);
+    parameters.setParameter(JoinAlignerParameters.RTTolerance, new RTTolerance(0.1f, Unit.MINUTES));
+    parameters.setParameter(JoinAlignerParameters.RTWeight, 1d);
+    parameters.setParameter(JoinAlignerParameters.mobilityTolerance, false);
+    parameters.setParameter(JoinAlignerParameters.SameChargeRequired, false);
+    parameters.setParameter(JoinAlignerParameters.SameIDRequired, false);
+    parameters.setParameter(JoinAlignerParameters.compareIsotopePattern, false);
+    parameters.setParameter(JoinAlignerParameters.compareSpectraSimilarity, false);
+
+    // group 0 and 1 in all samples, 2 in a and c, 3 only in a, 4 only in c
+    a = createList("a", 0, 0, 1, 2, 3);
+    b = createList("b", 1, 0, 1);
+    c = createList("c", 2, 0, 1, 2, 4);
+  }
+
+  /**
+   * One sample with the given row groups, values are shifted slightly per sample
+   */
+  private static ModularFeatureList createList(String name, int sample, int... groups) {
+    final RawDataFile raw = Mockito.mock(RawDataFile.class);
+    // aligned lists sort their data files by name
+    Mockito.when(raw.getName()).thenReturn(name);
+    final ModularFeatureList flist = new ModularFeatureList(name, null, raw);
+    int id = 1;
+    for (int group : groups) {
+      final ModularFeature f = new ModularFeature(flist);
+      f.set(RawFileType.class, raw);
+      f.set(MZType.class, GROUPS[group][0] + sample * 0.0005);
+      f.set(RTType.class, (float) (GROUPS[group][1] + sample * 0.01));
+      f.set(DetectionType.class, FeatureStatus.DETECTED);
+      flist.addRow(new ModularFeatureListRow(flist, id++, f));
+    }
+    return flist;
+  }
+
+  private ModularFeatureList align(List<FeatureList> lists) {
+    return JoinAlignerTask.createAligner(task, null, parameters, lists, "aligned")
+        .alignFeatureLists();
+  }
+
+  private ModularFeatureList alignOnto(ModularFeatureList existing, List<FeatureList> lists) {
+    return JoinAlignerTask.createAligner(task, null, parameters, lists, "aligned")
+        .alignFeatureListsOnto(existing);
+  }
+
+  /**
+   * @return rows by their group index
+   */
+  private static Map<Integer, FeatureListRow> rowsByGroup(ModularFeatureList flist) {
+    final Map<Integer, FeatureListRow> rows = new HashMap<>();
+    for (FeatureListRow row : flist.getRows()) {
+      final int group = (int) Math.round(row.getAverageMZ() / 100) - 2;
+      assertNull(rows.put(group, row), "Group was split into multiple rows");
+    }
+    return rows;
+  }
+
+  @Test
+  void testIncrementalAlignmentMatchesFullAlignment() {
+    final ModularFeatureList full = align(List.of(a, b, c));
+    final ModularFeatureList ab = align(List.of(a, b));
+    final Set<Integer> abIDs = ab.getRows().stream().map(FeatureListRow::getID)
+        .collect(Collectors.toSet());
+    final ModularFeatureList incremental = alignOnto(ab, List.of(c));
+    assertNotNull(full);
+    assertNotNull(incremental);
+
+    assertEquals(GROUPS.length, full.getNumberOfRows());
+    assertEquals(full.getNumberOfRows(), incremental.getNumberOfRows());
+    assertEquals(3, incremental.getNumberOfRawDataFiles());
+    // existing rows keep their IDs
+    assertTrue(incremental.getRows().stream().map(FeatureListRow::getID).collect(Collectors.toSet())
+        .containsAll(abIDs));
+
+    final Map<Integer, FeatureListRow> fullRows = rowsByGroup(full);
+    final Map<Integer, FeatureListRow> incrementalRows = rowsByGroup(incremental);
+    for (int group = 0; group < GROUPS.length; group++) {
+      final FeatureListRow fullRow = fullRows.get(group);
+      final FeatureListRow incrementalRow = incrementalRows.get(group);
+      assertEquals(fullRow.getNumberOfFeatures(), incrementalRow.getNumberOfFeatures());
+      assertEquals(fullRow.getAverageMZ(), incrementalRow.getAverageMZ(), 1e-6);
+
+      final AlignmentScores fullScore = fullRow.get(AlignmentMainType.class);
+      final AlignmentScores incrementalScore = incrementalRow.get(AlignmentMainType.class);
+      assertNotNull(fullScore);
+      assertNotNull(incrementalScore);
+      assertEquals(fullScore.alignedFeatures(), incrementalScore.alignedFeatures());
+      assertEquals(fullScore.extraFeatures(), incrementalScore.extraFeatures());
+      // all rates refer to the three samples, also for rows without new features
+      assertEquals(fullScore.rate(), incrementalScore.rate(), 1e-6);
+      assertEquals(fullRow.getNumberOfFeatures() / 3f, incrementalScore.rate(), 1e-6);
+      // the centroids of existing rows moved slightly when the new sample was added
+      assertEquals(fullScore.weightedDistanceScore(), incrementalScore.weightedDistanceScore(),
+          0.05);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.align_common;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RowScoreBufferTest {
+
+  @Test
+  void assignsBestScoresFirst() {
+    RowScoreBuffer scores = new RowScoreBuffer(1);
+    scores.add(0, 0, 0.9);
+    scores.add(0, 1, 0.5);
+    scores.add(1, 0, 0.95);
+    scores.add(1, 1, 0.4);
+    scores.add(2, 1, 0.3);
+
+    // row 1 takes base 0, row 0 falls back to base 1, row 2 stays unaligned
+    assertArrayEquals(new int[]{1, 0, -1, -1}, scores.assignBestMatches(4, 2));
+  }
+
+  @Test
+  void resolvesTiesByIndex() {
+    RowScoreBuffer scores = new RowScoreBuffer();
+    scores.add(1, 0, 0.5);
+    scores.add(0, 0, 0.5);
+    scores.add(0, 1, 0.5);
+
+    assertArrayEquals(new int[]{0, -1}, scores.assignBestMatches(2, 2));
+  }
+
+  @Test
+  void addAllMergesBuffers() {
+    RowScoreBuffer first = new RowScoreBuffer(1);
+    first.add(0, 0, 0.2);
+    RowScoreBuffer second = new RowScoreBuffer(1);
+    second.add(1, 0, 0.8);
+    second.add(1, 1, 0.1);
+
+    first.addAll(second);
+    assertEquals(3, first.size());
+    assertArrayEquals(new int[]{-1, 0}, first.assignBestMatches(2, 2));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.modules.dataprocessing.featdet_imsexpander;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ExpandingTraceIndexTest {
+
+  private static ExpandingTrace trace(double lowerMz, double upperMz, float lowerRt,
+      float upperRt) {
+    return new ExpandingTrace(null, Range.closed(lowerMz, upperMz),
+        Range.closed(lowerRt, upperRt));
+  }
+
+  @Test
+  void findsCandidatesOfOverlappingRanges() {
+    // the second trace has a wide m/z range that overlaps the third
+    final ExpandingTraceIndex index = new ExpandingTraceIndex(
+        List.of(trace(100, 100.01, 1, 2), trace(200, 210, 1, 2), trace(205, 205.01, 3, 4),
+            trace(300, 300.01, 1, 2)));
+
+    assertEquals(index.firstCandidate(50), index.endCandidate(50));
+    assertEquals(0, index.firstCandidate(100.005));
+    assertEquals(1, index.endCandidate(100.005));
+
+    assertEquals(1, index.firstCandidate(205.005));
+    assertEquals(3, index.endCandidate(205.005));
+    assertTrue(index.contains(1, 205.005, 1.5f));
+    assertFalse(index.contains(2, 205.005, 1.5f));
+    assertTrue(index.contains(2, 205.005, 3.5f));
+
+    assertEquals(4, index.firstCandidate(400));
+    assertEquals(1f, index.getMinRt());
+    assertEquals(4f, index.getMaxRt());
+  }
+
+  @Test
+  void unboundedRangesMatchAllRetentionTimes() {
+    final ExpandingTraceIndex index = new ExpandingTraceIndex(
+        List.of(new ExpandingTrace(null, Range.closed(100d, 101d), Range.all())));
+    assertTrue(index.contains(0, 100.5, 1000f));
+    assertFalse(index.contains(0, 101.5, 1000f));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.filter_groupms2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.io.IOException;
+import java.util.List;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+class PrecursorWindowIndexTest {
+
+  private static Scan scan(RawDataFile file, int scanNumber, int msLevel, float rt,
+      double precursorMz) {
+    return new SimpleScan(file, scanNumber, msLevel, rt,
+        msLevel > 1 ? new DDAMsMsInfoImpl(precursorMz, 1, msLevel) : null,
+        new double[]{100, 200}, new double[]{10, 20}, MassSpectrumType.CENTROIDED,
+        PolarityType.POSITIVE, "", null);
+  }
+
+  @Test
+  void testFragmentScanWindows() throws IOException {
+    final RawDataFile file = new RawDataFileImpl("test", null, null, Color.BLACK);
+    int scanNumber = 1;
+    for (int i = 0; i < 100; i++) {
+      file.addScan(scan(file, scanNumber++, 1, i * 0.1f, 0));
+      // precursors cycle through 5 m/z values, one is at a bucket edge
+      file.addScan(scan(file, scanNumber++, 2, i * 0.1f + 0.05f, 300 + (i % 5) * 0.5));
+    }
+
+    final PrecursorWindowIndex index = PrecursorWindowIndex.of(file);
+    assertSame(index, PrecursorWindowIndex.of(file));
+
+    // 300.5 in all RTs
+    final List<Scan> all = index.getFragmentScans(Range.closed(300.4, 300.6), null);
+    assertEquals(20, all.size());
+    assertTrue(all.stream().allMatch(s -> s.getPrecursorMz() == 300.5));
+
+    // 300.5 and 301.0 across the bucket edge within an RT window
+    final List<Scan> window = index.getFragmentScans(Range.closed(300.4, 301.1),
+        Range.closed(1f, 2f));
+    for (int i = 1; i < window.size(); i++) {
+      assertTrue(window.get(i - 1).getScanNumber() < window.get(i).getScanNumber());
+    }
+    final long expected = file.getScanNumbers(2).stream()
+        .filter(s -> s.getRetentionTime() >= 1f && s.getRetentionTime() <= 2f)
+        .filter(s -> s.getPrecursorMz() >= 300.4 && s.getPrecursorMz() <= 301.1).count();
+    assertEquals(expected, window.size());
+
+    // new scans rebuild the index
+    file.addScan(scan(file, scanNumber, 2, 20f, 300.5));
+    assertEquals(21, PrecursorWindowIndex.of(file).getFragmentScans(Range.closed(300.4, 300.6),
+        null).size());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.dataprocessing.id_formulaprediction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.config.IsotopeFactory;
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.formula.MolecularFormulaGenerator;
+import org.openscience.cdk.formula.MolecularFormulaRange;
+import org.openscience.cdk.interfaces.IMolecularFormula;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
+
+class FormulaMassTableTest {
+
+  private static MolecularFormulaRange elements;
+
+  @BeforeAll
+  static void setUp() throws IOException {
+    final IsotopeFactory isotopes = Isotopes.getInstance();
+    elements = new MolecularFormulaRange();
+    elements.addIsotope(isotopes.getMajorIsotope("C"), 0, 30);
+    elements.addIsotope(isotopes.getMajorIsotope("H"), 0, 60);
+    elements.addIsotope(isotopes.getMajorIsotope("N"), 0, 5);
+    elements.addIsotope(isotopes.getMajorIsotope("O"), 0, 10);
+  }
+
+  private static Set<String> generate(Range<Double> massRange) {
+    final MolecularFormulaGenerator generator = new MolecularFormulaGenerator(
+        SilentChemObjectBuilder.getInstance(), massRange.lowerEndpoint(),
+        massRange.upperEndpoint(), elements);
+    final Set<String> formulas = new HashSet<>();
+    IMolecularFormula formula;
+    while ((formula = generator.getNextFormula()) != null) {
+      formulas.add(MolecularFormulaManipulator.getString(formula));
+    }
+    return formulas;
+  }
+
+  private static Set<String> toStrings(List<IMolecularFormula> formulas) {
+    return formulas.stream().map(MolecularFormulaManipulator::getString)
+        .collect(Collectors.toSet());
+  }
+
+  @Test
+  void testSameFormulasAsGenerator() {
+    final FormulaMassTable table = new FormulaMassTable(elements, 1_000_000);
+    // glucose C6H12O6 180.0634
+    final Range<Double> massRange = Range.closed(180.0534, 180.0734);
+    final List<IMolecularFormula> formulas = table.getFormulas(massRange, null);
+    final Set<String> strings = toStrings(formulas);
+    assertTrue(strings.contains("C6H12O6"));
+    assertEquals(generate(massRange), strings);
+    assertEquals(formulas.size(), strings.size());
+
+    // sorted by mass
+    for (int i = 1; i < formulas.size(); i++) {
+      assertTrue(MolecularFormulaManipulator.getMass(formulas.get(i - 1),
+          MolecularFormulaManipulator.MonoIsotopic) <= MolecularFormulaManipulator.getMass(
+          formulas.get(i), MolecularFormulaManipulator.MonoIsotopic) + 1e-9);
+    }
+
+    // a smaller range is answered from the stored blocks
+    final long stored = table.getNumberOfStoredFormulas();
+    final Range<Double> subRange = Range.closed(180.058, 180.068);
+    assertEquals(generate(subRange), toStrings(table.getFormulas(subRange, null)));
+    assertEquals(stored, table.getNumberOfStoredFormulas());
+  }
+
+  @Test
+  void testCanceledEnumerationIsNotStored() {
+    final FormulaMassTable table = new FormulaMassTable(elements, 1_000_000);
+    assertTrue(table.getFormulas(Range.closed(300.0, 300.1), () -> true).isEmpty());
+    assertEquals(0, table.getNumberOfStoredFormulas());
+    assertFalse(table.getFormulas(Range.closed(300.0, 300.1), null).isEmpty());
+  }
+
+  @Test
+  void testEviction() {
+    final FormulaMassTable table = new FormulaMassTable(elements, 10);
+    final Range<Double> wideRange = Range.closed(300.0, 300.5);
+    assertEquals(generate(wideRange).size(), table.getFormulas(wideRange, null).size());
+    // least recently used blocks were removed
+    assertTrue(table.getNumberOfStoredFormulas() < generate(wideRange).size());
+    final Range<Double> range = Range.closed(250.0, 250.2);
+    assertEquals(generate(range), toStrings(table.getFormulas(range, null)));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.Column;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarFeatureTable.ColumnKind;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+class ColumnarFeatureTableTest {
+
+  private static Object[] roundTrip(ColumnKind kind, Object[] values) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      ColumnarFeatureTable.writeBlock(out, kind, values);
+    }
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      return ColumnarFeatureTable.readBlock(in, kind, values.length);
+    }
+  }
+
+  @Test
+  void testNumericBlocks() throws IOException {
+    final Object[] doubles = {1.5d, null, -3d, 0d, null, 7d, 8d, 9d, 10d};
+    assertArrayEquals(doubles, roundTrip(ColumnKind.DOUBLE, doubles));
+
+    final Object[] floats = {null, 2.25f};
+    assertArrayEquals(floats, roundTrip(ColumnKind.FLOAT, floats));
+
+    final Object[] ints = {1, 2, null};
+    assertArrayEquals(ints, roundTrip(ColumnKind.INT, ints));
+
+    final Object[] longs = {Long.MAX_VALUE, null};
+    assertArrayEquals(longs, roundTrip(ColumnKind.LONG, longs));
+  }
+
+  @Test
+  void testStringBlock() throws IOException {
+    final Object[] strings = {"[M+H]+", null, "[M+Na]+", "[M+H]+", "", "µ"};
+    assertArrayEquals(strings, roundTrip(ColumnKind.STRING, strings));
+  }
+
+  @Test
+  void testColumn() throws IOException {
+    final Column column = new Column("datafile:a.mzML:height", "height", -1, 0,
+        ColumnKind.FLOAT);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      column.write(out);
+    }
+    try (DataInputStream in = new DataInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(column, Column.read(in));
+    }
+  }
+
+  @Test
+  void testKindForValueClass() {
+    assertEquals(ColumnKind.DOUBLE, ColumnKind.forValueClass(Double.class));
+    assertEquals(ColumnKind.FLOAT, ColumnKind.forValueClass(Float.class));
+    assertEquals(ColumnKind.STRING, ColumnKind.forValueClass(String.class));
+  }
+}
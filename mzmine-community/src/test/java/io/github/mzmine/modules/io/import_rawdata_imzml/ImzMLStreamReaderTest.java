@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.PolarityType;
+import java.io.File;
+import org.junit.jupiter.api.Test;
+
+class ImzMLStreamReaderTest {
+
+  private File getFile(String name) {
+    return new File(getClass().getClassLoader().getResource("rawdatafiles/additional/" + name)
+        .getFile());
+  }
+
+  @Test
+  void testContinuous() throws Exception {
+    final File file = getFile("Example_Continuous.imzML");
+    final ImzMLSpectrumIndex index = ImzMLStreamReader.read(file, () -> false);
+    assertNotNull(index);
+    assertTrue(index.isContinuous());
+    assertEquals(9, index.size());
+    assertEquals(3, index.getWidth());
+    assertEquals(3, index.getHeight());
+    // polarity from referenceable param group
+    assertEquals(PolarityType.NEGATIVE, index.getPolarity(0));
+    // zero based coordinates
+    assertEquals(new Coordinates(2, 2, 0), index.getCoordinates(8));
+    // all spectra share the m/z axis
+    for (int i = 0; i < index.size(); i++) {
+      assertEquals(16, index.getMzOffset(i));
+      assertEquals(8399, index.getMzLength(i));
+    }
+
+    try (IbdFile ibd = new IbdFile(IbdFile.findIbdFile(file))) {
+      final double[] mzs = ibd.readDoubles(index.getMzOffset(0), index.getMzLength(0),
+          index.getMzEncodedLength(0), index.getMzFormat(0));
+      assertEquals(8399, mzs.length);
+      for (int i = 1; i < mzs.length; i++) {
+        assertTrue(mzs[i - 1] <= mzs[i]);
+      }
+    }
+  }
+
+  @Test
+  void testProcessed() throws Exception {
+    final ImzMLSpectrumIndex index = ImzMLStreamReader.read(getFile("Example_Processed.imzML"),
+        () -> false);
+    assertNotNull(index);
+    assertFalse(index.isContinuous());
+    assertEquals(9, index.size());
+    assertEquals(16, index.getMzOffset(0));
+    assertEquals(33612, index.getIntensityOffset(0));
+    assertEquals(67208, index.getMzOffset(1));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.modules.visualization.image.raster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.jfree.data.xy.DefaultXYZDataset;
+import org.junit.jupiter.api.Test;
+
+class ImageRasterTest {
+
+  private static DefaultXYZDataset createImage(int width, int height) {
+    final int n = width * height;
+    final double[][] data = new double[3][n];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int i = y * width + x;
+        data[0][i] = x * 2d;
+        data[1][i] = y * 3d;
+        data[2][i] = i;
+      }
+    }
+    final DefaultXYZDataset dataset = new DefaultXYZDataset();
+    dataset.addSeries("image", data);
+    return dataset;
+  }
+
+  @Test
+  void testRasterValues() {
+    final ImageRaster raster = ImageRaster.of(createImage(10, 5), 2, 3);
+    assertNotNull(raster);
+    assertEquals(1, raster.getNumberOfLevels());
+    assertEquals(10, raster.getLevel(0).width());
+    assertEquals(5, raster.getLevel(0).height());
+    assertEquals(23f, raster.getValue(3 * 2d, 2 * 3d));
+    assertTrue(Float.isNaN(raster.getValue(-5, 0)));
+  }
+
+  @Test
+  void testPyramidKeepsMaximum() {
+    final ImageRaster raster = ImageRaster.of(createImage(600, 300), 2, 3);
+    assertNotNull(raster);
+    // 600 -> 300 -> 150
+    assertEquals(3, raster.getNumberOfLevels());
+    final ImageRaster.Level coarsest = raster.getLevel(2);
+    assertEquals(150, coarsest.width());
+    assertEquals(75, coarsest.height());
+    // maximum of the 4x4 block at the top right
+    assertEquals(3 * 600 + 599, coarsest.get(149, 0));
+
+    assertEquals(0, raster.selectLevel(2));
+    assertEquals(1, raster.selectLevel(0.5));
+    assertEquals(2, raster.selectLevel(0.01));
+  }
+
+  @Test
+  void testCursorMapsToSourceItem() {
+    // items in acquisition order, not row major, and pixel (1, 0) was not measured
+    final List<String> scans = List.of("scan(2,1)", "scan(0,0)", "scan(0,1)", "scan(1,1)",
+        "scan(2,0)");
+    final double[][] data = {{4, 0, 0, 2, 4}, {3, 0, 3, 3, 0}, {10, 20, 30, 40, 50}};
+    final DefaultXYZDataset dataset = new DefaultXYZDataset();
+    dataset.addSeries("image", data);
+
+    final ImageRaster raster = ImageRaster.of(dataset, 2, 3);
+    assertNotNull(raster);
+    assertEquals(5, raster.getNumberOfSourceItems());
+
+    // clicks anywhere within a pixel select the item of this pixel
+    assertEquals("scan(2,1)", scans.get(raster.getSourceIndex(4.7, 2.1)));
+    assertEquals("scan(0,0)", scans.get(raster.getSourceIndex(-0.9, 1.4)));
+    assertEquals("scan(1,1)", scans.get(raster.getSourceIndex(2, 3)));
+    assertEquals("scan(2,0)", scans.get(raster.getSourceIndex(3.1, -1.4)));
+    assertEquals(-1, raster.getSourceIndex(2, 0));
+    assertEquals(-1, raster.getSourceIndex(10, 0));
+
+    assertEquals(40f, raster.getSourceValue(raster.getSourceIndex(2, 3)));
+    assertTrue(Float.isNaN(raster.getSourceValue(-1)));
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.taskcontrol.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class TaskMetricsRegistryTest {
+
+  private static TaskMetrics metrics(String taskClass, TaskStatus status, long durationMillis,
+      long cpuMillis, long items) {
+    return new TaskMetrics(taskClass, "name", "Processing\tfile a.mzML", status, Instant.EPOCH,
+        durationMillis * 1_000_000, cpuMillis * 1_000_000, 1024, items);
+  }
+
+  @Test
+  void sumsPerTaskClass() {
+    TaskMetricsRegistry registry = new TaskMetricsRegistry(null, false);
+    registry.add(metrics("A", TaskStatus.FINISHED, 100, 80, 10));
+    registry.add(metrics("A", TaskStatus.ERROR, 50, -1, -1));
+    registry.add(metrics("B", TaskStatus.CANCELED, 20, 10, 5));
+
+    assertEquals(3, registry.getRecordedTasks());
+    assertEquals(1, registry.getErrorTasks());
+    assertEquals(1, registry.getCanceledTasks());
+    // unsupported cpu time (-1) is ignored
+    assertEquals(90, registry.getTotalCpuTimeMillis());
+    assertEquals(Map.of("A", 150L, "B", 20L), registry.getWallTimeMillisPerTaskClass());
+    assertEquals(Map.of("A", 80L, "B", 10L), registry.getCpuTimeMillisPerTaskClass());
+
+    registry.clear();
+    assertEquals(0, registry.getRecordedTasks());
+  }
+
+  @Test
+  void writesOneLinePerTask() throws IOException {
+    TaskMetricsRegistry registry = new TaskMetricsRegistry(null, false);
+    registry.add(metrics("A", TaskStatus.FINISHED, 2000, 1000, 10));
+
+    StringWriter writer = new StringWriter();
+    registry.writeTsv(writer);
+    String[] lines = writer.toString().split("\n");
+
+    assertEquals(2, lines.length);
+    assertTrue(lines[0].startsWith("task_class\tname\tdescription"));
+    String[] values = lines[1].split("\t");
+    assertEquals(10, values.length);
+    assertEquals("Processing file a.mzML", values[2]);
+    assertEquals("2000", values[5]);
+    assertEquals(5d, Double.parseDouble(values[9]), 1e-6);
+  }
+
+  @Test
+  void itemsPerSecondWithoutCounter() {
+    assertEquals(-1, metrics("A", TaskStatus.FINISHED, 100, 10, -1).itemsPerSecond());
+  }
+}
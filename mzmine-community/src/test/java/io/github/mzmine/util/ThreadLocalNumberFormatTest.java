@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+class ThreadLocalNumberFormatTest {
+
+  private static DecimalFormat createFormat() {
+    return new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+  }
+
+  @Test
+  void cloneIsIndependentAndMutable() {
+    final NumberFormat format = ThreadLocalNumberFormat.of(createFormat());
+    final NumberFormat floor = (NumberFormat) format.clone();
+    assertFalse(floor instanceof ThreadLocalNumberFormat);
+    floor.setRoundingMode(RoundingMode.FLOOR);
+
+    assertEquals("1.25", floor.format(1.259));
+    assertEquals("1.26", format.format(1.259));
+    assertEquals(RoundingMode.HALF_EVEN, format.getRoundingMode());
+  }
+
+  @Test
+  void settersApplyToAllThreads() throws InterruptedException {
+    final NumberFormat format = ThreadLocalNumberFormat.of(createFormat());
+    assertEquals("1.26", format.format(1.259));
+    format.setRoundingMode(RoundingMode.FLOOR);
+    assertEquals("1.25", format.format(1.259));
+    assertEquals(RoundingMode.FLOOR, format.getRoundingMode());
+
+    final String[] result = new String[1];
+    final Thread thread = new Thread(() -> result[0] = format.format(1.259));
+    thread.start();
+    thread.join();
+    assertEquals("1.25", result[0]);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.annotations;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
+import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance.Unit;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.junit.jupiter.api.Test;
+
+class PrecursorMzIndexTest {
+
+  private final PrecursorMzIndex index = PrecursorMzIndex.builder() //
+      .add(300.1, 5f, null, null, 2, 0) //
+      .add(200.0, null, null, null, 1, 1) //
+      .add(200.0, 3f, null, null, 1, 0) //
+      .add(100.0, null, null, null, 0, 0) //
+      .add(200.002, 10f, null, null, 0, 1) //
+      .build();
+
+  @Test
+  void testSortedByMz() {
+    assertEquals(5, index.size());
+    for (int i = 1; i < index.size(); i++) {
+      assertTrue(index.getMz(i - 1) <= index.getMz(i));
+    }
+    // ties keep insertion order
+    assertEquals(1, index.getVariant(1));
+    assertEquals(0, index.getVariant(2));
+    assertTrue(Float.isNaN(index.getRT(1)));
+  }
+
+  @Test
+  void testFindCandidates() {
+    final MZTolerance mzTol = new MZTolerance(0.005, 5);
+    final IntArrayList candidates = index.findCandidates(200.0, mzTol, null, null, null, null);
+    assertEquals(3, candidates.size());
+    // sorted by record and variant
+    assertEquals(0, index.getRecord(candidates.getInt(0)));
+    assertEquals(1, index.getVariant(candidates.getInt(1)));
+    assertEquals(0, index.getVariant(candidates.getInt(2)));
+
+    assertEquals(0, index.findCandidates(250, mzTol, null, null, null, null).size());
+    assertEquals(1, index.findCandidates(100.001, mzTol, null, null, null, null).size());
+  }
+
+  @Test
+  void testRtFilter() {
+    final MZTolerance mzTol = new MZTolerance(0.005, 5);
+    final RTTolerance rtTol = new RTTolerance(0.5f, Unit.MINUTES);
+    // entry without rt always matches, entry at 10 min is out of tolerance
+    final IntArrayList candidates = index.findCandidates(200.0, mzTol, 3.2f, rtTol, null, null);
+    assertEquals(2, candidates.size());
+    assertEquals(1, index.getRecord(candidates.getInt(0)));
+    assertEquals(1, index.getRecord(candidates.getInt(1)));
+  }
+}
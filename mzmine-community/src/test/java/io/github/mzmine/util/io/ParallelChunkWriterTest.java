@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package io.github.mzmine.util.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelChunkWriterTest {
+
+  @TempDir
+  File tmpDir;
+
+  @Test
+  void testWriteChunksInOrder() throws IOException {
+    final File file = new File(tmpDir, "chunks.txt");
+    final List<Integer> items = IntStream.range(0, 10_000).boxed().toList();
+
+    try (ParallelChunkWriter writer = new ParallelChunkWriter(file)) {
+      writer.writeLine("header µ");
+      final boolean finished = writer.writeChunks(items, 7, () -> false, (chunk, out) -> {
+        for (Integer item : chunk) {
+          out.append(item).append('\n');
+        }
+      });
+      assertTrue(finished);
+    }
+
+    final List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    assertEquals(items.size() + 1, lines.size());
+    assertEquals("header µ", lines.getFirst());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(String.valueOf(i), lines.get(i + 1));
+    }
+  }
+
+  @Test
+  void testCanceled() throws IOException {
+    final File file = new File(tmpDir, "canceled.txt");
+    try (ParallelChunkWriter writer = new ParallelChunkWriter(file)) {
+      final boolean finished = writer.writeChunks(List.of(1, 2, 3), 1, () -> true,
+          (chunk, out) -> out.append(chunk.getFirst()));
+      assertFalse(finished);
+    }
+    assertEquals(0, Files.size(file.toPath()));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.util.synthetic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.ImagingRawDataFile;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.msms.DDAMsMsInfo;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SyntheticDataGeneratorTest {
+
+  private static final SyntheticDataConfig LCMS = SyntheticDataConfig.builder().numScans(200)
+      .compounds(100).noiseSignals(20).ms2(3, 5, 1E5).build();
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void sameSeedCreatesSameData() throws IOException {
+    final RawDataFile a = new SyntheticDataGenerator(LCMS, 7).createFile(0, "a", null);
+    final RawDataFile b = new SyntheticDataGenerator(LCMS, 7).createFile(0, "b", null);
+    final RawDataFile otherSample = new SyntheticDataGenerator(LCMS, 7).createFile(1, "c", null);
+
+    assertEquals(a.getNumOfScans(), b.getNumOfScans());
+    for (int i = 0; i < a.getNumOfScans(); i++) {
+      assertArrayEquals(a.getScan(i).getMzValues(new double[0]),
+          b.getScan(i).getMzValues(new double[0]));
+      assertArrayEquals(a.getScan(i).getIntensityValues(new double[0]),
+          b.getScan(i).getIntensityValues(new double[0]));
+    }
+    assertFalse(Arrays.equals(a.getScan(100).getMzValues(new double[0]),
+        otherSample.getScan(100).getMzValues(new double[0])));
+  }
+
+  @Test
+  void parallelFilesMatchSequentialFiles() throws IOException {
+    final SyntheticDataGenerator generator = new SyntheticDataGenerator(LCMS, 3);
+    final List<RawDataFile> files = generator.createFiles(4, "sample", false);
+    final RawDataFile sequential = generator.createFile(2, "sample_0002", null);
+
+    assertEquals(4, files.size());
+    assertEquals("sample_0002", files.get(2).getName());
+    assertArrayEquals(sequential.getScan(50).getMzValues(new double[0]),
+        files.get(2).getScan(50).getMzValues(new double[0]));
+  }
+
+  @Test
+  void ddaScansHaveCompoundPrecursors() throws IOException {
+    final SyntheticDataGenerator generator = new SyntheticDataGenerator(LCMS, 5);
+    final RawDataFile file = generator.createFile(0, "dda", null);
+
+    final List<Scan> ms2Scans = file.getScans().stream().filter(s -> s.getMSLevel() == 2)
+        .toList();
+    assertFalse(ms2Scans.isEmpty());
+    for (Scan scan : ms2Scans) {
+      final DDAMsMsInfo info = assertInstanceOf(DDAMsMsInfo.class, scan.getMsMsInfo());
+      assertTrue(generator.getCompounds().stream()
+          .anyMatch(c -> Double.compare(c.mz(), info.getIsolationMz()) == 0));
+      assertEquals(1, info.getParentScan().getMSLevel());
+    }
+  }
+
+  @Test
+  void imsFramesHaveMobilityScansAndPasef() throws IOException {
+    final SyntheticDataConfig config = SyntheticDataConfig.builder().numScans(50).compounds(50)
+        .noiseSignals(20).mobilityScans(100).ms2(2, 5, 1E5).build();
+    final RawDataFile file = new SyntheticDataGenerator(config, 11).createFile(0, "ims", null);
+
+    final IMSRawDataFile imsFile = assertInstanceOf(IMSRawDataFile.class, file);
+    for (Frame frame : imsFile.getFrames()) {
+      assertEquals(100, frame.getNumberOfMobilityScans());
+    }
+    assertTrue(imsFile.getFrames().stream()
+        .anyMatch(f -> f.getMSLevel() == 2 && !f.getImsMsMsInfos().isEmpty()));
+  }
+
+  @Test
+  void imagingFileHasOneScanPerPixel() throws IOException {
+    final SyntheticDataConfig config = SyntheticDataConfig.builder().compounds(20)
+        .noiseSignals(10).image(10, 8).build();
+    final RawDataFile file = new SyntheticDataGenerator(config, 1).createFile(0, "image", null);
+
+    final ImagingRawDataFile imagingFile = assertInstanceOf(ImagingRawDataFile.class, file);
+    assertEquals(80, imagingFile.getNumOfScans());
+    assertEquals(10, imagingFile.getImagingParam().getMaxNumberOfPixelX());
+  }
+
+  @Test
+  void mzMLFilesContainAllScans() throws IOException {
+    final SyntheticDataGenerator generator = new SyntheticDataGenerator(LCMS, 9);
+    final List<File> files = generator.writeMzMLFiles(2, "export", dir.toFile());
+    final int numScans = generator.createFile(1, "export_0001", null).getNumOfScans();
+
+    assertEquals(2, files.size());
+    assertEquals("export_0001.mzML", files.get(1).getName());
+    final String mzML = Files.readString(files.get(1).toPath());
+    final Matcher spectrumList = Pattern.compile("<spectrumList[^>]*count=\"(\\d+)\"")
+        .matcher(mzML);
+    assertTrue(spectrumList.find());
+    assertEquals(numScans, Integer.parseInt(spectrumList.group(1)));
+  }
+}
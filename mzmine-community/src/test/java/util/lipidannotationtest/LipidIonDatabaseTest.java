@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package util.lipidannotationtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IonizationType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidIonDatabase;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.TheoreticalLipidFragments;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class LipidIonDatabaseTest {
+
+  private static final ILipidClass[] CLASSES = {LipidClasses.DIACYLGLYCEROPHOSPHOCHOLINES,
+      LipidClasses.DIACYLGLYCEROPHOSPHOETHANOLAMINES};
+
+  private static LipidAnnotationChainParameters chainParameters(int maxChainLength) {
+    LipidAnnotationChainParameters parameters = new LipidAnnotationChainParameters();
+    parameters.setParameter(LipidAnnotationChainParameters.minChainLength, 12);
+    parameters.setParameter(LipidAnnotationChainParameters.maxChainLength, maxChainLength);
+    parameters.setParameter(LipidAnnotationChainParameters.minDBEs, 0);
+    parameters.setParameter(LipidAnnotationChainParameters.maxDBEs, 6);
+    parameters.setParameter(LipidAnnotationChainParameters.onlySearchForEvenChainLength, false);
+    return parameters;
+  }
+
+  @Test
+  void databaseIsShared() {
+    LipidIonDatabase database = LipidIonDatabase.getInstance(CLASSES, chainParameters(22), null,
+        Set.of(PolarityType.POSITIVE));
+    LipidIonDatabase same = LipidIonDatabase.getInstance(CLASSES.clone(), chainParameters(22),
+        new IonizationType[0], Set.of(PolarityType.POSITIVE));
+    LipidIonDatabase other = LipidIonDatabase.getInstance(CLASSES, chainParameters(20), null,
+        Set.of(PolarityType.POSITIVE));
+
+    assertSame(database, same);
+    assertNotEquals(database.size(), other.size());
+  }
+
+  @Test
+  void ionsAreSortedAndFound() {
+    LipidIonDatabase database = LipidIonDatabase.getInstance(CLASSES, chainParameters(22), null,
+        Set.of(PolarityType.POSITIVE));
+    for (int i = 1; i < database.size(); i++) {
+      assertTrue(database.getMz(i - 1) <= database.getMz(i));
+    }
+
+    // PC 34:1 [M+H]+
+    Range<Double> range = Range.closed(760.580, 760.590);
+    int index = database.indexOf(range);
+    assertTrue(index >= 0);
+    boolean found = false;
+    for (int i = index; i < database.size() && database.getMz(i) <= range.upperEndpoint(); i++) {
+      LipidIon ion = database.getIon(i);
+      assertTrue(range.contains(ion.mz()));
+      found |= ion.lipidAnnotation().getAnnotation().equals("PC 34:1")
+          && ion.ionizationType() == IonizationType.POSITIVE_HYDROGEN;
+    }
+    assertTrue(found);
+    assertEquals(-1, database.indexOf(Range.closed(10d, 11d)));
+  }
+
+  @Test
+  void fragmentsAreCalculatedOnce() {
+    LipidIonDatabase database = LipidIonDatabase.getInstance(CLASSES, chainParameters(22), null,
+        Set.of(PolarityType.POSITIVE));
+    int index = database.indexOf(Range.closed(760.580, 760.590));
+    while (!database.getIon(index).lipidAnnotation().getAnnotation().equals("PC 34:1")) {
+      index++;
+    }
+    TheoreticalLipidFragments fragments = database.getFragments(index);
+    assertSame(fragments, database.getFragments(index));
+
+    // phosphocholine headgroup
+    boolean headgroup = false;
+    for (int i = 0; i < fragments.size(); i++) {
+      headgroup |= Math.abs(fragments.getMz(i) - 184.0733) < 0.001;
+    }
+    assertTrue(headgroup);
+  }
+}
@@ -19,5 +19,6 @@ include(
     "utils",
     "javafx-framework",
     "config",
+    "benchmarks",
 )
 //includeBuild("convention-plugins")
\ No newline at end of file
@@ -25,6 +25,7 @@
 
 package io.github.mzmine.taskcontrol;
 
+import io.github.mzmine.taskcontrol.metrics.TaskMetricsRecorder;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -50,6 +51,8 @@ public abstract class AbstractTask implements Task {
   private String errorMessage = null;
   // listener to control status changes
   private List<TaskStatusListener> listener;
+  // measures the execution from processing to the final status
+  private volatile TaskMetricsRecorder metricsRecorder;
 
   /**
    * @param moduleCallDate the call date of module to order execution order
@@ -147,6 +150,7 @@ public abstract class AbstractTask implements Task {
   public final void setStatus(TaskStatus newStatus) {
     TaskStatus old = status;
     this.status = newStatus;
+    recordMetrics(newStatus, old);
     if (listener != null && !status.equals(old)) {
       for (int i = 0; i < listener.size(); i++) {
         listener.get(i).taskStatusChanged(this, status, old);
@@ -154,6 +158,23 @@ public abstract class AbstractTask implements Task {
     }
   }
 
+  /**
+   * Starts the {@link TaskMetricsRecorder} when processing starts and reports the metrics once the
+   * task finished, was canceled, or ran into an error
+   */
+  private void recordMetrics(TaskStatus newStatus, TaskStatus old) {
+    if (newStatus == TaskStatus.PROCESSING && old != TaskStatus.PROCESSING) {
+      metricsRecorder = TaskMetricsRecorder.start(this);
+      return;
+    }
+    final TaskMetricsRecorder recorder = metricsRecorder;
+    if (recorder != null && newStatus != TaskStatus.PROCESSING
+        && newStatus != TaskStatus.WAITING) {
+      metricsRecorder = null;
+      recorder.finish(this, newStatus);
+    }
+  }
+
   @Override
   public void addTaskStatusListener(TaskStatusListener list) {
     if (listener == null) {
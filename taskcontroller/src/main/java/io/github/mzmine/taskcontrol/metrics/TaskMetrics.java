@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.time.Instant;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Metrics of one task execution
+ *
+ * @param taskClass      the class of the task
+ * @param name           the task name
+ * @param description    the task description when the task started processing
+ * @param status         the final status
+ * @param start          start of processing
+ * @param durationNanos  wall clock time from processing until the final status
+ * @param cpuTimeNanos   CPU time of the thread that processed the task or -1 if not supported
+ * @param allocatedBytes bytes allocated by the thread that processed the task or -1 if not
+ *                       supported
+ * @param processedItems processed items or -1 if the task does not count them
+ */
+public record TaskMetrics(@NotNull String taskClass, @NotNull String name,
+                          @NotNull String description, @NotNull TaskStatus status,
+                          @NotNull Instant start, long durationNanos, long cpuTimeNanos,
+                          long allocatedBytes, long processedItems) {
+
+  /**
+   * @return processed items per second or -1 if items are not counted
+   */
+  public double itemsPerSecond() {
+    if (processedItems < 0 || durationNanos <= 0) {
+      return -1;
+    }
+    return processedItems / (durationNanos / 1_000_000_000d);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.taskcontrol.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view on the {@link TaskMetricsRegistry}, registered as {@value TaskMetricsRegistry#JMX_NAME}
+ */
+public interface TaskMetricsMXBean {
+
+  /**
+   * @return number of recorded task executions
+   */
+  int getRecordedTasks();
+
+  /**
+   * @return number of recorded tasks that ran into an error
+   */
+  int getErrorTasks();
+
+  /**
+   * @return number of recorded tasks that were canceled
+   */
+  int getCanceledTasks();
+
+  long getTotalCpuTimeMillis();
+
+  long getTotalAllocatedBytes();
+
+  /**
+   * @return the summed wall clock time of all tasks per task class
+   */
+  Map<String, Long> getWallTimeMillisPerTaskClass();
+
+  /**
+   * @return the summed CPU time of all tasks per task class
+   */
+  Map<String, Long> getCpuTimeMillisPerTaskClass();
+
+  /**
+   * Remove all recorded task executions
+   */
+  void clear();
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Measures one task execution. Started on the thread that processes the task. The task may be
+ * canceled from another thread, therefore CPU time and allocations are read by thread id.
+ */
+public final class TaskMetricsRecorder {
+
+  private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+  private final TaskExecutionEvent event = new TaskExecutionEvent();
+  private final AtomicBoolean finished = new AtomicBoolean(false);
+  private final long threadId;
+  private final Instant start;
+  private final long startNanos;
+  private final long startCpuNanos;
+  private final long startAllocatedBytes;
+  @NotNull
+  private final String description;
+
+  private TaskMetricsRecorder(@NotNull AbstractTask task) {
+    threadId = Thread.currentThread().threadId();
+    description = String.valueOf(task.getTaskDescription());
+    start = Instant.now();
+    startNanos = System.nanoTime();
+    startCpuNanos = getCpuTime(threadId);
+    startAllocatedBytes = getAllocatedBytes(threadId);
+    event.begin();
+  }
+
+  /**
+   * Start measuring the task on the current thread
+   */
+  @NotNull
+  public static TaskMetricsRecorder start(@NotNull AbstractTask task) {
+    return new TaskMetricsRecorder(task);
+  }
+
+  /**
+   * Finish the measurement and report it to JFR and the {@link TaskMetricsRegistry}. Only the
+   * first call is reported.
+   */
+  public void finish(@NotNull AbstractTask task, @NotNull TaskStatus status) {
+    if (!finished.compareAndSet(false, true)) {
+      return;
+    }
+    final long durationNanos = System.nanoTime() - startNanos;
+    final long cpuNanos = difference(getCpuTime(threadId), startCpuNanos);
+    final long allocatedBytes = difference(getAllocatedBytes(threadId), startAllocatedBytes);
+    final long processedItems =
+        task instanceof ProcessedItemsCounter counter ? counter.getProcessedItems() : -1;
+
+    event.end();
+    if (event.shouldCommit()) {
+      event.taskClass = task.getClass().getName();
+      event.taskName = task.getName();
+      event.description = description;
+      event.status = status.name();
+      event.processedItems = processedItems;
+      event.cpuTime = cpuNanos;
+      event.allocatedBytes = allocatedBytes;
+      event.commit();
+    }
+
+    final TaskMetricsRegistry registry = TaskMetricsRegistry.getInstance();
+    if (registry.isEnabled()) {
+      registry.add(new TaskMetrics(task.getClass().getName(), String.valueOf(task.getName()),
+          description, status, start, durationNanos, cpuNanos, allocatedBytes, processedItems));
+    }
+  }
+
+  private static long difference(long end, long start) {
+    return end < 0 || start < 0 ? -1 : end - start;
+  }
+
+  private static long getCpuTime(long threadId) {
+    try {
+      return threadBean.isThreadCpuTimeSupported() ? threadBean.getThreadCpuTime(threadId) : -1;
+    } catch (UnsupportedOperationException e) {
+      return -1;
+    }
+  }
+
+  private static long getAllocatedBytes(long threadId) {
+    if (threadBean instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported()) {
+      return bean.getThreadAllocatedBytes(threadId);
+    }
+    return -1;
+  }
+}
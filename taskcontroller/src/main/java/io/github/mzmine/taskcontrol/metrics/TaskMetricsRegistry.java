@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2004-2024 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.github.mzmine.taskcontrol.metrics;
+
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import javax.management.ObjectName;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects the {@link TaskMetrics} of all finished, canceled, and erroneous tasks. Recording is off
+ * by default and turned on by the system property {@value #FILE_PROPERTY}, which defines the tab
+ * separated file that the batch mode writes the metrics to, e.g.,
+ * {@code -Dmzmine.taskmetrics=D:\batch_task_metrics.tsv}. The registry is also available as the
+ * JMX bean {@value #JMX_NAME}.
+ */
+public final class TaskMetricsRegistry implements TaskMetricsMXBean {
+
+  public static final String FILE_PROPERTY = "mzmine.taskmetrics";
+  public static final String JMX_NAME = "io.github.mzmine:type=TaskMetrics";
+
+  private static final Logger logger = Logger.getLogger(TaskMetricsRegistry.class.getName());
+  private static final TaskMetricsRegistry INSTANCE = createDefault();
+
+  private final ConcurrentLinkedQueue<TaskMetrics> metrics = new ConcurrentLinkedQueue<>();
+  @Nullable
+  private final Path file;
+  private final boolean registerJmx;
+  private volatile boolean enabled;
+  private boolean registeredJmx;
+
+  /**
+   * @param file        the file to write the metrics to, null to not write a file
+   * @param registerJmx register as JMX bean when enabled
+   */
+  TaskMetricsRegistry(@Nullable String file, boolean registerJmx) {
+    this.file = file == null || file.isBlank() ? null : Path.of(file);
+    this.registerJmx = registerJmx;
+  }
+
+  @NotNull
+  private static TaskMetricsRegistry createDefault() {
+    final TaskMetricsRegistry registry = new TaskMetricsRegistry(
+        System.getProperty(FILE_PROPERTY), true);
+    if (registry.getFile() != null) {
+      registry.setEnabled(true);
+    }
+    return registry;
+  }
+
+  @NotNull
+  public static TaskMetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Turn recording on or off. Registers the JMX bean when turned on for the first time.
+   */
+  public synchronized void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    if (enabled && registerJmx && !registeredJmx) {
+      registeredJmx = true;
+      try {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(JMX_NAME));
+      } catch (Exception e) {
+        logger.log(Level.WARNING, "Cannot register task metrics JMX bean. " + e.getMessage(), e);
+      }
+    }
+  }
+
+  void add(@NotNull TaskMetrics taskMetrics) {
+    metrics.add(taskMetrics);
+  }
+
+  /**
+   * @return a copy of all recorded task executions
+   */
+  @NotNull
+  public List<TaskMetrics> getMetrics() {
+    return List.copyOf(metrics);
+  }
+
+  /**
+   * @return the file defined by the system property {@value #FILE_PROPERTY} or null
+   */
+  @Nullable
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Writes all recorded metrics to the file of the system property {@value #FILE_PROPERTY}. Does
+   * nothing if the property is not set.
+   */
+  public void writeToFile() {
+    if (file == null) {
+      return;
+    }
+    try {
+      write(file);
+      logger.info("Wrote task metrics to " + file.toAbsolutePath());
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot write task metrics to %s. %s".formatted(file,
+          e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Writes all recorded metrics as tab separated values, one task execution per line
+   */
+  public void write(@NotNull Path path) throws IOException {
+    final Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer writer = Files.newBufferedWriter(path)) {
+      writeTsv(writer);
+    }
+  }
+
+  void writeTsv(@NotNull Writer writer) throws IOException {
+    writer.write(String.join("\t", "task_class", "name", "description", "status", "start",
+        "duration_ms", "cpu_time_ms", "allocated_bytes", "processed_items", "items_per_second"));
+    writer.write('\n');
+    for (final TaskMetrics m : metrics) {
+      writer.write(String.join("\t", m.taskClass(), clean(m.name()), clean(m.description()),
+          m.status().name(), m.start().toString(), String.valueOf(m.durationNanos() / 1_000_000),
+          String.valueOf(toMillis(m.cpuTimeNanos())), String.valueOf(m.allocatedBytes()),
+          String.valueOf(m.processedItems()),
+          String.format(Locale.ROOT, "%.3f", m.itemsPerSecond())));
+      writer.write('\n');
+    }
+  }
+
+  private static String clean(@NotNull String value) {
+    return value.replaceAll("[\t\r\n]", " ");
+  }
+
+  private static long toMillis(long nanos) {
+    return nanos < 0 ? -1 : nanos / 1_000_000;
+  }
+
+  @Override
+  public int getRecordedTasks() {
+    return metrics.size();
+  }
+
+  @Override
+  public int getErrorTasks() {
+    return (int) metrics.stream().filter(m -> m.status() == TaskStatus.ERROR).count();
+  }
+
+  @Override
+  public int getCanceledTasks() {
+    return (int) metrics.stream().filter(m -> m.status() == TaskStatus.CANCELED).count();
+  }
+
+  @Override
+  public long getTotalCpuTimeMillis() {
+    return toMillis(metrics.stream().mapToLong(TaskMetrics::cpuTimeNanos).filter(v -> v > 0).sum());
+  }
+
+  @Override
+  public long getTotalAllocatedBytes() {
+    return metrics.stream().mapToLong(TaskMetrics::allocatedBytes).filter(v -> v > 0).sum();
+  }
+
+  @Override
+  public Map<String, Long> getWallTimeMillisPerTaskClass() {
+    return sumMillisPerTaskClass(TaskMetrics::durationNanos);
+  }
+
+  @Override
+  public Map<String, Long> getCpuTimeMillisPerTaskClass() {
+    return sumMillisPerTaskClass(TaskMetrics::cpuTimeNanos);
+  }
+
+  private Map<String, Long> sumMillisPerTaskClass(@NotNull ToLongFunction<TaskMetrics> nanos) {
+    return metrics.stream().collect(Collectors.groupingBy(TaskMetrics::taskClass, TreeMap::new,
+        Collectors.summingLong(m -> Math.max(0, nanos.applyAsLong(m)) / 1_000_000)));
+  }
+
+  @Override
+  public void clear() {
+    metrics.clear();
+  }
+}